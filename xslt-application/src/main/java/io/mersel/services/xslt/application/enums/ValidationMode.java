@@ -0,0 +1,51 @@
+package io.mersel.services.xslt.application.enums;
+
+import java.util.Locale;
+
+/**
+ * {@code /v1/validate} isteğinde hangi doğrulama aşamalarının çalışacağı.
+ * <p>
+ * İstekte ve profilde kebab-case ({@code xsd-only}) veya sabit adıyla ({@code XSD_ONLY}) verilir.
+ */
+public enum ValidationMode {
+
+    /** XSD ve Schematron birlikte (varsayılan). */
+    FULL,
+
+    /** Yalnızca XSD; Schematron atlanır. */
+    XSD_ONLY,
+
+    /** Yalnızca Schematron; XSD atlanır. */
+    SCHEMATRON_ONLY,
+
+    /**
+     * Önce XSD çalışır; belge iyi biçimli değilse veya XSD aşaması tamamlanamadıysa (ölümcül hata)
+     * Schematron atlanır. Ölümcül olmayan şema hatalarında Schematron yine çalışır.
+     */
+    SKIP_SCHEMATRON_ON_FATAL;
+
+    /**
+     * @return mod; değer boşsa {@code null}
+     * @throws IllegalArgumentException Bilinmeyen mod
+     */
+    public static ValidationMode parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String name = value.strip().replace('-', '_').toUpperCase(Locale.ROOT);
+        for (ValidationMode mode : values()) {
+            if (mode.name().equals(name)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Geçersiz doğrulama modu: " + value
+                + ". Geçerli değerler: full, xsd-only, schematron-only, skip-schematron-on-fatal");
+    }
+
+    /**
+     * @return istek ve profilde kullanılan kebab-case değer (örn: {@code xsd-only})
+     */
+    public String value() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
@@ -0,0 +1,52 @@
+package io.mersel.services.xslt.application.interfaces;
+
+import io.mersel.services.xslt.application.models.BatchDocument;
+import io.mersel.services.xslt.application.models.BatchTransformSummary;
+import io.mersel.services.xslt.application.models.TransformRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Toplu XSLT dönüşüm servisi arayüzü.
+ * <p>
+ * Aynı dönüşüm tipi, filigran ve özel XSLT ile çok sayıda belgeyi sınırlı bir işçi
+ * havuzunda paralel dönüştürür. Sonuçlar ZIP olarak akışa yazılır: her başarılı belge
+ * için bir HTML dosyası ve en sonda belge bazlı durum ile metadata içeren
+ * {@code manifest.json}.
+ */
+public interface IBatchTransformer {
+
+    /** ZIP yanıtındaki manifest dosyasının adı. */
+    String MANIFEST_NAME = "manifest.json";
+
+    /**
+     * Belgeleri dönüştürür ve sonuç ZIP'ini {@code zipOutput} akışına yazar.
+     * <p>
+     * Tek bir belgenin başarısızlığı toplu işlemi durdurmaz; manifest'te {@code FAILED}
+     * olarak raporlanır. Akış kapatılmaz.
+     *
+     * @param template  Ortak dönüşüm parametreleri (tip, kayıtlı şablon veya özel XSLT, filigran, gömülü XSLT);
+     *                  {@code document} alanı yok sayılır
+     * @param documents Girdi belgeleri — tembel okunur, tamamı belleğe alınmaz
+     * @param zipOutput ZIP'in yazılacağı akış (ör. HTTP yanıt gövdesi)
+     * @return Manifest ile aynı içerikte özet
+     * @throws IOException Girdi okunamadığında veya akışa yazılamadığında
+     */
+    BatchTransformSummary transform(TransformRequest template, DocumentSource documents, OutputStream zipOutput)
+            throws IOException;
+
+    /**
+     * Toplu dönüşüm girdisi. Belgeler sırayla, ihtiyaç oldukça okunur.
+     */
+    @FunctionalInterface
+    interface DocumentSource {
+
+        /**
+         * Sıradaki belgeyi döndürür.
+         *
+         * @return sıradaki belge; girdi bittiyse {@code null}
+         */
+        BatchDocument next() throws IOException;
+    }
+}
@@ -1,6 +1,10 @@
 package io.mersel.services.xslt.application.interfaces;
 
 import io.mersel.services.xslt.application.enums.DocumentType;
+import io.mersel.services.xslt.application.models.ParsedDocument;
+
+import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * XML belge içeriğinden belge türünü otomatik tespit eden servis arayüzü.
@@ -19,4 +23,35 @@ public interface IDocumentTypeDetector {
      * @throws DocumentTypeDetectionException belge türü tespit edilemezse
      */
     DocumentType detect(byte[] xmlContent) throws DocumentTypeDetectionException;
+
+    /**
+     * XML akışından belge türünü tespit eder.
+     * <p>
+     * Büyük belgelerde içerik belleğe alınmadan okunur; tespit için gereken kısım
+     * okunduktan sonra akışın geri kalanı tüketilmez. Akışı kapatmak çağıranın sorumluluğundadır.
+     *
+     * @param xmlContent doğrulanacak XML belgesinin akışı
+     * @return tespit edilen belge türü
+     * @throws DocumentTypeDetectionException belge türü tespit edilemezse veya akış okunamazsa
+     */
+    default DocumentType detect(InputStream xmlContent) throws DocumentTypeDetectionException {
+        try {
+            return detect(xmlContent.readAllBytes());
+        } catch (IOException e) {
+            throw new DocumentTypeDetectionException("XML okunamadı: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Önceden parse edilmiş belgeden belge türünü tespit eder.
+     * <p>
+     * Ağacı tanıyan implementasyonlar bilgiyi ağaçtan okur; varsayılan davranış ham içeriği yeniden okur.
+     *
+     * @param document {@link IValidationDocumentParser} ile parse edilmiş belge
+     * @return tespit edilen belge türü
+     * @throws DocumentTypeDetectionException belge türü tespit edilemezse
+     */
+    default DocumentType detect(ParsedDocument document) throws DocumentTypeDetectionException {
+        return detect(document.source());
+    }
 }
@@ -1,9 +1,15 @@
 package io.mersel.services.xslt.application.interfaces;
 
+import io.mersel.services.xslt.application.enums.DocumentType;
 import io.mersel.services.xslt.application.enums.SchemaValidationType;
+import io.mersel.services.xslt.application.models.ErrorBudget;
+import io.mersel.services.xslt.application.models.ParsedDocument;
 import io.mersel.services.xslt.application.models.XsdOverride;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * XML Schema (XSD) doğrulama servisi arayüzü.
@@ -50,6 +56,102 @@ public interface ISchemaValidator {
      */
     List<String> validate(byte[] source, SchemaValidationType schemaType, List<XsdOverride> overrides, String profileName);
 
+    /**
+     * XML akışını, profil bazlı XSD override'ları uygulayarak doğrular.
+     * <p>
+     * Belge belleğe alınmadan akış halinde doğrulanır — büyük belgelerde (ör. e-Defter kebir)
+     * bellek kullanımı belge boyutundan bağımsızdır. Varsayılan davranış akışı okuyup
+     * {@link #validate(byte[], SchemaValidationType, List, String)} çağrısıdır. Akışı kapatmak çağıranın sorumluluğundadır.
+     *
+     * @param source       Doğrulanacak XML akışı
+     * @param schemaType   Şema doğrulama tipi (Invoice, DespatchAdvice vb.)
+     * @param overrides    Uygulanacak XSD override listesi (boş ise orijinal şema kullanılır)
+     * @param profileName  Override'ları talep eden profil adı (cache key ve dosya adı için)
+     * @return Doğrulama hataları listesi (boş liste = geçerli)
+     * @throws IOException Akış okunamadığında
+     */
+    default List<String> validateStream(InputStream source, SchemaValidationType schemaType,
+                                        List<XsdOverride> overrides, String profileName) throws IOException {
+        return validate(source.readAllBytes(), schemaType, overrides, profileName);
+    }
+
+    /**
+     * Belge türü tespiti ile XSD doğrulamasını tek parse geçişinde yapan bir oturum açar.
+     * <p>
+     * Oturum önce {@link StreamSession#detectDocumentType()} ile belgeyi tür belirlenene kadar okur;
+     * bu sırada üretilen olaylar tamponlanır. Ardından {@link StreamSession#validate} tamponu şemanın
+     * doğrulayıcısına verir ve aynı akışı okumaya devam eder — belge ikinci kez parse edilmez.
+     * Varsayılan implementasyon tek geçişi desteklemez ve {@code null} döner; çağıran tespit ve
+     * doğrulamayı ayrı yapar.
+     *
+     * @param source Belge akışını açan kaynak; tampon sınırı aşılırsa doğrulama için yeniden açılabilir
+     * @return açılan oturum; tek geçiş desteklenmiyorsa {@code null}
+     * @throws IOException Akış açılamadığında
+     */
+    default StreamSession openStream(Callable<InputStream> source) throws IOException {
+        return null;
+    }
+
+    /**
+     * Önceden parse edilmiş belgeyi, profil bazlı XSD override'ları uygulayarak doğrular.
+     * <p>
+     * Ağacı tanıyan implementasyonlar belgeyi yeniden parse etmez, ağaçtan üretilen SAX
+     * olaylarını doğrular; varsayılan davranış ham içerikle {@link #validate(byte[], SchemaValidationType, List, String)}
+     * çağrısıdır.
+     *
+     * @param document     {@link IValidationDocumentParser} ile parse edilmiş belge
+     * @param schemaType   Şema doğrulama tipi (Invoice, DespatchAdvice vb.)
+     * @param overrides    Uygulanacak XSD override listesi (boş ise orijinal şema kullanılır)
+     * @param profileName  Override'ları talep eden profil adı (cache key ve dosya adı için)
+     * @return Doğrulama hataları listesi (boş liste = geçerli)
+     */
+    default List<String> validateDocument(ParsedDocument document, SchemaValidationType schemaType,
+                                          List<XsdOverride> overrides, String profileName) {
+        return validate(document.source(), schemaType, overrides, profileName);
+    }
+
+    // ── Hata Bütçesi ────────────────────────────────────────────────
+
+    /**
+     * {@link #validate(byte[], SchemaValidationType, List, String)} ile aynıdır; hata sayısı
+     * {@code budget} ile sınırlanır. Bütçe aşıldığında doğrulama {@code ErrorHandler} üzerinden
+     * kesilir, o ana kadar toplanan hatalar döner ve {@link ErrorBudget#isTruncated()} işaretlenir.
+     * Varsayılan implementasyon tam doğrulamanın sonucunu bütçeye göre kırpar.
+     *
+     * @param budget Aşamanın hata bütçesi ({@code null} ise sınırsız)
+     */
+    default List<String> validate(byte[] source, SchemaValidationType schemaType,
+                                  List<XsdOverride> overrides, String profileName, ErrorBudget budget) {
+        List<String> errors = validate(source, schemaType, overrides, profileName);
+        return budget != null ? budget.limit(errors) : errors;
+    }
+
+    /**
+     * {@link #validateStream(InputStream, SchemaValidationType, List, String)} ile aynıdır; hata sayısı
+     * {@code budget} ile sınırlanır — bkz. {@link #validate(byte[], SchemaValidationType, List, String, ErrorBudget)}.
+     *
+     * @param budget Aşamanın hata bütçesi ({@code null} ise sınırsız)
+     * @throws IOException Akış okunamadığında
+     */
+    default List<String> validateStream(InputStream source, SchemaValidationType schemaType,
+                                        List<XsdOverride> overrides, String profileName,
+                                        ErrorBudget budget) throws IOException {
+        List<String> errors = validateStream(source, schemaType, overrides, profileName);
+        return budget != null ? budget.limit(errors) : errors;
+    }
+
+    /**
+     * {@link #validateDocument(ParsedDocument, SchemaValidationType, List, String)} ile aynıdır; hata sayısı
+     * {@code budget} ile sınırlanır — bkz. {@link #validate(byte[], SchemaValidationType, List, String, ErrorBudget)}.
+     *
+     * @param budget Aşamanın hata bütçesi ({@code null} ise sınırsız)
+     */
+    default List<String> validateDocument(ParsedDocument document, SchemaValidationType schemaType,
+                                          List<XsdOverride> overrides, String profileName, ErrorBudget budget) {
+        List<String> errors = validateDocument(document, schemaType, overrides, profileName);
+        return budget != null ? budget.limit(errors) : errors;
+    }
+
     /**
      * Override XSD cache'ini temizler.
      * <p>
@@ -69,4 +171,47 @@ public interface ISchemaValidator {
      * @param profileName Profil adı (cache key ve dosya adı için)
      */
     void precompileOverrides(SchemaValidationType schemaType, List<XsdOverride> overrides, String profileName);
+
+    /**
+     * Tek geçişli tespit + XSD doğrulama oturumu. Tek thread tarafından, sırayla
+     * {@link #detectDocumentType()}, {@link #validate} ve {@link #close()} çağrılarak kullanılır.
+     */
+    interface StreamSession extends AutoCloseable {
+
+        /**
+         * Belgeyi tür belirlenene kadar okur.
+         *
+         * @return tespit edilen belge türü
+         * @throws DocumentTypeDetectionException belge türü tespit edilemezse
+         */
+        DocumentType detectDocumentType() throws DocumentTypeDetectionException;
+
+        /**
+         * Tamponlanan olaylarla başlayıp akışın geri kalanını doğrular.
+         *
+         * @param schemaType  Tespit edilen türün şema doğrulama tipi
+         * @param overrides   Uygulanacak XSD override listesi (boş ise orijinal şema kullanılır)
+         * @param profileName Override'ları talep eden profil adı
+         * @return Doğrulama hataları listesi (boş liste = geçerli)
+         */
+        List<String> validate(SchemaValidationType schemaType, List<XsdOverride> overrides, String profileName);
+
+        /**
+         * {@link #validate(SchemaValidationType, List, String)} ile aynıdır; hata sayısı {@code budget}
+         * ile sınırlanır, bütçe aşıldığında akışın geri kalanı okunmaz.
+         *
+         * @param budget Aşamanın hata bütçesi ({@code null} ise sınırsız)
+         */
+        default List<String> validate(SchemaValidationType schemaType, List<XsdOverride> overrides,
+                                      String profileName, ErrorBudget budget) {
+            List<String> errors = validate(schemaType, overrides, profileName);
+            return budget != null ? budget.limit(errors) : errors;
+        }
+
+        /**
+         * Akışı kapatır.
+         */
+        @Override
+        void close();
+    }
 }
@@ -1,9 +1,13 @@
 package io.mersel.services.xslt.application.interfaces;
 
 import io.mersel.services.xslt.application.enums.SchematronValidationType;
+import io.mersel.services.xslt.application.models.ErrorBudget;
+import io.mersel.services.xslt.application.models.ParsedDocument;
 import io.mersel.services.xslt.application.models.SchematronCustomAssertion;
 import io.mersel.services.xslt.application.models.SchematronError;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -46,6 +50,97 @@ public interface ISchematronValidator {
                                    List<SchematronCustomAssertion> customRules, String profileName,
                                    Map<String, String> parameters);
 
+    /**
+     * XML akışını Schematron kurallarına göre doğrular.
+     * <p>
+     * Schematron ağaç gerektirir; akış doğrudan ağaca okunur, ham içerik ayrıca bellekte
+     * tutulmaz. Varsayılan davranış akışı okuyup
+     * {@link #validate(byte[], SchematronValidationType, String, List, String, Map)} çağrısıdır. Akışı kapatmak çağıranın sorumluluğundadır.
+     *
+     * @param source         Doğrulanacak XML akışı
+     * @param schematronType Schematron doğrulama tipi
+     * @param sourceFileName Kaynak XML dosya adı ({@code null} ise dosya adı bilgisi gönderilmez)
+     * @param customRules    Enjekte edilecek profil bazlı özel Schematron kuralları (boş ise standart doğrulama)
+     * @param profileName    Kuralları talep eden profil adı (cache key ve dosya adı için)
+     * @param parameters     Schematron XSLT parametreleri (key/value). Boş veya {@code null} ise ek parametre gönderilmez.
+     * @return Yapılandırılmış doğrulama hataları listesi (boş liste = geçerli)
+     * @throws IOException Akış okunamadığında
+     */
+    default List<SchematronError> validateStream(InputStream source, SchematronValidationType schematronType,
+                                                 String sourceFileName,
+                                                 List<SchematronCustomAssertion> customRules, String profileName,
+                                                 Map<String, String> parameters) throws IOException {
+        return validate(source.readAllBytes(), schematronType, sourceFileName, customRules, profileName, parameters);
+    }
+
+    /**
+     * Önceden parse edilmiş belgeyi Schematron kurallarına göre doğrular.
+     * <p>
+     * Ağacı tanıyan implementasyonlar şablonları doğrudan ağaç üzerinde çalıştırır; varsayılan
+     * davranış ham içerik ve {@link ParsedDocument#systemId()} ile
+     * {@link #validate(byte[], SchematronValidationType, String, List, String, Map)} çağrısıdır.
+     *
+     * @param document       {@link IValidationDocumentParser} ile parse edilmiş belge
+     * @param schematronType Schematron doğrulama tipi
+     * @param customRules    Enjekte edilecek profil bazlı özel Schematron kuralları (boş ise standart doğrulama)
+     * @param profileName    Kuralları talep eden profil adı (cache key ve dosya adı için)
+     * @param parameters     Schematron XSLT parametreleri (key/value). Boş veya {@code null} ise ek parametre gönderilmez.
+     * @return Yapılandırılmış doğrulama hataları listesi (boş liste = geçerli)
+     */
+    default List<SchematronError> validateDocument(ParsedDocument document, SchematronValidationType schematronType,
+                                                   List<SchematronCustomAssertion> customRules, String profileName,
+                                                   Map<String, String> parameters) {
+        return validate(document.source(), schematronType, document.systemId(), customRules, profileName, parameters);
+    }
+
+    // ── Hata Bütçesi ────────────────────────────────────────────────
+
+    /**
+     * {@link #validate(byte[], SchematronValidationType, String, List, String, Map)} ile aynıdır; hata
+     * sayısı {@code budget} ile sınırlanır. Bütçe aşıldığında Schematron dönüşümü erken sonlandırılır,
+     * o ana kadar üretilen hatalar döner ve {@link ErrorBudget#isTruncated()} işaretlenir.
+     * Varsayılan implementasyon tam doğrulamanın sonucunu bütçeye göre kırpar.
+     *
+     * @param budget Aşamanın hata bütçesi ({@code null} ise sınırsız)
+     */
+    default List<SchematronError> validate(byte[] source, SchematronValidationType schematronType,
+                                           String sourceFileName,
+                                           List<SchematronCustomAssertion> customRules, String profileName,
+                                           Map<String, String> parameters, ErrorBudget budget) {
+        List<SchematronError> errors = validate(source, schematronType, sourceFileName, customRules, profileName, parameters);
+        return budget != null ? budget.limit(errors) : errors;
+    }
+
+    /**
+     * {@link #validateStream(InputStream, SchematronValidationType, String, List, String, Map)} ile aynıdır;
+     * hata sayısı {@code budget} ile sınırlanır — bkz.
+     * {@link #validate(byte[], SchematronValidationType, String, List, String, Map, ErrorBudget)}.
+     *
+     * @param budget Aşamanın hata bütçesi ({@code null} ise sınırsız)
+     * @throws IOException Akış okunamadığında
+     */
+    default List<SchematronError> validateStream(InputStream source, SchematronValidationType schematronType,
+                                                 String sourceFileName,
+                                                 List<SchematronCustomAssertion> customRules, String profileName,
+                                                 Map<String, String> parameters, ErrorBudget budget) throws IOException {
+        List<SchematronError> errors = validateStream(source, schematronType, sourceFileName, customRules, profileName, parameters);
+        return budget != null ? budget.limit(errors) : errors;
+    }
+
+    /**
+     * {@link #validateDocument(ParsedDocument, SchematronValidationType, List, String, Map)} ile aynıdır;
+     * hata sayısı {@code budget} ile sınırlanır — bkz.
+     * {@link #validate(byte[], SchematronValidationType, String, List, String, Map, ErrorBudget)}.
+     *
+     * @param budget Aşamanın hata bütçesi ({@code null} ise sınırsız)
+     */
+    default List<SchematronError> validateDocument(ParsedDocument document, SchematronValidationType schematronType,
+                                                   List<SchematronCustomAssertion> customRules, String profileName,
+                                                   Map<String, String> parameters, ErrorBudget budget) {
+        List<SchematronError> errors = validateDocument(document, schematronType, customRules, profileName, parameters);
+        return budget != null ? budget.limit(errors) : errors;
+    }
+
     /**
      * Özel kural cache'ini temizler.
      * <p>
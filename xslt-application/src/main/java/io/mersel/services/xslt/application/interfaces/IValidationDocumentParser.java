@@ -0,0 +1,28 @@
+package io.mersel.services.xslt.application.interfaces;
+
+import io.mersel.services.xslt.application.models.ParsedDocument;
+
+import java.util.Optional;
+
+/**
+ * Doğrulama isteğindeki XML belgesini bir kez parse eden servis arayüzü.
+ * <p>
+ * Üretilen {@link ParsedDocument}; {@link IDocumentTypeDetector#detect(ParsedDocument)},
+ * {@link ISchemaValidator#validateDocument} ve {@link ISchematronValidator#validateDocument}
+ * tarafından paylaşılır.
+ */
+public interface IValidationDocumentParser {
+
+    /**
+     * XML içeriğini ağaç olarak parse eder.
+     * <p>
+     * Belge iyi biçimli değilse veya güvenlik nedeniyle reddedilirse (ör. DOCTYPE) boş döner;
+     * çağıran bu durumda ham içerikle doğrulamaya devam eder ve hatalar önceki gibi
+     * ilgili aşamada raporlanır.
+     *
+     * @param source   Doğrulanacak XML içeriği
+     * @param systemId Kaynak dosya adı — Schematron çıktısında {@code base-uri()} olarak görünür; {@code null} olabilir
+     * @return Parse edilmiş belge; parse edilemezse boş
+     */
+    Optional<ParsedDocument> parse(byte[] source, String systemId);
+}
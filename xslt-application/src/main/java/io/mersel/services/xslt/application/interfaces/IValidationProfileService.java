@@ -126,6 +126,15 @@ public interface IValidationProfileService {
      */
     boolean deleteProfile(String profileName) throws IOException;
 
+    /**
+     * Profil revizyonu — profiller yeniden yüklendiğinde, kaydedildiğinde veya silindiğinde artar.
+     * <p>
+     * Profile bağlı doğrulama sonuçlarını cache'leyen bileşenler revizyonu anahtarlarına katar.
+     *
+     * @return Monoton artan revizyon numarası
+     */
+    long revision();
+
     // ── Global Schematron Kuralları ──────────────────────────────────
 
     /**
@@ -0,0 +1,52 @@
+package io.mersel.services.xslt.application.interfaces;
+
+import io.mersel.services.xslt.application.models.XsltTemplate;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Sunucu tarafı XSLT şablon kayıt defteri.
+ * <p>
+ * Müşteriye özel şablonlar bir kez yüklenir ve asset dizininde saklanır;
+ * dönüşüm istekleri her seferinde XSLT göndermek yerine {@code templateId} ile
+ * referans verir. Şablonlar yeniden yüklemede önceden derlenir.
+ */
+public interface IXsltTemplateRegistry {
+
+    /**
+     * Kayıtlı tüm şablonları kimliğe göre sıralı döndürür.
+     */
+    List<XsltTemplate> getTemplates();
+
+    /**
+     * Belirtilen kimlikteki şablonu döndürür.
+     *
+     * @param id Şablon kimliği
+     * @return Şablon, bulunamazsa {@link Optional#empty()}
+     */
+    Optional<XsltTemplate> getTemplate(String id);
+
+    /**
+     * Şablonu oluşturur veya günceller.
+     * <p>
+     * İçerik kaydedilmeden önce derlenir; derlenemeyen şablon kaydedilmez.
+     *
+     * @param id      Şablon kimliği — küçük harf, rakam, tire ve alt çizgi; 1-64 karakter
+     * @param content XSLT içeriği
+     * @return Kaydedilen şablon (yeni versiyonu ile)
+     * @throws IllegalArgumentException Kimlik geçersizse veya XSLT derlenemezse
+     * @throws IOException              Asset dizinine yazılamazsa
+     */
+    XsltTemplate saveTemplate(String id, byte[] content) throws IOException;
+
+    /**
+     * Şablonu siler.
+     *
+     * @param id Şablon kimliği
+     * @return true silinirse, false şablon yoksa
+     * @throws IOException Asset dosyası silinemezse
+     */
+    boolean deleteTemplate(String id) throws IOException;
+}
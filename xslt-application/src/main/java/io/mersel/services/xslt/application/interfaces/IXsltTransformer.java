@@ -1,8 +1,13 @@
 package io.mersel.services.xslt.application.interfaces;
 
+import io.mersel.services.xslt.application.models.ClientTemplate;
 import io.mersel.services.xslt.application.models.TransformRequest;
 import io.mersel.services.xslt.application.models.TransformResult;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Optional;
+
 /**
  * XSLT dönüşüm servisi arayüzü.
  * <p>
@@ -23,6 +28,81 @@ public interface IXsltTransformer {
      */
     TransformResult transform(TransformRequest request) throws TransformException;
 
+    /**
+     * XML belgesini dönüştürür ve HTML'i doğrudan {@code output} akışına yazar.
+     * <p>
+     * Çıktı bellekte tam olarak tutulmaz; dönen sonuçta {@link TransformResult#getHtmlContent()}
+     * {@code null}'dır, boyut {@link TransformResult#getOutputSize()} ile okunur.
+     * Özel XSLT başarısız olduğunda varsayılana dönüş yalnızca çıktı henüz akışa
+     * yazılmaya başlamadıysa mümkündür. Akış kapatılmaz.
+     * <p>
+     * Varsayılan implementasyon sonucu bellekte üretip akışa kopyalar.
+     *
+     * @param request Dönüşüm isteği
+     * @param output  HTML'in yazılacağı akış (ör. HTTP yanıt gövdesi)
+     * @return Dönüşüm metadata'sı (HTML içeriği olmadan)
+     * @throws TransformException Dönüşüm başarısız olduğunda
+     * @throws IOException        Akışa yazılamadığında
+     */
+    default TransformResult transform(TransformRequest request, OutputStream output)
+            throws TransformException, IOException {
+        TransformResult result = transform(request);
+        output.write(result.getHtmlContent());
+        output.flush();
+        return result.toBuilder()
+                .htmlContent(null)
+                .outputSize(result.getOutputSize())
+                .build();
+    }
+
+    /**
+     * Dönüşümü çalıştırmadan, isteğin üreteceği sonucun etiketini döndürür.
+     * <p>
+     * Etiket yalnızca girdilerin hash'lerinden hesaplanır; aynı etiket aynı HTML demektir.
+     * Controller bunu {@code If-None-Match} karşılaştırması için kullanır.
+     *
+     * @return sonuç etiketi; sonuç cache'i kapalıysa {@code null}
+     */
+    default String resultTag(TransformRequest request) {
+        return null;
+    }
+
+    /**
+     * Etiketin işaret ettiği sonuç cache'te mi?
+     * <p>
+     * Etiket girdilerden hesaplanır, özel/gömülü XSLT'nin varsayılana dönüp dönmeyeceğini bilmez.
+     * Cache'e yalnızca varsayılana dönülmeden üretilen sonuçlar yazıldığından {@code true} değeri
+     * etiketin gerçekten o HTML'i gösterdiğini kanıtlar; controller {@code 304}'ü ancak bu durumda döner.
+     *
+     * @return sonuç cache'te ise {@code true}; cache kapalıysa {@code false}
+     */
+    default boolean hasCachedResult(String resultTag) {
+        return false;
+    }
+
+    /**
+     * İsteğin tarayıcıda (istemci tarafı) render edilebileceği şablonu döndürür.
+     * <p>
+     * Yalnızca isteğin kullanacağı varsayılan veya kayıtlı şablon derleme anında XSLT 1.0 olarak
+     * tespit edildiyse ve istek sunucu tarafı işlem gerektirmiyorsa (özel veya gömülü XSLT,
+     * filigran) dolu döner. Boş dönerse çağıran sunucu tarafı dönüşüme geri dönmelidir.
+     *
+     * @return istemci tarafı şablon; desteklenmiyorsa boş
+     */
+    default Optional<ClientTemplate> resolveClientTemplate(TransformRequest request) {
+        return Optional.empty();
+    }
+
+    /**
+     * İçerik hash'i ile istemci tarafı şablonu döndürür.
+     *
+     * @param hash {@link ClientTemplate#hash()} değeri
+     * @return şablon; hash bilinmiyorsa veya şablon tarayıcıya uygun değilse boş
+     */
+    default Optional<ClientTemplate> getClientTemplate(String hash) {
+        return Optional.empty();
+    }
+
     /**
      * Dönüşüm başarısız olduğunda fırlatılan istisna.
      * Controller bu istisnayı {@code 422 Unprocessable Entity} olarak çevirir.
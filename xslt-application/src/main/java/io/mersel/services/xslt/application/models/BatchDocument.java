@@ -0,0 +1,26 @@
+package io.mersel.services.xslt.application.models;
+
+/**
+ * Toplu dönüşümdeki tek bir girdi belgesi.
+ * <p>
+ * Girdi okunurken reddedilen belgeler (ör. boyut limiti aşımı) içeriksiz ve
+ * {@code rejectionReason} dolu olarak iletilir; manifest'te başarısız olarak raporlanır.
+ *
+ * @param name            Girdi adı (ZIP entry adı veya multipart dosya adı)
+ * @param content         XML belge içeriği ({@code rejectionReason} doluysa {@code null})
+ * @param rejectionReason Belge okunurken reddedildiyse sebep, aksi halde {@code null}
+ */
+public record BatchDocument(
+        String name,
+        byte[] content,
+        String rejectionReason
+) {
+
+    public static BatchDocument of(String name, byte[] content) {
+        return new BatchDocument(name, content, null);
+    }
+
+    public static BatchDocument rejected(String name, String reason) {
+        return new BatchDocument(name, null, reason);
+    }
+}
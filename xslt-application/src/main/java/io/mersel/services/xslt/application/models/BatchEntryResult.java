@@ -0,0 +1,57 @@
+package io.mersel.services.xslt.application.models;
+
+import java.util.List;
+
+/**
+ * Toplu dönüşümde tek bir belgenin sonucu — {@code manifest.json} içindeki bir kayıt.
+ * <p>
+ * Başarılı kayıtlar {@link TransformResult} metadata'sını taşır; HTML içeriği
+ * ZIP'te {@code output} adıyla yer alır.
+ *
+ * @param name                Girdi adı
+ * @param output              ZIP içindeki HTML dosyasının adı (başarısızsa {@code null})
+ * @param status              {@code SUCCESS} veya {@code FAILED}
+ * @param error               Başarısızlık sebebi (başarılıysa {@code null})
+ * @param defaultXslUsed      Varsayılan XSLT kullanıldı mı
+ * @param embeddedXsltUsed    Gömülü XSLT kullanıldı mı
+ * @param customXsltError     Özel/gömülü XSLT hata mesajı (fallback durumunda)
+ * @param watermarkApplied    Filigran uygulandı mı
+ * @param durationMs          Belge dönüşüm süresi (milisaniye)
+ * @param outputSize          HTML çıktı boyutu (byte)
+ * @param removedScriptCount  Sanitization ile kaldırılan script sayısı
+ * @param allowedScriptHashes İzin verilen script'lerin SHA-256 hash'leri
+ * @param securityViolations  Tespit edilen güvenlik ihlalleri
+ */
+public record BatchEntryResult(
+        String name,
+        String output,
+        Status status,
+        String error,
+        boolean defaultXslUsed,
+        boolean embeddedXsltUsed,
+        String customXsltError,
+        boolean watermarkApplied,
+        long durationMs,
+        long outputSize,
+        int removedScriptCount,
+        List<String> allowedScriptHashes,
+        List<String> securityViolations
+) {
+
+    public enum Status {
+        SUCCESS,
+        FAILED
+    }
+
+    public static BatchEntryResult success(String name, String output, TransformResult result) {
+        return new BatchEntryResult(name, output, Status.SUCCESS, null,
+                result.isDefaultXslUsed(), result.isEmbeddedXsltUsed(), result.getCustomXsltError(),
+                result.isWatermarkApplied(), result.getDurationMs(), result.getOutputSize(),
+                result.getRemovedScriptCount(), result.getAllowedScriptHashes(), result.getSecurityViolations());
+    }
+
+    public static BatchEntryResult failed(String name, String error, long durationMs) {
+        return new BatchEntryResult(name, null, Status.FAILED, error,
+                false, false, null, false, durationMs, 0, 0, List.of(), List.of());
+    }
+}
@@ -0,0 +1,25 @@
+package io.mersel.services.xslt.application.models;
+
+import java.util.List;
+
+/**
+ * Toplu dönüşüm özeti — ZIP yanıtındaki {@code manifest.json} içeriği.
+ *
+ * @param transformType Ortak dönüşüm tipi
+ * @param total         İşlenen belge sayısı
+ * @param succeeded     Başarılı dönüşüm sayısı
+ * @param failed        Başarısız dönüşüm sayısı
+ * @param truncated     Girdi {@code xslt.batch.max-entries} limitini aştığı için kesildi mi
+ * @param durationMs    Toplam süre (milisaniye)
+ * @param entries       Belge bazlı sonuçlar (girdi sırasıyla)
+ */
+public record BatchTransformSummary(
+        String transformType,
+        int total,
+        int succeeded,
+        int failed,
+        boolean truncated,
+        long durationMs,
+        List<BatchEntryResult> entries
+) {
+}
@@ -0,0 +1,20 @@
+package io.mersel.services.xslt.application.models;
+
+import java.util.List;
+
+/**
+ * Tarayıcıda çalıştırılabilen (XSLT 1.0) dönüşüm şablonu.
+ * <p>
+ * İstemci tarafı render modunda XML belgesi bu şablona işaret eden bir {@code xml-stylesheet}
+ * işlem talimatı ile döner; şablon içerik hash'li, değişmez bir URL'den sunulur.
+ *
+ * @param hash         İçeriğin SHA-256 değerinin ilk 16 hex karakteri (URL anahtarı)
+ * @param content      XSLT içeriği — tarayıcıya olduğu gibi sunulur
+ * @param scriptHashes Şablon derleme anında güvenli kanıtlandıysa literal script'lerin CSP hash'leri; aksi halde boş
+ */
+public record ClientTemplate(
+        String hash,
+        byte[] content,
+        List<String> scriptHashes
+) {
+}
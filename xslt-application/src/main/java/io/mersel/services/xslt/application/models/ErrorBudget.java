@@ -0,0 +1,215 @@
+package io.mersel.services.xslt.application.models;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tek bir doğrulama aşamasının hata bütçesi.
+ * <p>
+ * Doğrulayıcı her hatayı {@link #tryRecord()} ile bildirir. En fazla {@code maxErrors} hata
+ * kabul edilir; bir sonraki hata görüldüğünde bütçe aşılmış sayılır, aşama erken sonlandırılır ve
+ * sonuç {@link #isTruncated()} ile kesilmiş olarak işaretlenir. Böylece tam {@code maxErrors}
+ * hatası olan belge kesilmiş sayılmaz.
+ * <p>
+ * {@link #aggregating(int, int)} ile oluşturulan bütçe hataları toplanırken kurala göre gruplar:
+ * doğrulayıcı hatayı {@link #tryGroup(String, String, String)} ile grubuna sayar, yalnızca grubun
+ * ilk {@code samplesPerGroup} hatası için mesaj üretip {@link #addSample(String, String, String, String)}
+ * ile örnek olarak ekler. Tam hata listesi hiç oluşmaz; aynı kuralın binlerce tekrarı tek grup,
+ * bir sayaç ve birkaç örnek olarak tutulur.
+ * <p>
+ * Doğrulayıcı belgenin iyi biçimli olmadığını veya aşamanın tamamlanamadığını {@link #recordFatal()}
+ * ile bildirir; {@code skip-schematron-on-fatal} modu sonraki aşamayı buna göre atlar.
+ * <p>
+ * Aşama başına yeni örnek oluşturulur; tek thread tarafından kullanılır.
+ */
+public final class ErrorBudget {
+
+    /** 0 ise sınırsız. */
+    private final int maxErrors;
+    /** 0 ise gruplama kapalı. */
+    private final int samplesPerGroup;
+    private final Map<GroupKey, Group> groups;
+    private int seen;
+    private boolean truncated;
+    private boolean fatal;
+
+    /**
+     * @param maxErrors Kabul edilecek en fazla hata sayısı (pozitif)
+     */
+    public ErrorBudget(int maxErrors) {
+        this(maxErrors, 0);
+        if (maxErrors <= 0) {
+            throw new IllegalArgumentException("maxErrors pozitif olmalıdır: " + maxErrors);
+        }
+    }
+
+    private ErrorBudget(int maxErrors, int samplesPerGroup) {
+        this.maxErrors = Math.max(maxErrors, 0);
+        this.samplesPerGroup = samplesPerGroup;
+        this.groups = samplesPerGroup > 0 ? new LinkedHashMap<>() : null;
+    }
+
+    /**
+     * Hata sınırı ve gruplama olmadan yalnızca sayan bütçe — ölümcül hata takibi için.
+     */
+    public static ErrorBudget unlimited() {
+        return new ErrorBudget(0, 0);
+    }
+
+    /**
+     * Hataları kurala göre gruplayan bütçe.
+     *
+     * @param maxErrors       Kabul edilecek en fazla hata sayısı; 0 veya negatif ise sınırsız
+     * @param samplesPerGroup Grup başına tutulacak örnek hata sayısı (pozitif)
+     */
+    public static ErrorBudget aggregating(int maxErrors, int samplesPerGroup) {
+        if (samplesPerGroup <= 0) {
+            throw new IllegalArgumentException("samplesPerGroup pozitif olmalıdır: " + samplesPerGroup);
+        }
+        return new ErrorBudget(maxErrors, samplesPerGroup);
+    }
+
+    /**
+     * @return hata sınırı; 0 ise sınırsız
+     */
+    public int maxErrors() {
+        return maxErrors;
+    }
+
+    /**
+     * Bir hatayı bütçeye işler.
+     *
+     * @return hata bütçe içindeyse {@code true}; bütçe aşıldıysa {@code false} — çağıran
+     *         hatayı eklememeli ve aşamayı sonlandırmalıdır
+     */
+    public boolean tryRecord() {
+        if (truncated) {
+            return false;
+        }
+        seen++;
+        if (maxErrors > 0 && seen > maxErrors) {
+            truncated = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Aşama sonlanana kadar görülen hata sayısı — kesildiyse bütçeyi aşan hata dahil.
+     */
+    public int seen() {
+        return seen;
+    }
+
+    /** Bütçe aşıldı ve aşama erken sonlandırıldı mı. */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Aşamada ölümcül hata görüldüğünü işaretler — belge iyi biçimli değil veya okunamadı.
+     */
+    public void recordFatal() {
+        fatal = true;
+    }
+
+    /** Aşamada ölümcül hata görüldü mü. */
+    public boolean hasFatal() {
+        return fatal;
+    }
+
+    // ── Gruplama ────────────────────────────────────────────────────
+
+    /** Hatalar kurala göre gruplanıyor mu. */
+    public boolean isAggregating() {
+        return groups != null;
+    }
+
+    /**
+     * Bir hatayı grubuna sayar. Grup {@code ruleId} + {@code test} ile, ikisi de {@code null} ise
+     * {@code message} ile belirlenir.
+     *
+     * @return hata örnek olarak tutulmalıysa {@code true}; grup örnekleri dolduysa {@code false} —
+     *         çağıran hatayı yalnızca saymış olur, mesaj üretmesine gerek yoktur.
+     *         Gruplama kapalıyken her zaman {@code true}.
+     */
+    public boolean tryGroup(String ruleId, String test, String message) {
+        if (groups == null) {
+            return true;
+        }
+        Group group = groups.computeIfAbsent(GroupKey.of(ruleId, test, message), Group::new);
+        group.count++;
+        return group.count <= samplesPerGroup;
+    }
+
+    /**
+     * {@link #tryGroup(String, String, String)} ile örnek olarak kabul edilen hatanın mesajını ekler.
+     *
+     * @param location Belgedeki konum ({@code null} olabilir)
+     */
+    public void addSample(String ruleId, String test, String message, String location) {
+        if (groups == null) {
+            return;
+        }
+        Group group = groups.get(GroupKey.of(ruleId, test, message));
+        if (group != null && group.samples.size() < samplesPerGroup) {
+            group.samples.add(new ErrorGroup.Sample(message, location));
+        }
+    }
+
+    /**
+     * @return gruplar, ilk görülme sırasıyla; gruplama kapalıysa boş liste
+     */
+    public List<ErrorGroup> groups() {
+        if (groups == null) {
+            return List.of();
+        }
+        var result = new ArrayList<ErrorGroup>(groups.size());
+        for (Group group : groups.values()) {
+            result.add(new ErrorGroup(group.key.ruleId(), group.key.test(), group.count, List.copyOf(group.samples)));
+        }
+        return result;
+    }
+
+    /**
+     * Bütçeyi desteklemeyen doğrulayıcıların tam listesine bütçeyi sonradan uygular.
+     * Gruplama yapılmaz.
+     *
+     * @return bütçe içindeki ilk hatalar
+     */
+    public <T> List<T> limit(List<T> errors) {
+        var kept = new ArrayList<T>(maxErrors > 0 ? Math.min(errors.size(), maxErrors) : errors.size());
+        for (T error : errors) {
+            if (!tryRecord()) {
+                break;
+            }
+            kept.add(error);
+        }
+        return kept;
+    }
+
+    /**
+     * Grup anahtarı — kural bilgisi yoksa mesaj metni.
+     */
+    private record GroupKey(String ruleId, String test, String message) {
+
+        static GroupKey of(String ruleId, String test, String message) {
+            return ruleId != null || test != null
+                    ? new GroupKey(ruleId, test, null)
+                    : new GroupKey(null, null, message);
+        }
+    }
+
+    private static final class Group {
+
+        private final GroupKey key;
+        private final List<ErrorGroup.Sample> samples = new ArrayList<>(2);
+        private int count;
+
+        Group(GroupKey key) {
+            this.key = key;
+        }
+    }
+}
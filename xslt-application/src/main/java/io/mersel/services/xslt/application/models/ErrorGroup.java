@@ -0,0 +1,32 @@
+package io.mersel.services.xslt.application.models;
+
+import java.util.List;
+
+/**
+ * Aynı kuraldan gelen tekrarlı doğrulama hatalarının özeti.
+ * <p>
+ * Schematron hataları {@code ruleId} + {@code test}, XSD hataları cvc kodu + element adı ile
+ * gruplanır. Grup anahtarı taşımayan hatalar (pre-compiled XSL çıktısı, parse hataları) mesaj
+ * metniyle gruplanır; bu durumda {@code ruleId} ve {@code test} {@code null} olur.
+ *
+ * @param ruleId  Schematron kural kimliği veya XSD cvc kodu (örn: {@code cvc-complex-type.2.4.a})
+ * @param test    Schematron XPath test ifadesi veya XSD hatasındaki element adı
+ * @param count   Gruptaki toplam hata sayısı — örnekler dahil
+ * @param samples İlk birkaç hatanın mesajı ve konumu, görülme sırasıyla
+ */
+public record ErrorGroup(
+        String ruleId,
+        String test,
+        int count,
+        List<Sample> samples
+) {
+
+    /**
+     * Gruptan örnek bir hata.
+     *
+     * @param message  Hata mesajı
+     * @param location Belgedeki konum ({@code satır:sütun}); Schematron çıktısında bulunmaz, {@code null} olur
+     */
+    public record Sample(String message, String location) {
+    }
+}
@@ -0,0 +1,22 @@
+package io.mersel.services.xslt.application.models;
+
+/**
+ * Doğrulama isteği boyunca bir kez parse edilen XML belgesi.
+ * <p>
+ * Belge türü tespiti, XSD ve Schematron doğrulaması aynı ağacı okur — belge istek başına
+ * tek kez parse edilir. Ağaç değişmezdir; aşamalar paralel çalışsa da aynı örneği paylaşabilir.
+ * Ağacın kendisi implementasyona özeldir (ör. Saxon {@code XdmNode}); ağacı tanımayan
+ * implementasyonlar {@link #source()} ile ham içerik üzerinden çalışmaya devam eder.
+ */
+public interface ParsedDocument {
+
+    /**
+     * @return Belgenin parse edildiği ham XML içeriği
+     */
+    byte[] source();
+
+    /**
+     * @return Belgenin sistem kimliği (yüklenen dosya adı); yoksa {@code null}
+     */
+    String systemId();
+}
@@ -2,6 +2,10 @@ package io.mersel.services.xslt.application.models;
 
 import io.mersel.services.xslt.application.enums.TransformType;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
 /**
  * XSLT dönüşüm isteği modeli.
  * <p>
@@ -22,6 +26,12 @@ public class TransformRequest {
      */
     private byte[] transformer;
 
+    /**
+     * Sunucuda kayıtlı XSLT şablonunun kimliği (opsiyonel).
+     * Verilirse {@code transformer} yerine kayıtlı, önceden derlenmiş şablon kullanılır.
+     */
+    private String templateId;
+
     /**
      * Filigran metni (opsiyonel).
      * Boş değilse, dönüştürülmüş HTML'e filigran eklenir.
@@ -37,6 +47,13 @@ public class TransformRequest {
      */
     private boolean useEmbeddedXslt;
 
+    /**
+     * Belge ve özel XSLT içeriklerinin SHA-256 hex değerleri — ilk kullanımda hesaplanır.
+     * Sonuç cache anahtarı ve derlenmiş XSLT cache'i aynı hash'i tekrar hesaplamadan kullanır.
+     */
+    private String documentHash;
+    private String transformerHash;
+
     public TransformRequest() {
     }
 
@@ -63,6 +80,15 @@ public class TransformRequest {
 
     public void setDocument(byte[] document) {
         this.document = document;
+        this.documentHash = null;
+    }
+
+    /** Belge içeriğinin SHA-256 hex değeri ({@code document} null ise {@code null}). */
+    public String getDocumentHash() {
+        if (documentHash == null && document != null) {
+            documentHash = sha256Hex(document);
+        }
+        return documentHash;
     }
 
     public byte[] getTransformer() {
@@ -71,6 +97,23 @@ public class TransformRequest {
 
     public void setTransformer(byte[] transformer) {
         this.transformer = transformer;
+        this.transformerHash = null;
+    }
+
+    /** Özel XSLT içeriğinin SHA-256 hex değeri ({@code transformer} null ise {@code null}). */
+    public String getTransformerHash() {
+        if (transformerHash == null && transformer != null) {
+            transformerHash = sha256Hex(transformer);
+        }
+        return transformerHash;
+    }
+
+    public String getTemplateId() {
+        return templateId;
+    }
+
+    public void setTemplateId(String templateId) {
+        this.templateId = templateId;
     }
 
     public String getWatermarkText() {
@@ -88,4 +131,12 @@ public class TransformRequest {
     public void setUseEmbeddedXslt(boolean useEmbeddedXslt) {
         this.useEmbeddedXslt = useEmbeddedXslt;
     }
+
+    private static String sha256Hex(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
 }
@@ -15,6 +15,8 @@ import java.util.List;
 public class TransformResult {
 
     private final byte[] htmlContent;
+    private final byte[] gzipContent;
+    private final long outputSize;
     private final boolean defaultXslUsed;
     private final boolean embeddedXsltUsed;
     private final String customXsltError;
@@ -23,9 +25,14 @@ public class TransformResult {
     private final List<String> allowedScriptHashes;
     private final int removedScriptCount;
     private final List<String> securityViolations;
+    private final String resultTag;
+    private final boolean cacheHit;
 
     private TransformResult(Builder builder) {
         this.htmlContent = builder.htmlContent;
+        this.gzipContent = builder.gzipContent;
+        this.outputSize = builder.outputSize >= 0 ? builder.outputSize
+                : (builder.htmlContent != null ? builder.htmlContent.length : 0);
         this.defaultXslUsed = builder.defaultXslUsed;
         this.embeddedXsltUsed = builder.embeddedXsltUsed;
         this.customXsltError = builder.customXsltError;
@@ -34,13 +41,31 @@ public class TransformResult {
         this.allowedScriptHashes = builder.allowedScriptHashes != null ? builder.allowedScriptHashes : List.of();
         this.removedScriptCount = builder.removedScriptCount;
         this.securityViolations = builder.securityViolations != null ? builder.securityViolations : List.of();
+        this.resultTag = builder.resultTag;
+        this.cacheHit = builder.cacheHit;
     }
 
-    /** Dönüştürülmüş HTML içeriği (ham byte dizisi, UTF-8). */
+    /**
+     * Dönüştürülmüş HTML içeriği (ham byte dizisi, UTF-8).
+     * Akış modunda içerik doğrudan çağıranın akışına yazıldığı için {@code null}'dır.
+     */
     public byte[] getHtmlContent() {
         return htmlContent;
     }
 
+    /**
+     * HTML'in önceden GZIP ile sıkıştırılmış hali ({@code xslt.transform.precompress-output=true} iken).
+     * Sonuç cache'inden dönen isteklerde aynı byte dizisidir; yoksa {@code null}.
+     */
+    public byte[] getGzipContent() {
+        return gzipContent;
+    }
+
+    /** Üretilen HTML çıktısının boyutu (byte). Akış modunda da dolu gelir. */
+    public long getOutputSize() {
+        return outputSize;
+    }
+
     /** Varsayılan XSLT şablonu kullanıldı mı? */
     public boolean isDefaultXslUsed() {
         return defaultXslUsed;
@@ -88,12 +113,48 @@ public class TransformResult {
         return securityViolations;
     }
 
+    /**
+     * Sonuç cache'i açıkken dönüşüm girdilerinden (belge, XSLT kimliği, filigran, şablon nesli)
+     * türetilen deterministik etiket. Controller bunu güçlü ETag olarak kullanır.
+     * Cache kapalıysa veya özel/gömülü XSLT başarısız olup varsayılana dönüldüyse {@code null}.
+     */
+    public String getResultTag() {
+        return resultTag;
+    }
+
+    /** Sonuç, dönüşüm çalıştırılmadan sonuç cache'inden mi döndü? */
+    public boolean isCacheHit() {
+        return cacheHit;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
 
+    /**
+     * Bu sonucun tüm alanlarıyla doldurulmuş bir builder döndürür.
+     */
+    public Builder toBuilder() {
+        return new Builder()
+                .htmlContent(htmlContent)
+                .gzipContent(gzipContent)
+                .outputSize(outputSize)
+                .defaultXslUsed(defaultXslUsed)
+                .embeddedXsltUsed(embeddedXsltUsed)
+                .customXsltError(customXsltError)
+                .watermarkApplied(watermarkApplied)
+                .durationMs(durationMs)
+                .allowedScriptHashes(allowedScriptHashes)
+                .removedScriptCount(removedScriptCount)
+                .securityViolations(securityViolations)
+                .resultTag(resultTag)
+                .cacheHit(cacheHit);
+    }
+
     public static final class Builder {
         private byte[] htmlContent;
+        private byte[] gzipContent;
+        private long outputSize = -1;
         private boolean defaultXslUsed;
         private boolean embeddedXsltUsed;
         private String customXsltError;
@@ -102,6 +163,8 @@ public class TransformResult {
         private List<String> allowedScriptHashes;
         private int removedScriptCount;
         private List<String> securityViolations;
+        private String resultTag;
+        private boolean cacheHit;
 
         private Builder() {
         }
@@ -111,6 +174,17 @@ public class TransformResult {
             return this;
         }
 
+        public Builder gzipContent(byte[] gzipContent) {
+            this.gzipContent = gzipContent;
+            return this;
+        }
+
+        /** Belirtilmezse {@code htmlContent} uzunluğu kullanılır. */
+        public Builder outputSize(long outputSize) {
+            this.outputSize = outputSize;
+            return this;
+        }
+
         public Builder defaultXslUsed(boolean defaultXslUsed) {
             this.defaultXslUsed = defaultXslUsed;
             return this;
@@ -151,6 +225,16 @@ public class TransformResult {
             return this;
         }
 
+        public Builder resultTag(String resultTag) {
+            this.resultTag = resultTag;
+            return this;
+        }
+
+        public Builder cacheHit(boolean cacheHit) {
+            this.cacheHit = cacheHit;
+            return this;
+        }
+
         public TransformResult build() {
             return new TransformResult(this);
         }
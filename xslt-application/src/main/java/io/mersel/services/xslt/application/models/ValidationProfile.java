@@ -1,5 +1,7 @@
 package io.mersel.services.xslt.application.models;
 
+import io.mersel.services.xslt.application.enums.ValidationMode;
+
 import java.util.List;
 import java.util.Map;
 
@@ -21,6 +23,14 @@ import java.util.Map;
  * (assertion) eklenebilir. Kurallar, ISO Schematron pipeline'ına girmeden önce
  * orijinal Schematron XML'e enjekte edilir.
  * Map key'i {@code SchematronValidationType} adıdır (UBLTR_MAIN, EDEFTER_YEVMIYE, ...).
+ * <p>
+ * {@code maxErrors} ile profili kullanan isteklerde XSD ve Schematron aşamalarının her biri en fazla
+ * bu kadar hata üretir; bütçe aşıldığında aşama erken sonlandırılır. Alt profil belirtmezse üst
+ * profilinkini miras alır.
+ * <p>
+ * {@code mode} ile profili kullanan isteklerde hangi aşamaların çalışacağı belirlenir
+ * (bkz. {@link ValidationMode}); istekteki {@code mode} profili ezer. Alt profil belirtmezse üst
+ * profilinkini miras alır.
  *
  * @param name             Profil adı (örn: "unsigned", "my-company")
  * @param description      Profil açıklaması
@@ -28,6 +38,8 @@ import java.util.Map;
  * @param suppressions     Bastırma kuralları listesi
  * @param xsdOverrides     XSD override kuralları — key: SchemaValidationType adı, value: override listesi
  * @param schematronRules  Özel Schematron kuralları — key: SchematronValidationType adı, value: assertion listesi
+ * @param maxErrors        Aşama başına hata bütçesi ({@code null} ise sınırsız)
+ * @param mode             Doğrulama modu ({@code null} ise sunucu varsayılanı)
  */
 public record ValidationProfile(
         String name,
@@ -35,9 +47,21 @@ public record ValidationProfile(
         String extendsProfile,
         List<SuppressionRule> suppressions,
         Map<String, List<XsdOverride>> xsdOverrides,
-        Map<String, List<SchematronCustomAssertion>> schematronRules
+        Map<String, List<SchematronCustomAssertion>> schematronRules,
+        Integer maxErrors,
+        ValidationMode mode
 ) {
 
+    /**
+     * Hata bütçesi ve doğrulama modu tanımlamayan profil.
+     */
+    public ValidationProfile(String name, String description, String extendsProfile,
+                             List<SuppressionRule> suppressions,
+                             Map<String, List<XsdOverride>> xsdOverrides,
+                             Map<String, List<SchematronCustomAssertion>> schematronRules) {
+        this(name, description, extendsProfile, suppressions, xsdOverrides, schematronRules, null, null);
+    }
+
     /**
      * Tek bir bastırma kuralı.
      * <p>
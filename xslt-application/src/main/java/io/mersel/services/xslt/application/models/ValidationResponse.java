@@ -14,6 +14,20 @@ import java.util.Map;
  * <p>
  * Profil tabanlı bastırma (suppression) uygulandığında,
  * {@code suppressionInfo} alanı bastırma detaylarını taşır.
+ * <p>
+ * {@code executionMode} ve {@code stageTimingsMs} aşamaların nasıl çalıştığını ve sürelerini gösterir.
+ * <p>
+ * Hata bütçesi ({@code maxErrors}) uygulandığında {@code errorBudget} alanı aşamaların kesilip
+ * kesilmediğini ve görülen hata sayılarını taşır.
+ * <p>
+ * Gruplanmış yanıt modunda ({@code aggregateErrors}) {@code schemaErrorGroups} ve
+ * {@code schematronErrorGroups} tekrarlı hataları kurala göre sayaç ve örneklerle taşır;
+ * düz hata listeleri yalnızca örnekleri içerir.
+ * <p>
+ * {@code validationMode} uygulanan doğrulama modunu, {@code skippedStages} çalıştırılmayan aşamaları ve
+ * nedenlerini gösterir. Atlanan aşamanın geçerlilik alanı {@code false} kalır; geçti anlamına gelmez.
+ * <p>
+ * Sonuç cache'i açıkken {@code cacheHit} yanıtın cache'ten dönüp dönmediğini gösterir.
  */
 public class ValidationResponse {
 
@@ -30,10 +44,52 @@ public class ValidationResponse {
     private List<String> schemaValidationErrors = new ArrayList<>();
     private List<SchematronError> schematronValidationErrors = new ArrayList<>();
     private Map<String, Object> suppressionInfo;
+    private Map<String, Object> errorBudget;
+    private List<ErrorGroup> schemaErrorGroups;
+    private List<ErrorGroup> schematronErrorGroups;
+
+    // ── Doğrulama modu ──
+    private String validationMode;
+    private Map<String, String> skippedStages;
+
+    // ── Süre bilgileri ──
+    private String executionMode;
+    private Map<String, Long> stageTimingsMs;
+
+    // ── Sonuç cache'i ──
+    private Boolean cacheHit;
+    /** Bir aşama beklenmeyen hatayla tamamlanamadı — yanıta yazılmaz, sonuç cache'lenmez. */
+    private boolean stageFailed;
 
     public ValidationResponse() {
     }
 
+    /**
+     * Sığ kopya — cache'teki sonuç her hit'te kopyalanıp istek bilgileriyle güncellenir.
+     * Hata listeleri paylaşılır; oluşturulduktan sonra değiştirilmezler.
+     */
+    public ValidationResponse(ValidationResponse other) {
+        this.detectedDocumentType = other.detectedDocumentType;
+        this.appliedXsd = other.appliedXsd;
+        this.appliedSchematron = other.appliedSchematron;
+        this.appliedXsdPath = other.appliedXsdPath;
+        this.appliedSchematronPath = other.appliedSchematronPath;
+        this.validSchema = other.validSchema;
+        this.validSchematron = other.validSchematron;
+        this.schemaValidationErrors = other.schemaValidationErrors;
+        this.schematronValidationErrors = other.schematronValidationErrors;
+        this.suppressionInfo = other.suppressionInfo;
+        this.errorBudget = other.errorBudget;
+        this.schemaErrorGroups = other.schemaErrorGroups;
+        this.schematronErrorGroups = other.schematronErrorGroups;
+        this.validationMode = other.validationMode;
+        this.skippedStages = other.skippedStages;
+        this.executionMode = other.executionMode;
+        this.stageTimingsMs = other.stageTimingsMs;
+        this.cacheHit = other.cacheHit;
+        this.stageFailed = other.stageFailed;
+    }
+
     // ── Tespit bilgileri getter/setter ──
 
     public String getDetectedDocumentType() {
@@ -130,4 +186,130 @@ public class ValidationResponse {
     public void setSuppressionInfo(Map<String, Object> suppressionInfo) {
         this.suppressionInfo = suppressionInfo;
     }
+
+    /**
+     * Hata bütçesi detayları.
+     * <p>
+     * Bütçe uygulanmadığında {@code null}, uygulandığında:
+     * <pre>
+     * {
+     *   "maxErrors": 100,
+     *   "schemaTruncated": true,
+     *   "schemaErrorsSeen": 101,
+     *   "schematronTruncated": false,
+     *   "schematronErrorsSeen": 12
+     * }
+     * </pre>
+     * Kesilen aşamada belgenin geri kalanı doğrulanmamıştır; görülen sayı bütçeyi aşan hatayı da içerir.
+     */
+    public Map<String, Object> getErrorBudget() {
+        return errorBudget;
+    }
+
+    public void setErrorBudget(Map<String, Object> errorBudget) {
+        this.errorBudget = errorBudget;
+    }
+
+    /**
+     * Kurala göre gruplanmış XSD hataları (cvc kodu + element). Gruplama istenmediğinde {@code null}.
+     */
+    public List<ErrorGroup> getSchemaErrorGroups() {
+        return schemaErrorGroups;
+    }
+
+    public void setSchemaErrorGroups(List<ErrorGroup> schemaErrorGroups) {
+        this.schemaErrorGroups = schemaErrorGroups;
+    }
+
+    /**
+     * Kurala göre gruplanmış Schematron hataları ({@code ruleId} + {@code test}). Gruplama istenmediğinde {@code null}.
+     */
+    public List<ErrorGroup> getSchematronErrorGroups() {
+        return schematronErrorGroups;
+    }
+
+    public void setSchematronErrorGroups(List<ErrorGroup> schematronErrorGroups) {
+        this.schematronErrorGroups = schematronErrorGroups;
+    }
+
+    // ── Doğrulama modu getter/setter ──
+
+    /**
+     * Uygulanan doğrulama modu: {@code full}, {@code xsd-only}, {@code schematron-only} veya
+     * {@code skip-schematron-on-fatal}.
+     */
+    public String getValidationMode() {
+        return validationMode;
+    }
+
+    public void setValidationMode(String validationMode) {
+        this.validationMode = validationMode;
+    }
+
+    /**
+     * Çalıştırılmayan aşamalar ve nedenleri. Tüm aşamalar çalıştığında {@code null}, aksi halde:
+     * <pre>
+     * {
+     *   "schematron": "FATAL_SCHEMA_ERROR"
+     * }
+     * </pre>
+     * Nedenler: {@code MODE} (modda aşama yok), {@code FATAL_SCHEMA_ERROR} (XSD aşamasında ölümcül hata).
+     */
+    public Map<String, String> getSkippedStages() {
+        return skippedStages;
+    }
+
+    public void setSkippedStages(Map<String, String> skippedStages) {
+        this.skippedStages = skippedStages;
+    }
+
+    // ── Süre bilgileri getter/setter ──
+
+    /**
+     * XSD ve Schematron aşamalarının çalışma şekli: {@code parallel} (eşzamanlı),
+     * {@code sequential} (sırayla — paralel mod kapalı ya da havuz dolu) veya {@code cached}
+     * (sonuç cache'ten döndü; {@code stageTimingsMs} yalnızca {@code total} içerir).
+     */
+    public String getExecutionMode() {
+        return executionMode;
+    }
+
+    public void setExecutionMode(String executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    /**
+     * Aşama süreleri (milisaniye): {@code schema}, {@code schematron} ve tespit dahil {@code total}.
+     * Paralel modda {@code total}, aşama sürelerinin toplamından kısadır. Atlanan aşama yer almaz.
+     */
+    public Map<String, Long> getStageTimingsMs() {
+        return stageTimingsMs;
+    }
+
+    public void setStageTimingsMs(Map<String, Long> stageTimingsMs) {
+        this.stageTimingsMs = stageTimingsMs;
+    }
+
+    // ── Sonuç cache'i getter/setter ──
+
+    /**
+     * Yanıt sonuç cache'inden döndüyse {@code true}, doğrulama çalıştıysa {@code false};
+     * cache kapalıyken {@code null}.
+     */
+    public Boolean getCacheHit() {
+        return cacheHit;
+    }
+
+    public void setCacheHit(Boolean cacheHit) {
+        this.cacheHit = cacheHit;
+    }
+
+    /** Aşamalardan biri beklenmeyen hatayla tamamlanamadı mı. */
+    public boolean hasStageFailure() {
+        return stageFailed;
+    }
+
+    public void markStageFailed() {
+        this.stageFailed = true;
+    }
 }
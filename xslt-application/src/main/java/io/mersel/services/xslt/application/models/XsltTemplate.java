@@ -0,0 +1,22 @@
+package io.mersel.services.xslt.application.models;
+
+import java.time.Instant;
+
+/**
+ * Sunucuda kayıtlı özel XSLT şablonu.
+ * <p>
+ * Şablon bir kez yüklenir; dönüşüm istekleri {@code templateId} ile referans verir.
+ * Versiyon içerikten türetilir — aynı içerik her zaman aynı versiyonu üretir.
+ *
+ * @param id        Şablon kimliği (örn: "acme-fatura")
+ * @param version   İçeriğin SHA-256 değerinin ilk 16 hex karakteri
+ * @param sizeBytes XSLT dosya boyutu (byte)
+ * @param updatedAt Son güncellenme zamanı
+ */
+public record XsltTemplate(
+        String id,
+        String version,
+        long sizeBytes,
+        Instant updatedAt
+) {
+}
@@ -10,6 +10,7 @@ import org.springframework.stereotype.Component;
 import jakarta.annotation.PostConstruct;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -22,6 +23,9 @@ import java.util.concurrent.locks.ReentrantLock;
  *   <li>{@code AssetFileWatcher} — dosya değişikliği algılandığında</li>
  *   <li>{@code POST /v1/admin/assets/reload} — manuel API tetiklemesi</li>
  * </ul>
+ * <p>
+ * Her reload sonunda asset nesli ({@link #generation()}) ilerler; asset'lerden türetilen
+ * sonuç cache'leri nesli anahtarlarına katar.
  */
 @Component
 public class AssetRegistry {
@@ -31,6 +35,7 @@ public class AssetRegistry {
     private final List<Reloadable> reloadables;
     private final XsltMetrics xsltMetrics;
     private final ReentrantLock reloadLock = new ReentrantLock();
+    private final AtomicLong generation = new AtomicLong();
 
     public AssetRegistry(List<Reloadable> reloadables, XsltMetrics xsltMetrics) {
         this.reloadables = reloadables;
@@ -96,6 +101,9 @@ public class AssetRegistry {
             long totalElapsed = System.currentTimeMillis() - startTime;
             log.info("Asset Reload tamamlandı — toplam süre: {} ms", totalElapsed);
 
+            // Tüm bileşenler yüklendikten sonra — ara durumda üretilen sonuçlar eski nesilde kalır
+            generation.incrementAndGet();
+
             boolean success = results.stream().allMatch(r -> r.status() == ReloadResult.Status.OK);
             xsltMetrics.recordReload(success, totalElapsed);
 
@@ -104,4 +112,11 @@ public class AssetRegistry {
             reloadLock.unlock();
         }
     }
+
+    /**
+     * Asset nesli — tamamlanan her reload ile artar.
+     */
+    public long generation() {
+        return generation.get();
+    }
 }
@@ -0,0 +1,280 @@
+package io.mersel.services.xslt.infrastructure;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.mersel.services.xslt.application.interfaces.IBatchTransformer;
+import io.mersel.services.xslt.application.interfaces.IXsltTransformer;
+import io.mersel.services.xslt.application.interfaces.IXsltTransformer.TransformException;
+import io.mersel.services.xslt.application.models.BatchDocument;
+import io.mersel.services.xslt.application.models.BatchEntryResult;
+import io.mersel.services.xslt.application.models.BatchTransformSummary;
+import io.mersel.services.xslt.application.models.TransformRequest;
+import io.mersel.services.xslt.application.models.TransformResult;
+import io.mersel.services.xslt.infrastructure.diagnostics.XsltMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Toplu XSLT dönüşüm implementasyonu.
+ * <p>
+ * Belgeler sabit boyutlu ortak bir işçi havuzunda paralel dönüştürülür. Her toplu istek
+ * havuzda en fazla {@code 2 × parallelism} belgeyi aynı anda tutar; girdi bu pencere
+ * ilerledikçe okunur, sonuçlar girdi sırasıyla ZIP'e yazılır. Pencere ayrıca bellekte bekleyen
+ * girdi ve HTML çıktılarının toplam boyutuyla ({@code xslt.batch.max-in-flight-mb}) sınırlıdır —
+ * bütçe dolduğunda yeni belge okunmadan önce sıradaki sonuçlar ZIP'e yazılır. Böylece 20k belgelik
+ * bir toplu istek de işlemci sayısından bağımsız, sınırlı bellekle işlenir.
+ * <p>
+ * Özel ve gömülü XSLT'ler {@link SaxonXsltTransformer} cache'i üzerinden derlenir;
+ * eşzamanlı işçiler aynı şablonun tek derlemesini bekler.
+ */
+@Service
+public class BatchTransformService implements IBatchTransformer {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchTransformService.class);
+
+    private final IXsltTransformer xsltTransformer;
+    private final XsltMetrics metrics;
+    private final ObjectMapper objectMapper;
+
+    /** İşçi sayısı. 0 veya negatif ise işlemci sayısı kullanılır. */
+    @Value("${xslt.batch.parallelism:0}")
+    private int parallelism = 0;
+
+    /** Tek toplu istekte işlenecek maksimum belge sayısı. */
+    @Value("${xslt.batch.max-entries:20000}")
+    private int maxEntries = 20000;
+
+    /** Tek toplu istekte bellekte bekleyen girdi + HTML çıktılarının toplam boyutu (MB). */
+    @Value("${xslt.batch.max-in-flight-mb:256}")
+    private int maxInFlightMb = 256;
+
+    private ExecutorService executor;
+    private int workerCount;
+    private long maxInFlightBytes;
+
+    public BatchTransformService(IXsltTransformer xsltTransformer, XsltMetrics metrics) {
+        this.xsltTransformer = xsltTransformer;
+        this.metrics = metrics;
+        this.objectMapper = new ObjectMapper()
+                .configure(SerializationFeature.INDENT_OUTPUT, true);
+    }
+
+    @PostConstruct
+    void init() {
+        workerCount = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        var threadCounter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread t = new Thread(r, "xslt-batch-" + threadCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        maxInFlightBytes = maxInFlightMb * 1024L * 1024L;
+        log.info("Toplu dönüşüm havuzu hazır — {} işçi, istek başına maks {} belge, {} MB bellek bütçesi",
+                workerCount, maxEntries, maxInFlightMb);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    // ── Toplu Dönüşüm ──────────────────────────────────────────────
+
+    @Override
+    public BatchTransformSummary transform(TransformRequest template, DocumentSource documents,
+                                           OutputStream zipOutput) throws IOException {
+        long startTime = System.nanoTime();
+        int window = workerCount * 2;
+
+        var entries = new ArrayList<BatchEntryResult>();
+        var outputNames = new HashSet<String>();
+        Deque<Future<RenderedEntry>> pending = new ArrayDeque<>();
+        // ZIP'e yazılmayı bekleyen girdi ve çıktı byte'ları — işçiler çıktı boyutunu ekler
+        var inFlightBytes = new AtomicLong();
+        boolean truncated = false;
+
+        // ZipOutputStream kapanışı çağıranın akışını kapatmasın
+        var zip = new ZipOutputStream(new FilterOutputStream(zipOutput) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        });
+
+        try {
+            BatchDocument document;
+            while ((document = documents.next()) != null) {
+                if (entries.size() + pending.size() >= maxEntries) {
+                    truncated = true;
+                    log.warn("Toplu dönüşüm {} belge limitinde kesildi", maxEntries);
+                    break;
+                }
+                BatchDocument current = document;
+                inFlightBytes.addAndGet(sizeOf(current));
+                pending.add(executor.submit(() -> render(template, current, inFlightBytes)));
+
+                // Pencere veya bellek bütçesi dolduysa yeni belge okumadan önce sonuçları boşalt
+                while (!pending.isEmpty()
+                        && (pending.size() >= window || inFlightBytes.get() >= maxInFlightBytes)) {
+                    writeEntry(zip, pending.poll(), outputNames, entries, inFlightBytes);
+                }
+            }
+            while (!pending.isEmpty()) {
+                writeEntry(zip, pending.poll(), outputNames, entries, inFlightBytes);
+            }
+        } catch (IOException | RuntimeException e) {
+            // İstemci bağlantısı koptu veya girdi okunamadı — kalan işleri bırak
+            pending.forEach(f -> f.cancel(true));
+            throw e;
+        }
+
+        long durationMs = (System.nanoTime() - startTime) / 1_000_000;
+        int failed = (int) entries.stream()
+                .filter(e -> e.status() == BatchEntryResult.Status.FAILED)
+                .count();
+        var summary = new BatchTransformSummary(
+                template.getTransformType().name(),
+                entries.size(),
+                entries.size() - failed,
+                failed,
+                truncated,
+                durationMs,
+                List.copyOf(entries));
+
+        zip.putNextEntry(new ZipEntry(MANIFEST_NAME));
+        zip.write(objectMapper.writeValueAsBytes(summary));
+        zip.closeEntry();
+        zip.close();
+
+        metrics.recordBatchTransform(summary.transformType(), summary.succeeded(), summary.failed(), durationMs);
+        log.info("Toplu dönüşüm tamamlandı — Toplam: {}, Başarılı: {}, Başarısız: {}, Süre: {} ms",
+                summary.total(), summary.succeeded(), summary.failed(), durationMs);
+        return summary;
+    }
+
+    /**
+     * Tek belgeyi işçi thread'inde dönüştürür. Hiçbir hata dışarı sızmaz —
+     * başarısızlık sonuç olarak döner. Üretilen HTML'in boyutu {@code inFlightBytes}'a eklenir.
+     */
+    private RenderedEntry render(TransformRequest template, BatchDocument document, AtomicLong inFlightBytes) {
+        long startTime = System.nanoTime();
+        long inputBytes = sizeOf(document);
+        if (document.rejectionReason() != null) {
+            return RenderedEntry.failed(document.name(), document.rejectionReason(), 0, inputBytes);
+        }
+
+        var request = new TransformRequest();
+        request.setTransformType(template.getTransformType());
+        request.setDocument(document.content());
+        request.setTransformer(template.getTransformer());
+        request.setTemplateId(template.getTemplateId());
+        request.setWatermarkText(template.getWatermarkText());
+        request.setUseEmbeddedXslt(template.isUseEmbeddedXslt());
+
+        try {
+            TransformResult result = xsltTransformer.transform(request);
+            long outputBytes = result.getHtmlContent() != null ? result.getHtmlContent().length : 0;
+            inFlightBytes.addAndGet(outputBytes);
+            return new RenderedEntry(document.name(), result, null, 0, inputBytes + outputBytes);
+        } catch (TransformException | RuntimeException e) {
+            long durationMs = (System.nanoTime() - startTime) / 1_000_000;
+            log.debug("Toplu dönüşümde belge başarısız: {} — {}", document.name(), e.getMessage());
+            return RenderedEntry.failed(document.name(), e.getMessage(), durationMs, inputBytes);
+        }
+    }
+
+    private void writeEntry(ZipOutputStream zip, Future<RenderedEntry> future, Set<String> outputNames,
+                            List<BatchEntryResult> entries, AtomicLong inFlightBytes) throws IOException {
+        RenderedEntry rendered = await(future);
+        inFlightBytes.addAndGet(-rendered.bytes);
+
+        if (rendered.result == null) {
+            entries.add(BatchEntryResult.failed(rendered.name, rendered.error, rendered.durationMs));
+            return;
+        }
+
+        String outputName = uniqueOutputName(rendered.name, outputNames);
+        zip.putNextEntry(new ZipEntry(outputName));
+        zip.write(rendered.result.getHtmlContent());
+        zip.closeEntry();
+        entries.add(BatchEntryResult.success(rendered.name, outputName, rendered.result));
+    }
+
+    private static long sizeOf(BatchDocument document) {
+        return document.content() != null ? document.content().length : 0;
+    }
+
+    private static RenderedEntry await(Future<RenderedEntry> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Toplu dönüşüm kesildi", e);
+        } catch (ExecutionException e) {
+            // render() hataları sonuç olarak döndürür — buraya yalnızca beklenmeyen Error'lar düşer
+            throw new IllegalStateException("Toplu dönüşüm işçisi beklenmedik şekilde sonlandı", e.getCause());
+        }
+    }
+
+    /**
+     * Girdi adından ZIP içindeki HTML dosya adını üretir.
+     * Dizin bileşenleri atılır (zip-slip koruması), uzantı {@code .html} yapılır,
+     * çakışan adlara sıra numarası eklenir.
+     */
+    static String uniqueOutputName(String inputName, Set<String> usedNames) {
+        String fileName = inputName == null ? "" : inputName;
+        fileName = fileName.substring(Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\')) + 1);
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        if (baseName.isBlank()) {
+            baseName = "document";
+        }
+
+        String candidate = baseName + ".html";
+        for (int i = 2; !usedNames.add(candidate); i++) {
+            candidate = baseName + "-" + i + ".html";
+        }
+        return candidate;
+    }
+
+    /**
+     * İşçi thread'inin ürettiği sonuç — HTML ZIP'e yazılana kadar bellekte tutulur.
+     *
+     * @param bytes Bellek bütçesinden düşülecek girdi + çıktı boyutu
+     */
+    private record RenderedEntry(String name, TransformResult result, String error, long durationMs, long bytes) {
+
+        static RenderedEntry failed(String name, String error, long durationMs, long bytes) {
+            return new RenderedEntry(name, null, error, durationMs, bytes);
+        }
+    }
+}
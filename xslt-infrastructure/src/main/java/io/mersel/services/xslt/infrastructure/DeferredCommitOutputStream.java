@@ -0,0 +1,123 @@
+package io.mersel.services.xslt.infrastructure;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Hedef akışa yazmayı ilk {@code commitThreshold} byte dolana kadar erteleyen çıktı akışı.
+ * <p>
+ * Akış modunda dönüşüm çıktısı doğrudan HTTP yanıtına yazılır. Çıktının başı tamponda
+ * tutulduğu sürece dönüşüm başarısız olursa tampon atılıp varsayılan XSLT ile yeniden
+ * denenebilir ({@link #discard()}). Eşik aşıldıktan sonra yazılanlar doğrudan hedefe gider
+ * ve yanıt artık geri alınamaz.
+ * <p>
+ * Hedef akış kapatılmaz — yaşam döngüsü çağırana (servlet container) aittir.
+ * Her dönüşüm için yeni örnek oluşturulur. Yazma ve {@link #discard()} senkronizedir: süre aşımında
+ * terk edilen dönüşüm thread'i, atılan akışa yazmaya devam ederse {@link IOException} alır ve
+ * varsayılan XSLT'nin aynı hedefe yazdığı çıktıya karışamaz.
+ */
+final class DeferredCommitOutputStream extends OutputStream {
+
+    private final OutputStream target;
+    private final int commitThreshold;
+    private ByteArrayOutputStream pending;
+    private long count;
+    private boolean discarded;
+
+    DeferredCommitOutputStream(OutputStream target, int commitThreshold) {
+        this.target = target;
+        this.commitThreshold = Math.max(0, commitThreshold);
+        this.pending = new ByteArrayOutputStream(Math.min(this.commitThreshold, 8192) + 1);
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        ensureNotDiscarded();
+        count++;
+        if (pending == null) {
+            target.write(b);
+            return;
+        }
+        pending.write(b);
+        if (pending.size() > commitThreshold) {
+            commit();
+        }
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        ensureNotDiscarded();
+        count += len;
+        if (pending == null) {
+            target.write(b, off, len);
+            return;
+        }
+        pending.write(b, off, len);
+        if (pending.size() > commitThreshold) {
+            commit();
+        }
+    }
+
+    /**
+     * Tamponlanmamış veri varsa hedefe iletir. Tampondaki veri eşik aşılana veya
+     * {@link #finish()} çağrılana kadar bekletilir.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (pending == null && !discarded) {
+            target.flush();
+        }
+    }
+
+    /**
+     * Serializer kapanışında hedef akış kapatılmaz.
+     */
+    @Override
+    public void close() {
+        // Hedef akışın yaşam döngüsü çağırana ait
+    }
+
+    /**
+     * Hedefe henüz hiçbir byte yazılmadıysa tamponu atar. Her iki durumda da akış sonraki
+     * yazmalara kapanır.
+     *
+     * @return tampon atıldıysa {@code true}; çıktı hedefe akmaya başladıysa {@code false}
+     */
+    synchronized boolean discard() {
+        discarded = true;
+        if (pending == null) {
+            return false;
+        }
+        pending.reset();
+        count = 0;
+        return true;
+    }
+
+    /**
+     * Başarılı dönüşüm sonunda kalan tamponu hedefe yazar ve akışı boşaltır.
+     */
+    synchronized void finish() throws IOException {
+        ensureNotDiscarded();
+        if (pending != null) {
+            commit();
+        }
+        target.flush();
+    }
+
+    /** Hedefe yazılan ve tamponda bekleyen toplam byte sayısı. */
+    synchronized long getCount() {
+        return count;
+    }
+
+    private void ensureNotDiscarded() throws IOException {
+        if (discarded) {
+            throw new IOException("Çıktı atıldı — terk edilen dönüşüm denemesi yazamaz");
+        }
+    }
+
+    private void commit() throws IOException {
+        pending.writeTo(target);
+        pending = null;
+    }
+}
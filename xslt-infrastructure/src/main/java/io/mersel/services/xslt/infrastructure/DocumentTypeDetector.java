@@ -3,6 +3,12 @@ package io.mersel.services.xslt.infrastructure;
 import io.mersel.services.xslt.application.enums.DocumentType;
 import io.mersel.services.xslt.application.interfaces.DocumentTypeDetectionException;
 import io.mersel.services.xslt.application.interfaces.IDocumentTypeDetector;
+import io.mersel.services.xslt.application.models.ParsedDocument;
+import net.sf.saxon.s9api.Axis;
+import net.sf.saxon.s9api.QName;
+import net.sf.saxon.s9api.XdmNode;
+import net.sf.saxon.s9api.XdmNodeKind;
+import net.sf.saxon.s9api.XdmSequenceIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -13,6 +19,7 @@ import org.xml.sax.helpers.DefaultHandler;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.Map;
 
 /**
@@ -20,6 +27,8 @@ import java.util.Map;
  * <p>
  * Performans için full DOM parse yapmaz — sadece root element, namespace URI,
  * namespace prefix ve e-Defter belgelerinde {@code xbrli:context id} attribute'ını okur.
+ * Doğrulama akışında belge zaten ağaç olarak parse edildiyse ({@link SaxonParsedDocument})
+ * aynı bilgiler ağaçtan okunur.
  * <p>
  * Tespit kuralları:
  * <ul>
@@ -52,13 +61,22 @@ public class DocumentTypeDetector implements IDocumentTypeDetector {
     private static final String CONTEXT_JOURNAL = "journal_context";
     private static final String CONTEXT_LEDGER = "ledger_context";
     private static final String CONTEXT_ASSETS = "assets_context";
+    private static final QName ID = new QName("id");
 
     @Override
     public DocumentType detect(byte[] xmlContent) throws DocumentTypeDetectionException {
         if (xmlContent == null || xmlContent.length == 0) {
             throw new DocumentTypeDetectionException("XML içeriği boş");
         }
+        return detect(new ByteArrayInputStream(xmlContent));
+    }
 
+    /**
+     * Akıştan tespit — parse, tespit için gereken bilgi toplandığında durdurulur;
+     * UBL-TR belgelerinde yalnızca root element'e kadar olan kısım okunur.
+     */
+    @Override
+    public DocumentType detect(InputStream xmlContent) throws DocumentTypeDetectionException {
         try {
             SAXParserFactory factory = SAXParserFactory.newInstance();
             factory.setNamespaceAware(true);
@@ -71,23 +89,12 @@ public class DocumentTypeDetector implements IDocumentTypeDetector {
             var handler = new DetectionHandler();
 
             try {
-                parser.parse(new ByteArrayInputStream(xmlContent), handler);
+                parser.parse(xmlContent, handler);
             } catch (DetectionCompleteException e) {
                 // Normal akış — parse erken durduruldu, sonuç handler'da
             }
 
-            DocumentType result = handler.getDetectedType();
-            if (result == null) {
-                throw new DocumentTypeDetectionException(
-                        "Belge türü tespit edilemedi. Tanınmayan namespace veya root element: "
-                                + "namespace=" + handler.getRootNamespace()
-                                + ", prefix=" + handler.getRootPrefix()
-                                + ", localName=" + handler.getRootLocalName());
-            }
-
-            log.debug("Belge türü tespit edildi: {} (namespace={}, root={})",
-                    result, handler.getRootNamespace(), handler.getRootLocalName());
-            return result;
+            return handler.detection.result();
 
         } catch (DocumentTypeDetectionException e) {
             throw e;
@@ -96,166 +103,229 @@ public class DocumentTypeDetector implements IDocumentTypeDetector {
         }
     }
 
-    // ── SAX Handler ─────────────────────────────────────────────────
-
     /**
-     * Parse'ı erken durdurmak için kullanılan sentinel exception.
-     * Tüm gerekli bilgi toplandığında fırlatılır.
+     * Ağaç tabanlı tespit — belge yeniden parse edilmez, root element ve
+     * {@code xbrli:context} id'si ağaçtan okunur. Saxon ağacı olmayan belgeler için
+     * ham içerikle SAX tespitine düşer.
      */
-    private static class DetectionCompleteException extends SAXException {
-        DetectionCompleteException() {
-            super("Detection complete");
+    @Override
+    public DocumentType detect(ParsedDocument document) throws DocumentTypeDetectionException {
+        if (!(document instanceof SaxonParsedDocument parsed)) {
+            return detect(document.source());
         }
+
+        var detection = new Detection();
+        XdmSequenceIterator<XdmNode> elements = parsed.node().axisIterator(Axis.DESCENDANT);
+        while (elements.hasNext()) {
+            XdmNode node = elements.next();
+            if (node.getNodeKind() == XdmNodeKind.ELEMENT) {
+                QName name = node.getNodeName();
+                if (detection.startElement(name.getNamespace(), name.getLocalName(), name.getPrefix(),
+                        node.getAttributeValue(ID))) {
+                    break;
+                }
+            }
+        }
+        return detection.result();
     }
 
-    /**
-     * SAX ContentHandler — root element bilgisi ve e-Defter context id'sini toplar.
-     */
-    private static class DetectionHandler extends DefaultHandler {
+    private static DocumentTypeDetectionException notDetected(String namespace, String prefix, String localName) {
+        return new DocumentTypeDetectionException(
+                "Belge türü tespit edilemedi. Tanınmayan namespace veya root element: "
+                        + "namespace=" + namespace
+                        + ", prefix=" + prefix
+                        + ", localName=" + localName);
+    }
 
-        private DocumentType detectedType;
+    // ── Çözümleme Kuralları ─────────────────────────────────────────
 
-        private String rootNamespace;
-        private String rootPrefix;
-        private String rootLocalName;
-
-        // e-Defter defter root'u için context id aranıyor mu?
-        private boolean searchingForContextId = false;
-        private int depth = 0;
+    /**
+     * e-Defter "defter" ve "berat" root'larında belge türü context id ile belirlenir.
+     * "berat" için: GIB hem e-Defter beratını hem envanter beratını
+     * edefter:berat root'u ile yayınlıyor, ayrım context id ile yapılır.
+     */
+    private static boolean requiresContextId(String namespace, String prefix, String localName) {
+        return NS_EDEFTER.equals(namespace) && "edefter".equals(prefix)
+                && ("defter".equals(localName) || "berat".equals(localName));
+    }
 
-        DocumentType getDetectedType() {
-            return detectedType;
+    /**
+     * {@code xbrli:context} id'sinden belge türünü çözümler; tanınmayan id için {@code null}.
+     */
+    private static DocumentType resolveFromContext(String rootLocalName, String id) {
+        if ("defter".equals(rootLocalName)) {
+            // edefter:defter → yevmiye veya kebir
+            if (CONTEXT_JOURNAL.equals(id)) {
+                return DocumentType.EDEFTER_YEVMIYE;
+            } else if (CONTEXT_LEDGER.equals(id)) {
+                return DocumentType.EDEFTER_KEBIR;
+            }
+        } else if ("berat".equals(rootLocalName)) {
+            // edefter:berat → context id'ye göre envanter veya e-defter beratı
+            if (CONTEXT_ASSETS.equals(id)) {
+                return DocumentType.ENVANTER_BERAT;
+            } else if (CONTEXT_JOURNAL.equals(id) || CONTEXT_LEDGER.equals(id)) {
+                return DocumentType.EDEFTER_BERAT;
+            }
         }
+        return null;
+    }
 
-        String getRootNamespace() {
-            return rootNamespace;
+    /**
+     * Root element bilgisinden belge türünü çözümler.
+     * e-Defter "defter" root'u hariç — o context id gerektirir.
+     */
+    private static DocumentType resolveFromRoot(String namespace, String prefix, String localName) {
+        // UBL-TR namespace
+        if (namespace != null && namespace.startsWith(NS_UBL_PREFIX)) {
+            return UBL_ROOT_MAP.get(localName);
         }
 
-        String getRootPrefix() {
-            return rootPrefix;
+        // e-Arşiv namespace
+        if (NS_EARCHIVE.equals(namespace)) {
+            return DocumentType.EARCHIVE_REPORT;
         }
 
-        String getRootLocalName() {
-            return rootLocalName;
+        // e-Defter / e-Envanter namespace
+        if (NS_EDEFTER.equals(namespace)) {
+            if ("edefter".equals(prefix)) {
+                return resolveEdefter(localName);
+            }
+            if ("envanter".equals(prefix)) {
+                return resolveEnvanter(localName);
+            }
         }
 
-        @Override
-        public void startElement(String uri, String localName, String qName, Attributes attributes)
-                throws SAXException {
+        return null;
+    }
 
-            depth++;
+    /**
+     * edefter: prefix'li root element'ten belge türünü çözümler.
+     * "defter" ve "berat" root'ları null döner — context id araması gerekir.
+     * (GIB hem e-Defter hem envanter beratını edefter:berat olarak yayınlıyor.)
+     */
+    private static DocumentType resolveEdefter(String localName) {
+        return switch (localName) {
+            case "defterRaporu" -> DocumentType.EDEFTER_RAPOR;
+            case "berat" -> null;  // context id gerekli — assets_context = envanter beratı
+            case "defter" -> null; // context id gerekli — journal/ledger_context
+            default -> null;
+        };
+    }
 
-            // İlk element = root element
-            if (depth == 1) {
-                rootNamespace = uri;
-                rootLocalName = localName;
+    /**
+     * envanter: prefix'li root element'ten belge türünü çözümler.
+     */
+    private static DocumentType resolveEnvanter(String localName) {
+        return switch (localName) {
+            case "defter" -> DocumentType.ENVANTER_DEFTER;
+            case "berat" -> DocumentType.ENVANTER_BERAT;
+            default -> null;
+        };
+    }
 
-                // Prefix'i qName'den çıkar (ör: "edefter:defter" → "edefter")
-                int colonIdx = qName.indexOf(':');
-                rootPrefix = (colonIdx > 0) ? qName.substring(0, colonIdx) : "";
+    // ── Artımlı Tespit ──────────────────────────────────────────────
 
-                detectedType = resolveFromRoot(uri, rootPrefix, localName);
+    /**
+     * Element başlangıçlarını belge sırasıyla alan tespit durumu.
+     * <p>
+     * SAX, StAX ve ağaç tabanlı tespit aynı kuralları bu sınıf üzerinden uygular; tek geçişli
+     * XSD doğrulaması ({@link StreamingSchemaValidation}) olayları tamponlarken tespiti bununla yürütür.
+     * Thread-safe değildir.
+     */
+    static final class Detection {
 
-                // e-Defter "defter" ve "berat" root'larında context id araması gerekiyor.
-                // "berat" için: GIB hem e-Defter beratını hem envanter beratını
-                // edefter:berat root'u ile yayınlıyor, ayrım context id ile yapılır.
-                if (detectedType == null && NS_EDEFTER.equals(uri) && "edefter".equals(rootPrefix)
-                        && ("defter".equals(localName) || "berat".equals(localName))) {
-                    searchingForContextId = true;
-                    return; // Parse'a devam et
-                }
+        private DocumentType detectedType;
 
-                if (detectedType != null) {
-                    throw new DetectionCompleteException();
-                }
+        private String rootNamespace;
+        private String rootPrefix;
+        private String rootLocalName;
 
-                // Tanınmayan — parse'a devam edip bağlam aranmayacak
-                if (!searchingForContextId) {
-                    throw new DetectionCompleteException();
-                }
+        // e-Defter defter/berat root'u için context id aranıyor mu?
+        private boolean searchingForContextId;
+        private boolean complete;
+
+        /**
+         * Sıradaki element başlangıcını işler.
+         *
+         * @param namespace Element namespace URI'si (namespace yoksa boş)
+         * @param localName Element yerel adı
+         * @param prefix    Element prefix'i (yoksa boş)
+         * @param id        Namespace'siz {@code id} attribute değeri; yoksa {@code null}
+         * @return tespit tamamlandıysa (tür bulundu veya bulunamayacağı kesinleşti) {@code true}
+         */
+        boolean startElement(String namespace, String localName, String prefix, String id) {
+            if (complete) {
+                return true;
             }
 
-            // e-Defter/envanter context id araması: xbrli:context elementini bul
-            if (searchingForContextId && "context".equals(localName)) {
-                String id = attributes.getValue("id");
-                if ("defter".equals(rootLocalName)) {
-                    // edefter:defter → yevmiye veya kebir
-                    if (CONTEXT_JOURNAL.equals(id)) {
-                        detectedType = DocumentType.EDEFTER_YEVMIYE;
-                        throw new DetectionCompleteException();
-                    } else if (CONTEXT_LEDGER.equals(id)) {
-                        detectedType = DocumentType.EDEFTER_KEBIR;
-                        throw new DetectionCompleteException();
-                    }
-                } else if ("berat".equals(rootLocalName)) {
-                    // edefter:berat → context id'ye göre envanter veya e-defter beratı
-                    if (CONTEXT_ASSETS.equals(id)) {
-                        detectedType = DocumentType.ENVANTER_BERAT;
-                        throw new DetectionCompleteException();
-                    } else if (CONTEXT_JOURNAL.equals(id) || CONTEXT_LEDGER.equals(id)) {
-                        detectedType = DocumentType.EDEFTER_BERAT;
-                        throw new DetectionCompleteException();
-                    }
-                }
+            // İlk element = root element
+            if (rootLocalName == null) {
+                rootNamespace = namespace;
+                rootLocalName = localName;
+                rootPrefix = prefix;
+                detectedType = resolveFromRoot(namespace, prefix, localName);
+
+                // e-Defter "defter" ve "berat" root'larında context id araması gerekiyor
+                searchingForContextId = detectedType == null && requiresContextId(namespace, prefix, localName);
+                complete = !searchingForContextId;
+                return complete;
             }
-        }
 
-        @Override
-        public void endElement(String uri, String localName, String qName) throws SAXException {
-            depth--;
+            // e-Defter/envanter context id araması: xbrli:context elementini bul
+            if ("context".equals(localName)) {
+                detectedType = resolveFromContext(rootLocalName, id);
+                complete = detectedType != null;
+            }
+            return complete;
         }
 
         /**
-         * Root element bilgisinden belge türünü çözümler.
-         * e-Defter "defter" root'u hariç — o context id gerektirir.
+         * @return tespit edilen belge türü
+         * @throws DocumentTypeDetectionException root bulunamadıysa veya tür tanınmadıysa
          */
-        private DocumentType resolveFromRoot(String namespace, String prefix, String localName) {
-            // UBL-TR namespace
-            if (namespace != null && namespace.startsWith(NS_UBL_PREFIX)) {
-                return UBL_ROOT_MAP.get(localName);
+        DocumentType result() throws DocumentTypeDetectionException {
+            if (rootLocalName == null) {
+                throw new DocumentTypeDetectionException("XML içeriği boş");
             }
-
-            // e-Arşiv namespace
-            if (NS_EARCHIVE.equals(namespace)) {
-                return DocumentType.EARCHIVE_REPORT;
+            if (detectedType == null) {
+                throw notDetected(rootNamespace, rootPrefix, rootLocalName);
             }
+            log.debug("Belge türü tespit edildi: {} (namespace={}, root={})",
+                    detectedType, rootNamespace, rootLocalName);
+            return detectedType;
+        }
+    }
 
-            // e-Defter / e-Envanter namespace
-            if (NS_EDEFTER.equals(namespace)) {
-                if ("edefter".equals(prefix)) {
-                    return resolveEdefter(localName);
-                }
-                if ("envanter".equals(prefix)) {
-                    return resolveEnvanter(localName);
-                }
-            }
+    // ── SAX Handler ─────────────────────────────────────────────────
 
-            return null;
+    /**
+     * Parse'ı erken durdurmak için kullanılan sentinel exception.
+     * Tüm gerekli bilgi toplandığında fırlatılır.
+     */
+    private static class DetectionCompleteException extends SAXException {
+        DetectionCompleteException() {
+            super("Detection complete");
         }
+    }
 
-        /**
-         * edefter: prefix'li root element'ten belge türünü çözümler.
-         * "defter" ve "berat" root'ları null döner — context id araması gerekir.
-         * (GIB hem e-Defter hem envanter beratını edefter:berat olarak yayınlıyor.)
-         */
-        private DocumentType resolveEdefter(String localName) {
-            return switch (localName) {
-                case "defterRaporu" -> DocumentType.EDEFTER_RAPOR;
-                case "berat" -> null;  // context id gerekli — assets_context = envanter beratı
-                case "defter" -> null; // context id gerekli — journal/ledger_context
-                default -> null;
-            };
-        }
+    /**
+     * SAX ContentHandler — element başlangıçlarını {@link Detection}'a aktarır.
+     */
+    private static class DetectionHandler extends DefaultHandler {
 
-        /**
-         * envanter: prefix'li root element'ten belge türünü çözümler.
-         */
-        private DocumentType resolveEnvanter(String localName) {
-            return switch (localName) {
-                case "defter" -> DocumentType.ENVANTER_DEFTER;
-                case "berat" -> DocumentType.ENVANTER_BERAT;
-                default -> null;
-            };
+        private final Detection detection = new Detection();
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes)
+                throws SAXException {
+            // Prefix'i qName'den çıkar (ör: "edefter:defter" → "edefter")
+            int colonIdx = qName.indexOf(':');
+            String prefix = (colonIdx > 0) ? qName.substring(0, colonIdx) : "";
+
+            if (detection.startElement(uri, localName, prefix, attributes.getValue("id"))) {
+                throw new DetectionCompleteException();
+            }
         }
     }
 }
@@ -1,20 +1,24 @@
 package io.mersel.services.xslt.infrastructure;
 
+import net.sf.saxon.s9api.Processor;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XPathExecutable;
+import net.sf.saxon.s9api.XdmNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import javax.xml.namespace.NamespaceContext;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathFactory;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.ByteArrayInputStream;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Base64;
-import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
 
 /**
  * UBL XML belgelerinden gömülü (embedded) XSLT şablonunu çıkarır.
@@ -36,7 +40,12 @@ import java.util.Map;
  * </cac:AdditionalDocumentReference>
  * }</pre>
  *
- * Bu sınıf namespace-aware XPath ile gömülü XSLT'yi bulur ve decode eder.
+ * Bu sınıf belgeyi StAX ile akış halinde okur; ilk {@code .xsl}/{@code .xslt} uzantılı
+ * eki bulduğu anda Base64 içeriğini parça parça decode eder ve okumayı bırakır.
+ * Belgenin geri kalanı (büyük PDF ekleri vb.) belleğe alınmaz.
+ * <p>
+ * Belge dönüşüm için zaten Saxon ağacına yüklenmişse {@link #extract(XdmNode, XPathExecutable)}
+ * aynı ağaç üzerinde derlenmiş XPath ile arama yapar; belge ikinci kez parse edilmez.
  */
 @Component
 public class EmbeddedXsltExtractor {
@@ -46,49 +55,120 @@ public class EmbeddedXsltExtractor {
     private static final String CAC_NS = "urn:oasis:names:specification:ubl:schema:xsd:CommonAggregateComponents-2";
     private static final String CBC_NS = "urn:oasis:names:specification:ubl:schema:xsd:CommonBasicComponents-2";
 
+    private static final QName ADDITIONAL_DOCUMENT_REFERENCE = new QName(CAC_NS, "AdditionalDocumentReference");
+    private static final QName ATTACHMENT = new QName(CAC_NS, "Attachment");
+    private static final QName EMBEDDED_DOCUMENT_BINARY_OBJECT = new QName(CBC_NS, "EmbeddedDocumentBinaryObject");
+
     /**
-     * XPath: filename attribute'u .xslt veya .xsl ile biten ilk EmbeddedDocumentBinaryObject.
+     * Kabul edilen dosya uzantıları — önceki XPath ifadesiyle birebir aynı (büyük/küçük harf duyarlı).
      * <p>
      * UBL belgesinde birden fazla AdditionalDocumentReference olabilir (PDF, resim vb.),
      * sadece XSLT uzantılı olanı alıyoruz.
      */
-    private static final String XPATH_EXPRESSION =
-            "//cac:AdditionalDocumentReference/cac:Attachment/cbc:EmbeddedDocumentBinaryObject" +
-                    "[substring(@filename, string-length(@filename) - 4) = '.xslt'" +
-                    " or substring(@filename, string-length(@filename) - 3) = '.xsl'" +
-                    " or substring(@filename, string-length(@filename) - 4) = '.XSLT'" +
-                    " or substring(@filename, string-length(@filename) - 3) = '.XSL']";
+    private static final String[] XSLT_EXTENSIONS = {".xslt", ".xsl", ".XSLT", ".XSL"};
+
+    /**
+     * Saxon ağacı üzerinde aynı eşleşmeyi yapan XPath: filename attribute'u .xslt veya .xsl
+     * ile biten ilk EmbeddedDocumentBinaryObject.
+     */
+    private static final String XSLT_ATTACHMENT_XPATH =
+            "(//cac:AdditionalDocumentReference/cac:Attachment/cbc:EmbeddedDocumentBinaryObject" +
+                    "[ends-with(@filename, '.xslt') or ends-with(@filename, '.xsl')" +
+                    " or ends-with(@filename, '.XSLT') or ends-with(@filename, '.XSL')])[1]";
+
+    /**
+     * Thread başına yeniden kullanılan StAX factory ve decode tamponları.
+     * JDK {@link XMLInputFactory} implementasyonu thread-safe garanti etmediği için paylaşılmaz.
+     */
+    private static final ThreadLocal<ExtractionContext> CONTEXT_POOL =
+            ThreadLocal.withInitial(ExtractionContext::new);
 
     /**
      * Verilen XML belgesinden gömülü XSLT şablonunu çıkarır.
+     * <p>
+     * İçerik decode edildiği haliyle döner; Windows-1254 → UTF-8 normalizasyonu
+     * derleme öncesinde {@link SaxonXsltTransformer} tarafından yapılır. Böylece aynı
+     * gönderici şablonu için cache anahtarı ham içerikten hesaplanabilir.
      *
      * @param xmlDocument XML belge içeriği (byte dizisi)
-     * @return Gömülü XSLT içeriği (byte dizisi), bulunamazsa {@code null}
+     * @return Gömülü XSLT içeriği (decode edilmiş byte dizisi), bulunamazsa {@code null}
      */
     public byte[] extract(byte[] xmlDocument) {
+        var context = CONTEXT_POOL.get();
+        XMLStreamReader reader = null;
         try {
-            var factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
+            reader = context.inputFactory.createXMLStreamReader(new ByteArrayInputStream(xmlDocument));
 
-            // XXE koruması
-            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
-            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            // Yalnızca açık element zinciri tutulur — derinlik kadar bellek
+            Deque<QName> path = new ArrayDeque<>();
 
-            var builder = factory.newDocumentBuilder();
-            var document = builder.parse(new ByteArrayInputStream(xmlDocument));
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (isEmbeddedXsltElement(reader, path)) {
+                        return decodeElementContent(reader, context.decoder);
+                    }
+                    path.push(reader.getName());
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    path.pop();
+                }
+            }
 
-            var xpath = XPathFactory.newInstance().newXPath();
-            xpath.setNamespaceContext(new UblNamespaceContext());
+            log.debug("Belgede gömülü XSLT bulunamadı");
+            return null;
 
-            var node = xpath.evaluate(XPATH_EXPRESSION, document, XPathConstants.NODE);
+        } catch (Exception e) {
+            log.warn("Gömülü XSLT çıkarma başarısız: {} — {}", e.getClass().getSimpleName(), e.getMessage());
+            log.debug("Gömülü XSLT çıkarma hata detayı", e);
+            return null;
+        } finally {
+            context.decoder.reset();
+            closeQuietly(reader);
+        }
+    }
 
-            if (node == null) {
+    // ── Saxon Ağacı Üzerinden Çıkarma ──────────────────────────────
+
+    /**
+     * Gömülü XSLT elementini bulan XPath ifadesini verilen processor için derler.
+     * <p>
+     * Dönen {@link XPathExecutable} thread-safe'dir; çağıran bir kez derleyip
+     * {@link #extract(XdmNode, XPathExecutable)} çağrılarında tekrar kullanmalıdır.
+     * Belge ağacı aynı processor ile oluşturulmuş olmalıdır.
+     */
+    public XPathExecutable compileLocator(Processor processor) {
+        try {
+            var compiler = processor.newXPathCompiler();
+            compiler.declareNamespace("cac", CAC_NS);
+            compiler.declareNamespace("cbc", CBC_NS);
+            return compiler.compile(XSLT_ATTACHMENT_XPATH);
+        } catch (SaxonApiException e) {
+            throw new IllegalStateException("Gömülü XSLT XPath ifadesi derlenemedi", e);
+        }
+    }
+
+    /**
+     * Önceden oluşturulmuş Saxon ağacından gömülü XSLT şablonunu çıkarır.
+     * <p>
+     * Dönüşüm için zaten parse edilmiş belge tekrar parse edilmez; aynı ağaç
+     * ardından XSLT'ye girdi olarak verilebilir.
+     *
+     * @param document Belge düğümü ({@code locator} ile aynı processor'dan)
+     * @param locator  {@link #compileLocator(Processor)} ile derlenmiş XPath
+     * @return Gömülü XSLT içeriği (decode edilmiş byte dizisi), bulunamazsa {@code null}
+     */
+    public byte[] extract(XdmNode document, XPathExecutable locator) {
+        try {
+            var selector = locator.load();
+            selector.setContextItem(document);
+            var item = selector.evaluateSingle();
+
+            if (!(item instanceof XdmNode node)) {
                 log.debug("Belgede gömülü XSLT bulunamadı");
                 return null;
             }
 
-            var base64Content = ((org.w3c.dom.Node) node).getTextContent();
+            String base64Content = node.getStringValue();
             if (base64Content == null || base64Content.isBlank()) {
                 log.warn("Gömülü XSLT elementi bulundu ancak içeriği boş");
                 return null;
@@ -96,15 +176,9 @@ public class EmbeddedXsltExtractor {
 
             // Base64 whitespace toleranslı decode
             var decoded = Base64.getMimeDecoder().decode(base64Content.strip());
-
-            // Windows-1254 → UTF-8 normalize
-            var xsltString = new String(decoded, StandardCharsets.UTF_8);
-            xsltString = xsltString.replace("Windows-1254", "UTF-8");
-
-            var filename = ((org.w3c.dom.Element) node).getAttribute("filename");
-            log.info("Belgeden gömülü XSLT çıkarıldı — dosya: {}, boyut: {} byte", filename, decoded.length);
-
-            return xsltString.getBytes(StandardCharsets.UTF_8);
+            log.info("Belgeden gömülü XSLT çıkarıldı — dosya: {}, boyut: {} byte",
+                    node.attribute("filename"), decoded.length);
+            return decoded;
 
         } catch (Exception e) {
             log.warn("Gömülü XSLT çıkarma başarısız: {} — {}", e.getClass().getSimpleName(), e.getMessage());
@@ -114,33 +188,189 @@ public class EmbeddedXsltExtractor {
     }
 
     /**
-     * UBL namespace context — XPath sorguları için gerekli namespace eşlemesi.
+     * Elementin {@code AdditionalDocumentReference/Attachment/EmbeddedDocumentBinaryObject}
+     * olup olmadığını ve filename uzantısının XSLT olduğunu kontrol eder.
+     */
+    private static boolean isEmbeddedXsltElement(XMLStreamReader reader, Deque<QName> path) {
+        if (!EMBEDDED_DOCUMENT_BINARY_OBJECT.equals(reader.getName())) {
+            return false;
+        }
+        Iterator<QName> ancestors = path.iterator();
+        if (!ancestors.hasNext() || !ATTACHMENT.equals(ancestors.next())
+                || !ancestors.hasNext() || !ADDITIONAL_DOCUMENT_REFERENCE.equals(ancestors.next())) {
+            return false;
+        }
+        return hasXsltExtension(reader.getAttributeValue(null, "filename"));
+    }
+
+    private static boolean hasXsltExtension(String filename) {
+        if (filename == null) {
+            return false;
+        }
+        for (String extension : XSLT_EXTENSIONS) {
+            if (filename.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Elementin metin içeriğini StAX karakter parçaları halinde okuyup Base64 decode eder.
+     * Element kapandığında okuma durur; belgenin geri kalanı parse edilmez.
+     */
+    private static byte[] decodeElementContent(XMLStreamReader reader, Base64ChunkDecoder decoder)
+            throws XMLStreamException {
+        String filename = reader.getAttributeValue(null, "filename");
+        int depth = 0;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE ->
+                        decoder.feed(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                case XMLStreamConstants.START_ELEMENT -> depth++;
+                case XMLStreamConstants.END_ELEMENT -> {
+                    if (depth-- == 0) {
+                        return finishDecoding(decoder, filename);
+                    }
+                }
+                default -> {
+                    // Yorum, processing instruction vb. içerik dışı olaylar atlanır
+                }
+            }
+        }
+
+        // Belge EmbeddedDocumentBinaryObject kapanmadan bitti
+        throw new XMLStreamException("Gömülü XSLT elementi beklenmedik şekilde sona erdi");
+    }
+
+    private static byte[] finishDecoding(Base64ChunkDecoder decoder, String filename) {
+        if (decoder.isEmpty()) {
+            log.warn("Gömülü XSLT elementi bulundu ancak içeriği boş");
+            return null;
+        }
+
+        byte[] decoded = decoder.finish();
+        log.info("Belgeden gömülü XSLT çıkarıldı — dosya: {}, boyut: {} byte", filename, decoded.length);
+        return decoded;
+    }
+
+    private static void closeQuietly(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                log.debug("XMLStreamReader kapatılamadı: {}", e.getMessage());
+            }
+        }
+    }
+
+    // ── Thread-local Kaynaklar ─────────────────────────────────────
+
+    /**
+     * Thread'e bağlı StAX factory ve Base64 decoder.
      */
-    private static class UblNamespaceContext implements NamespaceContext {
+    private static final class ExtractionContext {
 
-        private static final Map<String, String> NAMESPACES = Map.of(
-                "cac", CAC_NS,
-                "cbc", CBC_NS
-        );
+        private final XMLInputFactory inputFactory = createSecureInputFactory();
+        private final Base64ChunkDecoder decoder = new Base64ChunkDecoder();
 
-        @Override
-        public String getNamespaceURI(String prefix) {
-            return NAMESPACES.getOrDefault(prefix, javax.xml.XMLConstants.NULL_NS_URI);
+        private static XMLInputFactory createSecureInputFactory() {
+            var factory = XMLInputFactory.newDefaultFactory();
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+            // Büyük Base64 içerikleri tek parça halinde birleştirme — parça parça işle
+            factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+            // XXE koruması
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, false);
+            return factory;
         }
+    }
 
-        @Override
-        public String getPrefix(String namespaceURI) {
-            return NAMESPACES.entrySet().stream()
-                    .filter(e -> e.getValue().equals(namespaceURI))
-                    .map(Map.Entry::getKey)
-                    .findFirst()
-                    .orElse(null);
+    /**
+     * Karakter parçalarını alıp Base64 içeriği artımlı olarak decode eden yeniden kullanılabilir tampon.
+     * <p>
+     * MIME decoder ile uyumlu olarak Base64 alfabesi dışındaki karakterler (satır sonu, boşluk vb.)
+     * yok sayılır. Alfabe karakterleri 4'ün katı büyüklükte bir ara tamponda biriktirilir
+     * ve tampon dolduğunda çıktı tamponuna decode edilir.
+     */
+    static final class Base64ChunkDecoder {
+
+        /** Ara tampon boyutu — 4'ün katı olmalı. */
+        private static final int STAGING_SIZE = 8192;
+
+        /** Bu boyutu aşan çıktı tamponları thread'de tutulmaz, bir sonraki kullanımda yeniden ayrılır. */
+        private static final int MAX_RETAINED_OUTPUT_SIZE = 1024 * 1024;
+
+        private static final int INITIAL_OUTPUT_SIZE = 16 * 1024;
+
+        private final byte[] staging = new byte[STAGING_SIZE];
+        private final byte[] decodeScratch = new byte[STAGING_SIZE / 4 * 3];
+        private int stagingLength;
+
+        private byte[] output = new byte[INITIAL_OUTPUT_SIZE];
+        private int outputLength;
+
+        private boolean seenAny;
+
+        void feed(char[] chars, int start, int length) {
+            for (int i = start; i < start + length; i++) {
+                char c = chars[i];
+                if (isBase64Char(c)) {
+                    staging[stagingLength++] = (byte) c;
+                    seenAny = true;
+                    if (stagingLength == STAGING_SIZE) {
+                        flushStaging();
+                    }
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return !seenAny;
+        }
+
+        /**
+         * Kalan içeriği decode eder ve sonucu kopya olarak döndürür.
+         */
+        byte[] finish() {
+            flushStaging();
+            return Arrays.copyOf(output, outputLength);
+        }
+
+        void reset() {
+            stagingLength = 0;
+            outputLength = 0;
+            seenAny = false;
+            if (output.length > MAX_RETAINED_OUTPUT_SIZE) {
+                output = new byte[INITIAL_OUTPUT_SIZE];
+            }
+        }
+
+        private void flushStaging() {
+            if (stagingLength == 0) {
+                return;
+            }
+            // Tam dolu tampon doğrudan decode edilir; son (kısmi) parça için kopya gerekir
+            byte[] source = stagingLength == STAGING_SIZE ? staging : Arrays.copyOf(staging, stagingLength);
+            int decodedLength = Base64.getDecoder().decode(source, decodeScratch);
+            ensureOutputCapacity(outputLength + decodedLength);
+            System.arraycopy(decodeScratch, 0, output, outputLength, decodedLength);
+            outputLength += decodedLength;
+            stagingLength = 0;
+        }
+
+        private void ensureOutputCapacity(int required) {
+            if (required > output.length) {
+                output = Arrays.copyOf(output, Math.max(required, output.length * 2));
+            }
         }
 
-        @Override
-        public Iterator<String> getPrefixes(String namespaceURI) {
-            var prefix = getPrefix(namespaceURI);
-            return prefix != null ? List.of(prefix).iterator() : Collections.emptyIterator();
+        private static boolean isBase64Char(char c) {
+            return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '+' || c == '/' || c == '=';
         }
     }
 }
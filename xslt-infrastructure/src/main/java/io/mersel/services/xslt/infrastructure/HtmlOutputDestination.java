@@ -0,0 +1,168 @@
+package io.mersel.services.xslt.infrastructure;
+
+import io.mersel.services.xslt.application.models.SanitizationResult;
+import net.sf.saxon.event.PipelineConfiguration;
+import net.sf.saxon.event.Receiver;
+import net.sf.saxon.s9api.AbstractDestination;
+import net.sf.saxon.s9api.Processor;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.Serializer;
+import net.sf.saxon.serialize.SerializationProperties;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * XSLT çıktısını sanitization ve filigran filtrelerinden geçirerek serialize eden hedef.
+ * <p>
+ * Zincir: {@code Xslt30Transformer → HtmlSanitizingFilter → WatermarkFilter → Serializer}.
+ * Tüm son işlemler çıktı olayları akarken tek geçişte yapılır; HTML ara String'e
+ * dönüştürülmez ve yeniden parse edilmez. Stylesheet'in {@code xsl:output} ayarları
+ * serializer'a aynen iletilir.
+ * <p>
+ * Şablon {@link XsltSafetyAnalyzer} ile güvenli kanıtlandıysa {@link #trustStylesheet(List)} ile
+ * sanitization filtresi zincire hiç eklenmez; CSP hash'leri derleme anında hesaplanmış olanlardır.
+ * <p>
+ * İki modda çalışır:
+ * <ul>
+ *   <li>{@link #buffered} — çıktı bellekte toplanır, {@link #toSanitizationResult()} ile döner</li>
+ *   <li>{@link #streaming} — çıktı {@link DeferredCommitOutputStream} üzerinden doğrudan
+ *       çağıranın akışına (HTTP yanıtı) yazılır; bellekte tam kopya tutulmaz</li>
+ * </ul>
+ * Her dönüşüm denemesi için yeni örnek oluşturulur (varsayılana dönüşte önceki çıktı atılır).
+ */
+final class HtmlOutputDestination extends AbstractDestination {
+
+    private final HtmlSanitizer htmlSanitizer;
+    private final WatermarkService watermarkService;
+    private final String watermarkText;
+    private final ByteArrayOutputStream bufferedOutput;
+    private final DeferredCommitOutputStream streamingOutput;
+    private final Serializer serializer;
+
+    private HtmlSanitizingFilter sanitizingFilter;
+
+    /** Güvenli kanıtlanmış şablonun script hash'leri; {@code null} ise çıktı filtrelenir. */
+    private List<String> trustedScriptHashes;
+
+    private HtmlOutputDestination(Processor processor, HtmlSanitizer htmlSanitizer,
+                                  WatermarkService watermarkService, String watermarkText,
+                                  ByteArrayOutputStream bufferedOutput,
+                                  DeferredCommitOutputStream streamingOutput) {
+        this.htmlSanitizer = htmlSanitizer;
+        this.watermarkService = watermarkService;
+        this.watermarkText = watermarkText;
+        this.bufferedOutput = bufferedOutput;
+        this.streamingOutput = streamingOutput;
+        this.serializer = processor.newSerializer(bufferedOutput != null ? bufferedOutput : streamingOutput);
+    }
+
+    /**
+     * Çıktıyı bellekte toplayan hedef.
+     */
+    static HtmlOutputDestination buffered(Processor processor, HtmlSanitizer htmlSanitizer,
+                                          WatermarkService watermarkService, String watermarkText) {
+        return new HtmlOutputDestination(processor, htmlSanitizer, watermarkService, watermarkText,
+                new ByteArrayOutputStream(), null);
+    }
+
+    /**
+     * Çıktıyı doğrudan {@code target} akışına yazan hedef.
+     * İlk {@code commitThreshold} byte hedefe yazılmadan tamponda bekletilir.
+     */
+    static HtmlOutputDestination streaming(Processor processor, HtmlSanitizer htmlSanitizer,
+                                           WatermarkService watermarkService, String watermarkText,
+                                           OutputStream target, int commitThreshold) {
+        return new HtmlOutputDestination(processor, htmlSanitizer, watermarkService, watermarkText,
+                null, new DeferredCommitOutputStream(target, commitThreshold));
+    }
+
+    @Override
+    public Receiver getReceiver(PipelineConfiguration pipe, SerializationProperties params) throws SaxonApiException {
+        Receiver next = serializer.getReceiver(pipe, params);
+        if (watermarkText != null && !watermarkText.isBlank()) {
+            next = watermarkService.newFilter(next, watermarkText);
+        }
+        if (trustedScriptHashes != null) {
+            return next;
+        }
+        // Akış modunda çıktı sonradan yeniden sanitize edilemez — ham metin escape edilerek yazılır
+        sanitizingFilter = htmlSanitizer.newFilter(next, params.getProperty("method"), isStreaming());
+        return sanitizingFilter;
+    }
+
+    @Override
+    public void close() throws SaxonApiException {
+        serializer.close();
+    }
+
+    /**
+     * Dönüşümde kullanılacak şablonun statik analizle güvenli kanıtlandığını bildirir.
+     * Dönüşüm başlamadan çağrılmalıdır.
+     *
+     * @param scriptHashes Şablonun literal scriptlerinin önceden hesaplanmış CSP hash'leri
+     */
+    void trustStylesheet(List<String> scriptHashes) {
+        this.trustedScriptHashes = scriptHashes;
+    }
+
+    /** Çıktı sanitization filtresinden geçmeden mi üretildi. */
+    boolean isTrusted() {
+        return trustedScriptHashes != null;
+    }
+
+    boolean isStreaming() {
+        return streamingOutput != null;
+    }
+
+    /**
+     * Başarısız bir denemenin çıktısını atar.
+     *
+     * @return yeniden deneme mümkünse {@code true}; akış modunda çıktı istemciye
+     *         akmaya başladıysa {@code false}
+     */
+    boolean discard() {
+        return streamingOutput == null || streamingOutput.discard();
+    }
+
+    /**
+     * Akış modunda tamponda kalan çıktıyı hedefe yazar.
+     */
+    void finish() throws IOException {
+        if (streamingOutput != null) {
+            streamingOutput.finish();
+        }
+    }
+
+    /** Serialize edilen çıktı boyutu (byte). */
+    long getOutputSize() {
+        return streamingOutput != null ? streamingOutput.getCount() : bufferedOutput.size();
+    }
+
+    /**
+     * Serialize edilmiş, filtrelenmiş HTML ve sanitization sonucunu döndürür.
+     * Akış modunda HTML hedefe yazıldığı için sonuçtaki içerik {@code null}'dır.
+     * <p>
+     * Bellek modunda çıktıda olay seviyesindeki filtrenin denetleyemediği içerik varsa
+     * ({@code disable-output-escaping} ile yazılmış ham metin, {@code </} içeren script/style metni,
+     * HTML dışı çıktı yöntemi) HTML jsoup tabanlı tam sanitization'dan geçirilir.
+     */
+    SanitizationResult toSanitizationResult() {
+        if (trustedScriptHashes != null) {
+            byte[] html = streamingOutput != null ? null : bufferedOutput.toByteArray();
+            return new SanitizationResult(html, trustedScriptHashes, 0, List.of());
+        }
+        if (streamingOutput != null) {
+            return sanitizingFilter != null
+                    ? sanitizingFilter.toResult(null)
+                    : new SanitizationResult(null, List.of(), 0, List.of());
+        }
+        byte[] html = bufferedOutput.toByteArray();
+        if (sanitizingFilter == null || sanitizingFilter.requiresFullSanitization()) {
+            return htmlSanitizer.sanitize(html);
+        }
+        return sanitizingFilter.toResult(html);
+    }
+}
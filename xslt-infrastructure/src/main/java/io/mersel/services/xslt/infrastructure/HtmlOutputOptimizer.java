@@ -0,0 +1,202 @@
+package io.mersel.services.xslt.infrastructure;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Dönüşüm çıktısının boyut optimizasyonu.
+ * <p>
+ * Sanitize edilmiş HTML üzerinde, cache'e yazılmadan önce bir kez uygulanır:
+ * <ul>
+ *   <li><b>Boşluk sıkıştırma</b> — metin içindeki boşluk dizileri tek karaktere indirilir
+ *       (dizide satır sonu varsa {@code \n}, yoksa boşluk). {@code pre}, {@code textarea},
+ *       {@code script} ve {@code style} içeriği, yorumlar ve tag'ler olduğu gibi kalır —
+ *       script CSP hash'leri değişmez</li>
+ *   <li><b>data: URI tekilleştirme</b> — aynı base64 görsel (logo, imza) birden çok {@code img}
+ *       elementinde geçiyorsa {@code src} kaldırılır, element {@code data-xslt-img} ile işaretlenir ve
+ *       görsel {@code head} içine eklenen tek bir {@code content: url(...)} kuralında taşınır</li>
+ * </ul>
+ * İşlem byte düzeyinde şeffaftır: yalnızca ASCII söz dizimi karakterlerine bakılır, içerik
+ * ISO-8859-1 ile okunup yazıldığı için UTF-8 çok byte'lı karakterler değişmeden kalır.
+ * Thread-safe'tir.
+ */
+final class HtmlOutputOptimizer {
+
+    /** İçeriği olduğu gibi korunan elementler. */
+    private static final Set<String> RAW_ELEMENTS = Set.of("pre", "textarea", "script", "style");
+
+    /**
+     * {@code img} elementindeki base64 görsel. Yalnızca base64 alfabesi ve serializer'ın satır sonu
+     * karakter referansları kabul edilir — değer CSS içine taşındığında kaçış gerektirmez.
+     */
+    private static final Pattern DATA_IMAGE_SRC = Pattern.compile(
+            "(<img\\b[^>]*?)\\s+src=\"(data:image/[A-Za-z0-9.+-]+;base64,(?:[A-Za-z0-9+/=\\s]|&#(?:x[AaDd]|1[03]);)+)\"",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern BASE64_NOISE = Pattern.compile("\\s|&#(?:x[AaDd]|1[03]);");
+
+    static final String DATA_IMAGE_ATTRIBUTE = "data-xslt-img";
+
+    /** Tekilleştirilecek data: URI'nin minimum uzunluğu (karakter). */
+    private final int dedupeMinBytes;
+
+    HtmlOutputOptimizer(int dedupeMinBytes) {
+        this.dedupeMinBytes = dedupeMinBytes;
+    }
+
+    /**
+     * HTML'i optimize eder.
+     *
+     * @return optimize edilmiş HTML; kazanç yoksa aynı dizi
+     */
+    byte[] optimize(byte[] html) {
+        String source = new String(html, StandardCharsets.ISO_8859_1);
+        String optimized = deduplicateDataUris(collapseWhitespace(source));
+        return optimized.length() < source.length() ? optimized.getBytes(StandardCharsets.ISO_8859_1) : html;
+    }
+
+    // ── Boşluk Sıkıştırma ───────────────────────────────────────────
+
+    static String collapseWhitespace(String html) {
+        var out = new StringBuilder(html.length());
+        int length = html.length();
+        int i = 0;
+        while (i < length) {
+            char c = html.charAt(i);
+            if (c == '<') {
+                if (html.startsWith("<!--", i)) {
+                    int end = html.indexOf("-->", i + 4);
+                    end = end < 0 ? length : end + 3;
+                    out.append(html, i, end);
+                    i = end;
+                    continue;
+                }
+                int end = tagEnd(html, i);
+                out.append(html, i, end);
+                String name = openingTagName(html, i);
+                if (name != null && RAW_ELEMENTS.contains(name) && html.charAt(end - 2) != '/') {
+                    int close = indexOfIgnoreCase(html, "</" + name, end);
+                    close = close < 0 ? length : close;
+                    out.append(html, end, close);
+                    i = close;
+                } else {
+                    i = end;
+                }
+            } else if (isWhitespace(c)) {
+                boolean newline = false;
+                while (i < length && isWhitespace(html.charAt(i))) {
+                    newline |= html.charAt(i) == '\n';
+                    i++;
+                }
+                out.append(newline ? '\n' : ' ');
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Tag'in bittiği konumun bir sonrası; tırnak içindeki {@code >} karakterleri atlanır.
+     */
+    private static int tagEnd(String html, int start) {
+        char quote = 0;
+        for (int i = start + 1; i < html.length(); i++) {
+            char c = html.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i + 1;
+            }
+        }
+        return html.length();
+    }
+
+    /**
+     * Açılış tag'inin küçük harfli adı; kapanış tag'i, doctype veya işlem talimatıysa {@code null}.
+     */
+    private static String openingTagName(String html, int start) {
+        int i = start + 1;
+        while (i < html.length() && (Character.isLetterOrDigit(html.charAt(i)) || html.charAt(i) == '-')) {
+            i++;
+        }
+        return i > start + 1 && Character.isLetter(html.charAt(start + 1))
+                ? html.substring(start + 1, i).toLowerCase(Locale.ROOT)
+                : null;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f';
+    }
+
+    private static int indexOfIgnoreCase(String text, String target, int from) {
+        for (int i = from; i <= text.length() - target.length(); i++) {
+            if (text.regionMatches(true, i, target, 0, target.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // ── data: URI Tekilleştirme ─────────────────────────────────────
+
+    String deduplicateDataUris(String html) {
+        if (html.indexOf("data:image/") < 0) {
+            return html;
+        }
+        var counts = new HashMap<String, Integer>();
+        Matcher matcher = DATA_IMAGE_SRC.matcher(html);
+        while (matcher.find()) {
+            if (matcher.group(2).length() >= dedupeMinBytes) {
+                counts.merge(matcher.group(2), 1, Integer::sum);
+            }
+        }
+
+        // Referans numaraları ilk geçiş sırasına göre verilir — aynı HTML aynı çıktıyı üretir
+        var references = new LinkedHashMap<String, Integer>();
+        matcher.reset();
+        while (matcher.find()) {
+            if (counts.getOrDefault(matcher.group(2), 0) > 1) {
+                references.putIfAbsent(matcher.group(2), references.size());
+            }
+        }
+        if (references.isEmpty() || indexOfIgnoreCase(html, "</head>", 0) < 0) {
+            return html;
+        }
+
+        var out = new StringBuilder(html.length());
+        matcher.reset();
+        while (matcher.find()) {
+            Integer reference = references.get(matcher.group(2));
+            String replacement = reference != null
+                    ? matcher.group(1) + " " + DATA_IMAGE_ATTRIBUTE + "=\"" + reference + "\""
+                    : matcher.group();
+            matcher.appendReplacement(out, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(out);
+
+        var style = new StringBuilder("<style>");
+        for (Map.Entry<String, Integer> entry : references.entrySet()) {
+            style.append("img[").append(DATA_IMAGE_ATTRIBUTE).append("=\"").append(entry.getValue())
+                    .append("\"]{content:url(\"")
+                    .append(BASE64_NOISE.matcher(entry.getKey()).replaceAll(""))
+                    .append("\")}");
+        }
+        style.append("</style>");
+
+        int headEnd = indexOfIgnoreCase(out.toString(), "</head>", 0);
+        out.insert(headEnd, style);
+        return out.toString();
+    }
+}
@@ -1,6 +1,11 @@
 package io.mersel.services.xslt.infrastructure;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.mersel.services.xslt.application.models.SanitizationResult;
+import io.mersel.services.xslt.infrastructure.diagnostics.XsltMetrics;
+import jakarta.annotation.PostConstruct;
+import net.sf.saxon.event.Receiver;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Attribute;
 import org.jsoup.nodes.Document;
@@ -8,6 +13,7 @@ import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
@@ -15,6 +21,7 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * XSLT HTML çıktısını güvenlik açısından temizler (No-Exfiltration Sandbox).
@@ -29,20 +36,25 @@ import java.util.regex.Pattern;
  *   <li>Script exfiltration analizi (her script içeriği blocked API listesine karşı taranır)</li>
  *   <li>Temiz scriptlerin SHA-256 hash hesaplaması (dinamik CSP için)</li>
  * </ol>
+ * Script kararları (izinli + CSP hash'i veya engelleme nedeni) içerik bazında cache'lenir;
+ * varsayılan GİB şablonlarının her faturada ürettiği aynı QR kod / barkod scriptleri
+ * yeniden taranmaz ve hash'lenmez.
+ * Dönüşüm hattında aynı kurallar {@link #newFilter(Receiver)} ile XSLT çıktısı akarken,
+ * ek parse olmadan uygulanır; {@link #sanitize(byte[])} hazır HTML için kullanılır.
  */
 @Service
 public class HtmlSanitizer {
 
     private static final Logger log = LoggerFactory.getLogger(HtmlSanitizer.class);
 
-    private static final Set<String> DANGEROUS_TAGS = Set.of(
+    static final Set<String> DANGEROUS_TAGS = Set.of(
             "iframe", "object", "embed", "base", "applet"
     );
 
     /**
      * Exfiltration vektörü olan JavaScript API'leri.
-     * Case-insensitive regex pattern olarak derlenir.
-     * Her pattern, script içeriğinde bulunursa o script kaldırılır.
+     * Her pattern, script içeriğinde bulunursa o script kaldırılır; birden fazlası eşleşirse
+     * engelleme nedeni listede önce gelen pattern'dir.
      */
     private static final List<ExfiltrationPattern> BLOCKED_PATTERNS = List.of(
             new ExfiltrationPattern("document\\.cookie", "cookie access"),
@@ -67,6 +79,69 @@ public class HtmlSanitizer {
             new ExfiltrationPattern("\\bprompt\\s*\\(", "UI blocking dialog (prompt)")
     );
 
+    /**
+     * {@link #BLOCKED_PATTERNS} listesinin tek case-insensitive alternation'da birleşimi.
+     * Temiz script'ler 20 ayrı tarama yerine tek geçişte elenir; neden yalnızca eşleşme
+     * varsa liste sırasıyla belirlenir.
+     */
+    private static final Pattern BLOCKED_PATTERN_SCANNER = Pattern.compile(
+            BLOCKED_PATTERNS.stream()
+                    .map(p -> "(?:" + p.pattern().pattern() + ")")
+                    .collect(Collectors.joining("|")),
+            Pattern.CASE_INSENSITIVE);
+
+    /** Script karar cache girdisi başına sabit ek yük tahmini (hash, neden, anahtar nesnesi). */
+    private static final int VERDICT_OVERHEAD_BYTES = 128;
+
+    private final XsltMetrics metrics;
+
+    /**
+     * Script karar cache — Key: script içeriği (içerik hash'i ve eşitlik kontrolü ile),
+     * Value: karar. Tahliye toplam script boyutuna göre yapılır.
+     */
+    private Cache<String, ScriptVerdict> scriptVerdictCache;
+
+    @Value("${xslt.cache.script-verdict-max-size-mb:16}")
+    private int scriptVerdictCacheMaxSizeMb = 16;
+
+    public HtmlSanitizer(XsltMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    void init() {
+        scriptVerdictCache = Caffeine.newBuilder()
+                .maximumWeight(scriptVerdictCacheMaxSizeMb * 1024L * 1024L)
+                .weigher((String content, ScriptVerdict verdict) ->
+                        (int) Math.min(Integer.MAX_VALUE, content.length() * 2L + VERDICT_OVERHEAD_BYTES))
+                .recordStats()
+                .build();
+        metrics.registerScriptVerdictCacheMetrics(scriptVerdictCache);
+    }
+
+    /**
+     * XSLT çıktı olaylarını tek geçişte sanitize eden filtre oluşturur.
+     *
+     * @param next Sonraki alıcı (filigran filtresi veya serializer)
+     * @return Dönüşüm başına yeni filtre; sonuç {@link HtmlSanitizingFilter#toResult(byte[])} ile alınır
+     */
+    HtmlSanitizingFilter newFilter(Receiver next) {
+        return new HtmlSanitizingFilter(next, this, null, false);
+    }
+
+    /**
+     * Stylesheet'in çıktı yöntemini bilen filtre oluşturur.
+     *
+     * @param next         Sonraki alıcı (filigran filtresi veya serializer)
+     * @param outputMethod {@code method} serileştirme parametresi; {@code null} ise serializer gibi ilk elemente göre belirlenir
+     * @param streaming    true ise çıktı sonradan yeniden sanitize edilemez (doğrudan istemciye akar):
+     *                     {@code disable-output-escaping} yok sayılır, güvensiz script/style atlanır,
+     *                     HTML dışı çıktı yönteminde dönüşüm başarısız olur
+     */
+    HtmlSanitizingFilter newFilter(Receiver next, String outputMethod, boolean streaming) {
+        return new HtmlSanitizingFilter(next, this, outputMethod, streaming);
+    }
+
     /**
      * Verilen HTML içeriğini sanitize eder.
      *
@@ -189,16 +264,15 @@ public class HtmlSanitizer {
                 continue;
             }
 
-            String blockedReason = findExfiltrationPattern(content);
-            if (blockedReason != null) {
-                String reason = "Script exfiltration API içeriyor: " + blockedReason;
+            ScriptVerdict verdict = verdictFor(content);
+            if (!verdict.allowed()) {
+                String reason = "Script exfiltration API içeriyor: " + verdict.blockedReason();
                 removalReasons.add(reason);
                 log.debug(reason);
                 toRemove.add(script);
                 removedCount++;
             } else {
-                String hash = computeSha256Base64(content);
-                allowedHashes.add(hash);
+                allowedHashes.add(verdict.cspHash());
             }
         }
 
@@ -210,11 +284,30 @@ public class HtmlSanitizer {
     }
 
     /**
-     * Script içeriğini blocked pattern listesine karşı tarar.
+     * Inline script içeriği için kararı döndürür; aynı içerik daha önce analiz edildiyse
+     * tarama ve hash hesaplaması atlanır.
      *
-     * @return eşleşen ilk pattern'in açıklaması, yoksa {@code null}
+     * @param scriptContent Boş olmayan script içeriği
      */
-    private String findExfiltrationPattern(String scriptContent) {
+    ScriptVerdict verdictFor(String scriptContent) {
+        return scriptVerdictCache.get(scriptContent, content -> {
+            String blockedReason = findExfiltrationPattern(content);
+            return blockedReason != null
+                    ? ScriptVerdict.blocked(blockedReason)
+                    : ScriptVerdict.allowed(computeSha256Base64(content));
+        });
+    }
+
+    /**
+     * Script içeriğini blocked pattern listesine karşı tarar. Temiz içerik birleşik pattern ile
+     * tek geçişte elenir; eşleşme varsa pattern'lar liste sırasıyla denenir.
+     *
+     * @return listede ilk eşleşen pattern'in açıklaması, yoksa {@code null}
+     */
+    static String findExfiltrationPattern(String scriptContent) {
+        if (!BLOCKED_PATTERN_SCANNER.matcher(scriptContent).find()) {
+            return null;
+        }
         for (ExfiltrationPattern bp : BLOCKED_PATTERNS) {
             if (bp.pattern().matcher(scriptContent).find()) {
                 return bp.description();
@@ -233,6 +326,27 @@ public class HtmlSanitizer {
         }
     }
 
+    /**
+     * Inline script analiz sonucu.
+     *
+     * @param cspHash       İzinli script'in SHA-256 hash'i (Base64, CSP için); engellendiyse {@code null}
+     * @param blockedReason Engelleme nedeni; izinliyse {@code null}
+     */
+    record ScriptVerdict(String cspHash, String blockedReason) {
+
+        static ScriptVerdict allowed(String cspHash) {
+            return new ScriptVerdict(cspHash, null);
+        }
+
+        static ScriptVerdict blocked(String reason) {
+            return new ScriptVerdict(null, reason);
+        }
+
+        boolean allowed() {
+            return blockedReason == null;
+        }
+    }
+
     private record ExfiltrationPattern(Pattern pattern, String description) {
         ExfiltrationPattern(String regex, String description) {
             this(Pattern.compile(regex, Pattern.CASE_INSENSITIVE), description);
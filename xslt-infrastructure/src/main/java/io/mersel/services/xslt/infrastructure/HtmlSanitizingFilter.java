@@ -0,0 +1,441 @@
+package io.mersel.services.xslt.infrastructure;
+
+import io.mersel.services.xslt.application.models.SanitizationResult;
+import net.sf.saxon.event.ProxyReceiver;
+import net.sf.saxon.event.Receiver;
+import net.sf.saxon.event.ReceiverOption;
+import net.sf.saxon.om.AttributeInfo;
+import net.sf.saxon.om.AttributeMap;
+import net.sf.saxon.om.Item;
+import net.sf.saxon.om.NamespaceMap;
+import net.sf.saxon.om.NodeInfo;
+import net.sf.saxon.om.NodeName;
+import net.sf.saxon.s9api.Location;
+import net.sf.saxon.str.StringView;
+import net.sf.saxon.str.UnicodeString;
+import net.sf.saxon.trans.XPathException;
+import net.sf.saxon.type.SchemaType;
+import net.sf.saxon.value.Whitespace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * {@link HtmlSanitizer} kurallarını XSLT çıktı olayları üzerinde tek geçişte uygulayan Saxon filtresi.
+ * <p>
+ * Saxon {@code Xslt30Transformer} ile serializer arasına yerleşir; HTML metne dönüştürülüp
+ * jsoup ile yeniden parse edilmez. Uygulanan kurallar jsoup tabanlı
+ * {@link HtmlSanitizer#sanitize(byte[])} ile aynıdır:
+ * <ul>
+ *   <li>Tehlikeli elementler (iframe, object, embed, base, applet, meta refresh, tehlikeli link) alt ağacıyla atlanır</li>
+ *   <li>{@code on*} attribute'ları ve javascript:/vbscript: URL'leri kaldırılır</li>
+ *   <li>Script içerikleri tamponlanır; harici, boş veya exfiltration API içeren scriptler atlanır,
+ *       temiz olanların SHA-256 hash'i alınır (kararlar {@link HtmlSanitizer#verdictFor(String)} ile cache'lenir)</li>
+ *   <li>Style içerikleri de tamponlanır; HTML serializer script/style metnini escape etmeden yazar</li>
+ * </ul>
+ * Olay seviyesinde denetlenemeyen çıktılarda {@link #requiresFullSanitization()} işaretlenir;
+ * çağıran bu durumda çıktıyı jsoup tabanlı tam sanitization'dan geçirmelidir:
+ * <ul>
+ *   <li>{@code disable-output-escaping} ile üretilen ham metin</li>
+ *   <li>{@code </} içeren script/style metni — elementi kapatıp ardından canlı HTML yazabilir</li>
+ *   <li>html/xhtml dışındaki çıktı yöntemleri (ör. {@code text}) — markup düz metin olarak yazılır</li>
+ *   <li>xhtml çıktısında serializer'ın escape edeceği script metni — CSP hash'i tarayıcının
+ *       hash'lediği metinle eşleşmez</li>
+ * </ul>
+ * Çıktının doğrudan istemciye aktığı akış modunda bu mümkün olmadığından ham metin escape edilerek
+ * yazılır, güvensiz script/style elementi atlanır ve HTML dışı çıktı yönteminde deneme başarısız sayılır.
+ * <p>
+ * Thread-safe değildir — her dönüşüm için yeni örnek oluşturulur.
+ */
+final class HtmlSanitizingFilter extends ProxyReceiver {
+
+    private static final Logger log = LoggerFactory.getLogger(HtmlSanitizingFilter.class);
+
+    private static final Set<String> URL_ATTRIBUTES = Set.of("href", "src", "action");
+
+    private static final String XHTML_NAMESPACE = "http://www.w3.org/1999/xhtml";
+
+    private final HtmlSanitizer sanitizer;
+    private final List<String> allowedHashes = new ArrayList<>();
+    private final List<String> removalReasons = new ArrayList<>();
+    private final boolean streaming;
+    private int removedCount;
+    private boolean requiresFullSanitization;
+    private boolean rawTextEscaped;
+
+    /** Serializer'ın çıktı yöntemi; {@code null} ise ilk elemente göre belirlenir. */
+    private String outputMethod;
+    private boolean outputMethodChecked;
+
+    /** 0'dan büyükse atlanan bir alt ağacın içindeyiz (derinlik). */
+    private int suppressedDepth;
+
+    /** Açık script/style elementi — içeriği kapanana kadar tamponlanır. */
+    private PendingRawText pendingRawText;
+
+    /**
+     * @param outputMethod Stylesheet'in {@code method} serileştirme parametresi; {@code null} ise belirtilmemiş
+     * @param streaming    Çıktı sonradan yeniden sanitize edilemiyor mu (doğrudan istemciye akış)
+     */
+    HtmlSanitizingFilter(Receiver next, HtmlSanitizer sanitizer, String outputMethod, boolean streaming) {
+        super(next);
+        this.sanitizer = sanitizer;
+        this.outputMethod = outputMethod != null ? outputMethod.strip() : null;
+        this.streaming = streaming;
+    }
+
+    // ── Olaylar ─────────────────────────────────────────────────────
+
+    @Override
+    public void startElement(NodeName elemName, SchemaType type, AttributeMap attributes,
+                             NamespaceMap namespaces, Location location, int properties) throws XPathException {
+        if (suppressedDepth > 0) {
+            suppressedDepth++;
+            return;
+        }
+        if (pendingRawText != null) {
+            // Script/style içinde element — içerik artık düz metin değil, element atlanacak
+            pendingRawText.nestedDepth++;
+            pendingRawText.hasChildElements = true;
+            return;
+        }
+        if (!outputMethodChecked) {
+            checkOutputMethod(elemName);
+        }
+
+        String tag = elemName.getLocalPart().toLowerCase(Locale.ROOT);
+        if (isDangerousElement(tag, attributes)) {
+            log.debug("Tehlikeli element kaldırılıyor: <{}>", tag);
+            suppressedDepth = 1;
+            return;
+        }
+
+        AttributeMap cleaned = removeDangerousAttributes(attributes);
+
+        if ("script".equals(tag)) {
+            String src = cleaned.getValue("", "src");
+            if (src != null) {
+                String reason = "Harici script kaynağı engellendi: " + src;
+                removalReasons.add(reason);
+                log.debug(reason);
+                removedCount++;
+                suppressedDepth = 1;
+                return;
+            }
+            pendingRawText = new PendingRawText(true, elemName, type, cleaned, namespaces, location, properties);
+            return;
+        }
+        if ("style".equals(tag)) {
+            pendingRawText = new PendingRawText(false, elemName, type, cleaned, namespaces, location, properties);
+            return;
+        }
+
+        nextReceiver.startElement(elemName, type, cleaned, namespaces, location, properties);
+    }
+
+    @Override
+    public void endElement() throws XPathException {
+        if (suppressedDepth > 0) {
+            suppressedDepth--;
+            return;
+        }
+        if (pendingRawText != null) {
+            if (pendingRawText.nestedDepth > 0) {
+                pendingRawText.nestedDepth--;
+                return;
+            }
+            PendingRawText element = pendingRawText;
+            pendingRawText = null;
+            flushRawText(element);
+            return;
+        }
+        nextReceiver.endElement();
+    }
+
+    @Override
+    public void characters(UnicodeString chars, Location locationId, int properties) throws XPathException {
+        if (suppressedDepth > 0) {
+            return;
+        }
+        if (pendingRawText != null) {
+            if (pendingRawText.nestedDepth == 0) {
+                pendingRawText.content.append(chars.toString());
+            }
+            return;
+        }
+        if (!outputMethodChecked && (outputMethod != null || !Whitespace.isAllWhite(chars))) {
+            // Belirtilmemiş yöntemde elementten önce gelen metin XML yöntemini seçtirir
+            checkOutputMethod(null);
+        }
+        if (ReceiverOption.contains(properties, ReceiverOption.DISABLE_ESCAPING)) {
+            if (streaming) {
+                if (!rawTextEscaped) {
+                    String reason = "disable-output-escaping akış modunda devre dışı — ham metin escape edildi";
+                    removalReasons.add(reason);
+                    log.debug(reason);
+                    rawTextEscaped = true;
+                }
+                properties &= ~ReceiverOption.DISABLE_ESCAPING;
+            } else {
+                requiresFullSanitization = true;
+            }
+        }
+        nextReceiver.characters(chars, locationId, properties);
+    }
+
+    @Override
+    public void comment(UnicodeString content, Location locationId, int properties) throws XPathException {
+        if (suppressedDepth > 0 || pendingRawText != null) {
+            return;
+        }
+        nextReceiver.comment(content, locationId, properties);
+    }
+
+    @Override
+    public void processingInstruction(String target, UnicodeString data, Location locationId, int properties)
+            throws XPathException {
+        if (suppressedDepth > 0 || pendingRawText != null) {
+            return;
+        }
+        nextReceiver.processingInstruction(target, data, locationId, properties);
+    }
+
+    /**
+     * Hazır düğümler (ör. xsl:copy-of) olaylara ayrıştırılır; böylece filtre kurallarından kaçamazlar.
+     */
+    @Override
+    public void append(Item item, Location locationId, int properties) throws XPathException {
+        if (item instanceof NodeInfo) {
+            decompose(item, locationId, properties);
+        } else if (suppressedDepth == 0 && pendingRawText == null) {
+            nextReceiver.append(item, locationId, properties);
+        }
+    }
+
+    // ── Sonuç ───────────────────────────────────────────────────────
+
+    /**
+     * Çıktı olay seviyesinde denetlenemeyen içerik barındırıyor mu (ham metin, güvensiz
+     * script/style metni veya HTML dışı çıktı yöntemi).
+     */
+    boolean requiresFullSanitization() {
+        return requiresFullSanitization;
+    }
+
+    /**
+     * Filtrelenmiş serializer çıktısı ile sanitization sonucunu oluşturur.
+     */
+    SanitizationResult toResult(byte[] sanitizedHtml) {
+        if (removedCount > 0) {
+            log.info("HTML sanitization tamamlandı — {} script kaldırıldı, {} script izin verildi",
+                    removedCount, allowedHashes.size());
+        }
+        return new SanitizationResult(sanitizedHtml, List.copyOf(allowedHashes), removedCount,
+                List.copyOf(removalReasons));
+    }
+
+    // ── Kurallar ────────────────────────────────────────────────────
+
+    private static boolean isDangerousElement(String tag, AttributeMap attributes) {
+        if (HtmlSanitizer.DANGEROUS_TAGS.contains(tag)) {
+            return true;
+        }
+        if ("meta".equals(tag)) {
+            return "refresh".equalsIgnoreCase(attributeValue(attributes, "http-equiv"));
+        }
+        if ("link".equals(tag)) {
+            String rel = attributeValue(attributes, "rel");
+            return "import".equalsIgnoreCase(rel)
+                    || "modulepreload".equalsIgnoreCase(rel)
+                    || ("preload".equalsIgnoreCase(rel) && "script".equalsIgnoreCase(attributeValue(attributes, "as")));
+        }
+        return false;
+    }
+
+    private static AttributeMap removeDangerousAttributes(AttributeMap attributes) {
+        AttributeMap result = attributes;
+        for (AttributeInfo attribute : attributes) {
+            String name = attribute.getNodeName().getDisplayName().toLowerCase(Locale.ROOT);
+            if (name.startsWith("on")
+                    || (URL_ATTRIBUTES.contains(name) && isScriptUrl(attribute.getValue()))) {
+                result = result.remove(attribute.getNodeName());
+            }
+        }
+        return result;
+    }
+
+    private static boolean isScriptUrl(String value) {
+        String trimmed = value.stripLeading().toLowerCase(Locale.ROOT);
+        return trimmed.startsWith("javascript:") || trimmed.startsWith("vbscript:");
+    }
+
+    /**
+     * Namespace'siz attribute değerini büyük/küçük harf duyarsız isimle döndürür.
+     */
+    private static String attributeValue(AttributeMap attributes, String name) {
+        for (AttributeInfo attribute : attributes) {
+            if (attribute.getNodeName().getURI().isEmpty()
+                    && attribute.getNodeName().getLocalPart().equalsIgnoreCase(name)) {
+                return attribute.getValue().strip();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Çıktı yöntemi html/xhtml değilse olay seviyesindeki kurallar yetersizdir: {@code text}
+     * yönteminde markup düz metin olarak yazılır, {@code xml} yönteminde script/style içeriği escape edilir.
+     * Yöntem belirtilmemişse serializer'ın ilk elemente göre yaptığı seçim uygulanır.
+     *
+     * @param firstElement Çıktının ilk elementi; elementten önce metin geldiyse {@code null}
+     */
+    private void checkOutputMethod(NodeName firstElement) throws XPathException {
+        outputMethodChecked = true;
+        if (outputMethod == null) {
+            outputMethod = inferOutputMethod(firstElement);
+        }
+        if (!"html".equals(outputMethod) && !"xhtml".equals(outputMethod)) {
+            String reason = "HTML dışı çıktı yöntemi: " + outputMethod;
+            if (streaming) {
+                throw new XPathException(reason + " — akış modunda sanitize edilemez");
+            }
+            log.debug(reason);
+            requiresFullSanitization = true;
+        }
+    }
+
+    private static String inferOutputMethod(NodeName firstElement) {
+        if (firstElement != null && "html".equalsIgnoreCase(firstElement.getLocalPart())) {
+            String uri = firstElement.getURI();
+            if (uri.isEmpty()) {
+                return "html";
+            }
+            if (XHTML_NAMESPACE.equals(uri)) {
+                return "xhtml";
+            }
+        }
+        return "xml";
+    }
+
+    /**
+     * Tamponlanan script/style elementini analiz eder: temizse aynen yazar (script'in hash'ini
+     * kaydeder), değilse atlar veya çıktıyı tam sanitization'a yönlendirir.
+     */
+    private void flushRawText(PendingRawText element) throws XPathException {
+        String content = element.content.toString();
+        String label = element.script ? "Script" : "Style";
+
+        if (element.hasChildElements) {
+            removeRawText(element, label + " içinde beklenmeyen element engellendi");
+            return;
+        }
+
+        String unsafeReason = unsafeRawTextReason(element, content);
+        if (unsafeReason != null) {
+            if (streaming) {
+                removeRawText(element, label + " " + unsafeReason);
+                return;
+            }
+            // Tam sanitization jsoup ile tarayıcının göreceği yapıyı yeniden kurar; hash'i o hesaplar
+            log.debug("{} {} — tam sanitization gerekiyor", label, unsafeReason);
+            requiresFullSanitization = true;
+            writeRawText(element, content);
+            return;
+        }
+
+        if (!element.script) {
+            writeRawText(element, content);
+            return;
+        }
+
+        if (content.isBlank()) {
+            removedCount++;
+            return;
+        }
+
+        HtmlSanitizer.ScriptVerdict verdict = sanitizer.verdictFor(content);
+        if (!verdict.allowed()) {
+            removeRawText(element, "Script exfiltration API içeriyor: " + verdict.blockedReason());
+            return;
+        }
+
+        allowedHashes.add(verdict.cspHash());
+        writeRawText(element, content);
+    }
+
+    /**
+     * HTML serializer script/style metnini escape etmeden yazar; {@code </} elementi erken
+     * kapatabilir. xhtml serializer ise script metnindeki {@code <}, {@code >}, {@code &} ve
+     * satır başı karakterlerini escape eder — olay metninin hash'i yalnızca html çıktısında geçerlidir.
+     *
+     * @return güvensizlik nedeni veya {@code null}
+     */
+    private String unsafeRawTextReason(PendingRawText element, String content) {
+        if (content.contains("</")) {
+            return "içeriği kapanış etiketi (</) içeriyor";
+        }
+        if (element.script && "xhtml".equals(outputMethod) && containsXmlEscapedChar(content)) {
+            return "içeriği xhtml çıktısında escape ediliyor";
+        }
+        return null;
+    }
+
+    static boolean containsXmlEscapedChar(String content) {
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c == '<' || c == '>' || c == '&' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void removeRawText(PendingRawText element, String reason) {
+        removalReasons.add(reason);
+        log.debug(reason);
+        if (element.script) {
+            removedCount++;
+        }
+    }
+
+    private void writeRawText(PendingRawText element, String content) throws XPathException {
+        nextReceiver.startElement(element.name, element.type, element.attributes, element.namespaces,
+                element.location, element.properties);
+        if (!content.isEmpty()) {
+            nextReceiver.characters(StringView.of(content), element.location, ReceiverOption.NONE);
+        }
+        nextReceiver.endElement();
+    }
+
+    /**
+     * Kapanmayı bekleyen script/style elementi.
+     */
+    private static final class PendingRawText {
+
+        private final boolean script;
+        private final NodeName name;
+        private final SchemaType type;
+        private final AttributeMap attributes;
+        private final NamespaceMap namespaces;
+        private final Location location;
+        private final int properties;
+        private final StringBuilder content = new StringBuilder();
+        private int nestedDepth;
+        private boolean hasChildElements;
+
+        private PendingRawText(boolean script, NodeName name, SchemaType type, AttributeMap attributes,
+                               NamespaceMap namespaces, Location location, int properties) {
+            this.script = script;
+            this.name = name;
+            this.type = type;
+            this.attributes = attributes;
+            this.namespaces = namespaces;
+            this.location = location;
+            this.properties = properties;
+        }
+    }
+}
@@ -4,11 +4,15 @@ import io.mersel.services.xslt.application.enums.SchemaValidationType;
 import io.mersel.services.xslt.application.interfaces.ISchemaValidator;
 import io.mersel.services.xslt.application.interfaces.Reloadable;
 import io.mersel.services.xslt.application.interfaces.ReloadResult;
+import io.mersel.services.xslt.application.models.ErrorBudget;
+import io.mersel.services.xslt.application.models.ParsedDocument;
 import io.mersel.services.xslt.application.models.XsdOverride;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import io.mersel.services.xslt.infrastructure.diagnostics.XsltMetrics;
 import jakarta.annotation.PostConstruct;
+import net.sf.saxon.s9api.SAXDestination;
+import net.sf.saxon.s9api.SaxonApiException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -29,12 +33,14 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
-import javax.xml.validation.Validator;
+import javax.xml.validation.ValidatorHandler;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * JAXP tabanlı XML Schema (XSD) doğrulama implementasyonu.
@@ -53,6 +59,12 @@ public class JaxpSchemaValidator implements ISchemaValidator, Reloadable {
 
     private static final Logger log = LoggerFactory.getLogger(JaxpSchemaValidator.class);
 
+    /**
+     * Tek geçişli doğrulamada tür tespiti sırasında tamponlanabilecek SAX olayı sayısı.
+     * UBL-TR'de root'ta, e-Defter'de ilk context'te tespit biter; aşılırsa akış yeniden açılır.
+     */
+    static final int SINGLE_PASS_BUFFER_EVENTS = 50_000;
+
     private final AssetManager assetManager;
     private final XsltMetrics metrics;
 
@@ -100,16 +112,22 @@ public class JaxpSchemaValidator implements ISchemaValidator, Reloadable {
     );
 
     /**
-     * Derlenmiş XSD cache — volatile ile atomic swap.
+     * Derlenmiş XSD cache — volatile ile atomic swap. Her şema kendi doğrulayıcı havuzuyla
+     * tutulur; swap eski havuzları da birlikte atar.
      */
-    private volatile Map<SchemaValidationType, Schema> compiledSchemas = Map.of();
+    private volatile Map<SchemaValidationType, SchemaValidatorPool> compiledSchemas = Map.of();
 
     /**
      * Override'lı XSD cache — lazy compile, TTL ve max-size ile.
      * Key: "INVOICE::override-hash" formatında unique bir key.
-     * Reload sırasında temizlenir.
+     * Reload sırasında temizlenir; kayıt düştüğünde havuzu da düşer.
      */
-    private Cache<String, Schema> overrideCache;
+    private Cache<String, SchemaValidatorPool> overrideCache;
+
+    /**
+     * Tüm doğrulayıcı havuzlarının kullanım sayaçları.
+     */
+    private final SchemaValidatorPool.Usage poolUsage = new SchemaValidatorPool.Usage();
 
     @Value("${xslt.cache.xsd-override-max-size:50}")
     private int xsdOverrideCacheMaxSize;
@@ -117,6 +135,12 @@ public class JaxpSchemaValidator implements ISchemaValidator, Reloadable {
     @Value("${xslt.cache.xsd-override-ttl-hours:1}")
     private int xsdOverrideCacheTtlHours;
 
+    /**
+     * Şema başına boşta tutulacak doğrulayıcı sayısı (0 = işlemci sayısı, negatif = havuz kapalı).
+     */
+    @Value("${xslt.validation.validator-pool-size:0}")
+    private int validatorPoolSize = 0;
+
     public JaxpSchemaValidator(AssetManager assetManager, XsltMetrics metrics) {
         this.assetManager = assetManager;
         this.metrics = metrics;
@@ -129,6 +153,28 @@ public class JaxpSchemaValidator implements ISchemaValidator, Reloadable {
                 .expireAfterWrite(Duration.ofHours(xsdOverrideCacheTtlHours))
                 .build();
         metrics.registerXsdOverrideCacheSizeGauge(overrideCache);
+        metrics.registerXsdValidatorPoolMetrics(poolUsage::active, this::idleValidators,
+                poolUsage::created, poolUsage::reused);
+    }
+
+    /**
+     * Base ve override havuzlarında boşta bekleyen doğrulayıcı sayısı.
+     */
+    private int idleValidators() {
+        int idle = 0;
+        for (SchemaValidatorPool pool : compiledSchemas.values()) {
+            idle += pool.idle();
+        }
+        for (SchemaValidatorPool pool : overrideCache.asMap().values()) {
+            idle += pool.idle();
+        }
+        return idle;
+    }
+
+    private SchemaValidatorPool newPool(Schema schema) {
+        int maxIdle = validatorPoolSize == 0 ? Runtime.getRuntime().availableProcessors()
+                : Math.max(validatorPoolSize, 0);
+        return new SchemaValidatorPool(schema, maxIdle, poolUsage);
     }
 
     /**
@@ -148,7 +194,7 @@ public class JaxpSchemaValidator implements ISchemaValidator, Reloadable {
     @Override
     public ReloadResult reload() {
         long startTime = System.currentTimeMillis();
-        var newCache = new HashMap<SchemaValidationType, Schema>();
+        var newCache = new HashMap<SchemaValidationType, SchemaValidatorPool>();
         var errors = new ArrayList<String>();
 
         // Override cache'i temizle — base şemalar değiştiğinde override'lar da geçersiz
@@ -157,7 +203,7 @@ public class JaxpSchemaValidator implements ISchemaValidator, Reloadable {
         for (SchemaValidationType type : SchemaValidationType.values()) {
             try {
                 var schema = compileSchema(type);
-                newCache.put(type, schema);
+                newCache.put(type, newPool(schema));
                 log.debug("  {} XSD şeması yüklendi", type);
             } catch (Exception e) {
                 String error = type + " XSD şeması yüklenemedi: " + e.getMessage();
@@ -166,7 +212,7 @@ public class JaxpSchemaValidator implements ISchemaValidator, Reloadable {
             }
         }
 
-        // Atomic swap
+        // Atomic swap — eski şemaların doğrulayıcı havuzları da birlikte atılır
         compiledSchemas = Map.copyOf(newCache);
 
         long elapsed = System.currentTimeMillis() - startTime;
@@ -194,52 +240,104 @@ public class JaxpSchemaValidator implements ISchemaValidator, Reloadable {
 
     @Override
     public List<String> validate(byte[] source, SchemaValidationType schemaType, List<XsdOverride> overrides, String profileName) {
+        return validate(source, schemaType, overrides, profileName, null);
+    }
+
+    @Override
+    public List<String> validate(byte[] source, SchemaValidationType schemaType, List<XsdOverride> overrides,
+                                 String profileName, ErrorBudget budget) {
+        return validateStream(new ByteArrayInputStream(source), schemaType, overrides, profileName, budget);
+    }
+
+    @Override
+    public List<String> validateStream(InputStream source, SchemaValidationType schemaType,
+                                       List<XsdOverride> overrides, String profileName) {
+        return validateStream(source, schemaType, overrides, profileName, null);
+    }
+
+    /**
+     * Akış halinde doğrulama — belge belleğe alınmaz, JAXP validator akışı SAX ile okur.
+     * Okuma hataları doğrulama hatası olarak raporlanır. Bütçe aşıldığında akışın geri kalanı okunmaz.
+     */
+    @Override
+    public List<String> validateStream(InputStream source, SchemaValidationType schemaType,
+                                       List<XsdOverride> overrides, String profileName, ErrorBudget budget) {
+        return validate((pool, errors) -> pool.validate(new StreamSource(source), errors, budget),
+                schemaType, overrides, profileName, budget);
+    }
+
+    /**
+     * Tespit ve doğrulamayı tek StAX geçişinde yapan oturum — bkz. {@link StreamingSchemaValidation}.
+     */
+    @Override
+    public StreamSession openStream(Callable<InputStream> source) throws IOException {
+        return new StreamingSchemaValidation(this, source, SINGLE_PASS_BUFFER_EVENTS);
+    }
+
+    /**
+     * Saxon ağacı olarak parse edilmiş belgeyi doğrular — belge yeniden parse edilmez,
+     * ağaçtan üretilen SAX olayları {@link ValidatorHandler}'a verilir. Hata konumları ağaçtaki
+     * element satır/sütun bilgisidir; metin içeriği hataları içeren elementin başlangıç
+     * konumuyla raporlanır.
+     */
+    @Override
+    public List<String> validateDocument(ParsedDocument document, SchemaValidationType schemaType,
+                                         List<XsdOverride> overrides, String profileName) {
+        return validateDocument(document, schemaType, overrides, profileName, null);
+    }
+
+    @Override
+    public List<String> validateDocument(ParsedDocument document, SchemaValidationType schemaType,
+                                         List<XsdOverride> overrides, String profileName, ErrorBudget budget) {
+        if (!(document instanceof SaxonParsedDocument parsed)) {
+            return validate(document.source(), schemaType, overrides, profileName, budget);
+        }
+        return validate((pool, errors) -> pool.validate(handler -> {
+            try {
+                parsed.processor().writeXdmValue(parsed.node(), new SAXDestination(handler));
+            } catch (SaxonApiException e) {
+                throw new SAXException(e.getMessage(), e);
+            }
+        }, errors, budget), schemaType, overrides, profileName, budget);
+    }
+
+    /**
+     * Derlenmiş şemanın havuzundan alınan doğrulayıcıyla tek bir doğrulama çalıştırır;
+     * hatalar {@code errors} listesine eklenir. Bütçe varsa havuza aynen iletilir.
+     */
+    @FunctionalInterface
+    interface SchemaCheck {
+        void run(SchemaValidatorPool pool, List<String> errors) throws SAXException, IOException;
+    }
+
+    /**
+     * @param budget Doğrulamanın hata bütçesi; aşıldığında kesilen doğrulama hata değil,
+     *               {@code invalid} sonuç olarak sayılır ({@code null} ise sınırsız)
+     */
+    List<String> validate(SchemaCheck check, SchemaValidationType schemaType,
+                          List<XsdOverride> overrides, String profileName, ErrorBudget budget) {
         long startTime = System.currentTimeMillis();
         List<String> errors = new ArrayList<>();
 
         try {
-            Schema schema;
+            SchemaValidatorPool pool;
 
             if (overrides == null || overrides.isEmpty()) {
                 // Override yok — base şemayı kullan
-                schema = compiledSchemas.get(schemaType);
+                pool = compiledSchemas.get(schemaType);
             } else {
                 // Override var — cache'den al veya derle
-                schema = getOrCompileOverriddenSchema(schemaType, overrides, profileName);
+                pool = getOrCompileOverriddenSchema(schemaType, overrides, profileName);
             }
 
-            if (schema == null) {
+            if (pool == null) {
                 errors.add(schemaType + " için XSD şema dosyaları yüklenemedi. " +
                         "GIB paket sync çalıştırın veya XSD dosyalarını external-path dizinine kopyalayın.");
                 metrics.recordValidation("schema", schemaType.name(), "error", System.currentTimeMillis() - startTime);
                 return errors;
             }
 
-            Validator validator = schema.newValidator();
-            // XXE protection — kullanıcı XML'inde external entity çözümlemesini engelle
-            try {
-                validator.setProperty(javax.xml.XMLConstants.ACCESS_EXTERNAL_DTD, "");
-                validator.setProperty(javax.xml.XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
-            } catch (org.xml.sax.SAXNotRecognizedException | org.xml.sax.SAXNotSupportedException e) {
-                log.warn("XXE koruma özellikleri validator implementasyonu tarafından desteklenmiyor");
-            }
-
-            validator.setErrorHandler(new org.xml.sax.ErrorHandler() {
-                @Override
-                public void warning(org.xml.sax.SAXParseException e) { }
-
-                @Override
-                public void error(org.xml.sax.SAXParseException e) {
-                    errors.add(formatError(e));
-                }
-
-                @Override
-                public void fatalError(org.xml.sax.SAXParseException e) {
-                    errors.add(formatError(e));
-                }
-            });
-
-            validator.validate(new StreamSource(new ByteArrayInputStream(source)));
+            check.run(pool, errors);
 
             String result = errors.isEmpty() ? "valid" : "invalid";
             metrics.recordValidation("schema", schemaType.name(), result, System.currentTimeMillis() - startTime);
@@ -250,6 +348,15 @@ public class JaxpSchemaValidator implements ISchemaValidator, Reloadable {
             log.warn("Override XSD derleme başarısız: {} (profil: {}) — {}", schemaType,
                     profileName != null ? profileName : "-", e.getMessage());
         } catch (SAXException | IOException e) {
+            if (budget != null && budget.isTruncated()) {
+                // Bütçe aşıldı — toplanan hatalar sonuçtur, belgenin geri kalanı doğrulanmadı
+                metrics.recordValidation("schema", schemaType.name(), "invalid", System.currentTimeMillis() - startTime);
+                log.debug("XSD doğrulama hata bütçesinde kesildi: {} ({} hata)", schemaType, budget.maxErrors());
+                return errors;
+            }
+            if (budget != null) {
+                budget.recordFatal();
+            }
             errors.add("Şema doğrulama hatası: " + e.getMessage());
             metrics.recordValidation("schema", schemaType.name(), "error", System.currentTimeMillis() - startTime);
             log.warn("XSD doğrulama başarısız: {} - {}", schemaType, e.getMessage());
@@ -301,19 +408,19 @@ public class JaxpSchemaValidator implements ISchemaValidator, Reloadable {
      *
      * @throws SchemaOverrideCompilationException derleme başarısız olursa
      */
-    private Schema getOrCompileOverriddenSchema(SchemaValidationType schemaType, List<XsdOverride> overrides, String profileName) {
+    private SchemaValidatorPool getOrCompileOverriddenSchema(SchemaValidationType schemaType, List<XsdOverride> overrides, String profileName) {
         String cacheKey = buildOverrideCacheKey(schemaType, overrides, profileName);
 
-        Schema cached = overrideCache.getIfPresent(cacheKey);
+        SchemaValidatorPool cached = overrideCache.getIfPresent(cacheKey);
         if (cached != null) {
             return cached;
         }
 
         // Cache miss — derle ve cache'e yaz
         try {
-            Schema schema = compileOverriddenSchema(schemaType, overrides, profileName);
-            overrideCache.put(cacheKey, schema);
-            return schema;
+            SchemaValidatorPool pool = newPool(compileOverriddenSchema(schemaType, overrides, profileName));
+            overrideCache.put(cacheKey, pool);
+            return pool;
         } catch (Exception e) {
             log.error("Override'lı XSD derleme hatası: {} (profil: {}) — {}",
                     schemaType, profileName != null ? profileName : "-", e.getMessage());
@@ -647,8 +754,4 @@ public class JaxpSchemaValidator implements ISchemaValidator, Reloadable {
 
         return factory.newSchema(sources.toArray(new StreamSource[0]));
     }
-
-    private String formatError(org.xml.sax.SAXParseException e) {
-        return XsdErrorHumanizer.humanize(e.getLineNumber(), e.getColumnNumber(), e.getMessage());
-    }
 }
@@ -0,0 +1,78 @@
+package io.mersel.services.xslt.infrastructure;
+
+import io.mersel.services.xslt.application.interfaces.IValidationDocumentParser;
+import io.mersel.services.xslt.application.models.ParsedDocument;
+import net.sf.saxon.s9api.DocumentBuilder;
+import net.sf.saxon.s9api.Processor;
+import net.sf.saxon.s9api.SaxonApiException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.sax.SAXSource;
+import java.io.ByteArrayInputStream;
+import java.util.Optional;
+
+/**
+ * Doğrulama belgesini tek seferde Saxon ağacına (TinyTree) parse eden implementasyon.
+ * <p>
+ * Ağaç, Schematron runtime derleyicisinin processor'ü ile oluşturulur — Schematron
+ * executable'ları ağacı yeniden parse etmeden doğrudan çalıştırabilir. Satır numaraları
+ * korunur; XSD hataları ağaçtan üretilen SAX olaylarındaki konumla raporlanır.
+ * <p>
+ * Parser, {@link DocumentTypeDetector} ile aynı XXE korumasını uygular: DOCTYPE içeren belgeler
+ * ağaca alınmaz, doğrulama ham içerikle önceki akıştan devam eder.
+ */
+@Service
+public class SaxonDocumentParser implements IValidationDocumentParser {
+
+    private static final Logger log = LoggerFactory.getLogger(SaxonDocumentParser.class);
+
+    private final Processor processor;
+    private final SAXParserFactory parserFactory;
+
+    public SaxonDocumentParser(SchematronRuntimeCompiler runtimeCompiler) {
+        this.processor = runtimeCompiler.processor();
+        this.parserFactory = createSecureParserFactory();
+    }
+
+    @Override
+    public Optional<ParsedDocument> parse(byte[] source, String systemId) {
+        if (source == null || source.length == 0 || parserFactory == null) {
+            return Optional.empty();
+        }
+        try {
+            XMLReader reader = parserFactory.newSAXParser().getXMLReader();
+            var saxSource = new SAXSource(reader, new InputSource(new ByteArrayInputStream(source)));
+            if (systemId != null && !systemId.isBlank()) {
+                saxSource.setSystemId(systemId);
+            }
+
+            DocumentBuilder builder = processor.newDocumentBuilder();
+            builder.setLineNumbering(true);
+            return Optional.of(new SaxonParsedDocument(source, systemId, builder.build(saxSource), processor));
+        } catch (SaxonApiException | ParserConfigurationException | org.xml.sax.SAXException e) {
+            log.debug("Doğrulama belgesi ağaca alınamadı, ham içerikle devam ediliyor: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static SAXParserFactory createSecureParserFactory() {
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            // XXE koruma
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            return factory;
+        } catch (ParserConfigurationException | org.xml.sax.SAXException e) {
+            log.warn("Güvenli SAX parser oluşturulamadı, tek parse devre dışı: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package io.mersel.services.xslt.infrastructure;
+
+import io.mersel.services.xslt.application.models.ParsedDocument;
+import net.sf.saxon.s9api.Processor;
+import net.sf.saxon.s9api.XdmNode;
+
+/**
+ * Saxon ağacı olarak parse edilmiş doğrulama belgesi.
+ *
+ * @param source    Ham XML içeriği
+ * @param systemId  Ağacın base URI'si olarak atanan dosya adı; {@code null} olabilir
+ * @param node      Satır numaralı belge düğümü — değişmez, thread'ler arası paylaşılabilir
+ * @param processor Ağacı oluşturan processor; ağaç yalnızca aynı konfigürasyonla derlenmiş
+ *                  executable'lara doğrudan verilebilir
+ */
+record SaxonParsedDocument(
+        byte[] source,
+        String systemId,
+        XdmNode node,
+        Processor processor
+) implements ParsedDocument {
+}
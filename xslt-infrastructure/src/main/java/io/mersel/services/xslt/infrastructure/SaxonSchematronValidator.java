@@ -4,6 +4,8 @@ import io.mersel.services.xslt.application.enums.SchematronValidationType;
 import io.mersel.services.xslt.application.interfaces.ISchematronValidator;
 import io.mersel.services.xslt.application.interfaces.Reloadable;
 import io.mersel.services.xslt.application.interfaces.ReloadResult;
+import io.mersel.services.xslt.application.models.ErrorBudget;
+import io.mersel.services.xslt.application.models.ParsedDocument;
 import io.mersel.services.xslt.application.models.SchematronCustomAssertion;
 import io.mersel.services.xslt.application.models.SchematronError;
 import io.mersel.services.xslt.infrastructure.diagnostics.XsltMetrics;
@@ -17,7 +19,6 @@ import org.springframework.stereotype.Service;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 
 import jakarta.annotation.PostConstruct;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -28,8 +29,7 @@ import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.InputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
@@ -72,6 +72,8 @@ public class SaxonSchematronValidator implements ISchematronValidator, Reloadabl
     private final AssetManager assetManager;
     private final SchematronRuntimeCompiler runtimeCompiler;
     private final XsltMetrics metrics;
+
+    /** Runtime derleyiciyle paylaşılır — tek parse edilen doğrulama ağacı tüm executable'larda kullanılabilir. */
     private final Processor processor;
 
     /**
@@ -134,7 +136,7 @@ public class SaxonSchematronValidator implements ISchematronValidator, Reloadabl
         this.assetManager = assetManager;
         this.runtimeCompiler = runtimeCompiler;
         this.metrics = metrics;
-        this.processor = new Processor(false);
+        this.processor = runtimeCompiler.processor();
     }
 
     @PostConstruct
@@ -316,8 +318,72 @@ public class SaxonSchematronValidator implements ISchematronValidator, Reloadabl
                                           String sourceFileName,
                                           List<SchematronCustomAssertion> customRules, String profileName,
                                           Map<String, String> parameters) {
+        return validate(source, schematronType, sourceFileName, customRules, profileName, parameters, null);
+    }
+
+    @Override
+    public List<SchematronError> validate(byte[] source, SchematronValidationType schematronType,
+                                          String sourceFileName,
+                                          List<SchematronCustomAssertion> customRules, String profileName,
+                                          Map<String, String> parameters, ErrorBudget budget) {
+        return validateStream(new ByteArrayInputStream(source), schematronType, sourceFileName,
+                customRules, profileName, parameters, budget);
+    }
+
+    @Override
+    public List<SchematronError> validateStream(InputStream source, SchematronValidationType schematronType,
+                                                String sourceFileName,
+                                                List<SchematronCustomAssertion> customRules, String profileName,
+                                                Map<String, String> parameters) {
+        return validateStream(source, schematronType, sourceFileName, customRules, profileName, parameters, null);
+    }
+
+    /**
+     * Akıştan doğrulama — Saxon akışı doğrudan ağaca okur, ham içerik ayrıca bellekte tutulmaz.
+     */
+    @Override
+    public List<SchematronError> validateStream(InputStream source, SchematronValidationType schematronType,
+                                                String sourceFileName,
+                                                List<SchematronCustomAssertion> customRules, String profileName,
+                                                Map<String, String> parameters, ErrorBudget budget) {
+        return validate(source, sourceFileName, null, schematronType, customRules, profileName, parameters, budget);
+    }
+
+    /**
+     * Saxon ağacı olarak parse edilmiş belgeyi doğrular — Schematron şablonları ağaç üzerinde
+     * {@code applyTemplates} ile çalışır, belge yeniden parse edilmez. Ağaç executable ile uyumsuz
+     * bir konfigürasyonda oluşturulduysa ham içerikle doğrulanır.
+     */
+    @Override
+    public List<SchematronError> validateDocument(ParsedDocument document, SchematronValidationType schematronType,
+                                                  List<SchematronCustomAssertion> customRules, String profileName,
+                                                  Map<String, String> parameters) {
+        return validateDocument(document, schematronType, customRules, profileName, parameters, null);
+    }
+
+    @Override
+    public List<SchematronError> validateDocument(ParsedDocument document, SchematronValidationType schematronType,
+                                                  List<SchematronCustomAssertion> customRules, String profileName,
+                                                  Map<String, String> parameters, ErrorBudget budget) {
+        XdmNode tree = document instanceof SaxonParsedDocument parsed ? parsed.node() : null;
+        return validate(new ByteArrayInputStream(document.source()), document.systemId(), tree,
+                schematronType, customRules, profileName, parameters, budget);
+    }
+
+    /**
+     * Bütçe verildiyse çıktı {@link SchematronBudgetDestination} ile sayılır; bütçe aşıldığında dönüşüm
+     * erken sonlanır ve o ana kadarki hatalar {@code invalid} sonuç olarak döner. Gruplayan bütçede
+     * grubun örnekleri dışındaki hatalar sonuç ağacına yazılmaz.
+     */
+    private List<SchematronError> validate(InputStream source, String sourceFileName, XdmNode tree,
+                                           SchematronValidationType schematronType,
+                                           List<SchematronCustomAssertion> customRules, String profileName,
+                                           Map<String, String> parameters, ErrorBudget budget) {
         long startTime = System.currentTimeMillis();
         List<SchematronError> errors = new ArrayList<>();
+        // Çıktı metne serialize edilmeden ağaç olarak alınır
+        var result = new XdmDestination();
+        Destination destination = budget != null ? new SchematronBudgetDestination(result, budget) : result;
 
         try {
             XsltExecutable executable;
@@ -343,21 +409,21 @@ public class SaxonSchematronValidator implements ISchematronValidator, Reloadabl
                 transformer.setStylesheetParameters(xsltParams);
             }
 
-            var streamSource = new StreamSource(new ByteArrayInputStream(source));
-
-            if (sourceFileName != null && !sourceFileName.isBlank()) {
-                streamSource.setSystemId(sourceFileName);
-            }
+            if (tree != null && sharesConfiguration(executable, tree)) {
+                transformer.setGlobalContextItem(tree);
+                transformer.applyTemplates(tree, destination);
+            } else {
+                var streamSource = new StreamSource(source);
 
-            var resultWriter = new StringWriter();
-            var serializer = processor.newSerializer(resultWriter);
-            transformer.transform(streamSource, serializer);
+                if (sourceFileName != null && !sourceFileName.isBlank()) {
+                    streamSource.setSystemId(sourceFileName);
+                }
 
-            String result = resultWriter.toString();
-            if (result != null && !result.isBlank()) {
-                errors.addAll(extractSchematronErrors(result));
+                transformer.transform(streamSource, destination);
             }
 
+            errors.addAll(SchematronErrorCollector.collect(result.getXdmNode(), budget));
+
             String validationResult = errors.isEmpty() ? "valid" : "invalid";
             metrics.recordValidation("schematron", schematronType.name(), validationResult, System.currentTimeMillis() - startTime);
 
@@ -367,6 +433,13 @@ public class SaxonSchematronValidator implements ISchematronValidator, Reloadabl
             metrics.recordValidation("schematron", schematronType.name(), "error", System.currentTimeMillis() - startTime);
             log.warn("Özel Schematron kural derleme başarısız: {} (profil: {}) - {}", schematronType, profileName, e.getMessage());
         } catch (Exception e) {
+            if (budget != null && budget.isTruncated()) {
+                // Bütçe aşıldı — kesilen ağaçtaki hatalar sonuçtur, kalan kurallar çalışmadı
+                errors.addAll(SchematronErrorCollector.collect(result.getXdmNode(), budget));
+                metrics.recordValidation("schematron", schematronType.name(), "invalid", System.currentTimeMillis() - startTime);
+                log.debug("Schematron doğrulama hata bütçesinde kesildi: {} ({} hata)", schematronType, budget.maxErrors());
+                return errors;
+            }
             errors.add(new SchematronError(null, null,
                     "Schematron doğrulama hatası: " + e.getMessage()));
             metrics.recordValidation("schematron", schematronType.name(), "error", System.currentTimeMillis() - startTime);
@@ -399,6 +472,15 @@ public class SaxonSchematronValidator implements ISchematronValidator, Reloadabl
         return xsltParams;
     }
 
+    /**
+     * Ağacın executable'a doğrudan verilebilirliği — Saxon yalnızca aynı NamePool'u paylaşan
+     * konfigürasyonların ağaçlarını kabul eder.
+     */
+    private static boolean sharesConfiguration(XsltExecutable executable, XdmNode tree) {
+        return executable.getProcessor().getUnderlyingConfiguration()
+                .isCompatible(tree.getUnderlyingNode().getConfiguration());
+    }
+
     // ── Global Kurallar ─────────────────────────────────────────────
 
     @Override
@@ -792,55 +874,6 @@ public class SaxonSchematronValidator implements ISchematronValidator, Reloadabl
         return names;
     }
 
-    // ── Error Extraction ────────────────────────────────────────────
-
-    /**
-     * Schematron XSLT çıktısından yapılandırılmış hata nesnelerini çıkarır.
-     * <p>
-     * Pipeline'a eklenen {@code ruleId} ve {@code test} attribute'larını parse eder.
-     * Bu attribute'lar runtime'da derlenen Schematron'larda mevcuttur;
-     * pre-compiled XSL'lerde bulunmayabilir (bu durumda {@code null} döner).
-     */
-    private List<SchematronError> extractSchematronErrors(String schematronOutput) {
-        List<SchematronError> errors = new ArrayList<>();
-        try {
-            var factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-            // XXE koruma
-            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
-            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
-            factory.setExpandEntityReferences(false);
-            var builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(new InputSource(new StringReader(schematronOutput)));
-
-            NodeList errorNodes = doc.getElementsByTagName("Error");
-            for (int i = 0; i < errorNodes.getLength(); i++) {
-                Element errorElement = (Element) errorNodes.item(i);
-                String errorText = errorElement.getTextContent();
-                if (errorText != null && !errorText.isBlank()) {
-                    String ruleId = getAttributeOrNull(errorElement, "ruleId");
-                    String test = getAttributeOrNull(errorElement, "test");
-                    errors.add(new SchematronError(ruleId, test, errorText.strip()));
-                }
-            }
-        } catch (Exception e) {
-            log.debug("Schematron çıktısı XML olarak parse edilemedi: {}", e.getMessage());
-            if (!schematronOutput.isBlank()) {
-                errors.add(new SchematronError(null, null, schematronOutput.strip()));
-            }
-        }
-        return errors;
-    }
-
-    /**
-     * Element'ten attribute değerini döndürür, yoksa veya boşsa {@code null}.
-     */
-    private static String getAttributeOrNull(Element element, String attributeName) {
-        String value = element.getAttribute(attributeName);
-        return (value != null && !value.isBlank()) ? value : null;
-    }
-
     // ── Exception ───────────────────────────────────────────────────
 
     /**
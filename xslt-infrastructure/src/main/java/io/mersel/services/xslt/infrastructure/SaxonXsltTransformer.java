@@ -4,26 +4,71 @@ import io.mersel.services.xslt.application.enums.TransformType;
 import io.mersel.services.xslt.application.interfaces.IXsltTransformer;
 import io.mersel.services.xslt.application.interfaces.Reloadable;
 import io.mersel.services.xslt.application.interfaces.ReloadResult;
+import io.mersel.services.xslt.application.models.ClientTemplate;
 import io.mersel.services.xslt.application.models.SanitizationResult;
 import io.mersel.services.xslt.application.models.TransformRequest;
 import io.mersel.services.xslt.application.models.TransformResult;
+import io.mersel.services.xslt.application.models.XsltTemplate;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.mersel.services.xslt.infrastructure.diagnostics.XsltMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import net.sf.saxon.s9api.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.xml.transform.URIResolver;
 import javax.xml.transform.stream.StreamSource;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Saxon HE tabanlı XSLT dönüşüm implementasyonu.
  * <p>
  * XML belgelerini XSLT şablonları ile HTML'e dönüştürür.
  * Varsayılan şablonlar uygulama başlangıcında ön-derlenir.
+ * Kullanıcının yüklediği ve belgelerden çıkarılan gömülü XSLT'ler içerik hash'i (SHA-256)
+ * ile cache'lenir; aynı şablon tekrar geldiğinde derleme atlanır. Sunucuda kayıtlı şablonlar
+ * ({@code templateId}) {@link XsltTemplateRegistry} üzerinden önceden derlenmiş olarak kullanılır.
+ * <p>
+ * Filigran ve HTML sanitization, XSLT çıktısı serializer'a akarken {@link HtmlOutputDestination}
+ * filtre zincirinde tek geçişte uygulanır. Çıktı bellekte toplanabilir veya
+ * {@link #transform(TransformRequest, OutputStream)} ile doğrudan çağıranın akışına yazılabilir.
+ * Varsayılan, özel ve gömülü şablonlar derlenirken {@link XsltSafetyAnalyzer} ile sınıflandırılır;
+ * tehlikeli çıktı üretemeyeceği kanıtlananlarda sanitization filtresi atlanır.
+ * <p>
+ * Derleme anında XSLT 1.0 olarak tespit edilen ({@link XsltVersionDetector}) varsayılan ve kayıtlı
+ * şablonlar istemci tarafı render için {@link ClientTemplate} olarak da sunulur; XSLT 2.0/3.0
+ * şablonlar her zaman sunucuda render edilir.
+ * <p>
+ * Bellek modunda çıktı isteğe bağlı olarak {@link HtmlOutputOptimizer} ile küçültülür ve önceden
+ * GZIP ile sıkıştırılır; her ikisi de sonuç cache'ine yazılmadan önce bir kez yapılır.
+ * <p>
+ * Yüklenen ve gömülü XSLT ile yapılan dönüşümler {@link TransformBudget} ile CPU ve süre bütçesine
+ * tabidir; bütçeyi aşan dönüşüm kesilir ve varsayılan XSLT'ye dönülür. Süre sınırı açıkken bu
+ * dönüşümler sınırlı bir havuzda çalışır ve istek thread'i en fazla süre sınırı kadar bekler.
+ * <p>
+ * İsteğe bağlı sonuç cache'i ({@code xslt.cache.transform-result-enabled}) açıkken aynı belge,
+ * XSLT, filigran ve şablon nesli için Saxon hiç çalıştırılmaz; sanitize edilmiş HTML cache'ten döner.
  * <p>
  * {@link Reloadable} arayüzü ile hot-reload destekler.
  */
@@ -36,8 +81,15 @@ public class SaxonXsltTransformer implements IXsltTransformer, Reloadable {
     private final WatermarkService watermarkService;
     private final HtmlSanitizer htmlSanitizer;
     private final EmbeddedXsltExtractor embeddedXsltExtractor;
+    private final XsltTemplateRegistry templateRegistry;
     private final XsltMetrics metrics;
     private final Processor processor;
+    private final XsltSafetyAnalyzer safetyAnalyzer;
+
+    /**
+     * Gömülü XSLT elementini Saxon ağacında bulan derlenmiş XPath (thread-safe).
+     */
+    private final XPathExecutable embeddedXsltLocator;
 
     private static final Map<TransformType, String> TRANSFORM_XSL_MAP = Map.of(
             TransformType.INVOICE, "default_transformers/eInvoice_Base.xslt",
@@ -48,20 +100,215 @@ public class SaxonXsltTransformer implements IXsltTransformer, Reloadable {
             TransformType.ESMM, "default_transformers/eSMM_Base.xslt"
     );
 
+    /**
+     * SSRF koruması — xsl:import, xsl:include ve document() ile harici URI çözümlemesini engeller.
+     */
+    static final URIResolver BLOCKING_URI_RESOLVER = (href, base) -> {
+        throw new javax.xml.transform.TransformerException(
+                "Güvenlik: Harici URI çözümlemesi devre dışı — " + href);
+    };
+
     /**
      * Derlenmiş XSLT cache — volatile ile atomic swap.
+     * Statik güvenlik sınıflandırması executable ile birlikte değişir.
+     */
+    private volatile Map<TransformType, CompiledStylesheet> compiledTransforms = Map.of();
+
+    /**
+     * Tarayıcıda çalıştırılabilen varsayılan şablonlar — {@link #compiledTransforms} ile birlikte değişir.
+     */
+    private volatile Map<TransformType, ClientTemplate> clientTemplates = Map.of();
+
+    /**
+     * Kullanıcı XSLT cache — içerik adresli, TTL ve max-size ile.
+     * Key: yüklenen ham XSLT içeriğinin SHA-256 hex değeri ({@link TransformRequest#getTransformerHash()});
+     * cache hit durumunda normalizasyon ve derleme atlanır.
+     * {@link XsltExecutable} thread-safe olduğu için istekler arasında paylaşılır.
+     */
+    private Cache<String, CompiledStylesheet> customXsltCache;
+
+    @Value("${xslt.cache.custom-xslt-max-size:100}")
+    private int customXsltCacheMaxSize = 100;
+
+    @Value("${xslt.cache.custom-xslt-ttl-hours:24}")
+    private int customXsltCacheTtlHours = 24;
+
+    /**
+     * Gömülü XSLT cache — aynı gönderici her belgede aynı şablonu taşır.
+     * Key: decode edilmiş ham içeriğin SHA-256 hex değeri; cache hit durumunda
+     * Windows-1254 normalizasyonu ve derleme tamamen atlanır.
+     */
+    private Cache<String, CompiledStylesheet> embeddedXsltCache;
+
+    @Value("${xslt.cache.embedded-xslt-max-size:200}")
+    private int embeddedXsltCacheMaxSize = 200;
+
+    @Value("${xslt.cache.embedded-xslt-ttl-hours:24}")
+    private int embeddedXsltCacheTtlHours = 24;
+
+    /**
+     * Derlenemeyen XSLT cache (negatif cache) — Key: içerik hash'i, Value: derleme hata mesajı.
+     * Her faturasında derlenemeyen aynı şablonu gömen göndericiler için başarısız derleme
+     * tekrarlanmaz; istek doğrudan varsayılana düşer ve aynı hata mesajını taşır.
+     * Kullanıcı ve gömülü XSLT aynı normalizasyonla derlendiği için ortak tutulur.
+     */
+    private Cache<String, String> failedXsltCache;
+
+    @Value("${xslt.cache.failed-xslt-max-size:1000}")
+    private int failedXsltCacheMaxSize = 1000;
+
+    @Value("${xslt.cache.failed-xslt-ttl-minutes:60}")
+    private int failedXsltCacheTtlMinutes = 60;
+
+    /**
+     * Dönüşüm sonucu cache — kapalıyken {@code null}.
+     * Key: {@link #resultTag(TransformRequest)}; tahliye toplam HTML boyutuna göre yapılır.
+     */
+    private TransformResultCache resultCache;
+
+    @Value("${xslt.cache.transform-result-enabled:false}")
+    private boolean resultCacheEnabled = false;
+
+    @Value("${xslt.cache.transform-result-max-size-mb:256}")
+    private int resultCacheMaxSizeMb = 256;
+
+    @Value("${xslt.cache.transform-result-ttl-hours:24}")
+    private int resultCacheTtlHours = 24;
+
+    @Value("${xslt.cache.transform-result-compress:false}")
+    private boolean resultCacheCompress = false;
+
+    /**
+     * Varsayılan şablonların içerik parmak izi (şablon nesli) — her reload'da yeniden hesaplanır.
+     * Sonuç etiketine dahil edilir; şablon değişince eski ETag'ler kendiliğinden geçersizleşir.
+     */
+    private volatile String templateFingerprint = "";
+
+    /**
+     * Akış modunda çıktının yanıta yazılmadan önce tamponda tutulan kısmı (KB).
+     * Bu eşik aşılana kadar başarısız özel/gömülü XSLT varsayılana dönebilir.
+     */
+    @Value("${xslt.transform.stream-commit-threshold-kb:64}")
+    private int streamCommitThresholdKb = 64;
+
+    /**
+     * Derleme anında güvenli kanıtlanan şablonların ({@link XsltSafetyAnalyzer}) çıktısında
+     * çalışma zamanı sanitization atlanır. Kapatılırsa tüm çıktılar filtrelenir.
      */
-    private volatile Map<TransformType, XsltExecutable> compiledTransforms = Map.of();
+    @Value("${xslt.transform.skip-sanitization-for-safe-xslt:true}")
+    private boolean skipSanitizationForSafeXslt = true;
+
+    /**
+     * Bellek modu çıktısının boyut optimizasyonu (boşluk sıkıştırma, data: URI tekilleştirme).
+     * Kapalıyken {@code null}.
+     */
+    private HtmlOutputOptimizer outputOptimizer;
+
+    @Value("${xslt.transform.optimize-output:false}")
+    private boolean optimizeOutput = false;
+
+    @Value("${xslt.transform.dedupe-data-uri-min-bytes:1024}")
+    private int dedupeDataUriMinBytes = 1024;
+
+    /** Bellek modu çıktısının GZIP'li halini de üret — istemci destekliyorsa controller bunu döner. */
+    @Value("${xslt.transform.precompress-output:false}")
+    private boolean precompressOutput = false;
+
+    /**
+     * Yüklenen/gömülü XSLT ile tek dönüşümün harcayabileceği CPU süresi (ms). 0 = sınırsız.
+     * İki sınırdan biri açıkken kullanıcı XSLT'leri izleme ile derlenir ({@link TransformBudget}).
+     */
+    @Value("${xslt.transform.max-cpu-ms:10000}")
+    private long maxCpuMs = 10000;
+
+    /** Yüklenen/gömülü XSLT ile tek dönüşümün duvar saati süresi (ms). 0 = sınırsız. */
+    @Value("${xslt.transform.max-wall-ms:30000}")
+    private long maxWallMs = 30000;
+
+    /** Süre sınırlı kullanıcı XSLT dönüşümlerini çalıştıran havuzun boyutu. 0 = işlemci sayısının iki katı. */
+    @Value("${xslt.transform.user-xslt-parallelism:0}")
+    private int userXsltParallelism = 0;
+
+    /** Havuz doluyken bekleyebilecek dönüşüm sayısı; taşan istek doğrudan varsayılan XSLT'ye döner. */
+    @Value("${xslt.transform.user-xslt-queue-size:256}")
+    private int userXsltQueueSize = 256;
+
+    /**
+     * Süre sınırlı kullanıcı XSLT dönüşümlerinin havuzu ({@link #runWithinBudget}). İzleme olayı
+     * üretmeyen bir XPath ifadesinde takılan dönüşüm istek thread'ini değil bu havuzun thread'ini tutar.
+     */
+    private ExecutorService userXsltExecutor;
 
     public SaxonXsltTransformer(AssetManager assetManager, WatermarkService watermarkService,
                                HtmlSanitizer htmlSanitizer,
-                               EmbeddedXsltExtractor embeddedXsltExtractor, XsltMetrics metrics) {
+                               EmbeddedXsltExtractor embeddedXsltExtractor, XsltTemplateRegistry templateRegistry,
+                               XsltMetrics metrics) {
         this.assetManager = assetManager;
         this.watermarkService = watermarkService;
         this.htmlSanitizer = htmlSanitizer;
         this.embeddedXsltExtractor = embeddedXsltExtractor;
+        this.templateRegistry = templateRegistry;
         this.metrics = metrics;
         this.processor = new Processor(false);
+        this.embeddedXsltLocator = embeddedXsltExtractor.compileLocator(processor);
+        this.safetyAnalyzer = new XsltSafetyAnalyzer(htmlSanitizer);
+    }
+
+    @PostConstruct
+    void init() {
+        customXsltCache = Caffeine.newBuilder()
+                .maximumSize(customXsltCacheMaxSize)
+                .expireAfterAccess(Duration.ofHours(customXsltCacheTtlHours))
+                .recordStats()
+                .build();
+        metrics.registerCompiledXsltCacheMetrics("custom", customXsltCache);
+
+        embeddedXsltCache = Caffeine.newBuilder()
+                .maximumSize(embeddedXsltCacheMaxSize)
+                .expireAfterAccess(Duration.ofHours(embeddedXsltCacheTtlHours))
+                .recordStats()
+                .build();
+        metrics.registerCompiledXsltCacheMetrics("embedded", embeddedXsltCache);
+        metrics.registerEmbeddedXsltCacheHitRatioGauge(embeddedXsltCache);
+
+        failedXsltCache = Caffeine.newBuilder()
+                .maximumSize(failedXsltCacheMaxSize)
+                .expireAfterWrite(Duration.ofMinutes(failedXsltCacheTtlMinutes))
+                .build();
+        metrics.registerFailedXsltCacheSizeGauge(failedXsltCache);
+
+        if (optimizeOutput) {
+            outputOptimizer = new HtmlOutputOptimizer(dedupeDataUriMinBytes);
+        }
+
+        if (userXsltExecutor == null) {
+            int workers = userXsltParallelism > 0
+                    ? userXsltParallelism : Runtime.getRuntime().availableProcessors() * 2;
+            var threadCounter = new AtomicInteger();
+            userXsltExecutor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, userXsltQueueSize)), r -> {
+                        Thread t = new Thread(r, "xslt-user-transform-" + threadCounter.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+
+        if (resultCacheEnabled) {
+            resultCache = new TransformResultCache(
+                    resultCacheMaxSizeMb * 1024L * 1024L,
+                    Duration.ofHours(resultCacheTtlHours),
+                    resultCacheCompress);
+            metrics.registerTransformResultCacheMetrics(resultCache.nativeCache());
+            log.info("Dönüşüm sonucu cache'i açık — maks {} MB, TTL {} saat, sıkıştırma: {}",
+                    resultCacheMaxSizeMb, resultCacheTtlHours, resultCacheCompress);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (userXsltExecutor != null) {
+            userXsltExecutor.shutdownNow();
+        }
     }
 
     // ── Reloadable ──────────────────────────────────────────────────
@@ -74,18 +321,34 @@ public class SaxonXsltTransformer implements IXsltTransformer, Reloadable {
     @Override
     public ReloadResult reload() {
         long startTime = System.currentTimeMillis();
-        var newCache = new HashMap<TransformType, XsltExecutable>();
+        var newCache = new HashMap<TransformType, CompiledStylesheet>();
+        var newClientTemplates = new HashMap<TransformType, ClientTemplate>();
         var errors = new ArrayList<String>();
         var compiler = processor.newXsltCompiler();
+        var fingerprint = new StringBuilder();
         int missingCount = 0;
 
-        for (var entry : TRANSFORM_XSL_MAP.entrySet()) {
+        // Sıralı dolaşım — parmak izi yeniden başlatmalar arasında aynı kalır
+        for (var entry : new TreeMap<>(TRANSFORM_XSL_MAP).entrySet()) {
             try {
                 if (assetManager.assetExists(entry.getValue())) {
+                    byte[] content;
                     try (var is = assetManager.getAssetStream(entry.getValue())) {
-                        var executable = compiler.compile(new StreamSource(is));
-                        newCache.put(entry.getKey(), executable);
-                        log.debug("  {} XSLT şablonu derlendi", entry.getKey());
+                        content = is.readAllBytes();
+                    }
+                    fingerprint.append(entry.getKey()).append('=').append(sha256Hex(content)).append('\n');
+                    var executable = compiler.compile(new StreamSource(new ByteArrayInputStream(content)));
+                    var safety = safetyAnalyzer.analyze(content);
+                    newCache.put(entry.getKey(), new CompiledStylesheet(executable, safety));
+                    if (XsltVersionDetector.isBrowserCompatible(content)) {
+                        newClientTemplates.put(entry.getKey(), new ClientTemplate(
+                                sha256Hex(content).substring(0, 16), content, safety.scriptHashes()));
+                    }
+                    if (safety.proven()) {
+                        log.debug("  {} XSLT şablonu derlendi (güvenli — çalışma zamanı sanitization atlanır, {} script hash)",
+                                entry.getKey(), safety.scriptHashes().size());
+                    } else {
+                        log.debug("  {} XSLT şablonu derlendi (sanitization uygulanır: {})", entry.getKey(), safety.reason());
                     }
                 } else {
                     missingCount++;
@@ -101,8 +364,14 @@ public class SaxonXsltTransformer implements IXsltTransformer, Reloadable {
 
         // Atomic swap
         compiledTransforms = Map.copyOf(newCache);
+        clientTemplates = Map.copyOf(newClientTemplates);
+        templateFingerprint = sha256Hex(fingerprint.toString().getBytes(StandardCharsets.UTF_8));
+        if (resultCache != null) {
+            resultCache.invalidateAll();
+        }
 
         long elapsed = System.currentTimeMillis() - startTime;
+        log.debug("  {} varsayılan şablon tarayıcıda render edilebilir (XSLT 1.0)", newClientTemplates.size());
 
         if (!errors.isEmpty() && !newCache.isEmpty()) {
             // Derleme hatası olan var, ama bazıları başarılı
@@ -120,78 +389,253 @@ public class SaxonXsltTransformer implements IXsltTransformer, Reloadable {
 
     @Override
     public TransformResult transform(TransformRequest request) throws TransformException {
+        try {
+            return doTransform(request, null);
+        } catch (IOException e) {
+            // Bellek modunda çıktı ByteArrayOutputStream'e yazılır — oluşmaz
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * HTML'i doğrudan {@code output} akışına yazar; çıktı bellekte tam olarak tutulmaz.
+     * <p>
+     * Çıktının ilk {@code xslt.transform.stream-commit-threshold-kb} kadarı akışa yazılmadan
+     * tamponda bekletilir. Özel veya gömülü XSLT bu eşik aşılmadan başarısız olursa tampon
+     * atılır ve varsayılan XSLT ile devam edilir; eşik aşıldıktan sonraki hatalar
+     * {@link TransformException} olarak iletilir.
+     */
+    @Override
+    public TransformResult transform(TransformRequest request, OutputStream output)
+            throws TransformException, IOException {
+        return doTransform(request, Objects.requireNonNull(output, "output"));
+    }
+
+    /**
+     * Sonuç etiketi — belge hash'i, XSLT kimliği, filigran metni ve varsayılan şablon
+     * parmak izinden türetilen SHA-256 değeri.
+     * <p>
+     * Gömülü XSLT belgenin içinde taşındığı için belge hash'i onu da kapsar; özel XSLT
+     * ham içerik hash'i ile temsil edilir. Varsayılana dönüş ihtimali nedeniyle şablon
+     * parmak izi her durumda dahil edilir.
+     */
+    @Override
+    public String resultTag(TransformRequest request) {
+        if (resultCache == null || request.getDocument() == null) {
+            return null;
+        }
+        String xsltIdentity;
+        if (hasTemplateId(request)) {
+            // Bilinmeyen şablon dönüşümde hata verir — etiket üretilmez
+            var template = templateRegistry.getTemplate(request.getTemplateId()).orElse(null);
+            if (template == null) {
+                return null;
+            }
+            xsltIdentity = "template:" + template.id() + "@" + template.version();
+        } else if (request.getTransformer() != null && request.getTransformer().length > 0) {
+            xsltIdentity = "custom:" + request.getTransformerHash();
+        } else if (request.isUseEmbeddedXslt()) {
+            xsltIdentity = "embedded";
+        } else {
+            xsltIdentity = "default";
+        }
+        String watermark = request.getWatermarkText() != null ? request.getWatermarkText() : "";
+        String key = request.getDocumentHash() + '\n'
+                + request.getTransformType() + '\n'
+                + xsltIdentity + '\n'
+                + templateFingerprint + '\n'
+                + watermark;
+        return sha256Hex(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean hasCachedResult(String resultTag) {
+        return resultCache != null && resultTag != null && resultCache.contains(resultTag);
+    }
+
+    // ── İstemci Tarafı Render ───────────────────────────────────────
+
+    /**
+     * Kayıtlı şablon ({@code templateId}) veya varsayılan şablon derleme anında XSLT 1.0 olarak
+     * tespit edildiyse onu döndürür. Filigran, özel XSLT ve belgede bulunan gömülü XSLT sunucu
+     * tarafı dönüşüm gerektirir — bu durumlarda boş döner.
+     */
+    @Override
+    public Optional<ClientTemplate> resolveClientTemplate(TransformRequest request) {
+        boolean hasWatermark = request.getWatermarkText() != null && !request.getWatermarkText().isBlank();
+        boolean hasCustomXslt = request.getTransformer() != null && request.getTransformer().length > 0;
+        if (hasWatermark || hasCustomXslt) {
+            return Optional.empty();
+        }
+
+        if (hasTemplateId(request)) {
+            var template = templateRegistry.getTemplate(request.getTemplateId()).orElse(null);
+            return template != null ? clientTemplateOf(template) : Optional.empty();
+        }
+
+        // Gömülü XSLT varsayılandan önceliklidir — belgede varsa sunucuda render edilir
+        if (request.isUseEmbeddedXslt() && request.getDocument() != null) {
+            byte[] embeddedXslt = embeddedXsltExtractor.extract(request.getDocument());
+            if (embeddedXslt != null && embeddedXslt.length > 0) {
+                return Optional.empty();
+            }
+        }
+        return Optional.ofNullable(clientTemplates.get(request.getTransformType()));
+    }
+
+    @Override
+    public Optional<ClientTemplate> getClientTemplate(String hash) {
+        for (ClientTemplate template : clientTemplates.values()) {
+            if (template.hash().equals(hash)) {
+                return Optional.of(template);
+            }
+        }
+        return templateRegistry.findByVersion(hash).flatMap(this::clientTemplateOf);
+    }
+
+    private Optional<ClientTemplate> clientTemplateOf(XsltTemplate template) {
+        try {
+            return templateRegistry.getClientTemplate(template);
+        } catch (SaxonApiException e) {
+            log.warn("Kayıtlı XSLT şablonu istemci tarafı render için okunamadı ({}): {}", template.id(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    // ── Dönüşüm Çekirdeği ──────────────────────────────────────────
+
+    /**
+     * @param target {@code null} ise çıktı bellekte toplanır, değilse bu akışa yazılır
+     */
+    private TransformResult doTransform(TransformRequest request, OutputStream target)
+            throws TransformException, IOException {
         long startTime = System.nanoTime();
 
+        // ── Sonuç Cache ───────────────────────────────────────────────
+        String resultTag = resultTag(request);
+        if (resultTag != null) {
+            TransformResult cached = resultCache.get(resultTag);
+            if (cached != null) {
+                return fromCache(request, cached, target, startTime);
+            }
+        }
+
         String customXsltError = null;
         boolean defaultXslUsed = false;
         boolean embeddedXsltUsed = false;
-        byte[] htmlContent;
+        HtmlOutputDestination output = newOutput(request, target);
 
         // ── XSLT Seçim Önceliği ───────────────────────────────────────
-        //   1. Kullanıcının yüklediği XSLT dosyası (transformer)
-        //   2. Belgenin içindeki gömülü XSLT (useEmbeddedXslt=true)
-        //   3. Varsayılan XSLT şablonu (transformType'a göre)
+        //   1. Sunucuda kayıtlı XSLT şablonu (templateId)
+        //   2. Kullanıcının yüklediği XSLT dosyası (transformer)
+        //   3. Belgenin içindeki gömülü XSLT (useEmbeddedXslt=true)
+        //   4. Varsayılan XSLT şablonu (transformType'a göre)
         // ───────────────────────────────────────────────────────────────
 
-        if (request.getTransformer() != null && request.getTransformer().length > 0) {
+        if (hasTemplateId(request)) {
+            // Bilinmeyen şablon istek hatasıdır — varsayılana dönülmez
+            XsltTemplate template = templateRegistry.getTemplate(request.getTemplateId())
+                    .orElseThrow(() -> new IllegalArgumentException(
+                            "XSLT şablonu bulunamadı: " + request.getTemplateId()));
             try {
-                htmlContent = transformWithCustomXslt(request.getDocument(), request.getTransformer());
-                log.info("Kullanıcının yüklediği XSLT ile dönüşüm başarılı");
+                var stylesheet = new CompiledStylesheet(templateRegistry.getExecutable(template),
+                        XsltSafetyAnalyzer.Classification.UNANALYZED);
+                transformWithExecutable(request.getDocument(), stylesheet, output, null);
+                log.info("Kayıtlı XSLT şablonu ile dönüşüm başarılı: {} ({})", template.id(), template.version());
             } catch (Exception e) {
                 customXsltError = e.getMessage();
-                log.warn("Yüklenen XSLT başarısız, varsayılana dönülüyor: {}", e.getMessage());
-                htmlContent = transformWithDefault(request.getDocument(), request.getTransformType());
+                log.warn("Kayıtlı XSLT şablonu başarısız ({}), varsayılana dönülüyor: {}", template.id(), e.getMessage());
+                output = retryOutput(output, request, target, e);
+                transformWithDefault(request.getDocument(), request.getTransformType(), output);
+                defaultXslUsed = true;
+            }
+
+        } else if (request.getTransformer() != null && request.getTransformer().length > 0) {
+            TransformBudget budget = null;
+            try {
+                var stylesheet = getOrCompile(customXsltCache, "custom", request.getTransformerHash(),
+                        request.getTransformer(), true);
+                budget = newBudget();
+                transformWithExecutable(request.getDocument(), stylesheet, output, budget);
+                log.info("Kullanıcının yüklediği XSLT ile dönüşüm başarılı");
+            } catch (Exception e) {
+                customXsltError = failureMessage(e, budget, request.getTransformType(), "custom");
+                log.warn("Yüklenen XSLT başarısız, varsayılana dönülüyor: {}", customXsltError);
+                output = retryOutput(output, request, target, e);
+                transformWithDefault(request.getDocument(), request.getTransformType(), output);
                 defaultXslUsed = true;
             }
 
         } else if (request.isUseEmbeddedXslt()) {
-            byte[] embeddedXslt = embeddedXsltExtractor.extract(request.getDocument());
+            // Belge bir kez Saxon ağacına yüklenir — hem gömülü XSLT araması hem dönüşüm aynı ağacı kullanır
+            XdmNode sourceDocument = buildSourceDocument(request.getDocument());
+            byte[] embeddedXslt = embeddedXsltExtractor.extract(sourceDocument, embeddedXsltLocator);
 
             if (embeddedXslt != null && embeddedXslt.length > 0) {
+                TransformBudget budget = null;
                 try {
-                    htmlContent = transformWithCustomXslt(request.getDocument(), embeddedXslt);
+                    var stylesheet = getOrCompile(embeddedXsltCache, "embedded",
+                            sha256Hex(embeddedXslt), embeddedXslt, true);
+                    budget = newBudget();
+                    transformWithExecutable(sourceDocument, stylesheet, output, budget);
                     embeddedXsltUsed = true;
                     log.info("Belgeden çıkarılan gömülü XSLT ile dönüşüm başarılı");
                 } catch (Exception e) {
-                    customXsltError = "Gömülü XSLT ile dönüşüm başarısız: " + e.getMessage();
-                    log.warn("Gömülü XSLT başarısız, varsayılana dönülüyor: {}", e.getMessage());
-                    htmlContent = transformWithDefault(request.getDocument(), request.getTransformType());
+                    String message = failureMessage(e, budget, request.getTransformType(), "embedded");
+                    customXsltError = "Gömülü XSLT ile dönüşüm başarısız: " + message;
+                    log.warn("Gömülü XSLT başarısız, varsayılana dönülüyor: {}", message);
+                    output = retryOutput(output, request, target, e);
+                    transformWithDefault(sourceDocument, request.getTransformType(), output);
                     defaultXslUsed = true;
                 }
             } else {
                 log.info("Belgede gömülü XSLT bulunamadı, varsayılan kullanılıyor");
-                htmlContent = transformWithDefault(request.getDocument(), request.getTransformType());
+                transformWithDefault(sourceDocument, request.getTransformType(), output);
                 defaultXslUsed = true;
             }
 
         } else {
-            htmlContent = transformWithDefault(request.getDocument(), request.getTransformType());
+            transformWithDefault(request.getDocument(), request.getTransformType(), output);
             defaultXslUsed = true;
         }
 
-        // ── Filigran ───────────────────────────────────────────────────
-        boolean watermarkApplied = false;
-        if (request.getWatermarkText() != null && !request.getWatermarkText().isBlank()) {
-            htmlContent = watermarkService.addWatermark(htmlContent, request.getWatermarkText());
-            watermarkApplied = true;
+        // ── Filigran + Sanitization (No-Exfiltration Sandbox) ────────
+        // Her ikisi de dönüşüm sırasında çıktı olayları üzerinde uygulandı (HtmlOutputDestination);
+        // güvenli kanıtlanmış şablonlarda sanitization atlandı, script hash'leri önceden hesaplandı
+        boolean watermarkApplied = request.getWatermarkText() != null && !request.getWatermarkText().isBlank();
+        SanitizationResult sanitizationResult = output.toSanitizationResult();
+        byte[] htmlContent = sanitizationResult.sanitizedHtml();
+        output.finish();
+
+        // ── Çıktı Optimizasyonu (yalnızca bellek modu) ───────────────
+        // Cache'e optimize edilmiş HTML ve sabit GZIP gövdesi yazılır — hit'lerde tekrarlanmaz
+        if (htmlContent != null && outputOptimizer != null) {
+            int originalSize = htmlContent.length;
+            htmlContent = outputOptimizer.optimize(htmlContent);
+            metrics.recordOutputBytesSaved(originalSize - htmlContent.length);
         }
-
-        // ── Sanitization (No-Exfiltration Sandbox) ───────────────────
-        SanitizationResult sanitizationResult = htmlSanitizer.sanitize(htmlContent);
-        htmlContent = sanitizationResult.sanitizedHtml();
+        byte[] gzipContent = htmlContent != null && precompressOutput ? TransformResultCache.gzip(htmlContent) : null;
+        long outputSize = htmlContent != null ? htmlContent.length : output.getOutputSize();
 
         long durationMs = (System.nanoTime() - startTime) / 1_000_000;
 
+        // Varsayılana dönülen sonuç girdilerin değil o anki hatanın ürünüdür (bütçe aşımı, geçici hata) —
+        // cache'lenmez ve etiket taşımaz; aynı istek bir sonraki seferde yeniden denenir
+        String cacheableTag = customXsltError == null ? resultTag : null;
+
+        metrics.recordTransformSanitization(output.isTrusted());
         metrics.recordTransform(
                 request.getTransformType().name(),
                 !defaultXslUsed,
                 defaultXslUsed,
                 durationMs,
-                htmlContent.length
+                (int) Math.min(outputSize, Integer.MAX_VALUE)
         );
 
-        return TransformResult.builder()
+        var result = TransformResult.builder()
                 .htmlContent(htmlContent)
+                .gzipContent(gzipContent)
+                .outputSize(outputSize)
                 .defaultXslUsed(defaultXslUsed)
                 .embeddedXsltUsed(embeddedXsltUsed)
                 .customXsltError(customXsltError)
@@ -200,57 +644,370 @@ public class SaxonXsltTransformer implements IXsltTransformer, Reloadable {
                 .removedScriptCount(sanitizationResult.removedScriptCount())
                 .securityViolations(sanitizationResult.removalReasons())
                 .durationMs(durationMs)
+                .resultTag(cacheableTag)
                 .build();
+
+        // Akış modunda HTML bellekte tutulmadığı için yalnızca bellek modu sonuçları cache'lenir
+        if (cacheableTag != null && htmlContent != null) {
+            resultCache.put(cacheableTag, result);
+        }
+        return result;
     }
 
-    private byte[] transformWithDefault(byte[] document, TransformType transformType) throws TransformException {
-        XsltExecutable executable = compiledTransforms.get(transformType);
-        if (executable == null) {
+    /**
+     * Cache'teki sonucu döndürür; akış modunda HTML doğrudan hedefe yazılır.
+     */
+    private TransformResult fromCache(TransformRequest request, TransformResult cached, OutputStream target,
+                                      long startTime) throws IOException {
+        byte[] htmlContent = cached.getHtmlContent();
+        if (target != null) {
+            target.write(htmlContent);
+            target.flush();
+            htmlContent = null;
+        }
+        long durationMs = (System.nanoTime() - startTime) / 1_000_000;
+
+        metrics.recordTransform(
+                request.getTransformType().name(),
+                !cached.isDefaultXslUsed(),
+                cached.isDefaultXslUsed(),
+                durationMs,
+                (int) Math.min(cached.getOutputSize(), Integer.MAX_VALUE)
+        );
+        log.debug("Dönüşüm sonucu cache'ten döndü: {}", cached.getResultTag());
+
+        return cached.toBuilder()
+                .htmlContent(htmlContent)
+                .gzipContent(target != null ? null : cached.getGzipContent())
+                .durationMs(durationMs)
+                .cacheHit(true)
+                .build();
+    }
+
+    private static boolean hasTemplateId(TransformRequest request) {
+        return request.getTemplateId() != null && !request.getTemplateId().isBlank();
+    }
+
+    /**
+     * Dönüşüm denemesi için filigran ve sanitization filtreli yeni çıktı hedefi oluşturur.
+     *
+     * @param target {@code null} ise bellek modu, değilse akış modu
+     */
+    private HtmlOutputDestination newOutput(TransformRequest request, OutputStream target) {
+        if (target == null) {
+            return HtmlOutputDestination.buffered(processor, htmlSanitizer, watermarkService,
+                    request.getWatermarkText());
+        }
+        return HtmlOutputDestination.streaming(processor, htmlSanitizer, watermarkService,
+                request.getWatermarkText(), target, streamCommitThresholdKb * 1024);
+    }
+
+    /**
+     * Başarısız denemenin çıktısını atıp varsayılan XSLT için yeni hedef oluşturur.
+     * Akış modunda çıktı istemciye akmaya başladıysa geri dönüş mümkün değildir.
+     */
+    private HtmlOutputDestination retryOutput(HtmlOutputDestination failed, TransformRequest request,
+                                              OutputStream target, Exception cause) throws TransformException {
+        if (!failed.discard()) {
             metrics.recordError("transform");
             throw new TransformException(
-                    "Desteklenmeyen dönüşüm tipi veya XSLT yüklü değil: " + transformType);
+                    "XSLT dönüşümü çıktı akışı başladıktan sonra başarısız oldu, varsayılana dönülemiyor: "
+                            + cause.getMessage(), cause);
         }
+        return newOutput(request, target);
+    }
+
+    private void transformWithDefault(byte[] document, TransformType transformType, HtmlOutputDestination output)
+            throws TransformException {
+        XsltExecutable executable = prepare(getDefaultStylesheet(transformType), output);
 
         try {
             var transformer = executable.load30();
-            var outputStream = new ByteArrayOutputStream();
-            var serializer = processor.newSerializer(outputStream);
-            transformer.transform(new StreamSource(new ByteArrayInputStream(document)), serializer);
-            return outputStream.toByteArray();
+            transformer.transform(new StreamSource(new ByteArrayInputStream(document)), output);
+        } catch (SaxonApiException e) {
+            metrics.recordError("transform");
+            throw new TransformException("XSLT dönüşüm hatası: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Önceden oluşturulmuş Saxon ağacı üzerinde varsayılan XSLT ile dönüşüm.
+     */
+    private void transformWithDefault(XdmNode document, TransformType transformType, HtmlOutputDestination output)
+            throws TransformException {
+        XsltExecutable executable = prepare(getDefaultStylesheet(transformType), output);
+
+        try {
+            applyTemplates(executable.load30(), document, output);
         } catch (SaxonApiException e) {
             metrics.recordError("transform");
             throw new TransformException("XSLT dönüşüm hatası: " + e.getMessage(), e);
         }
     }
 
+    private CompiledStylesheet getDefaultStylesheet(TransformType transformType) throws TransformException {
+        CompiledStylesheet stylesheet = compiledTransforms.get(transformType);
+        if (stylesheet == null) {
+            metrics.recordError("transform");
+            throw new TransformException(
+                    "Desteklenmeyen dönüşüm tipi veya XSLT yüklü değil: " + transformType);
+        }
+        return stylesheet;
+    }
+
+    /**
+     * Şablon statik analizle güvenli kanıtlandıysa çıktı hedefini sanitization filtresiz çalışacak
+     * şekilde işaretler ve derlenmiş executable'ı döndürür.
+     */
+    private XsltExecutable prepare(CompiledStylesheet stylesheet, HtmlOutputDestination output) {
+        if (skipSanitizationForSafeXslt && stylesheet.safety().proven()) {
+            output.trustStylesheet(stylesheet.safety().scriptHashes());
+        }
+        return stylesheet.executable();
+    }
+
     /**
-     * Kullanıcı tarafından sağlanan XSLT ile dönüşüm.
+     * Belgeyi paylaşılan processor ile bir kez Saxon ağacına yükler.
+     * Oluşan ağaç hem gömülü XSLT aramasında hem dönüşümde kullanılır.
+     */
+    private XdmNode buildSourceDocument(byte[] document) throws TransformException {
+        try {
+            return processor.newDocumentBuilder().build(new StreamSource(new ByteArrayInputStream(document)));
+        } catch (SaxonApiException e) {
+            metrics.recordError("transform");
+            throw new TransformException("XSLT dönüşüm hatası: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Hazır ağaç üzerinde dönüşümü çalıştırır.
+     * <p>
+     * Global context item da aynı düğüme ayarlanır — {@code transform(Source)} ile aynı davranış;
+     * üst seviye değişkenlerdeki {@code /} ifadeleri ve xsl:strip-space kuralları çalışmaya devam eder.
+     */
+    private void applyTemplates(Xslt30Transformer transformer, XdmNode document, Destination output)
+            throws SaxonApiException {
+        transformer.setGlobalContextItem(document);
+        transformer.applyTemplates(document, output);
+    }
+
+    /**
+     * Kullanıcı tarafından sağlanan (yüklenen veya gömülü) XSLT ile dönüşüm.
      * <p>
      * Güvenlik: URIResolver kısıtlanmıştır — xsl:import, xsl:include ve document()
      * fonksiyonu ile harici kaynaklara (HTTP, file:// vb.) erişim engellenir (SSRF koruması).
+     * Derleme zamanı resolver'ı cache'lenen executable ile birlikte kalır; çalışma zamanı
+     * resolver'ı her dönüşümde yeniden atanır.
+     *
+     * @param budget CPU/süre bütçesi; {@code null} ise sınırsız
      */
-    private byte[] transformWithCustomXslt(byte[] document, byte[] xsltContent) throws SaxonApiException {
-        String xsltString = new String(xsltContent, StandardCharsets.UTF_8);
-        xsltString = xsltString.replace("Windows-1254", "UTF-8");
+    private void transformWithExecutable(byte[] document, CompiledStylesheet stylesheet,
+                                         HtmlOutputDestination output, TransformBudget budget)
+            throws SaxonApiException {
+        var transformer = prepare(stylesheet, output).load30();
+        transformer.setURIResolver(BLOCKING_URI_RESOLVER);
+        if (budget != null) {
+            transformer.setTraceListener(budget);
+        }
+        runWithinBudget(budget,
+                () -> transformer.transform(new StreamSource(new ByteArrayInputStream(document)), output));
+    }
+
+    /**
+     * Önceden oluşturulmuş Saxon ağacı üzerinde kullanıcı XSLT'si ile dönüşüm.
+     * Güvenlik kısıtları ve bütçe {@link #transformWithExecutable(byte[], CompiledStylesheet,
+     * HtmlOutputDestination, TransformBudget)} ile aynıdır.
+     */
+    private void transformWithExecutable(XdmNode document, CompiledStylesheet stylesheet,
+                                         HtmlOutputDestination output, TransformBudget budget)
+            throws SaxonApiException {
+        var transformer = prepare(stylesheet, output).load30();
+        transformer.setURIResolver(BLOCKING_URI_RESOLVER);
+        if (budget != null) {
+            transformer.setTraceListener(budget);
+        }
+        runWithinBudget(budget, () -> applyTemplates(transformer, document, output));
+    }
+
+    /**
+     * Kullanıcı XSLT dönüşümünü bütçe altında çalıştırır.
+     * <p>
+     * İzleme olayları yalnızca dönüşüm thread'inde üretilir; izleme olayı üretmeyen tek bir XPath
+     * ifadesi (ör. dev bir aralık üzerinde {@code sum()} veya felaket geri izlemeli {@code matches()})
+     * {@link TransformBudget} kontrolüne hiç uğramaz. Süre sınırı açıkken dönüşüm bu yüzden
+     * {@link #userXsltExecutor} havuzunda çalışır ve istek thread'i en fazla kalan süre kadar bekler.
+     * Süre dolarsa bütçe aşılmış işaretlenir ({@link TransformBudget#expire()}), dönüşüm thread'i
+     * kesilir ve çağıran varsayılan XSLT'ye döner. Terk edilen dönüşüm bir sonraki izleme olayında
+     * veya atılan hedefe yazarken durur ({@link HtmlOutputDestination#discard()}).
+     * <p>
+     * Havuz ve kuyruğu doluysa dönüşüm hiç başlatılmaz; çağıran varsayılan XSLT'ye döner.
+     *
+     * @param budget {@code null} veya süre sınırı kapalıysa dönüşüm çağıran thread'de çalışır
+     */
+    private void runWithinBudget(TransformBudget budget, UserTransform transform) throws SaxonApiException {
+        if (budget == null || !budget.hasWallLimit() || userXsltExecutor == null) {
+            if (budget != null) {
+                budget.start();
+            }
+            transform.run();
+            return;
+        }
+
+        Future<?> future;
+        try {
+            future = userXsltExecutor.submit(() -> {
+                budget.start();
+                transform.run();
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            throw new SaxonApiException("Kullanıcı XSLT dönüşüm havuzu dolu, dönüşüm başlatılmadı");
+        }
+
+        try {
+            future.get(budget.remainingWallNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            budget.expire();
+            future.cancel(true);
+            throw new SaxonApiException("XSLT dönüşümü süre sınırında tamamlanmadı", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new SaxonApiException("XSLT dönüşümü beklenirken kesildi", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SaxonApiException saxonError) {
+                throw saxonError;
+            }
+            if (cause instanceof RuntimeException runtimeError) {
+                throw runtimeError;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new SaxonApiException(cause);
+        }
+    }
+
+    /** Bütçe altında çalıştırılan kullanıcı XSLT dönüşümü. */
+    @FunctionalInterface
+    private interface UserTransform {
+        void run() throws SaxonApiException;
+    }
+
+    /**
+     * Kullanıcı XSLT'si için yeni dönüşüm bütçesi; iki sınır da kapalıysa {@code null}.
+     */
+    private TransformBudget newBudget() {
+        return budgetEnabled() ? new TransformBudget(maxCpuMs, maxWallMs) : null;
+    }
+
+    private boolean budgetEnabled() {
+        return maxCpuMs > 0 || maxWallMs > 0;
+    }
+
+    /**
+     * Başarısız kullanıcı XSLT denemesinin raporlanacak hata mesajı.
+     * Bütçe aşımı kesilen dönüşümün iç exception'ı yerine nedeniyle raporlanır ve metriğe yazılır.
+     */
+    private String failureMessage(Exception e, TransformBudget budget, TransformType transformType, String source) {
+        if (budget == null || budget.exceededLimit() == null) {
+            return e.getMessage();
+        }
+        metrics.recordTransformBudgetExceeded(transformType.name(), source, budget.exceededLimit().label());
+        return budget.describe();
+    }
+
+    /**
+     * XSLT'yi cache'den döndürür veya yoksa derleyip cache'e yazar.
+     * <p>
+     * Aynı anahtar için eşzamanlı istekler (ör. toplu dönüşüm işçileri) tek derlemeyi bekler;
+     * şablon yalnızca bir kez derlenir ve aynı anda statik güvenlik analizinden geçer
+     * ({@link XsltSafetyAnalyzer}). Derleme hatası durumunda cache'e yazılmaz,
+     * exception çağırana iletilir; hata mesajı {@link #failedXsltCache}'e yazılır ve
+     * TTL süresince aynı içerik yeniden derlenmeden aynı mesajla reddedilir.
+     *
+     * @param cache            Hedef cache (kullanıcı veya gömülü XSLT)
+     * @param cacheName        Metrik etiketi ("custom", "embedded")
+     * @param cacheKey         İçerik hash'i
+     * @param xsltContent      XSLT içeriği
+     * @param normalizeOnMiss  true ise derlemeden önce Windows-1254 normalizasyonu uygulanır
+     */
+    private CompiledStylesheet getOrCompile(Cache<String, CompiledStylesheet> cache, String cacheName, String cacheKey,
+                                            byte[] xsltContent, boolean normalizeOnMiss) throws SaxonApiException {
+        String knownFailure = failedXsltCache.getIfPresent(cacheKey);
+        if (knownFailure != null) {
+            metrics.recordFailedXsltCacheHit(cacheName);
+            log.debug("Daha önce derlenemeyen XSLT, derleme atlandı: {}", cacheKey);
+            throw new SaxonApiException(knownFailure);
+        }
+        try {
+            return cache.get(cacheKey, key -> {
+                try {
+                    byte[] source = normalizeOnMiss ? normalizeXslt(xsltContent) : xsltContent;
+                    var executable = compileRestricted(source);
+                    var safety = safetyAnalyzer.analyze(source);
+                    log.debug("XSLT derlendi ve cache'e yazıldı: {} (güvenli: {})", key, safety.proven());
+                    return new CompiledStylesheet(executable, safety);
+                } catch (SaxonApiException e) {
+                    throw new CompilationFailure(e);
+                }
+            });
+        } catch (CompilationFailure e) {
+            failedXsltCache.put(cacheKey, String.valueOf(e.getCause().getMessage()));
+            throw e.getCause();
+        }
+    }
 
+    /**
+     * XSLT'yi SSRF korumalı bir derleyici ile derler.
+     */
+    private XsltExecutable compileRestricted(byte[] xsltContent) throws SaxonApiException {
         var compiler = processor.newXsltCompiler();
         // SSRF koruması — harici URI çözümlemesini engelle
-        compiler.setURIResolver((href, base) -> {
-            throw new javax.xml.transform.TransformerException(
-                    "Güvenlik: Harici URI çözümlemesi devre dışı — " + href);
-        });
-        var executable = compiler.compile(new StreamSource(
-                new ByteArrayInputStream(xsltString.getBytes(StandardCharsets.UTF_8))));
-        var transformer = executable.load30();
-        transformer.setURIResolver((href, base) -> {
-            throw new javax.xml.transform.TransformerException(
-                    "Güvenlik: Harici URI çözümlemesi devre dışı — " + href);
-        });
-
-        var outputStream = new ByteArrayOutputStream();
-        var serializer = processor.newSerializer(outputStream);
-        transformer.transform(new StreamSource(new ByteArrayInputStream(document)), serializer);
-
-        return outputStream.toByteArray();
+        compiler.setURIResolver(BLOCKING_URI_RESOLVER);
+        // Bütçe kontrolü izleme olaylarıyla yapılır — izlemesiz derlenen şablon yalnızca şablon eşleşmelerinde olay üretir
+        compiler.setCompileWithTracing(budgetEnabled());
+        return compiler.compile(new StreamSource(new ByteArrayInputStream(xsltContent)));
+    }
+
+    /**
+     * XSLT içeriğini derlemeye hazır hale getirir.
+     * GİB şablonlarındaki Windows-1254 encoding bildirimi UTF-8 ile değiştirilir.
+     */
+    static byte[] normalizeXslt(byte[] xsltContent) {
+        String xsltString = new String(xsltContent, StandardCharsets.UTF_8);
+        xsltString = xsltString.replace("Windows-1254", "UTF-8");
+        return xsltString.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String sha256Hex(byte[] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+
+    /**
+     * Derlenmiş şablon ve derleme anındaki statik güvenlik sınıflandırması.
+     */
+    private record CompiledStylesheet(XsltExecutable executable, XsltSafetyAnalyzer.Classification safety) {
+    }
+
+    /**
+     * Cache yükleme fonksiyonundan derleme hatasını taşımak için kullanılır.
+     */
+    private static final class CompilationFailure extends RuntimeException {
+
+        private CompilationFailure(SaxonApiException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized SaxonApiException getCause() {
+            return (SaxonApiException) super.getCause();
+        }
     }
 }
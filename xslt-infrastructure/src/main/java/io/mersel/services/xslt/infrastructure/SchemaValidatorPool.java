@@ -0,0 +1,275 @@
+package io.mersel.services.xslt.infrastructure;
+
+import io.mersel.services.xslt.application.models.ErrorBudget;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.SAXParseException;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.Source;
+import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
+import javax.xml.validation.ValidatorHandler;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tek bir derlenmiş şemanın yeniden kullanılabilir doğrulayıcı havuzu.
+ * <p>
+ * Büyük UBL şemalarında {@link Schema#newValidator()} kurulumu (bileşen yöneticisi, grammar havuzu
+ * sarmalayıcısı, XXE özellikleri) küçük faturaların doğrulama süresinin ölçülebilir bir kısmıdır.
+ * Havuz şemayla birlikte yaşar: base şemalarınki {@code compiledSchemas} haritasında, override'lı
+ * şemalarınki override cache kaydında durur — reload haritayı değiştirdiğinde veya cache kaydı
+ * düştüğünde havuz da birlikte atılır. O sırada ödünçte olan doğrulayıcılar eski havuza döner.
+ * <p>
+ * Boşta en fazla {@code maxIdle} {@link Validator} ve {@link ValidatorHandler} tutulur; havuz boşsa
+ * yenisi oluşturulur, doluysa iade edilen bırakılır — istek hiçbir zaman beklemez. Her doğrulayıcı
+ * kendi hata toplayıcısıyla birlikte tutulur.
+ * <p>
+ * İade edilen {@link Validator} için {@code reset()} çağrılmaz: {@code validate()} ayrıştırma
+ * durumunu her belgede zaten sıfırlar, JDK implementasyonunda {@code reset()} ise güvenlik
+ * özellik yöneticisini de düşürür ve XXE özellikleri yeniden uygulanamaz. Yalnızca oluşturulurken
+ * ayarlanan özellikler ve hata toplayıcı kalıcıdır; istek başına değişen tek şey hedef liste ve
+ * hata bütçesidir. Bütçe aşıldığında toplayıcı {@link ErrorBudgetExceededException} fırlatır ve
+ * doğrulama belgenin geri kalanını okumadan sonlanır. Bütçe gruplama yapıyorsa grubun örnekleri
+ * dışındaki hatalar için mesaj üretilmez, yalnızca sayılır.
+ * Thread-safe'tir.
+ */
+final class SchemaValidatorPool {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaValidatorPool.class);
+
+    private final Schema schema;
+    private final Usage usage;
+    private final BlockingQueue<PooledValidator> validators;
+    private final BlockingQueue<PooledHandler> handlers;
+
+    /**
+     * @param schema  Derlenmiş şema
+     * @param maxIdle Tür başına boşta tutulacak doğrulayıcı sayısı; 0 ise havuzlama kapalı
+     * @param usage   Tüm havuzlarda paylaşılan kullanım sayaçları
+     */
+    SchemaValidatorPool(Schema schema, int maxIdle, Usage usage) {
+        this.schema = schema;
+        this.usage = usage;
+        this.validators = maxIdle > 0 ? new ArrayBlockingQueue<>(maxIdle) : null;
+        this.handlers = maxIdle > 0 ? new ArrayBlockingQueue<>(maxIdle) : null;
+    }
+
+    Schema schema() {
+        return schema;
+    }
+
+    /**
+     * Boşta bekleyen doğrulayıcı sayısı.
+     */
+    int idle() {
+        return (validators != null ? validators.size() : 0) + (handlers != null ? handlers.size() : 0);
+    }
+
+    /**
+     * Kaynağı havuzdan alınan {@link Validator} ile doğrular; hatalar {@code errors} listesine eklenir.
+     */
+    void validate(Source source, List<String> errors) throws SAXException, IOException {
+        validate(source, errors, null);
+    }
+
+    /**
+     * Kaynağı hata bütçesiyle doğrular; bütçe aşıldığında {@link ErrorBudgetExceededException} fırlatılır.
+     *
+     * @param budget Hata bütçesi ({@code null} ise sınırsız)
+     */
+    void validate(Source source, List<String> errors, ErrorBudget budget) throws SAXException, IOException {
+        PooledValidator pooled = validators != null ? validators.poll() : null;
+        if (pooled == null) {
+            pooled = new PooledValidator(schema.newValidator(), new ErrorCollector());
+            configure(pooled);
+            usage.created.increment();
+        } else {
+            usage.reused.increment();
+        }
+        usage.active.incrementAndGet();
+        pooled.errors().bind(errors, budget);
+        try {
+            pooled.validator().validate(source);
+        } finally {
+            pooled.errors().bind(null, null);
+            usage.active.decrementAndGet();
+            if (validators != null) {
+                validators.offer(pooled);
+            }
+        }
+    }
+
+    /**
+     * Havuzdan alınan {@link ValidatorHandler}'a SAX olaylarını {@code task} ile verir;
+     * hatalar {@code errors} listesine eklenir. Görev handler'a {@code startDocument}'tan
+     * {@code endDocument}'a kadar tam bir belge vermelidir.
+     */
+    void validate(HandlerTask task, List<String> errors) throws SAXException, IOException {
+        validate(task, errors, null);
+    }
+
+    /**
+     * SAX olaylarını hata bütçesiyle doğrular; bütçe aşıldığında {@link ErrorBudgetExceededException}
+     * handler çağrısından fırlatılır.
+     *
+     * @param budget Hata bütçesi ({@code null} ise sınırsız)
+     */
+    void validate(HandlerTask task, List<String> errors, ErrorBudget budget) throws SAXException, IOException {
+        PooledHandler pooled = handlers != null ? handlers.poll() : null;
+        if (pooled == null) {
+            var collector = new ErrorCollector();
+            ValidatorHandler handler = schema.newValidatorHandler();
+            handler.setErrorHandler(collector);
+            pooled = new PooledHandler(handler, collector);
+            usage.created.increment();
+        } else {
+            usage.reused.increment();
+        }
+        usage.active.incrementAndGet();
+        pooled.errors().bind(errors, budget);
+        try {
+            task.run(pooled.handler());
+        } finally {
+            pooled.errors().bind(null, null);
+            // Önceki isteğin konumu sonraki belgeye sızmasın
+            pooled.handler().setDocumentLocator(null);
+            usage.active.decrementAndGet();
+            if (handlers != null) {
+                handlers.offer(pooled);
+            }
+        }
+    }
+
+    private static void configure(PooledValidator pooled) {
+        Validator validator = pooled.validator();
+        // XXE protection — kullanıcı XML'inde external entity çözümlemesini engelle
+        try {
+            validator.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            validator.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        } catch (SAXNotRecognizedException | SAXNotSupportedException e) {
+            log.warn("XXE koruma özellikleri validator implementasyonu tarafından desteklenmiyor");
+        }
+        validator.setErrorHandler(pooled.errors());
+    }
+
+    /**
+     * Ödünç alınan {@link ValidatorHandler}'a belgeyi veren görev.
+     */
+    @FunctionalInterface
+    interface HandlerTask {
+        void run(ValidatorHandler handler) throws SAXException, IOException;
+    }
+
+    private record PooledValidator(Validator validator, ErrorCollector errors) {
+    }
+
+    private record PooledHandler(ValidatorHandler handler, ErrorCollector errors) {
+    }
+
+    /**
+     * Hata bütçesi aşıldığında doğrulamayı kesen istisna — doğrulama hatası değildir.
+     */
+    static final class ErrorBudgetExceededException extends SAXException {
+
+        ErrorBudgetExceededException(int maxErrors) {
+            super("Hata bütçesi aşıldı: " + maxErrors);
+        }
+    }
+
+    /**
+     * Doğrulayıcıya bağlı kalan hata işleyicisi — her istekte yalnızca hedef liste ve bütçe değişir.
+     */
+    private static final class ErrorCollector implements ErrorHandler {
+
+        private List<String> errors;
+        private ErrorBudget budget;
+
+        void bind(List<String> errors, ErrorBudget budget) {
+            this.errors = errors;
+            this.budget = budget;
+        }
+
+        @Override
+        public void warning(SAXParseException e) {
+            // uyarılar raporlanmaz
+        }
+
+        @Override
+        public void error(SAXParseException e) throws SAXException {
+            if (budget != null && !budget.tryRecord()) {
+                throw new ErrorBudgetExceededException(budget.maxErrors());
+            }
+            add(e);
+        }
+
+        @Override
+        public void fatalError(SAXParseException e) {
+            if (budget != null) {
+                budget.recordFatal();
+            }
+            // Parse bu hatadan sonra zaten durur; bütçe aşıldıysa yalnızca eklenmez
+            if (budget == null || budget.tryRecord()) {
+                add(e);
+            }
+        }
+
+        /**
+         * Gruplama açıksa hata cvc kodu + element adıyla grubuna sayılır; mesaj yalnızca grubun
+         * örnekleri için üretilir.
+         */
+        private void add(SAXParseException e) {
+            if (budget == null || !budget.isAggregating()) {
+                errors.add(XsdErrorHumanizer.humanize(e.getLineNumber(), e.getColumnNumber(), e.getMessage()));
+                return;
+            }
+            String code = XsdErrorHumanizer.errorCode(e.getMessage());
+            String element = code != null ? XsdErrorHumanizer.elementName(e.getMessage()) : null;
+            String message = code != null ? null
+                    : XsdErrorHumanizer.humanize(e.getLineNumber(), e.getColumnNumber(), e.getMessage());
+            if (!budget.tryGroup(code, element, message)) {
+                return;
+            }
+            if (message == null) {
+                message = XsdErrorHumanizer.humanize(e.getLineNumber(), e.getColumnNumber(), e.getMessage());
+            }
+            String location = e.getLineNumber() > 0 ? e.getLineNumber() + ":" + e.getColumnNumber() : null;
+            budget.addSample(code, element, message, location);
+            errors.add(message);
+        }
+    }
+
+    /**
+     * Tüm havuzların paylaştığı kullanım sayaçları — metrikler buradan okunur.
+     */
+    static final class Usage {
+
+        private final AtomicInteger active = new AtomicInteger();
+        private final LongAdder created = new LongAdder();
+        private final LongAdder reused = new LongAdder();
+
+        /** Şu an ödünçte olan doğrulayıcı sayısı. */
+        int active() {
+            return active.get();
+        }
+
+        /** Havuz boş olduğu için oluşturulan doğrulayıcı sayısı. */
+        long created() {
+            return created.sum();
+        }
+
+        /** Havuzdan yeniden kullanılan doğrulayıcı sayısı. */
+        long reused() {
+            return reused.sum();
+        }
+    }
+}
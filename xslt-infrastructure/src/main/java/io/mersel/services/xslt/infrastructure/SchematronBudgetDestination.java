@@ -0,0 +1,189 @@
+package io.mersel.services.xslt.infrastructure;
+
+import io.mersel.services.xslt.application.models.ErrorBudget;
+import net.sf.saxon.event.PipelineConfiguration;
+import net.sf.saxon.event.ProxyReceiver;
+import net.sf.saxon.event.Receiver;
+import net.sf.saxon.om.AttributeMap;
+import net.sf.saxon.om.Item;
+import net.sf.saxon.om.NamespaceMap;
+import net.sf.saxon.om.NodeInfo;
+import net.sf.saxon.om.NodeName;
+import net.sf.saxon.s9api.AbstractDestination;
+import net.sf.saxon.s9api.Location;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XdmDestination;
+import net.sf.saxon.serialize.SerializationProperties;
+import net.sf.saxon.str.UnicodeString;
+import net.sf.saxon.trans.XPathException;
+import net.sf.saxon.type.SchemaType;
+
+/**
+ * Schematron çıktısını hata bütçesiyle ağaca yazan hedef.
+ * <p>
+ * Zincir: {@code Xslt30Transformer → BudgetFilter → XdmDestination}. Filtre çıktıdaki {@code Error}
+ * elementlerini ({@link SchematronErrorCollector} ile aynı kural) akarken sayar. Bütçeyi aşan element
+ * ağaca yazılmaz; açık elementler ve belge kapatılarak ağaç tamamlanır, ardından dönüşüm
+ * {@link XPathException} ile sonlandırılır — kalan şablonlar çalışmaz. Çağıran
+ * {@link ErrorBudget#isTruncated()} ile bu durumu hatadan ayırır ve sarmalanan {@link XdmDestination}
+ * ağacından o ana kadarki hataları toplar.
+ * <p>
+ * Bütçe gruplama yapıyorsa {@code ruleId}/{@code test} taşıyan {@code Error} elementi başlarken grubuna
+ * sayılır; grubun örnekleri dolduysa element alt ağacıyla birlikte atlanır ve ağaca hiç yazılmaz.
+ * Kural bilgisi taşımayan hatalar ağaca yazılır, toplayıcı tarafından mesajla gruplanır.
+ * <p>
+ * Her dönüşüm için yeni örnek oluşturulur.
+ */
+final class SchematronBudgetDestination extends AbstractDestination {
+
+    private final XdmDestination tree;
+    private final ErrorBudget budget;
+
+    SchematronBudgetDestination(XdmDestination tree, ErrorBudget budget) {
+        this.tree = tree;
+        this.budget = budget;
+    }
+
+    @Override
+    public Receiver getReceiver(PipelineConfiguration pipe, SerializationProperties params) throws SaxonApiException {
+        return new BudgetFilter(tree.getReceiver(pipe, params), budget);
+    }
+
+    @Override
+    public void close() throws SaxonApiException {
+        tree.close();
+    }
+
+    private static final class BudgetFilter extends ProxyReceiver {
+
+        private final ErrorBudget budget;
+        private boolean documentOpen;
+        private int depth;
+
+        /** Bütçe aşıldı ve ağaç kapatıldı — sonraki olaylar ağaca iletilmez. */
+        private boolean finished;
+
+        /** Atlanan (örnek olmayan) {@code Error} alt ağacındaki derinlik; 0 ise atlanmıyor. */
+        private int skipDepth;
+
+        BudgetFilter(Receiver next, ErrorBudget budget) {
+            super(next);
+            this.budget = budget;
+        }
+
+        @Override
+        public void startDocument(int properties) throws XPathException {
+            documentOpen = true;
+            nextReceiver.startDocument(properties);
+        }
+
+        @Override
+        public void endDocument() throws XPathException {
+            documentOpen = false;
+            nextReceiver.endDocument();
+        }
+
+        @Override
+        public void startElement(NodeName elemName, SchemaType type, AttributeMap attributes,
+                                 NamespaceMap namespaces, Location location, int properties) throws XPathException {
+            if (skipDepth > 0) {
+                skipDepth++;
+                return;
+            }
+            if (isError(elemName)) {
+                if (!budget.tryRecord()) {
+                    finish();
+                    throw new XPathException("Schematron hata bütçesi aşıldı: " + budget.maxErrors());
+                }
+                if (budget.isAggregating() && !keepAsSample(attributes)) {
+                    skipDepth = 1;
+                    return;
+                }
+            }
+            depth++;
+            nextReceiver.startElement(elemName, type, attributes, namespaces, location, properties);
+        }
+
+        @Override
+        public void endElement() throws XPathException {
+            if (skipDepth > 0) {
+                skipDepth--;
+                return;
+            }
+            depth--;
+            nextReceiver.endElement();
+        }
+
+        @Override
+        public void characters(UnicodeString chars, Location locationId, int properties) throws XPathException {
+            if (skipDepth == 0) {
+                nextReceiver.characters(chars, locationId, properties);
+            }
+        }
+
+        @Override
+        public void comment(UnicodeString content, Location locationId, int properties) throws XPathException {
+            if (skipDepth == 0) {
+                nextReceiver.comment(content, locationId, properties);
+            }
+        }
+
+        @Override
+        public void processingInstruction(String target, UnicodeString data, Location locationId, int properties)
+                throws XPathException {
+            if (skipDepth == 0) {
+                nextReceiver.processingInstruction(target, data, locationId, properties);
+            }
+        }
+
+        /**
+         * Hazır düğümler (ör. xsl:copy-of) olaylara ayrıştırılır; böylece içlerindeki hatalar da sayılır.
+         */
+        @Override
+        public void append(Item item, Location locationId, int properties) throws XPathException {
+            if (skipDepth > 0) {
+                return;
+            }
+            if (item instanceof NodeInfo) {
+                decompose(item, locationId, properties);
+            } else {
+                nextReceiver.append(item, locationId, properties);
+            }
+        }
+
+        @Override
+        public void close() throws XPathException {
+            if (!finished) {
+                nextReceiver.close();
+            }
+        }
+
+        /**
+         * Açık elementleri ve belgeyi kapatıp ağacı tamamlar.
+         */
+        private void finish() throws XPathException {
+            for (; depth > 0; depth--) {
+                nextReceiver.endElement();
+            }
+            if (documentOpen) {
+                documentOpen = false;
+                nextReceiver.endDocument();
+            }
+            nextReceiver.close();
+            finished = true;
+        }
+
+        /**
+         * Kural bilgisi olan hatayı grubuna sayar; bilgi yoksa karar toplayıcıya bırakılır.
+         */
+        private boolean keepAsSample(AttributeMap attributes) {
+            String ruleId = SchematronErrorCollector.blankToNull(attributes.getValue("", "ruleId"));
+            String test = SchematronErrorCollector.blankToNull(attributes.getValue("", "test"));
+            return (ruleId == null && test == null) || budget.tryGroup(ruleId, test, null);
+        }
+
+        private static boolean isError(NodeName name) {
+            return SchematronErrorCollector.isError(name.getLocalPart(), name.getPrefix());
+        }
+    }
+}
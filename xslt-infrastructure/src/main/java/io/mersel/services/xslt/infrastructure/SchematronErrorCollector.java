@@ -0,0 +1,124 @@
+package io.mersel.services.xslt.infrastructure;
+
+import io.mersel.services.xslt.application.models.ErrorBudget;
+import io.mersel.services.xslt.application.models.SchematronError;
+import net.sf.saxon.s9api.Axis;
+import net.sf.saxon.s9api.QName;
+import net.sf.saxon.s9api.XdmNode;
+import net.sf.saxon.s9api.XdmNodeKind;
+import net.sf.saxon.s9api.XdmSequenceIterator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Schematron XSLT çıktısından {@link SchematronError} kayıtlarını çıkarır.
+ * <p>
+ * Çıktı {@code XdmDestination} ile doğrudan Saxon ağacı olarak alınır — metne serialize edilip
+ * yeniden parse edilmez, DOM kurulmaz. Her {@code Error} elementi bir kayıt olur: mesaj elementin
+ * metin içeriğidir (boşluklar kırpılır, boş mesajlar atlanır); pipeline'ın eklediği {@code ruleId}
+ * ve {@code test} attribute'ları boşsa {@code null} olur — pre-compiled XSL'lerde bulunmayabilirler.
+ * Çıktıda hiç element yoksa (metin çıktısı) metnin tamamı tek bir kayıttır.
+ * <p>
+ * Bütçe gruplama yapıyorsa kural bilgisi taşıyan hatalar {@link SchematronBudgetDestination} tarafından
+ * zaten sayılmış ve örnek olmayanlar ağaçtan atılmıştır; burada yalnızca örnek olarak eklenir. Kural
+ * bilgisi olmayan hatalar mesajla gruplanır. Tekrarlanan {@code ruleId}/{@code test} değerleri tek
+ * String örneğini paylaşır.
+ */
+final class SchematronErrorCollector {
+
+    /** Öneksiz {@code Error} elementi — namespace'e bakılmaz. */
+    private static final String ERROR = "Error";
+    private static final QName RULE_ID = new QName("ruleId");
+    private static final QName TEST = new QName("test");
+
+    private SchematronErrorCollector() {
+    }
+
+    /**
+     * @param result Dönüşümün sonuç ağacı (document düğümü)
+     * @return hatalar, belge sırasıyla
+     */
+    static List<SchematronError> collect(XdmNode result) {
+        return collect(result, null);
+    }
+
+    /**
+     * @param result Dönüşümün sonuç ağacı (document düğümü)
+     * @param budget Aşamanın hata bütçesi; gruplama yapmıyorsa veya {@code null} ise etkisizdir
+     * @return hatalar (gruplamada yalnızca örnekler), belge sırasıyla
+     */
+    static List<SchematronError> collect(XdmNode result, ErrorBudget budget) {
+        boolean aggregating = budget != null && budget.isAggregating();
+        Map<String, String> strings = new HashMap<>();
+        List<SchematronError> errors = new ArrayList<>();
+        boolean sawElement = false;
+        XdmSequenceIterator<XdmNode> descendants = result.axisIterator(Axis.DESCENDANT);
+        while (descendants.hasNext()) {
+            XdmNode node = descendants.next();
+            if (node.getNodeKind() != XdmNodeKind.ELEMENT) {
+                continue;
+            }
+            sawElement = true;
+            QName name = node.getNodeName();
+            if (!isError(name.getLocalName(), name.getPrefix())) {
+                continue;
+            }
+            String message = node.getStringValue().strip();
+            if (message.isEmpty()) {
+                continue;
+            }
+            String ruleId = shared(strings, valueOrNull(node, RULE_ID));
+            String test = shared(strings, valueOrNull(node, TEST));
+            if (aggregating && !sample(budget, ruleId, test, message)) {
+                continue;
+            }
+            errors.add(new SchematronError(ruleId, test, message));
+        }
+
+        if (!sawElement) {
+            String text = result.getStringValue().strip();
+            if (!text.isEmpty() && (!aggregating || sample(budget, null, null, text))) {
+                errors.add(new SchematronError(null, null, text));
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Hatayı gruplayan bütçeye örnek olarak ekler. Kural bilgisi olmayan hata burada sayılır.
+     *
+     * @return hata örnek olarak tutulmalıysa {@code true}
+     */
+    private static boolean sample(ErrorBudget budget, String ruleId, String test, String message) {
+        if (ruleId == null && test == null && !budget.tryGroup(null, null, message)) {
+            return false;
+        }
+        budget.addSample(ruleId, test, message, null);
+        return true;
+    }
+
+    /**
+     * Element bir Schematron hatası mı — öneksiz {@code Error}.
+     */
+    static boolean isError(String localName, String prefix) {
+        return ERROR.equals(localName) && prefix.isEmpty();
+    }
+
+    /**
+     * Boş attribute değerini {@code null} yapar — pre-compiled XSL'lerde kural bilgisi bulunmayabilir.
+     */
+    static String blankToNull(String value) {
+        return value != null && !value.isBlank() ? value : null;
+    }
+
+    private static String valueOrNull(XdmNode element, QName name) {
+        return blankToNull(element.getAttributeValue(name));
+    }
+
+    private static String shared(Map<String, String> strings, String value) {
+        return value != null ? strings.computeIfAbsent(value, v -> v) : null;
+    }
+}
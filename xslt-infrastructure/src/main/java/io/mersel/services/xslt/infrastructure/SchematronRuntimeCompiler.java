@@ -66,6 +66,16 @@ public class SchematronRuntimeCompiler {
         this.metrics = metrics;
     }
 
+    /**
+     * Runtime Schematron executable'larının derlendiği processor.
+     * <p>
+     * Doğrulama tarafında ağaç oluşturan ve executable çalıştıran bileşenler bu processor'ü
+     * paylaşır — Saxon bir ağacı yalnızca aynı konfigürasyonla derlenmiş executable'a kabul eder.
+     */
+    Processor processor() {
+        return processor;
+    }
+
     @PostConstruct
     void init() throws Exception {
         log.info("ISO Schematron pipeline XSL'leri ön-derleniyor...");
@@ -0,0 +1,331 @@
+package io.mersel.services.xslt.infrastructure;
+
+import io.mersel.services.xslt.application.enums.DocumentType;
+import io.mersel.services.xslt.application.enums.SchemaValidationType;
+import io.mersel.services.xslt.application.interfaces.DocumentTypeDetectionException;
+import io.mersel.services.xslt.application.interfaces.ISchemaValidator;
+import io.mersel.services.xslt.application.models.ErrorBudget;
+import io.mersel.services.xslt.application.models.XsdOverride;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.validation.ValidatorHandler;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Belge türü tespiti ve XSD doğrulamasını tek parse geçişinde yapan oturum.
+ * <p>
+ * Belge StAX ile çekilerek okunur — parse, tür belirlendiği anda duraklatılabilir. Tespit
+ * sırasında okunan olaylar (UBL-TR'de yalnızca root öncesi ve root; e-Defter {@code defter}/{@code berat}
+ * belgelerinde ilk tanınan {@code xbrli:context}'e kadar olanlar) SAX olayı olarak konumlarıyla
+ * tamponlanır. Doğrulamada tampon şemanın {@link ValidatorHandler}'ına yeniden oynatılır, ardından
+ * aynı okuyucudan kalan olaylar doğrudan aktarılır. Hata konumları özgün satır/sütun bilgisidir.
+ * <p>
+ * Tampon {@code maxBufferedEvents} olayı aşarsa atılır; tespit devam eder, doğrulama akışı
+ * yeniden açıp iki geçişli yola döner. Thread-safe değildir.
+ */
+final class StreamingSchemaValidation implements ISchemaValidator.StreamSession {
+
+    private final JaxpSchemaValidator owner;
+    private final Callable<InputStream> source;
+    private final int maxBufferedEvents;
+    private final InputStream input;
+    private final Position position = new Position();
+
+    private List<BufferedEvent> buffer = new ArrayList<>();
+    private XMLStreamReader reader;
+    private boolean detected;
+
+    StreamingSchemaValidation(JaxpSchemaValidator owner, Callable<InputStream> source, int maxBufferedEvents)
+            throws IOException {
+        this.owner = owner;
+        this.source = source;
+        this.maxBufferedEvents = maxBufferedEvents;
+        this.input = open(source);
+    }
+
+    @Override
+    public DocumentType detectDocumentType() throws DocumentTypeDetectionException {
+        var detection = new DocumentTypeDetector.Detection();
+        try {
+            reader = createSecureInputFactory().createXMLStreamReader(input);
+            record(ContentHandler::startDocument);
+            boolean complete = false;
+            while (!complete && reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.DTD) {
+                    throw new DocumentTypeDetectionException("XML parse hatası: DOCTYPE bildirimine izin verilmiyor");
+                }
+                complete = event == XMLStreamConstants.START_ELEMENT && detection.startElement(
+                        namespace(reader.getNamespaceURI()), reader.getLocalName(), prefix(reader.getPrefix()),
+                        idAttribute());
+                record(toSaxEvent(event));
+            }
+        } catch (XMLStreamException e) {
+            throw new DocumentTypeDetectionException("XML parse hatası: " + message(e), e);
+        }
+        DocumentType result = detection.result();
+        detected = true;
+        return result;
+    }
+
+    @Override
+    public List<String> validate(SchemaValidationType schemaType, List<XsdOverride> overrides, String profileName) {
+        return validate(schemaType, overrides, profileName, null);
+    }
+
+    /**
+     * Bütçe aşıldığında olay aktarımı kesilir; akışın geri kalanı okunmaz.
+     */
+    @Override
+    public List<String> validate(SchemaValidationType schemaType, List<XsdOverride> overrides,
+                                 String profileName, ErrorBudget budget) {
+        if (!detected) {
+            throw new IllegalStateException("Doğrulamadan önce belge türü tespit edilmeli");
+        }
+        if (buffer == null) {
+            // Tampon sınırı aşıldı — akış yeniden açılıp baştan doğrulanır
+            close();
+            try (InputStream again = open(source)) {
+                return owner.validateStream(again, schemaType, overrides, profileName, budget);
+            } catch (IOException e) {
+                return List.of("Şema doğrulama hatası: " + e.getMessage());
+            }
+        }
+
+        return owner.validate((pool, errors) -> pool.validate(handler -> {
+            handler.setDocumentLocator(position);
+            for (BufferedEvent buffered : buffer) {
+                position.set(buffered.line(), buffered.column());
+                buffered.event().replay(handler);
+            }
+            buffer = List.of();
+            try {
+                while (reader.hasNext()) {
+                    SaxEvent event = toSaxEvent(reader.next());
+                    if (event != null) {
+                        position.set(reader.getLocation());
+                        event.replay(handler);
+                    }
+                }
+            } catch (XMLStreamException e) {
+                // İki geçişli yoldaki parser gibi: ölümcül hata konumuyla raporlanır, doğrulama durur
+                Location location = e.getLocation() != null ? e.getLocation() : reader.getLocation();
+                var fatal = new SAXParseException(message(e), null, null,
+                        location.getLineNumber(), location.getColumnNumber(), e);
+                handler.getErrorHandler().fatalError(fatal);
+                throw fatal;
+            }
+        }, errors, budget), schemaType, overrides, profileName, budget);
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (reader != null) {
+                reader.close();
+            }
+        } catch (XMLStreamException ignored) {
+            // okuyucu zaten kapandı
+        }
+        try {
+            input.close();
+        } catch (IOException ignored) {
+            // akış zaten kapandı
+        }
+    }
+
+    // ── Olay Dönüşümü ───────────────────────────────────────────────
+
+    /**
+     * Tek bir SAX çağrısı (veya element başında/sonunda prefix eşlemeleriyle birlikte bir grup).
+     * Veriler oluşturulurken kopyalanır — okuyucu ilerledikten sonra da oynatılabilir.
+     */
+    @FunctionalInterface
+    private interface SaxEvent {
+        void replay(ContentHandler handler) throws SAXException;
+    }
+
+    private record BufferedEvent(SaxEvent event, int line, int column) {
+    }
+
+    private void record(SaxEvent event) {
+        if (event == null || buffer == null) {
+            return;
+        }
+        Location location = reader.getLocation();
+        buffer.add(new BufferedEvent(event, location.getLineNumber(), location.getColumnNumber()));
+        if (buffer.size() > maxBufferedEvents) {
+            buffer = null;
+        }
+    }
+
+    /**
+     * Okuyucunun bulunduğu StAX olayını SAX olayına çevirir; ContentHandler karşılığı olmayan
+     * olaylar (yorum, belge dışı boşluk) için {@code null}.
+     */
+    private SaxEvent toSaxEvent(int event) {
+        return switch (event) {
+            case XMLStreamConstants.START_ELEMENT -> startElement();
+            case XMLStreamConstants.END_ELEMENT -> endElement();
+            case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA -> {
+                char[] text = Arrays.copyOfRange(reader.getTextCharacters(), reader.getTextStart(),
+                        reader.getTextStart() + reader.getTextLength());
+                yield handler -> handler.characters(text, 0, text.length);
+            }
+            case XMLStreamConstants.PROCESSING_INSTRUCTION -> {
+                String target = reader.getPITarget();
+                String data = reader.getPIData();
+                yield handler -> handler.processingInstruction(target, data);
+            }
+            case XMLStreamConstants.END_DOCUMENT -> ContentHandler::endDocument;
+            default -> null;
+        };
+    }
+
+    private SaxEvent startElement() {
+        String[] prefixes = new String[reader.getNamespaceCount()];
+        String[] uris = new String[prefixes.length];
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = prefix(reader.getNamespacePrefix(i));
+            uris[i] = namespace(reader.getNamespaceURI(i));
+        }
+        var attributes = new AttributesImpl();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String prefix = prefix(reader.getAttributePrefix(i));
+            String localName = reader.getAttributeLocalName(i);
+            attributes.addAttribute(namespace(reader.getAttributeNamespace(i)), localName,
+                    qualify(prefix, localName), reader.getAttributeType(i), reader.getAttributeValue(i));
+        }
+        String uri = namespace(reader.getNamespaceURI());
+        String localName = reader.getLocalName();
+        String qName = qualify(prefix(reader.getPrefix()), localName);
+        return handler -> {
+            for (int i = 0; i < prefixes.length; i++) {
+                handler.startPrefixMapping(prefixes[i], uris[i]);
+            }
+            handler.startElement(uri, localName, qName, attributes);
+        };
+    }
+
+    private SaxEvent endElement() {
+        String[] prefixes = new String[reader.getNamespaceCount()];
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = prefix(reader.getNamespacePrefix(i));
+        }
+        String uri = namespace(reader.getNamespaceURI());
+        String localName = reader.getLocalName();
+        String qName = qualify(prefix(reader.getPrefix()), localName);
+        return handler -> {
+            handler.endElement(uri, localName, qName);
+            for (String prefix : prefixes) {
+                handler.endPrefixMapping(prefix);
+            }
+        };
+    }
+
+    /**
+     * Namespace'siz {@code id} attribute değeri; yoksa {@code null}.
+     */
+    private String idAttribute() {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if ("id".equals(reader.getAttributeLocalName(i)) && namespace(reader.getAttributeNamespace(i)).isEmpty()) {
+                return reader.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    private static String namespace(String uri) {
+        return uri != null ? uri : "";
+    }
+
+    private static String prefix(String prefix) {
+        return prefix != null ? prefix : "";
+    }
+
+    private static String qualify(String prefix, String localName) {
+        return prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+
+    /**
+     * StAX hata mesajı — JDK okuyucusunun başa eklediği {@code ParseError at [row,col]} satırı
+     * atılır, konum ayrıca raporlanır.
+     */
+    private static String message(XMLStreamException e) {
+        String message = e.getMessage();
+        int start = message != null ? message.indexOf("Message: ") : -1;
+        return start >= 0 ? message.substring(start + "Message: ".length()) : message;
+    }
+
+    private static InputStream open(Callable<InputStream> source) throws IOException {
+        try {
+            return source.call();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static XMLInputFactory createSecureInputFactory() {
+        var factory = XMLInputFactory.newDefaultFactory();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        // XXE koruması
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Doğrulayıcıya verilen konum — tamponlanan olaylar oynatılırken kayıtlı konumu,
+     * sonrasında okuyucunun güncel konumunu gösterir.
+     */
+    private static final class Position implements Locator {
+
+        private int line = -1;
+        private int column = -1;
+
+        void set(int line, int column) {
+            this.line = line;
+            this.column = column;
+        }
+
+        void set(Location location) {
+            set(location.getLineNumber(), location.getColumnNumber());
+        }
+
+        @Override
+        public String getPublicId() {
+            return null;
+        }
+
+        @Override
+        public String getSystemId() {
+            return null;
+        }
+
+        @Override
+        public int getLineNumber() {
+            return line;
+        }
+
+        @Override
+        public int getColumnNumber() {
+            return column;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package io.mersel.services.xslt.infrastructure;
+
+import net.sf.saxon.Controller;
+import net.sf.saxon.expr.XPathContext;
+import net.sf.saxon.lib.Logger;
+import net.sf.saxon.lib.TraceListener;
+import net.sf.saxon.om.Item;
+import net.sf.saxon.trace.Traceable;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Kullanıcı XSLT'si (yüklenen veya gömülü) ile yapılan tek dönüşümün CPU ve duvar saati bütçesi.
+ * <p>
+ * Saxon'un {@link TraceListener} kancası üzerinden çalışan bir bekçidir: şablon izleme ile
+ * derlendiği için ({@code XsltCompiler.setCompileWithTracing}) her komut ve şablon girişinde
+ * çağrılır, her {@value #CHECK_INTERVAL} olayda bir dönüşüm thread'inin CPU süresini ve geçen
+ * süreyi kontrol eder. Bütçe aşıldığında dönüşüm, Saxon'un içinden fırlatılan bir exception ile
+ * işbirlikçi olarak kesilir; çağıran {@link #exceededLimit()} ile nedeni ayırt edip varsayılan
+ * XSLT'ye döner. Bütçe aşıldıktan sonraki her olayda exception yeniden fırlatılır — şablon
+ * içindeki {@code xsl:try} dönüşümü sürdüremez. Duvar saati aşımı sunucu yüküne bağlı olduğundan
+ * bu şekilde üretilen varsayılan çıktı sonuç cache'ine yazılmaz.
+ * <p>
+ * İzleme olayı üretmeyen tek bir XPath ifadesi (ör. dev bir aralık üzerinde {@code sum()} veya
+ * felaket geri izlemeli {@code matches()}) bu kancaya hiç uğramaz. Süre sınırını bu durumda
+ * {@link SaxonXsltTransformer}'ın bekleme zaman aşımı uygular ve {@link #expire()} ile bütçeyi
+ * dolmuş işaretler; dönüşüm thread'i bir sonraki olayda kesilir.
+ * <p>
+ * İstek thread'inde oluşturulabilir; CPU ölçümü dönüşümü çalıştıran thread'de {@link #start()} ile
+ * başlar. Her deneme için yeni örnek kullanılır.
+ */
+final class TransformBudget implements TraceListener {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /** Saatin okunduğu olay aralığı — her olayda okumak izlemeli şablonu gereksiz yavaşlatır. */
+    private static final int CHECK_INTERVAL = 256;
+
+    /** Aşılan sınır. */
+    enum Limit {
+        CPU, WALL;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final long maxCpuNanos;
+    private final long maxWallNanos;
+    private final long wallStart;
+    private long cpuStart;
+
+    private int events;
+    /** Dönüşüm thread'i veya süre aşımında bekleyen istek thread'i ({@link #expire()}) yazar. */
+    private volatile Limit exceeded;
+
+    /**
+     * @param maxCpuMs  Dönüşüm thread'inin harcayabileceği CPU süresi (ms); 0 veya JVM desteklemiyorsa sınırsız
+     * @param maxWallMs Duvar saati süresi (ms); 0 ise sınırsız
+     */
+    TransformBudget(long maxCpuMs, long maxWallMs) {
+        boolean cpuSupported = maxCpuMs > 0 && THREADS.isCurrentThreadCpuTimeSupported()
+                && THREADS.isThreadCpuTimeEnabled();
+        this.maxCpuNanos = cpuSupported ? maxCpuMs * 1_000_000 : 0;
+        this.maxWallNanos = maxWallMs > 0 ? maxWallMs * 1_000_000 : 0;
+        this.wallStart = System.nanoTime();
+    }
+
+    /**
+     * CPU ölçümünü başlatır — dönüşümü çalıştıran thread'de, dönüşümden hemen önce çağrılır.
+     */
+    void start() {
+        if (maxCpuNanos > 0) {
+            cpuStart = THREADS.getCurrentThreadCpuTime();
+        }
+    }
+
+    boolean hasWallLimit() {
+        return maxWallNanos > 0;
+    }
+
+    /** Süre sınırına kalan süre (ns); sınır yoksa {@link Long#MAX_VALUE}. */
+    long remainingWallNanos() {
+        return maxWallNanos > 0 ? Math.max(0, maxWallNanos - (System.nanoTime() - wallStart)) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Süre sınırını dışarıdan dolmuş işaretler — dönüşüm thread'i bir sonraki izleme olayında kesilir.
+     * Bütçe zaten aşıldıysa nedeni değişmez.
+     */
+    void expire() {
+        if (exceeded == null) {
+            exceeded = Limit.WALL;
+        }
+    }
+
+    /**
+     * @return bütçe aşıldıysa aşılan sınır, aksi halde {@code null}
+     */
+    Limit exceededLimit() {
+        return exceeded;
+    }
+
+    /**
+     * Varsayılana dönüşte {@code X-Xslt-Custom-Error} olarak raporlanan mesaj.
+     */
+    String describe() {
+        long elapsedMs = (System.nanoTime() - wallStart) / 1_000_000;
+        return exceeded == Limit.CPU
+                ? "XSLT dönüşümü CPU bütçesini aştı (" + maxCpuNanos / 1_000_000 + " ms), dönüşüm durduruldu"
+                : "XSLT dönüşümü süre bütçesini aştı (" + elapsedMs + " ms / "
+                        + maxWallNanos / 1_000_000 + " ms), dönüşüm durduruldu";
+    }
+
+    private void check() {
+        if (exceeded != null) {
+            throw new BudgetExceededException();
+        }
+        if (++events % CHECK_INTERVAL != 0) {
+            return;
+        }
+        if (maxWallNanos > 0 && System.nanoTime() - wallStart > maxWallNanos) {
+            exceeded = Limit.WALL;
+        } else if (maxCpuNanos > 0 && THREADS.getCurrentThreadCpuTime() - cpuStart > maxCpuNanos) {
+            exceeded = Limit.CPU;
+        }
+        if (exceeded != null) {
+            throw new BudgetExceededException();
+        }
+    }
+
+    // ── TraceListener ───────────────────────────────────────────────
+
+    @Override
+    public void setOutputDestination(Logger stream) {
+        // çıktı üretilmez
+    }
+
+    @Override
+    public void open(Controller controller) {
+        // bütçe oluşturulduğu anda başlar
+    }
+
+    @Override
+    public void close() {
+        // kaynak tutulmaz
+    }
+
+    @Override
+    public void enter(Traceable instruction, Map<String, Object> properties, XPathContext context) {
+        check();
+    }
+
+    @Override
+    public void leave(Traceable instruction) {
+        // yalnızca girişler sayılır
+    }
+
+    @Override
+    public void startCurrentItem(Item currentItem) {
+        check();
+    }
+
+    @Override
+    public void endCurrentItem(Item currentItem) {
+        // yalnızca girişler sayılır
+    }
+
+    /**
+     * Dönüşümü kesmek için Saxon'un içinden fırlatılır. {@code XPathException} olmadığı için
+     * {@code xsl:try}/{@code xsl:catch} tarafından yakalanmaz. Stack trace üretilmez.
+     */
+    static final class BudgetExceededException extends RuntimeException {
+
+        private BudgetExceededException() {
+            super("XSLT dönüşüm bütçesi aşıldı", null, false, false);
+        }
+    }
+}
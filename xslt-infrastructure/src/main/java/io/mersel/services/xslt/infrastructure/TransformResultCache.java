@@ -0,0 +1,127 @@
+package io.mersel.services.xslt.infrastructure;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.mersel.services.xslt.application.models.TransformResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Dönüşüm sonucu cache'i — aynı belge aynı şablonla tekrar istendiğinde Saxon çalıştırılmaz.
+ * <p>
+ * Değer, sanitize edilmiş HTML ile birlikte izin verilen script hash'leri ve diğer
+ * {@link TransformResult} metadata'sını taşır. Tahliye toplam HTML boyutuna göre
+ * yapılır ({@code maximumWeight}); istenirse HTML GZIP ile sıkıştırılarak saklanır.
+ * Sonuç önceden sıkıştırılmış gövde taşıyorsa ({@link TransformResult#getGzipContent()}) o gövde
+ * aynen saklanır ve her hit'te aynı byte'larla döner; sıkıştırma açıkken HTML'in yerine de kullanılır.
+ * <p>
+ * Anahtar {@link SaxonXsltTransformer#resultTag} ile üretilir ve varsayılan şablon
+ * parmak izini içerir; yine de şablonlar yeniden yüklendiğinde {@link #invalidateAll()}
+ * ile eski girdiler hemen bırakılır.
+ */
+final class TransformResultCache {
+
+    /** Girdi başına sabit ek yük tahmini (metadata, anahtar) — ağırlık hesabında. */
+    private static final int ENTRY_OVERHEAD_BYTES = 512;
+
+    private final Cache<String, CachedResult> cache;
+    private final boolean compress;
+
+    TransformResultCache(long maxSizeBytes, Duration ttl, boolean compress) {
+        this.compress = compress;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSizeBytes)
+                .weigher((String key, CachedResult value) ->
+                        (int) Math.min(Integer.MAX_VALUE, value.weight() + ENTRY_OVERHEAD_BYTES))
+                .expireAfterAccess(ttl)
+                .recordStats()
+                .build();
+    }
+
+    Cache<String, ?> nativeCache() {
+        return cache;
+    }
+
+    /**
+     * Cache'teki sonucu döndürür; HTML açılmış halde {@link TransformResult#getHtmlContent()} içindedir.
+     *
+     * @return sonuç veya {@code null}
+     */
+    TransformResult get(String key) {
+        CachedResult cached = cache.getIfPresent(key);
+        if (cached == null) {
+            return null;
+        }
+        byte[] html = cached.compressed ? gunzip(cached.html) : cached.html;
+        return cached.metadata.toBuilder()
+                .htmlContent(html)
+                .gzipContent(cached.gzip)
+                .outputSize(html.length)
+                .build();
+    }
+
+    /**
+     * Anahtar cache'te mi? İstatistikleri ve erişim süresini etkilemez, HTML açılmaz.
+     */
+    boolean contains(String key) {
+        return cache.asMap().containsKey(key);
+    }
+
+    /**
+     * Bellek modunda üretilmiş (HTML içeriği dolu) sonucu cache'e yazar.
+     */
+    void put(String key, TransformResult result) {
+        byte[] html = result.getHtmlContent();
+        if (html == null) {
+            return;
+        }
+        // HTML ayrı saklanır; metadata kopyası HTML referansı tutmaz
+        TransformResult metadata = result.toBuilder().htmlContent(null).gzipContent(null).build();
+        byte[] precompressed = result.getGzipContent();
+        if (compress) {
+            byte[] compressed = precompressed != null ? precompressed : gzip(html);
+            cache.put(key, new CachedResult(compressed, true, precompressed, metadata));
+        } else {
+            cache.put(key, new CachedResult(html, false, precompressed, metadata));
+        }
+    }
+
+    void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    static byte[] gzip(byte[] content) {
+        var out = new ByteArrayOutputStream(Math.max(64, content.length / 4));
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] content) {
+        try (var gzip = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param html HTML ({@code compressed} ise GZIP'li)
+     * @param gzip Önceden sıkıştırılmış gövde; yoksa {@code null} (sıkıştırma açıksa {@code html} ile aynı dizi)
+     */
+    private record CachedResult(byte[] html, boolean compressed, byte[] gzip, TransformResult metadata) {
+
+        long weight() {
+            return (long) html.length + (gzip != null && gzip != html ? gzip.length : 0);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package io.mersel.services.xslt.infrastructure;
 
 import io.mersel.services.xslt.application.enums.SchemaValidationType;
 import io.mersel.services.xslt.application.enums.SchematronValidationType;
+import io.mersel.services.xslt.application.enums.ValidationMode;
 import io.mersel.services.xslt.application.interfaces.ISchemaValidator;
 import io.mersel.services.xslt.application.interfaces.ISchematronValidator;
 import io.mersel.services.xslt.application.interfaces.IValidationProfileService;
@@ -26,6 +27,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 /**
@@ -54,6 +56,9 @@ public class ValidationProfileRegistry implements IValidationProfileService, Rel
     private record ProfileData(Map<String, ValidationProfile> profiles, Map<String, List<CompiledRule>> rules) {}
     private volatile ProfileData profileData = new ProfileData(Map.of(), Map.of());
 
+    /** Profil revizyonu — reload ve CRUD işlemlerinin sonunda artar. */
+    private final AtomicLong revision = new AtomicLong();
+
     /**
      * @param schemaValidator     {@code @Lazy} ile enjekte edilir — circular dependency önleme
      *                            (JaxpSchemaValidator da Reloadable olduğu için AssetRegistry aracılığıyla
@@ -79,6 +84,14 @@ public class ValidationProfileRegistry implements IValidationProfileService, Rel
 
     @Override
     public ReloadResult reload() {
+        try {
+            return doReload();
+        } finally {
+            revision.incrementAndGet();
+        }
+    }
+
+    private ReloadResult doReload() {
         long startTime = System.currentTimeMillis();
 
         try {
@@ -144,6 +157,11 @@ public class ValidationProfileRegistry implements IValidationProfileService, Rel
 
     // ── IValidationProfileService ───────────────────────────────────
 
+    @Override
+    public long revision() {
+        return revision.get();
+    }
+
     @Override
     public Optional<ValidationProfile> getProfile(String profileName) {
         if (profileName == null || profileName.isBlank()) {
@@ -300,6 +318,7 @@ public class ValidationProfileRegistry implements IValidationProfileService, Rel
 
         // Custom rule cache'i temizle — global kurallar değişti
         schematronValidator.invalidateCustomRuleCache();
+        revision.incrementAndGet();
 
         int totalRules = rules != null ? rules.values().stream().mapToInt(List::size).sum() : 0;
         log.info("Global Schematron kuralları kaydedildi: {} tip, {} kural", 
@@ -374,6 +393,12 @@ public class ValidationProfileRegistry implements IValidationProfileService, Rel
         if (profile.extendsProfile() != null && !profile.extendsProfile().isBlank()) {
             profileMap.put("extends", profile.extendsProfile());
         }
+        if (profile.maxErrors() != null) {
+            profileMap.put("max-errors", profile.maxErrors());
+        }
+        if (profile.mode() != null) {
+            profileMap.put("mode", profile.mode().value());
+        }
         if (profile.suppressions() != null && !profile.suppressions().isEmpty()) {
             var suppressionsList = new ArrayList<Map<String, Object>>();
             for (var rule : profile.suppressions()) {
@@ -445,6 +470,8 @@ public class ValidationProfileRegistry implements IValidationProfileService, Rel
 
         // Schematron özel kurallarını hemen derle ve auto-generated dosyalarını oluştur
         precompileProfileSchematronRules(profile.name());
+        // Cache temizliği ve ön derleme sonrası — arada üretilen sonuçlar eski revizyonda kalır
+        revision.incrementAndGet();
 
         log.info("Profil kaydedildi: {} ({} bastırma kuralı, XSD override'lar ve Schematron kurallar derlendi)", profile.name(),
                 profile.suppressions() != null ? profile.suppressions().size() : 0);
@@ -467,6 +494,7 @@ public class ValidationProfileRegistry implements IValidationProfileService, Rel
         // Override cache'leri doğrudan temizle — FileWatcher gecikmesine bağımlı olma
         schemaValidator.invalidateOverrideCache();
         schematronValidator.invalidateCustomRuleCache();
+        revision.incrementAndGet();
 
         log.info("Profil silindi: {} (XSD override + Schematron kural cache temizlendi)", profileName);
         return true;
@@ -631,6 +659,8 @@ public class ValidationProfileRegistry implements IValidationProfileService, Rel
     private RawProfile parseRawProfile(String name, Map<String, Object> map) {
         String description = (String) map.getOrDefault("description", "");
         String extendsProfile = (String) map.get("extends");
+        Integer maxErrors = parseMaxErrors(name, map.get("max-errors"));
+        ValidationMode mode = parseMode(name, map.get("mode"));
 
         List<SuppressionRule> rules = new ArrayList<>();
         Object suppressionsObj = map.get("suppressions");
@@ -729,7 +759,41 @@ public class ValidationProfileRegistry implements IValidationProfileService, Rel
             }
         }
 
-        return new RawProfile(name, description, extendsProfile, rules, xsdOverrides, schematronRules);
+        return new RawProfile(name, description, extendsProfile, rules, xsdOverrides, schematronRules, maxErrors, mode);
+    }
+
+    /**
+     * Profilin {@code max-errors} değerini okur; pozitif tam sayı değilse yok sayılır.
+     */
+    private static Integer parseMaxErrors(String profileName, Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            int maxErrors = value instanceof Number number ? number.intValue() : Integer.parseInt(value.toString().strip());
+            if (maxErrors > 0) {
+                return maxErrors;
+            }
+        } catch (NumberFormatException ignored) {
+            // aşağıda uyarı verilir
+        }
+        log.warn("Profil '{}' için geçersiz max-errors değeri yok sayılıyor: {}", profileName, value);
+        return null;
+    }
+
+    /**
+     * Profilin {@code mode} değerini okur; bilinmeyen mod yok sayılır.
+     */
+    private static ValidationMode parseMode(String profileName, Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return ValidationMode.parse(value.toString());
+        } catch (IllegalArgumentException e) {
+            log.warn("Profil '{}' için geçersiz mode değeri yok sayılıyor: {}", profileName, value);
+            return null;
+        }
     }
 
     // ── Profile Resolution (Inheritance) ────────────────────────────
@@ -748,6 +812,9 @@ public class ValidationProfileRegistry implements IValidationProfileService, Rel
         Map<String, Map<String, XsdOverride>> mergedOverrides = new LinkedHashMap<>();
         // Schematron custom rules: üst profil + kendi kurallar (tümü birleştirilir)
         Map<String, List<SchematronCustomAssertion>> mergedSchematronRules = new LinkedHashMap<>();
+        // Hata bütçesi: alt profil belirtmezse üst profilinki
+        Integer maxErrors = raw.maxErrors;
+        ValidationMode mode = raw.mode;
 
         // Miras alınan profildeki kuralları ekle
         if (raw.extendsProfile != null && !raw.extendsProfile.isBlank()) {
@@ -758,6 +825,12 @@ public class ValidationProfileRegistry implements IValidationProfileService, Rel
             }
             ValidationProfile parentProfile = resolveProfile(raw.extendsProfile, parent, allRaw, visited);
             allSuppressions.addAll(parentProfile.suppressions());
+            if (maxErrors == null) {
+                maxErrors = parentProfile.maxErrors();
+            }
+            if (mode == null) {
+                mode = parentProfile.mode();
+            }
 
             // Üst profil xsd overrides
             for (var entry : parentProfile.xsdOverrides().entrySet()) {
@@ -806,7 +879,7 @@ public class ValidationProfileRegistry implements IValidationProfileService, Rel
         }
 
         return new ValidationProfile(name, raw.description, raw.extendsProfile,
-                List.copyOf(allSuppressions), Map.copyOf(finalOverrides), Map.copyOf(finalSchematronRules));
+                List.copyOf(allSuppressions), Map.copyOf(finalOverrides), Map.copyOf(finalSchematronRules), maxErrors, mode);
     }
 
     // ── Rule Compilation ────────────────────────────────────────────
@@ -971,7 +1044,9 @@ public class ValidationProfileRegistry implements IValidationProfileService, Rel
             String extendsProfile,
             List<SuppressionRule> suppressions,
             Map<String, List<XsdOverride>> xsdOverrides,
-            Map<String, List<SchematronCustomAssertion>> schematronRules
+            Map<String, List<SchematronCustomAssertion>> schematronRules,
+            Integer maxErrors,
+            ValidationMode mode
     ) {
     }
 
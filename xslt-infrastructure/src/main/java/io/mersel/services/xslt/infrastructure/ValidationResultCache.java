@@ -0,0 +1,204 @@
+package io.mersel.services.xslt.infrastructure;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.mersel.services.xslt.application.models.ErrorGroup;
+import io.mersel.services.xslt.application.models.SchematronError;
+import io.mersel.services.xslt.application.models.ValidationResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Doğrulama sonucu cache'i — aynı belge aynı girdilerle tekrar gönderildiğinde XSD ve Schematron
+ * çalıştırılmaz.
+ * <p>
+ * Doğrulama sonucu belge içeriği, asset nesli, profil, ad-hoc bastırmalar ve Schematron
+ * parametrelerinin saf fonksiyonudur. Anahtar bu girdilerin {@link KeyBuilder} ile akış halinde
+ * hesaplanan SHA-256 değeridir; büyük belgeler hash için belleğe alınmaz. Tahliye yanıttaki hata
+ * metinlerinin tahmini boyutuna göre yapılır ({@code maximumWeight}).
+ * <p>
+ * Nesil ({@link AssetRegistry#generation()} ve profil revizyonu) anahtarın parçasıdır: reload veya
+ * profil kaydı sonrası eski girdiler bir daha eşleşmez ve yeni nesil ilk görüldüğünde cache
+ * tamamen boşaltılır.
+ */
+public final class ValidationResultCache {
+
+    /** Girdi başına sabit ek yük tahmini (yanıt nesnesi, map'ler, anahtar) — ağırlık hesabında. */
+    private static final int ENTRY_OVERHEAD_BYTES = 1024;
+
+    private final Cache<String, ValidationResponse> cache;
+    private final AtomicReference<String> generation = new AtomicReference<>();
+
+    public ValidationResultCache(long maxSizeBytes, Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSizeBytes)
+                .weigher((String key, ValidationResponse value) ->
+                        (int) Math.min(Integer.MAX_VALUE, weight(value) + ENTRY_OVERHEAD_BYTES))
+                .expireAfterAccess(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public Cache<String, ?> nativeCache() {
+        return cache;
+    }
+
+    /**
+     * Verilen nesil için anahtar oluşturucu döndürür. Nesil öncekinden farklıysa eski nesildeki
+     * tüm girdiler bırakılır.
+     *
+     * @param generation Asset nesli ve profil revizyonu
+     */
+    public KeyBuilder newKey(String generation) {
+        String previous = this.generation.getAndSet(generation);
+        if (previous != null && !previous.equals(generation)) {
+            cache.invalidateAll();
+        }
+        return new KeyBuilder().add(generation);
+    }
+
+    /**
+     * @return cache'teki sonuç veya {@code null}; dönen nesne paylaşılır, değiştirilmemelidir
+     */
+    public ValidationResponse get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Tamamlanmış doğrulama sonucunu yazar. Aşamalardan biri beklenmeyen hatayla
+     * tamamlanamadıysa ({@link ValidationResponse#hasStageFailure()}) yazılmaz.
+     */
+    public void put(String key, ValidationResponse response) {
+        if (response.hasStageFailure()) {
+            return;
+        }
+        cache.put(key, response);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Yanıttaki metinlerin tahmini bellek boyutu (UTF-16, byte).
+     */
+    static long weight(ValidationResponse response) {
+        long chars = 0;
+        if (response.getSchemaValidationErrors() != null) {
+            for (String error : response.getSchemaValidationErrors()) {
+                chars += length(error);
+            }
+        }
+        chars += schematronLength(response.getSchematronValidationErrors());
+        chars += groupsLength(response.getSchemaErrorGroups());
+        chars += groupsLength(response.getSchematronErrorGroups());
+        if (response.getSuppressionInfo() != null
+                && response.getSuppressionInfo().get("suppressedErrors") instanceof List<?> suppressed) {
+            for (Object error : suppressed) {
+                if (error instanceof SchematronError schematronError) {
+                    chars += length(schematronError.ruleId()) + length(schematronError.test())
+                            + length(schematronError.message());
+                }
+            }
+        }
+        return chars * 2;
+    }
+
+    private static long schematronLength(List<SchematronError> errors) {
+        long chars = 0;
+        if (errors != null) {
+            for (SchematronError error : errors) {
+                chars += length(error.ruleId()) + length(error.test()) + length(error.message());
+            }
+        }
+        return chars;
+    }
+
+    private static long groupsLength(List<ErrorGroup> groups) {
+        long chars = 0;
+        if (groups != null) {
+            for (ErrorGroup group : groups) {
+                chars += length(group.ruleId()) + length(group.test());
+                for (ErrorGroup.Sample sample : group.samples()) {
+                    chars += length(sample.message()) + length(sample.location());
+                }
+            }
+        }
+        return chars;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    /**
+     * Cache anahtarı oluşturucu — girdiler sırayla tek bir SHA-256 özetine akıtılır.
+     * <p>
+     * Metin girdileri uzunluk önekiyle yazılır; {@code null} ile boş değer ve alan sınırları
+     * birbirinden ayrılır. Tek kullanımlıktır.
+     */
+    public static final class KeyBuilder {
+
+        private final MessageDigest digest;
+
+        private KeyBuilder() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 algorithm not available", e);
+            }
+        }
+
+        public KeyBuilder add(String value) {
+            if (value == null) {
+                digest.update((byte) 0);
+                return this;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            digest.update((byte) 1);
+            updateLength(bytes.length);
+            digest.update(bytes);
+            return this;
+        }
+
+        /** Bellekteki belge içeriğini ekler. */
+        public KeyBuilder addDocument(byte[] content) {
+            digest.update((byte) 2);
+            digest.update(content);
+            updateLength(content.length);
+            return this;
+        }
+
+        /** Belgeyi akıştan okuyarak ekler; içerik belleğe alınmaz. Akışı kapatmaz. */
+        public KeyBuilder addDocument(InputStream content) throws IOException {
+            digest.update((byte) 2);
+            byte[] buffer = new byte[8192];
+            long total = 0;
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                total += read;
+            }
+            updateLength(total);
+            return this;
+        }
+
+        public String build() {
+            return HexFormat.of().formatHex(digest.digest());
+        }
+
+        private void updateLength(long length) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                digest.update((byte) (length >>> shift));
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package io.mersel.services.xslt.infrastructure;
+
+import net.sf.saxon.event.ProxyReceiver;
+import net.sf.saxon.event.Receiver;
+import net.sf.saxon.event.ReceiverOption;
+import net.sf.saxon.expr.parser.Loc;
+import net.sf.saxon.om.AttributeInfo;
+import net.sf.saxon.om.AttributeMap;
+import net.sf.saxon.om.EmptyAttributeMap;
+import net.sf.saxon.om.FingerprintedQName;
+import net.sf.saxon.om.NamespaceMap;
+import net.sf.saxon.om.NoNamespaceName;
+import net.sf.saxon.om.NodeName;
+import net.sf.saxon.s9api.Location;
+import net.sf.saxon.str.StringView;
+import net.sf.saxon.trans.XPathException;
+import net.sf.saxon.type.BuiltInAtomicType;
+import net.sf.saxon.type.SchemaType;
+import net.sf.saxon.type.Untyped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+
+/**
+ * Filigranı XSLT çıktı olayları akarken ekleyen Saxon filtresi.
+ * <p>
+ * {@link WatermarkService#addWatermark(byte[], String)} ile aynı çıktıyı üretir:
+ * ilk {@code <head>} açılışından hemen sonra filigran stili, ilk {@code </body>}
+ * kapanışından hemen önce filigran divleri yazılır. HTML metne dönüştürülmez;
+ * filigran metni serializer tarafından escape edilir.
+ * <p>
+ * Thread-safe değildir — her dönüşüm için yeni örnek oluşturulur.
+ */
+final class WatermarkFilter extends ProxyReceiver {
+
+    private static final Logger log = LoggerFactory.getLogger(WatermarkFilter.class);
+
+    private final String watermarkText;
+    private final int count;
+
+    /** Açık elementler — filigranın hangi kapanışa ekleneceğini bilmek için. */
+    private final Deque<OpenElement> openElements = new ArrayDeque<>();
+
+    private boolean styleInserted;
+    private boolean watermarkInserted;
+
+    WatermarkFilter(Receiver next, String watermarkText, int count) {
+        super(next);
+        this.watermarkText = watermarkText;
+        this.count = Math.max(1, count);
+    }
+
+    @Override
+    public void startElement(NodeName elemName, SchemaType type, AttributeMap attributes,
+                             NamespaceMap namespaces, Location location, int properties) throws XPathException {
+        nextReceiver.startElement(elemName, type, attributes, namespaces, location, properties);
+
+        var element = new OpenElement(elemName.getLocalPart().toLowerCase(Locale.ROOT),
+                elemName.getPrefix(), elemName.getURI(), namespaces);
+        openElements.push(element);
+
+        if (!styleInserted && "head".equals(element.tag)) {
+            emitElement(element, "style", EmptyAttributeMap.getInstance(), WatermarkService.WATERMARK_CSS);
+            styleInserted = true;
+        }
+    }
+
+    @Override
+    public void endElement() throws XPathException {
+        OpenElement element = openElements.pop();
+
+        if (!watermarkInserted && "body".equals(element.tag)) {
+            emitWatermarkDivs(element);
+            watermarkInserted = true;
+        }
+
+        nextReceiver.endElement();
+    }
+
+    @Override
+    public void close() throws XPathException {
+        if (!watermarkInserted) {
+            log.warn("HTML'de </body> etiketi bulunamadı — filigran eklenemedi");
+        }
+        super.close();
+    }
+
+    private void emitWatermarkDivs(OpenElement body) throws XPathException {
+        int width = 100 / count;
+        int left = 10;
+
+        for (int i = 0; i < count; i++) {
+            emitElement(body, "div", watermarkAttributes("top: 40%; left: " + left + "%;"), watermarkText);
+            emitElement(body, "div", watermarkAttributes("bottom: 50%; left: " + left + "%; top: 90%"), watermarkText);
+            left += width - 4;
+        }
+    }
+
+    private static AttributeMap watermarkAttributes(String style) {
+        return EmptyAttributeMap.getInstance()
+                .put(new AttributeInfo(new NoNamespaceName("class"), BuiltInAtomicType.UNTYPED_ATOMIC,
+                        "watermark", Loc.NONE, ReceiverOption.NONE))
+                .put(new AttributeInfo(new NoNamespaceName("style"), BuiltInAtomicType.UNTYPED_ATOMIC,
+                        style, Loc.NONE, ReceiverOption.NONE));
+    }
+
+    /**
+     * Ebeveyn ile aynı namespace ve önekte, ebeveynin namespace bağlamıyla bir metin elementi yazar
+     * (XHTML çıktılarında {@code xmlns=""} oluşmasını önler).
+     */
+    private void emitElement(OpenElement parent, String localName, AttributeMap attributes, String text)
+            throws XPathException {
+        NodeName name = parent.uri.isEmpty()
+                ? new NoNamespaceName(localName)
+                : new FingerprintedQName(parent.prefix, parent.uri, localName);
+        nextReceiver.startElement(name, Untyped.getInstance(), attributes, parent.namespaces,
+                Loc.NONE, ReceiverOption.NONE);
+        nextReceiver.characters(StringView.of(text), Loc.NONE, ReceiverOption.NONE);
+        nextReceiver.endElement();
+    }
+
+    private record OpenElement(String tag, String prefix, String uri, NamespaceMap namespaces) {
+    }
+}
@@ -1,5 +1,6 @@
 package io.mersel.services.xslt.infrastructure;
 
+import net.sf.saxon.event.Receiver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,6 +15,9 @@ import java.util.regex.Pattern;
  * <p>
  * Dönüştürülmüş HTML'in head ve body bölümlerine CSS stillendirilmiş
  * filigran divleri ekler.
+ * <p>
+ * Dönüşüm hattında {@link #newFilter(Receiver, String)} ile XSLT çıktısı akarken eklenir;
+ * {@link #addWatermark(byte[], String)} hazır HTML için kullanılır.
  */
 @Service
 public class WatermarkService {
@@ -26,8 +30,8 @@ public class WatermarkService {
     private static final Pattern HEAD_PATTERN = Pattern.compile("<head[^>]*>", Pattern.CASE_INSENSITIVE);
     private static final Pattern BODY_CLOSE_PATTERN = Pattern.compile("</body>", Pattern.CASE_INSENSITIVE);
 
-    private static final String WATERMARK_STYLE = """
-            <style>
+    static final String WATERMARK_CSS = """
+
                 .watermark {
                     position: absolute;
                     transform: rotate(-45deg);
@@ -38,7 +42,9 @@ public class WatermarkService {
                     pointer-events: none;
                     opacity: 0.3;
                 }
-            </style>""";
+            """;
+
+    private static final String WATERMARK_STYLE = "<style>" + WATERMARK_CSS + "</style>";
 
     /**
      * HTML içeriğine filigran ekler.
@@ -88,6 +94,17 @@ public class WatermarkService {
         return html.getBytes(StandardCharsets.UTF_8);
     }
 
+    /**
+     * XSLT çıktı olaylarına filigran ekleyen filtre oluşturur.
+     *
+     * @param next          Sonraki alıcı (serializer veya başka bir filtre)
+     * @param watermarkText Filigran metni
+     * @return Dönüşüm başına yeni filtre
+     */
+    Receiver newFilter(Receiver next, String watermarkText) {
+        return new WatermarkFilter(next, watermarkText, numberOfWatermarks);
+    }
+
     /**
      * Basit HTML escape — &amp;, &lt;, &gt;, &quot; karakterlerini entity'lere dönüştürür.
      */
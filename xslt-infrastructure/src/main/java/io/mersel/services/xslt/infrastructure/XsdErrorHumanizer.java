@@ -274,6 +274,36 @@ final class XsdErrorHumanizer {
         return null; // Bilinmeyen pattern
     }
 
+    // ── Gruplama anahtarı ────────────────────────────────────────────
+
+    /** Mesaj başındaki Xerces hata kodu: {@code cvc-complex-type.2.4.a: ...} */
+    private static final Pattern CVC_CODE = Pattern.compile("^(cvc-[\\w.-]+):");
+
+    /** Mesajdaki ilk element adı — {@code element 'X'} veya {@code Element 'X'}. */
+    private static final Pattern ELEMENT_NAME = Pattern.compile("(?i)\\belement '([^']+)'");
+
+    /**
+     * Ham Xerces mesajının hata kodu. Hata gruplamasında kural kimliği olarak kullanılır.
+     *
+     * @return {@code cvc-...} kodu; mesaj bir cvc hatası değilse {@code null}
+     */
+    static String errorCode(String rawMsg) {
+        if (rawMsg == null) return null;
+        Matcher m = CVC_CODE.matcher(rawMsg);
+        return m.find() ? m.group(1) : null;
+    }
+
+    /**
+     * Ham Xerces mesajında geçen ilk element adı, namespace'siz.
+     *
+     * @return element adı; mesaj element içermiyorsa (örn: {@code cvc-datatype-valid}) {@code null}
+     */
+    static String elementName(String rawMsg) {
+        if (rawMsg == null) return null;
+        Matcher m = ELEMENT_NAME.matcher(rawMsg);
+        return m.find() ? stripQuotesAndNs(m.group(1)) : null;
+    }
+
     // ── Yardımcı metotlar ────────────────────────────────────────────
 
     /**
@@ -0,0 +1,499 @@
+package io.mersel.services.xslt.infrastructure;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * XSLT şablonlarının derleme anında statik güvenlik analizi.
+ * <p>
+ * Şablon kaynağı bir kez taranır ve çıktısında {@code script}, {@code iframe} vb. tehlikeli
+ * elementlerin, {@code on*} attribute'larının ve {@code javascript:} URL'lerinin
+ * <b>üretilemeyeceği kanıtlanabiliyorsa</b> şablon güvenli sınıflandırılır. Kanıt yalnızca
+ * literal result element'lere dayanır:
+ * <ul>
+ *   <li>Dinamik isimli {@code xsl:element}/{@code xsl:attribute}, {@code disable-output-escaping},
+ *       karakter haritaları ve girdi düğümlerini kopyalayabilen komutlar ({@code xsl:copy},
+ *       {@code xsl:copy-of}, düğüm döndürebilen {@code xsl:sequence}) güvenli sayılmaz</li>
+ *   <li>Bilinmeyen XSLT komutları, dış şablonlar ({@code xsl:import}/{@code xsl:include})
+ *       ve extension element'ler güvenli sayılmaz</li>
+ *   <li>URL attribute'larındaki dinamik değerler yalnızca güvenli bir şema ile başlıyorsa kabul edilir</li>
+ *   <li>{@code script} içeriği tamamen literal olmalı ve {@link HtmlSanitizer} tarafından
+ *       izin verilmelidir; CSP hash'i burada bir kez hesaplanır</li>
+ *   <li>{@code script}/{@code style} içeriği {@code </} barındıramaz — HTML serializer bu metni
+ *       escape etmeden yazar, element erken kapanıp ardından canlı HTML gelebilir</li>
+ *   <li>Çıktı yöntemi {@code xsl:output} ile html veya xhtml olarak belirtilmelidir; xhtml'de
+ *       serializer'ın escape edeceği karakterleri içeren script CSP hash'iyle eşleşmeyeceği için kabul edilmez</li>
+ * </ul>
+ * Kanıtlanamayan her durum güvensiz kabul edilir — şablon çalışma zamanı sanitization'dan geçer.
+ * Thread-safe'tir; her analiz kendi StAX okuyucusunu kullanır.
+ */
+final class XsltSafetyAnalyzer {
+
+    private static final String XSL_NAMESPACE = "http://www.w3.org/1999/XSL/Transform";
+
+    /**
+     * Çıktıya yalnızca literal içerik, escape edilen metin veya analiz edilen alt içerik üreten XSLT öğeleri.
+     * Listede olmayan her öğe güvensiz sayılır.
+     */
+    private static final Set<String> ALLOWED_XSL_ELEMENTS = Set.of(
+            "stylesheet", "transform", "output", "template", "apply-templates", "call-template",
+            "with-param", "param", "variable", "value-of", "text", "if", "choose", "when", "otherwise",
+            "for-each", "for-each-group", "sort", "number", "decimal-format", "key", "function",
+            "strip-space", "preserve-space", "attribute", "element", "attribute-set", "namespace-alias",
+            "message", "fallback", "analyze-string", "matching-substring", "non-matching-substring",
+            "perform-sort", "sequence", "mode", "try", "catch", "iterate", "next-iteration", "break",
+            "on-completion", "where-populated", "on-empty", "on-non-empty", "document", "namespace",
+            "accumulator", "accumulator-rule", "global-context-item", "context-item", "assert",
+            "map", "map-entry"
+    );
+
+    /** Değeri script çalıştırabilecek URL attribute'ları (prefix dahil, küçük harf). */
+    private static final Set<String> URL_ATTRIBUTES = Set.of(
+            "href", "src", "action", "formaction", "xlink:href", "data", "poster", "background"
+    );
+
+    /** Dinamik değerle üretildiğinde tehlikeli elemente dönüşebilecek attribute'lar. */
+    private static final Set<String> SENSITIVE_ATTRIBUTES = Set.of("rel", "as", "http-equiv");
+
+    /** Dinamik URL değerinin başında bulunduğunda script URL'ine dönüşemeyeceği kesin önekler. */
+    private static final List<String> SAFE_URL_PREFIXES = List.of("http:", "https:", "data:image/", "#");
+
+    private static final Set<String> HTML_OUTPUT_METHODS = Set.of("html", "xhtml");
+
+    private final HtmlSanitizer htmlSanitizer;
+
+    XsltSafetyAnalyzer(HtmlSanitizer htmlSanitizer) {
+        this.htmlSanitizer = htmlSanitizer;
+    }
+
+    /**
+     * Derlenecek XSLT içeriğini sınıflandırır.
+     *
+     * @param xsltContent Derleyiciye verilen içerikle aynı byte dizisi
+     * @return sınıflandırma; okunamayan içerik güvensiz sayılır
+     */
+    Classification analyze(byte[] xsltContent) {
+        try {
+            return new Scan(htmlSanitizer).run(xsltContent);
+        } catch (XMLStreamException | RuntimeException e) {
+            return Classification.unproven("Şablon analiz edilemedi: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Statik analiz sonucu.
+     *
+     * @param proven       Çıktının tehlikeli içerik üretemeyeceği kanıtlandı mı
+     * @param scriptHashes Şablondaki literal scriptlerin CSP hash'leri (yalnızca kanıtlanmışsa)
+     * @param reason       Kanıtlanamama nedeni (kanıtlanmışsa {@code null})
+     */
+    record Classification(boolean proven, List<String> scriptHashes, String reason) {
+
+        /** Analiz edilmemiş şablonlar için — her zaman çalışma zamanı sanitization uygulanır. */
+        static final Classification UNANALYZED = unproven("Analiz edilmedi");
+
+        static Classification proven(List<String> scriptHashes) {
+            return new Classification(true, List.copyOf(scriptHashes), null);
+        }
+
+        static Classification unproven(String reason) {
+            return new Classification(false, List.of(), reason);
+        }
+    }
+
+    // ── Tarama ──────────────────────────────────────────────────────
+
+    /**
+     * Tek analizlik tarama durumu.
+     */
+    private static final class Scan {
+
+        private final HtmlSanitizer htmlSanitizer;
+        private final Set<String> scriptHashes = new LinkedHashSet<>();
+
+        /** Açık elementler (iç içe yapı ve {@code as} bildirimleri için). */
+        private final Deque<ElementFrame> stack = new ArrayDeque<>();
+
+        /** 0'dan büyükse üst seviye kullanıcı verisi içindeyiz (çıktıya yazılmaz). */
+        private int ignoredDepth;
+
+        /** Açık {@code script}/{@code style} elementinin içeriği; değilse {@code null}. */
+        private StringBuilder rawTextContent;
+        private boolean rawTextIsScript;
+        private int rawTextDepth;
+        private boolean inXslText;
+
+        private boolean preserveSpaceSeen;
+
+        /** Adsız {@code xsl:output} bildirimindeki çıktı yöntemi; bildirilmediyse {@code null}. */
+        private String outputMethod;
+
+        /** Literal scriptlerden biri xhtml serializer'ın escape edeceği karakter içeriyor mu. */
+        private boolean scriptHasXmlEscapedChars;
+
+        private Scan(HtmlSanitizer htmlSanitizer) {
+            this.htmlSanitizer = htmlSanitizer;
+        }
+
+        private Classification run(byte[] xsltContent) throws XMLStreamException {
+            XMLStreamReader reader = createSecureInputFactory()
+                    .createXMLStreamReader(new ByteArrayInputStream(xsltContent));
+            try {
+                while (reader.hasNext()) {
+                    String violation = switch (reader.next()) {
+                        case XMLStreamConstants.START_ELEMENT -> startElement(reader);
+                        case XMLStreamConstants.END_ELEMENT -> endElement();
+                        case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA,
+                             XMLStreamConstants.SPACE -> characters(reader.getText());
+                        case XMLStreamConstants.COMMENT, XMLStreamConstants.PROCESSING_INSTRUCTION ->
+                                rawTextContent != null ? "Script/style içinde yorum veya işlem talimatı" : null;
+                        case XMLStreamConstants.ENTITY_REFERENCE -> "Çözümlenmemiş entity referansı";
+                        default -> null;
+                    };
+                    if (violation != null) {
+                        return Classification.unproven(violation);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            if (outputMethod == null) {
+                return Classification.unproven("Çıktı yöntemi html/xhtml olarak belirtilmemiş");
+            }
+            if ("xhtml".equals(outputMethod) && scriptHasXmlEscapedChars) {
+                return Classification.unproven("xhtml çıktısında script içeriği escape ediliyor, CSP hash'i eşleşmez");
+            }
+            return Classification.proven(List.copyOf(scriptHashes));
+        }
+
+        private String startElement(XMLStreamReader reader) {
+            String namespace = reader.getNamespaceURI() == null ? "" : reader.getNamespaceURI();
+            String localName = reader.getLocalName();
+            boolean xsl = XSL_NAMESPACE.equals(namespace);
+            ElementFrame parent = stack.peek();
+            stack.push(new ElementFrame(xsl ? localName : null, declaredType(reader, xsl, parent)));
+
+            if (ignoredDepth > 0) {
+                ignoredDepth++;
+                return null;
+            }
+            if ("preserve".equals(reader.getAttributeValue(XMLConstants.XML_NS_URI, "space"))) {
+                preserveSpaceSeen = true;
+            }
+
+            if (rawTextContent != null) {
+                rawTextDepth++;
+                if (xsl && "text".equals(localName) && rawTextDepth == 1) {
+                    inXslText = true;
+                    return checkXslAttributes(reader);
+                }
+                return "<" + (rawTextIsScript ? "script" : "style") + "> içeriği dinamik üretiliyor";
+            }
+
+            if (xsl) {
+                return checkXslElement(reader, localName);
+            }
+            // xsl:stylesheet altındaki XSLT dışı üst seviye öğeler kullanıcı verisidir
+            if (parent != null && ("stylesheet".equals(parent.xslName) || "transform".equals(parent.xslName))) {
+                ignoredDepth = 1;
+                return null;
+            }
+            return checkLiteralElement(reader, localName);
+        }
+
+        private String endElement() {
+            stack.pop();
+            if (ignoredDepth > 0) {
+                ignoredDepth--;
+                return null;
+            }
+            if (rawTextContent == null) {
+                return null;
+            }
+            if (rawTextDepth > 0) {
+                rawTextDepth--;
+                inXslText = false;
+                return null;
+            }
+            String content = rawTextContent.toString();
+            rawTextContent = null;
+            if (content.contains("</")) {
+                return "<" + (rawTextIsScript ? "script" : "style") + "> içeriği kapanış etiketi (</) içeriyor";
+            }
+            if (!rawTextIsScript) {
+                return null;
+            }
+            if (content.isBlank()) {
+                return "Boş script";
+            }
+            if (preserveSpaceSeen) {
+                return "xml:space=\"preserve\" altında script içeriği kesin belirlenemiyor";
+            }
+            HtmlSanitizer.ScriptVerdict verdict = htmlSanitizer.verdictFor(content);
+            if (!verdict.allowed()) {
+                return "Script exfiltration API içeriyor: " + verdict.blockedReason();
+            }
+            scriptHashes.add(verdict.cspHash());
+            scriptHasXmlEscapedChars |= HtmlSanitizingFilter.containsXmlEscapedChar(content);
+            return null;
+        }
+
+        private String characters(String text) {
+            if (rawTextContent == null || ignoredDepth > 0) {
+                return null;
+            }
+            // Şablonlarda yalnızca boşluk içeren metin düğümleri xsl:text dışında atılır
+            if (inXslText || !isXmlWhitespace(text)) {
+                rawTextContent.append(text);
+            }
+            return null;
+        }
+
+        // ── Kurallar ────────────────────────────────────────────────
+
+        private String checkXslElement(XMLStreamReader reader, String localName) {
+            if (!ALLOWED_XSL_ELEMENTS.contains(localName)) {
+                return "xsl:" + localName + " kullanımı kanıtlanamıyor";
+            }
+            String violation = checkXslAttributes(reader);
+            if (violation != null) {
+                return violation;
+            }
+
+            switch (localName) {
+                case "stylesheet", "transform" -> {
+                    String extensions = reader.getAttributeValue(null, "extension-element-prefixes");
+                    if (extensions != null && !extensions.isBlank()) {
+                        return "Extension element kullanımı";
+                    }
+                }
+                case "output" -> {
+                    String method = reader.getAttributeValue(null, "method");
+                    if (method != null && !HTML_OUTPUT_METHODS.contains(method.strip())) {
+                        return "Desteklenmeyen çıktı yöntemi: " + method;
+                    }
+                    if (method != null && reader.getAttributeValue(null, "name") == null) {
+                        outputMethod = method.strip();
+                    }
+                }
+                case "element" -> {
+                    String name = reader.getAttributeValue(null, "name");
+                    if (name == null || name.contains("{")) {
+                        return "Dinamik isimli xsl:element";
+                    }
+                    String tag = localPart(name).toLowerCase(Locale.ROOT);
+                    if (HtmlSanitizer.DANGEROUS_TAGS.contains(tag)
+                            || Set.of("script", "style", "meta", "link").contains(tag)) {
+                        return "xsl:element ile <" + tag + "> üretiliyor";
+                    }
+                }
+                case "attribute" -> {
+                    String name = reader.getAttributeValue(null, "name");
+                    if (name == null || name.contains("{")) {
+                        return "Dinamik isimli xsl:attribute";
+                    }
+                    String attribute = name.strip().toLowerCase(Locale.ROOT);
+                    if (attribute.startsWith("on") || URL_ATTRIBUTES.contains(attribute)
+                            || SENSITIVE_ATTRIBUTES.contains(attribute)) {
+                        return "xsl:attribute ile dinamik " + attribute + " attribute'u üretiliyor";
+                    }
+                }
+                case "mode" -> {
+                    String onNoMatch = reader.getAttributeValue(null, "on-no-match");
+                    if (onNoMatch != null && onNoMatch.contains("-copy") && !onNoMatch.contains("text-only")) {
+                        return "Girdi düğümlerini kopyalayan xsl:mode";
+                    }
+                }
+                case "sequence" -> {
+                    // select ile dönen değer yalnızca atomik tipe dönüştürülüyorsa düğüm kopyalanamaz
+                    if (reader.getAttributeValue(null, "select") != null && !stack.peek().atomic) {
+                        return "Düğüm döndürebilen xsl:sequence";
+                    }
+                }
+                default -> {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        private static String checkXslAttributes(XMLStreamReader reader) {
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                String name = reader.getAttributeLocalName(i);
+                String namespace = reader.getAttributeNamespace(i);
+                if (namespace != null && !namespace.isEmpty()) {
+                    continue;
+                }
+                if (name.startsWith("_")) {
+                    return "Statik (shadow) attribute kullanımı: " + name;
+                }
+                if ("disable-output-escaping".equals(name) && !"no".equals(reader.getAttributeValue(i).strip())) {
+                    return "disable-output-escaping kullanımı";
+                }
+                if ("use-character-maps".equals(name)) {
+                    return "Karakter haritası kullanımı";
+                }
+                if ("expand-text".equals(name) && isYes(reader.getAttributeValue(i))) {
+                    return "Metin değer şablonları (expand-text) kullanımı";
+                }
+            }
+            return null;
+        }
+
+        private String checkLiteralElement(XMLStreamReader reader, String localName) {
+            String tag = localName.toLowerCase(Locale.ROOT);
+            if (HtmlSanitizer.DANGEROUS_TAGS.contains(tag)) {
+                return "<" + tag + "> üretiliyor";
+            }
+
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                String namespace = reader.getAttributeNamespace(i);
+                String prefix = reader.getAttributePrefix(i);
+                String local = reader.getAttributeLocalName(i);
+                String value = reader.getAttributeValue(i);
+
+                if (XSL_NAMESPACE.equals(namespace)) {
+                    if ("extension-element-prefixes".equals(local) && !value.isBlank()) {
+                        return "Extension element kullanımı";
+                    }
+                    if ("expand-text".equals(local) && isYes(value)) {
+                        return "Metin değer şablonları (expand-text) kullanımı";
+                    }
+                    continue;
+                }
+
+                String name = ((prefix == null || prefix.isEmpty()) ? local : prefix + ":" + local)
+                        .toLowerCase(Locale.ROOT);
+                if (name.startsWith("on")) {
+                    return "<" + tag + "> üzerinde " + name + " attribute'u";
+                }
+                if (URL_ATTRIBUTES.contains(name) && !isSafeUrlValue(value)) {
+                    return "<" + tag + "> " + name + " değeri script URL'i olabilir";
+                }
+                if (SENSITIVE_ATTRIBUTES.contains(name) && value.contains("{")) {
+                    return "<" + tag + "> " + name + " değeri dinamik";
+                }
+            }
+
+            switch (tag) {
+                case "meta" -> {
+                    if ("refresh".equalsIgnoreCase(attributeValue(reader, "http-equiv"))) {
+                        return "meta http-equiv=refresh üretiliyor";
+                    }
+                }
+                case "link" -> {
+                    String rel = attributeValue(reader, "rel");
+                    if (rel != null && Set.of("import", "preload", "modulepreload")
+                            .contains(rel.strip().toLowerCase(Locale.ROOT))) {
+                        return "link rel=" + rel + " üretiliyor";
+                    }
+                }
+                case "script" -> {
+                    if (attributeValue(reader, "src") != null) {
+                        return "Harici script kaynağı";
+                    }
+                    beginRawText(true);
+                }
+                case "style" -> beginRawText(false);
+                default -> {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        private void beginRawText(boolean script) {
+            rawTextContent = new StringBuilder();
+            rawTextIsScript = script;
+            rawTextDepth = 0;
+            inXslText = false;
+        }
+
+        /**
+         * Elementin {@code as} bildirimi atomik tip mi; bildirim yoksa üst elementinkini devralır.
+         * {@code xsl:sequence} yalnızca atomik tipli fonksiyon/değişken içinde güvenlidir.
+         */
+        private static boolean declaredType(XMLStreamReader reader, boolean xsl, ElementFrame parent) {
+            if (xsl) {
+                String as = reader.getAttributeValue(null, "as");
+                if (as != null) {
+                    return as.strip().startsWith("xs:");
+                }
+                if (Set.of("function", "template", "variable", "param", "with-param").contains(reader.getLocalName())) {
+                    return false;
+                }
+            }
+            return parent != null && parent.atomic;
+        }
+
+        private static boolean isSafeUrlValue(String value) {
+            int avt = value.indexOf('{');
+            String literal = value.stripLeading().toLowerCase(Locale.ROOT);
+            if (avt < 0) {
+                return !literal.startsWith("javascript:") && !literal.startsWith("vbscript:");
+            }
+            // Değerin başındaki literal önek script şemasını dışlamalı; {{ kaçışı da dinamik sayılır
+            String prefix = value.substring(0, avt).stripLeading().toLowerCase(Locale.ROOT);
+            return SAFE_URL_PREFIXES.stream().anyMatch(prefix::startsWith);
+        }
+
+        private static String attributeValue(XMLStreamReader reader, String name) {
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                String namespace = reader.getAttributeNamespace(i);
+                if ((namespace == null || namespace.isEmpty())
+                        && reader.getAttributeLocalName(i).equalsIgnoreCase(name)) {
+                    return reader.getAttributeValue(i);
+                }
+            }
+            return null;
+        }
+
+        private static boolean isYes(String value) {
+            return Set.of("yes", "true", "1").contains(value.strip());
+        }
+
+        private static String localPart(String qName) {
+            return qName.substring(qName.indexOf(':') + 1).strip();
+        }
+
+        private static boolean isXmlWhitespace(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static XMLInputFactory createSecureInputFactory() {
+            var factory = XMLInputFactory.newDefaultFactory();
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+            // Şablon metin düğümleri (CDATA dahil) tek parça okunur — boşluk atma kuralı düğüm bazlıdır
+            factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+            // XXE koruması
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            return factory;
+        }
+    }
+
+    /**
+     * Açık element bilgisi.
+     *
+     * @param xslName XSLT öğesiyse yerel adı, değilse {@code null}
+     * @param atomic  En yakın {@code as} bildirimi atomik tip mi
+     */
+    private record ElementFrame(String xslName, boolean atomic) {
+    }
+}
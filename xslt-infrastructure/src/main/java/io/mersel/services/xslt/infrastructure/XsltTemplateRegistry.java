@@ -0,0 +1,325 @@
+package io.mersel.services.xslt.infrastructure;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.mersel.services.xslt.application.interfaces.IXsltTemplateRegistry;
+import io.mersel.services.xslt.application.interfaces.Reloadable;
+import io.mersel.services.xslt.application.interfaces.ReloadResult;
+import io.mersel.services.xslt.application.models.ClientTemplate;
+import io.mersel.services.xslt.application.models.XsltTemplate;
+import io.mersel.services.xslt.infrastructure.diagnostics.XsltMetrics;
+import jakarta.annotation.PostConstruct;
+import net.sf.saxon.s9api.Processor;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XsltExecutable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Sunucu tarafı XSLT şablon kayıt defteri.
+ * <p>
+ * Şablonlar asset dizininde {@code custom_transformers/<id>.xslt} olarak saklanır ve
+ * {@link Reloadable} ile yeniden yüklemede önceden derlenir. İçeriği değişmeyen şablonlar
+ * yeniden derlenmez — versiyon içerik hash'inden türetildiği için derlenmiş hali
+ * {@code id@versiyon} anahtarıyla korunur.
+ * <p>
+ * Derlenmiş şablonlar bellek ağırlıklı bir cache'te tutulur ({@code xslt.cache.template-max-size-mb}).
+ * Tahliye edilen şablon silinmez; ilk kullanımda diskten okunup yeniden derlenir.
+ * <p>
+ * Derleme, kullanıcı XSLT'leri ile aynı SSRF kısıtlarıyla yapılır. Derleme sırasında şablonun
+ * tarayıcıda çalıştırılabilir (XSLT 1.0) olup olmadığı da tespit edilir; uygun şablonların kaynağı
+ * istemci tarafı render için derlenmiş halin yanında tutulur.
+ */
+@Service
+public class XsltTemplateRegistry implements IXsltTemplateRegistry, Reloadable {
+
+    private static final Logger log = LoggerFactory.getLogger(XsltTemplateRegistry.class);
+
+    /** Şablonların asset dizini altındaki konumu. */
+    static final String TEMPLATES_DIR = "custom_transformers";
+
+    private static final String TEMPLATE_EXTENSION = ".xslt";
+
+    /** Şablon kimliği kuralı: küçük harf, rakam, tire ve alt çizgi; 1-64 karakter */
+    private static final Pattern TEMPLATE_ID_PATTERN = Pattern.compile("^[a-z0-9_-]{1,64}$");
+
+    /**
+     * Derlenmiş executable'ın bellekteki boyutunun kaynak XSLT boyutuna oranı (kaba tahmin).
+     * Saxon derlenmiş şablon boyutunu raporlamadığı için ağırlık kaynaktan türetilir.
+     */
+    private static final int COMPILED_SIZE_FACTOR = 10;
+
+    private final AssetManager assetManager;
+    private final XsltMetrics metrics;
+    private final Processor processor;
+
+    /**
+     * Kayıtlı şablonlar — volatile ile atomic swap. Tahliyeden etkilenmez.
+     */
+    private volatile Map<String, XsltTemplate> templates = Map.of();
+
+    /**
+     * Derlenmiş şablon cache — Key: {@code id@versiyon}.
+     */
+    private Cache<String, CompiledTemplate> compiledTemplates;
+
+    @Value("${xslt.cache.template-max-size-mb:256}")
+    private int templateCacheMaxSizeMb = 256;
+
+    public XsltTemplateRegistry(AssetManager assetManager, XsltMetrics metrics) {
+        this.assetManager = assetManager;
+        this.metrics = metrics;
+        this.processor = new Processor(false);
+    }
+
+    @PostConstruct
+    void init() {
+        compiledTemplates = Caffeine.newBuilder()
+                .maximumWeight(templateCacheMaxSizeMb * 1024L * 1024L)
+                .weigher((String key, CompiledTemplate value) -> value.weight())
+                .recordStats()
+                .build();
+        metrics.registerCompiledXsltCacheMetrics("template", compiledTemplates);
+    }
+
+    // ── Reloadable ──────────────────────────────────────────────────
+
+    @Override
+    public String getName() {
+        return "XSLT Template Registry";
+    }
+
+    @Override
+    public synchronized ReloadResult reload() {
+        long startTime = System.currentTimeMillis();
+        var loaded = new TreeMap<String, XsltTemplate>();
+        var errors = new ArrayList<String>();
+        int compiledCount = 0;
+
+        for (String fileName : assetManager.listFiles(TEMPLATES_DIR)) {
+            if (!fileName.endsWith(TEMPLATE_EXTENSION)) {
+                continue;
+            }
+            String id = fileName.substring(0, fileName.length() - TEMPLATE_EXTENSION.length());
+            if (!TEMPLATE_ID_PATTERN.matcher(id).matches()) {
+                log.warn("  Geçersiz şablon dosya adı atlandı: {}", fileName);
+                continue;
+            }
+
+            try {
+                byte[] content = assetManager.readAssetBytes(assetPath(id));
+                var template = toTemplate(id, content, assetManager.getAssetLastModified(assetPath(id)));
+                // İçeriği değişmeyen şablon yeniden derlenmez
+                if (compiledTemplates.getIfPresent(cacheKey(template)) == null) {
+                    compiledTemplates.put(cacheKey(template), compile(content));
+                    compiledCount++;
+                }
+                loaded.put(id, template);
+            } catch (IOException | SaxonApiException e) {
+                String error = id + " şablonu yüklenemedi: " + e.getMessage();
+                errors.add(error);
+                log.warn("  {}", error);
+            }
+        }
+
+        // Atomic swap — silinen veya değişen şablonların eski derlemeleri bırakılır
+        templates = Collections.unmodifiableMap(loaded);
+        var liveKeys = loaded.values().stream().map(XsltTemplateRegistry::cacheKey).toList();
+        compiledTemplates.asMap().keySet().retainAll(liveKeys);
+
+        long elapsed = System.currentTimeMillis() - startTime;
+        log.debug("  {} şablon kayıtlı, {} yeniden derlendi", loaded.size(), compiledCount);
+
+        if (!errors.isEmpty() && !loaded.isEmpty()) {
+            return ReloadResult.partial(getName(), loaded.size(), elapsed, errors);
+        } else if (!errors.isEmpty()) {
+            return ReloadResult.failed(getName(), elapsed, String.join("; ", errors));
+        }
+        return ReloadResult.success(getName(), loaded.size(), elapsed);
+    }
+
+    // ── IXsltTemplateRegistry ───────────────────────────────────────
+
+    @Override
+    public List<XsltTemplate> getTemplates() {
+        return List.copyOf(templates.values());
+    }
+
+    @Override
+    public Optional<XsltTemplate> getTemplate(String id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(templates.get(id));
+    }
+
+    @Override
+    public synchronized XsltTemplate saveTemplate(String id, byte[] content) throws IOException {
+        if (id == null || !TEMPLATE_ID_PATTERN.matcher(id).matches()) {
+            throw new IllegalArgumentException(
+                    "Geçersiz şablon kimliği: " + id + ". Küçük harf, rakam, tire ve alt çizgi kullanılabilir (1-64 karakter)");
+        }
+        if (content == null || content.length == 0) {
+            throw new IllegalArgumentException("XSLT içeriği boş olamaz");
+        }
+
+        // Derlenemeyen şablon diske yazılmaz
+        CompiledTemplate compiled;
+        try {
+            compiled = compile(content);
+        } catch (SaxonApiException e) {
+            throw new IllegalArgumentException("XSLT şablonu derlenemedi: " + e.getMessage(), e);
+        }
+
+        assetManager.writeAsset(assetPath(id), content);
+        var template = toTemplate(id, content, System.currentTimeMillis());
+
+        XsltTemplate previous = templates.get(id);
+        if (previous != null) {
+            compiledTemplates.invalidate(cacheKey(previous));
+        }
+        compiledTemplates.put(cacheKey(template), compiled);
+
+        var updated = new TreeMap<>(templates);
+        updated.put(id, template);
+        templates = Collections.unmodifiableMap(updated);
+
+        log.info("XSLT şablonu kaydedildi: {} (versiyon {}, {} bytes)", id, template.version(), content.length);
+        return template;
+    }
+
+    @Override
+    public synchronized boolean deleteTemplate(String id) throws IOException {
+        XsltTemplate existing = getTemplate(id).orElse(null);
+        if (existing == null) {
+            return false;
+        }
+
+        assetManager.deleteAsset(assetPath(id));
+        compiledTemplates.invalidate(cacheKey(existing));
+
+        var updated = new TreeMap<>(templates);
+        updated.remove(id);
+        templates = Collections.unmodifiableMap(updated);
+
+        log.info("XSLT şablonu silindi: {}", id);
+        return true;
+    }
+
+    // ── Dönüşüm Desteği ─────────────────────────────────────────────
+
+    /**
+     * Şablonun derlenmiş halini döndürür.
+     * <p>
+     * Cache'ten tahliye edildiyse şablon diskten okunup yeniden derlenir; aynı şablon için
+     * eşzamanlı istekler tek derlemeyi bekler.
+     *
+     * @throws SaxonApiException Şablon okunamaz veya derlenemezse
+     */
+    XsltExecutable getExecutable(XsltTemplate template) throws SaxonApiException {
+        return getCompiled(template).executable();
+    }
+
+    /**
+     * Şablon tarayıcıda çalıştırılabiliyorsa istemci tarafı render için kaynağını döndürür.
+     * <p>
+     * Kayıtlı şablonlar statik güvenlik analizinden geçmediği için script hash'i taşımaz —
+     * istemci tarafında script'ler CSP ile engellenir.
+     *
+     * @return şablon XSLT 2.0/3.0 ise boş
+     * @throws SaxonApiException Şablon okunamaz veya derlenemezse
+     */
+    Optional<ClientTemplate> getClientTemplate(XsltTemplate template) throws SaxonApiException {
+        byte[] browserSource = getCompiled(template).browserSource();
+        return browserSource != null
+                ? Optional.of(new ClientTemplate(template.version(), browserSource, List.of()))
+                : Optional.empty();
+    }
+
+    /**
+     * İçerik versiyonu verilen hash'e eşit olan kayıtlı şablonu bulur.
+     */
+    Optional<XsltTemplate> findByVersion(String version) {
+        return templates.values().stream()
+                .filter(t -> t.version().equals(version))
+                .findFirst();
+    }
+
+    /**
+     * Derlenmiş şablonu cache'ten döndürür; tahliye edildiyse diskten okuyup yeniden derler.
+     */
+    private CompiledTemplate getCompiled(XsltTemplate template) throws SaxonApiException {
+        try {
+            return compiledTemplates.get(cacheKey(template), key -> {
+                try {
+                    log.debug("Tahliye edilmiş şablon yeniden derleniyor: {}", key);
+                    return compile(assetManager.readAssetBytes(assetPath(template.id())));
+                } catch (IOException e) {
+                    throw new CompilationFailure(new SaxonApiException(
+                            "Şablon okunamadı: " + template.id() + " — " + e.getMessage()));
+                } catch (SaxonApiException e) {
+                    throw new CompilationFailure(e);
+                }
+            });
+        } catch (CompilationFailure e) {
+            throw e.getCause();
+        }
+    }
+
+    // ── Yardımcılar ─────────────────────────────────────────────────
+
+    private CompiledTemplate compile(byte[] content) throws SaxonApiException {
+        var compiler = processor.newXsltCompiler();
+        // SSRF koruması — harici URI çözümlemesini engelle
+        compiler.setURIResolver(SaxonXsltTransformer.BLOCKING_URI_RESOLVER);
+        var executable = compiler.compile(new StreamSource(
+                new ByteArrayInputStream(SaxonXsltTransformer.normalizeXslt(content))));
+        // Tarayıcıya uygun şablonun kaynağı da tutulur — ağırlık kaynak kadar artar
+        byte[] browserSource = XsltVersionDetector.isBrowserCompatible(content) ? content : null;
+        long weight = (long) content.length * COMPILED_SIZE_FACTOR + (browserSource != null ? content.length : 0);
+        return new CompiledTemplate(executable, (int) Math.min(Integer.MAX_VALUE, weight), browserSource);
+    }
+
+    private static XsltTemplate toTemplate(String id, byte[] content, long lastModified) {
+        String version = SaxonXsltTransformer.sha256Hex(content).substring(0, 16);
+        return new XsltTemplate(id, version, content.length,
+                lastModified > 0 ? Instant.ofEpochMilli(lastModified) : Instant.now());
+    }
+
+    private static String assetPath(String id) {
+        return TEMPLATES_DIR + "/" + id + TEMPLATE_EXTENSION;
+    }
+
+    private static String cacheKey(XsltTemplate template) {
+        return template.id() + "@" + template.version();
+    }
+
+    /**
+     * Derlenmiş şablon ve cache ağırlığı (tahmini byte).
+     *
+     * @param browserSource Şablon tarayıcıda çalıştırılabiliyorsa ham kaynağı, değilse {@code null}
+     */
+    private record CompiledTemplate(XsltExecutable executable, int weight, byte[] browserSource) {
+    }
+
+    /**
+     * Cache yükleme fonksiyonundan derleme hatasını taşımak için kullanılır.
+     */
+    private static final class CompilationFailure extends RuntimeException {
+
+        private CompilationFailure(SaxonApiException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized SaxonApiException getCause() {
+            return (SaxonApiException) super.getCause();
+        }
+    }
+}
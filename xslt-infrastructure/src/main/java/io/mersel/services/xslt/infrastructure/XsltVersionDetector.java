@@ -0,0 +1,203 @@
+package io.mersel.services.xslt.infrastructure;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * XSLT şablonlarının tarayıcıda çalıştırılabilirliğinin derleme anında tespiti.
+ * <p>
+ * Tarayıcılar yalnızca XSLT 1.0 / XPath 1.0 destekler. Saxon {@code version="1.0"} bildiren
+ * şablonları geriye uyumlu modda XSLT 3.0 işlemcisiyle çalıştırdığı için bildirilen versiyon tek
+ * başına yeterli değildir; şablon bir kez taranır ve aşağıdakilerden biri varsa tarayıcıya uygun sayılmaz:
+ * <ul>
+ *   <li>Kök elementte {@code 1.0} dışında bir versiyon</li>
+ *   <li>XSLT 1.0'da olmayan komutlar veya attribute'lar ({@code xsl:function}, {@code as}, {@code use-when} vb.)</li>
+ *   <li>Dış kaynak gerektiren {@code xsl:import}/{@code xsl:include} ve {@code document()} —
+ *       tarayıcı bunları şablon URL'ine göre çözmeye çalışır</li>
+ *   <li>XPath 1.0 çekirdeğinde ve EXSLT {@code node-set} dışında kalan fonksiyon çağrıları</li>
+ * </ul>
+ * Şüpheli her durum uygun değil kabul edilir — şablon sunucu tarafında render edilir.
+ */
+final class XsltVersionDetector {
+
+    private static final String XSL_NAMESPACE = "http://www.w3.org/1999/XSL/Transform";
+
+    /** Tarayıcıların desteklediği tek EXSLT modülü — {@code node-set()} için. */
+    private static final String EXSLT_COMMON_NAMESPACE = "http://exslt.org/common";
+
+    /** XSLT 1.0 komutları ({@code xsl:import}/{@code xsl:include} hariç). */
+    private static final Set<String> XSLT1_ELEMENTS = Set.of(
+            "stylesheet", "transform", "strip-space", "preserve-space", "output", "key", "decimal-format",
+            "namespace-alias", "attribute-set", "variable", "param", "template", "apply-templates",
+            "apply-imports", "call-template", "with-param", "value-of", "text", "copy", "copy-of", "if",
+            "choose", "when", "otherwise", "for-each", "sort", "element", "attribute", "comment",
+            "processing-instruction", "number", "message", "fallback"
+    );
+
+    /** XSLT 2.0+ ile gelen attribute'lar — herhangi bir XSLT komutunda görülürse uygun değil. */
+    private static final Set<String> XSLT2_ATTRIBUTES = Set.of(
+            "as", "use-when", "xpath-default-namespace", "expand-text", "default-collation", "default-mode",
+            "default-validation", "input-type-annotations", "separator", "tunnel", "validation", "type",
+            "on-no-match", "collation"
+    );
+
+    /** Değeri doğrudan XPath ifadesi olan attribute'lar; diğerlerinde yalnızca {@code {...}} içerikleri taranır. */
+    private static final Set<String> EXPRESSION_ATTRIBUTES = Set.of(
+            "select", "test", "match", "use", "count", "from", "value"
+    );
+
+    /** XPath 1.0 ve XSLT 1.0 fonksiyonları ({@code document()} hariç), düğüm testleri ve operatörler. */
+    private static final Set<String> XPATH1_FUNCTIONS = Set.of(
+            "last", "position", "count", "id", "local-name", "namespace-uri", "name", "string", "concat",
+            "starts-with", "contains", "substring-before", "substring-after", "substring", "string-length",
+            "normalize-space", "translate", "boolean", "not", "true", "false", "lang", "number", "sum",
+            "floor", "ceiling", "round", "key", "format-number", "current", "unparsed-entity-uri",
+            "generate-id", "system-property", "element-available", "function-available",
+            "node", "text", "comment", "processing-instruction",
+            "and", "or", "div", "mod"
+    );
+
+    /** Fonksiyon çağrısı veya düğüm testi: {@code ad(} / {@code önek:ad(} */
+    private static final Pattern FUNCTION_CALL = Pattern.compile(
+            "([A-Za-z_][\\w.-]*(?::[A-Za-z_][\\w.-]*)?)\\s*\\(");
+
+    /** XPath string literal'leri — içlerindeki parantezler fonksiyon çağrısı değildir. */
+    private static final Pattern STRING_LITERAL = Pattern.compile("'[^']*'|\"[^\"]*\"");
+
+    private XsltVersionDetector() {
+    }
+
+    /**
+     * Şablonun tarayıcının yerleşik XSLT 1.0 işlemcisiyle çalıştırılıp çalıştırılamayacağını belirler.
+     *
+     * @param xsltContent Derleyiciye verilen içerikle aynı byte dizisi
+     * @return tarayıcıda çalıştırılabiliyorsa {@code true}; okunamayan içerik için {@code false}
+     */
+    static boolean isBrowserCompatible(byte[] xsltContent) {
+        XMLStreamReader reader = null;
+        try {
+            reader = createSecureInputFactory().createXMLStreamReader(new ByteArrayInputStream(xsltContent));
+            boolean root = true;
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                boolean xslElement = XSL_NAMESPACE.equals(reader.getNamespaceURI());
+                if (root && !"1.0".equals(declaredVersion(reader, xslElement))) {
+                    return false;
+                }
+                root = false;
+                if (xslElement && !XSLT1_ELEMENTS.contains(reader.getLocalName())) {
+                    return false;
+                }
+                if (!attributesCompatible(reader, xslElement)) {
+                    return false;
+                }
+            }
+            return !root;
+        } catch (XMLStreamException | RuntimeException e) {
+            return false;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                    // okuyucu zaten tükendi
+                }
+            }
+        }
+    }
+
+    /**
+     * Kök elementteki versiyon: {@code xsl:stylesheet/@version} veya basitleştirilmiş
+     * şablonlarda literal kök elementin {@code xsl:version} attribute'u.
+     */
+    private static String declaredVersion(XMLStreamReader reader, boolean xslElement) {
+        String version = xslElement
+                ? reader.getAttributeValue(null, "version")
+                : reader.getAttributeValue(XSL_NAMESPACE, "version");
+        return version != null ? version.trim() : null;
+    }
+
+    private static boolean attributesCompatible(XMLStreamReader reader, boolean xslElement) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String namespace = reader.getAttributeNamespace(i);
+            String name = reader.getAttributeLocalName(i);
+            String value = reader.getAttributeValue(i);
+            boolean xslAttribute = xslElement ? (namespace == null || namespace.isEmpty())
+                    : XSL_NAMESPACE.equals(namespace);
+
+            if (xslAttribute && XSLT2_ATTRIBUTES.contains(name)) {
+                return false;
+            }
+            String expressions = xslElement && xslAttribute && EXPRESSION_ATTRIBUTES.contains(name)
+                    ? value
+                    : attributeValueTemplates(value);
+            if (!functionsCompatible(reader, expressions)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Attribute değer şablonlarındaki {@code {...}} ifadelerini birleştirir; {@code {{}} kaçışları atlanır.
+     */
+    private static String attributeValueTemplates(String value) {
+        if (value.indexOf('{') < 0) {
+            return "";
+        }
+        var expressions = new StringBuilder();
+        int depth = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (depth == 0 && c == '{' && i + 1 < value.length() && value.charAt(i + 1) == '{') {
+                i++;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && depth > 0) {
+                depth--;
+                expressions.append(' ');
+            } else if (depth > 0) {
+                expressions.append(c);
+            }
+        }
+        return expressions.toString();
+    }
+
+    private static boolean functionsCompatible(XMLStreamReader reader, String expressions) {
+        if (expressions.isEmpty()) {
+            return true;
+        }
+        Matcher matcher = FUNCTION_CALL.matcher(STRING_LITERAL.matcher(expressions).replaceAll("''"));
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            int colon = name.indexOf(':');
+            if (colon < 0) {
+                if (!XPATH1_FUNCTIONS.contains(name)) {
+                    return false;
+                }
+            } else if (!"node-set".equals(name.substring(colon + 1))
+                    || !EXSLT_COMMON_NAMESPACE.equals(
+                            reader.getNamespaceContext().getNamespaceURI(name.substring(0, colon)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static XMLInputFactory createSecureInputFactory() {
+        var factory = XMLInputFactory.newDefaultFactory();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        // XXE koruması
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
@@ -2,12 +2,15 @@ package io.mersel.services.xslt.infrastructure.diagnostics;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
 
 /**
  * XSLT servisi özel metrikleri.
@@ -101,6 +104,85 @@ public class XsltMetrics {
         }
     }
 
+    /**
+     * Hata bütçesi aşıldığı için erken sonlandırılan doğrulama aşamasını kaydet.
+     *
+     * @param stage "schema" veya "schematron"
+     */
+    public void recordValidationTruncated(String stage) {
+        Counter.builder("xslt_validation_truncated_total")
+                .tag("type", stage)
+                .description("Hata bütçesi aşıldığı için erken sonlandırılan doğrulama aşaması sayısı")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Doğrulama modu nedeniyle çalıştırılmayan aşamayı kaydet.
+     *
+     * @param stage  "schema" veya "schematron"
+     * @param reason "MODE" veya "FATAL_SCHEMA_ERROR"
+     */
+    public void recordValidationStageSkipped(String stage, String reason) {
+        Counter.builder("xslt_validation_stage_skipped_total")
+                .tag("type", stage)
+                .tag("reason", reason)
+                .description("Doğrulama modu nedeniyle atlanan aşama sayısı")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Dönüşüm çıktısının sanitization modunu kaydet.
+     *
+     * @param skipped {@code true} ise şablon derleme anında güvenli kanıtlandı, filtre atlandı
+     */
+    public void recordTransformSanitization(boolean skipped) {
+        Counter.builder("xslt_transform_sanitization_total")
+                .tag("mode", skipped ? "skipped" : "filtered")
+                .description("Dönüşüm çıktısı sanitization modu dağılımı")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * CPU/süre bütçesini aştığı için kesilen kullanıcı XSLT dönüşümünü kaydet.
+     *
+     * @param transformType Dönüşüm tipi (INVOICE, ECHECK vb.)
+     * @param source        "custom" (yüklenen) veya "embedded" (gömülü)
+     * @param limit         Aşılan sınır: "cpu" veya "wall"
+     */
+    public void recordTransformBudgetExceeded(String transformType, String source, String limit) {
+        Counter.builder("xslt_transform_budget_exceeded_total")
+                .tag("transform_type", transformType)
+                .tag("source", source)
+                .tag("limit", limit)
+                .description("CPU/süre bütçesini aşıp varsayılana dönen XSLT dönüşüm sayısı")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Çıktı optimizasyonunun istek başına kazandırdığı byte miktarını kaydet.
+     */
+    public void recordOutputBytesSaved(long bytesSaved) {
+        registry.summary("xslt_transform_output_bytes_saved")
+                .record(bytesSaved);
+    }
+
+    /**
+     * İstemci tarafı render isteğinin sonucunu kaydet.
+     *
+     * @param mode {@code client} (XML + xml-stylesheet döndü) veya {@code server} (sunucu tarafına geri dönüldü)
+     */
+    public void recordTransformRenderMode(String mode) {
+        Counter.builder("xslt_transform_render_mode_total")
+                .tag("mode", mode)
+                .description("İstemci tarafı render isteklerinin render yeri dağılımı")
+                .register(registry)
+                .increment();
+    }
+
     /**
      * Transform isteği sayısını kaydet.
      */
@@ -124,6 +206,184 @@ public class XsltMetrics {
                 .register(registry);
     }
 
+    /**
+     * XSD doğrulayıcı havuzu metriklerini kaydeder (ödünçteki/boştaki doğrulayıcı, yeniden kullanım).
+     * Değerler her scrape'de tüm base ve override şema havuzlarından okunur.
+     *
+     * @param active  Şu an ödünçte olan doğrulayıcı sayısı
+     * @param idle    Havuzlarda boşta bekleyen doğrulayıcı sayısı
+     * @param created Havuz boş olduğu için oluşturulan doğrulayıcı sayısı
+     * @param reused  Havuzdan yeniden kullanılan doğrulayıcı sayısı
+     */
+    public void registerXsdValidatorPoolMetrics(IntSupplier active, IntSupplier idle,
+                                                LongSupplier created, LongSupplier reused) {
+        Gauge.builder("xslt_xsd_validator_pool_active", active, s -> (double) s.getAsInt())
+                .description("Ödünç alınmış XSD doğrulayıcı sayısı")
+                .register(registry);
+
+        Gauge.builder("xslt_xsd_validator_pool_idle", idle, s -> (double) s.getAsInt())
+                .description("Havuzda boşta bekleyen XSD doğrulayıcı sayısı")
+                .register(registry);
+
+        FunctionCounter.builder("xslt_xsd_validator_pool_requests_total", reused, s -> (double) s.getAsLong())
+                .tag("result", "reused")
+                .description("XSD doğrulayıcı havuzu erişim sayısı")
+                .register(registry);
+
+        FunctionCounter.builder("xslt_xsd_validator_pool_requests_total", created, s -> (double) s.getAsLong())
+                .tag("result", "created")
+                .description("XSD doğrulayıcı havuzu erişim sayısı")
+                .register(registry);
+    }
+
+    /**
+     * Derlenmiş XSLT cache metriklerini kaydeder (boyut, hit, miss, eviction).
+     * Değerler her scrape'de Caffeine istatistiklerinden okunur;
+     * cache {@code recordStats()} ile oluşturulmuş olmalıdır.
+     *
+     * @param cacheName Cache adı ("custom", "embedded" vb.)
+     * @param cache     Derlenmiş XSLT cache (Caffeine)
+     */
+    public void registerCompiledXsltCacheMetrics(String cacheName, Cache<?, ?> cache) {
+        Gauge.builder("xslt_compiled_xslt_cache_size", cache, c -> (double) c.estimatedSize())
+                .tag("cache", cacheName)
+                .description("Önbelleğe alınmış derlenmiş XSLT sayısı")
+                .register(registry);
+
+        FunctionCounter.builder("xslt_compiled_xslt_cache_requests_total", cache, c -> (double) c.stats().hitCount())
+                .tag("cache", cacheName)
+                .tag("result", "hit")
+                .description("Derlenmiş XSLT cache erişim sayısı")
+                .register(registry);
+
+        FunctionCounter.builder("xslt_compiled_xslt_cache_requests_total", cache, c -> (double) c.stats().missCount())
+                .tag("cache", cacheName)
+                .tag("result", "miss")
+                .description("Derlenmiş XSLT cache erişim sayısı")
+                .register(registry);
+
+        FunctionCounter.builder("xslt_compiled_xslt_cache_evictions_total", cache, c -> (double) c.stats().evictionCount())
+                .tag("cache", cacheName)
+                .description("Derlenmiş XSLT cache'den çıkarılan kayıt sayısı")
+                .register(registry);
+    }
+
+    /**
+     * Script karar cache metriklerini kaydeder (boyut, hit, miss, eviction).
+     * Cache {@code recordStats()} ile oluşturulmuş olmalıdır.
+     *
+     * @param cache HtmlSanitizer script karar cache'i (Caffeine)
+     */
+    public void registerScriptVerdictCacheMetrics(Cache<?, ?> cache) {
+        Gauge.builder("xslt_script_verdict_cache_size", cache, c -> (double) c.estimatedSize())
+                .description("Önbelleğe alınmış script kararı sayısı")
+                .register(registry);
+
+        FunctionCounter.builder("xslt_script_verdict_cache_requests_total", cache, c -> (double) c.stats().hitCount())
+                .tag("result", "hit")
+                .description("Script karar cache erişim sayısı")
+                .register(registry);
+
+        FunctionCounter.builder("xslt_script_verdict_cache_requests_total", cache, c -> (double) c.stats().missCount())
+                .tag("result", "miss")
+                .description("Script karar cache erişim sayısı")
+                .register(registry);
+
+        FunctionCounter.builder("xslt_script_verdict_cache_evictions_total", cache, c -> (double) c.stats().evictionCount())
+                .description("Script karar cache'den çıkarılan kayıt sayısı")
+                .register(registry);
+    }
+
+    /**
+     * Derlenemeyen XSLT (negatif) cache boyutu için gauge kaydeder.
+     *
+     * @param cache Derleme hatası cache (Caffeine)
+     */
+    public void registerFailedXsltCacheSizeGauge(Cache<?, ?> cache) {
+        Gauge.builder("xslt_failed_xslt_cache_size", cache, c -> (double) c.estimatedSize())
+                .description("Derleme hatası önbelleğe alınmış XSLT sayısı")
+                .register(registry);
+    }
+
+    /**
+     * Derlenemeyen XSLT cache isabetini kaydet — derleme atlanıp varsayılana dönüldü.
+     *
+     * @param cacheName "custom" veya "embedded"
+     */
+    public void recordFailedXsltCacheHit(String cacheName) {
+        Counter.builder("xslt_failed_xslt_cache_hits_total")
+                .tag("cache", cacheName)
+                .description("Derleme hatası cache'inden reddedilen XSLT sayısı")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Dönüşüm sonucu cache metriklerini kaydeder (kayıt sayısı, toplam boyut, hit, miss, eviction).
+     * Cache {@code recordStats()} ve {@code maximumWeight} ile oluşturulmuş olmalıdır.
+     *
+     * @param cache Dönüşüm sonucu cache (Caffeine)
+     */
+    public void registerTransformResultCacheMetrics(Cache<?, ?> cache) {
+        Gauge.builder("xslt_transform_result_cache_size", cache, c -> (double) c.estimatedSize())
+                .description("Önbelleğe alınmış dönüşüm sonucu sayısı")
+                .register(registry);
+
+        Gauge.builder("xslt_transform_result_cache_weight_bytes", cache,
+                        c -> (double) c.policy().eviction()
+                                .flatMap(e -> e.weightedSize().stream().boxed().findFirst())
+                                .orElse(0L))
+                .description("Dönüşüm sonucu cache'inin tahmini toplam boyutu (byte)")
+                .register(registry);
+
+        FunctionCounter.builder("xslt_transform_result_cache_requests_total", cache, c -> (double) c.stats().hitCount())
+                .tag("result", "hit")
+                .description("Dönüşüm sonucu cache erişim sayısı")
+                .register(registry);
+
+        FunctionCounter.builder("xslt_transform_result_cache_requests_total", cache, c -> (double) c.stats().missCount())
+                .tag("result", "miss")
+                .description("Dönüşüm sonucu cache erişim sayısı")
+                .register(registry);
+
+        FunctionCounter.builder("xslt_transform_result_cache_evictions_total", cache, c -> (double) c.stats().evictionCount())
+                .description("Dönüşüm sonucu cache'den çıkarılan kayıt sayısı")
+                .register(registry);
+    }
+
+    /**
+     * Doğrulama sonucu cache metriklerini kaydeder (kayıt sayısı, toplam boyut, hit, miss, eviction).
+     * Cache {@code recordStats()} ve {@code maximumWeight} ile oluşturulmuş olmalıdır.
+     *
+     * @param cache Doğrulama sonucu cache (Caffeine)
+     */
+    public void registerValidationResultCacheMetrics(Cache<?, ?> cache) {
+        Gauge.builder("xslt_validation_result_cache_size", cache, c -> (double) c.estimatedSize())
+                .description("Önbelleğe alınmış doğrulama sonucu sayısı")
+                .register(registry);
+
+        Gauge.builder("xslt_validation_result_cache_weight_bytes", cache,
+                        c -> (double) c.policy().eviction()
+                                .flatMap(e -> e.weightedSize().stream().boxed().findFirst())
+                                .orElse(0L))
+                .description("Doğrulama sonucu cache'inin tahmini toplam boyutu (byte)")
+                .register(registry);
+
+        FunctionCounter.builder("xslt_validation_result_cache_requests_total", cache, c -> (double) c.stats().hitCount())
+                .tag("result", "hit")
+                .description("Doğrulama sonucu cache erişim sayısı")
+                .register(registry);
+
+        FunctionCounter.builder("xslt_validation_result_cache_requests_total", cache, c -> (double) c.stats().missCount())
+                .tag("result", "miss")
+                .description("Doğrulama sonucu cache erişim sayısı")
+                .register(registry);
+
+        FunctionCounter.builder("xslt_validation_result_cache_evictions_total", cache, c -> (double) c.stats().evictionCount())
+                .description("Doğrulama sonucu cache'den çıkarılan kayıt sayısı")
+                .register(registry);
+    }
+
     /**
      * Doğrulama metrikleri kaydet.
      *
@@ -149,6 +409,20 @@ public class XsltMetrics {
                 .record(Duration.ofMillis(durationMs));
     }
 
+    /**
+     * Doğrulama isteğinin toplam süresini aşama çalışma şekline göre kaydet.
+     *
+     * @param mode       "parallel" (XSD ve Schematron eşzamanlı) veya "sequential"
+     * @param durationMs Tespit dahil toplam süre (milisaniye)
+     */
+    public void recordValidationRequest(String mode, long durationMs) {
+        Timer.builder("xslt_validation_request_duration")
+                .tag("mode", mode)
+                .description("Doğrulama isteği toplam süresi")
+                .register(registry)
+                .record(Duration.ofMillis(durationMs));
+    }
+
     /**
      * Dönüşüm metrikleri kaydet.
      *
@@ -177,6 +451,43 @@ public class XsltMetrics {
                 .record(outputBytes);
     }
 
+    /**
+     * Toplu dönüşüm metrikleri kaydet.
+     * Belge bazlı dönüşüm metrikleri ayrıca {@link #recordTransform(String, boolean, boolean, long, int)} ile kaydedilir.
+     *
+     * @param transformType Dönüşüm tipi
+     * @param succeeded     Başarılı belge sayısı
+     * @param failed        Başarısız belge sayısı
+     * @param durationMs    Toplam süre (milisaniye)
+     */
+    public void recordBatchTransform(String transformType, int succeeded, int failed, long durationMs) {
+        Counter.builder("xslt_batch_transforms_total")
+                .tag("transform_type", transformType)
+                .description("Toplam toplu dönüşüm isteği sayısı")
+                .register(registry)
+                .increment();
+
+        Counter.builder("xslt_batch_documents_total")
+                .tag("transform_type", transformType)
+                .tag("status", "success")
+                .description("Toplu dönüşümlerde işlenen belge sayısı")
+                .register(registry)
+                .increment(succeeded);
+
+        Counter.builder("xslt_batch_documents_total")
+                .tag("transform_type", transformType)
+                .tag("status", "failed")
+                .description("Toplu dönüşümlerde işlenen belge sayısı")
+                .register(registry)
+                .increment(failed);
+
+        Timer.builder("xslt_batch_transform_duration")
+                .tag("transform_type", transformType)
+                .description("Toplu dönüşüm süresi")
+                .register(registry)
+                .record(Duration.ofMillis(durationMs));
+    }
+
     /**
      * Schematron derleme metrikleri kaydet.
      */
@@ -278,4 +589,17 @@ public class XsltMetrics {
                 .register(registry)
                 .increment();
     }
+
+    /**
+     * Gömülü XSLT cache isabet oranı için gauge kaydeder.
+     * {@code xslt_embedded_xslt_total} ile birlikte okunarak aynı göndericinin
+     * şablonlarının ne kadar tekrar kullanıldığı izlenir.
+     *
+     * @param cache Gömülü XSLT cache (Caffeine, {@code recordStats()} ile)
+     */
+    public void registerEmbeddedXsltCacheHitRatioGauge(Cache<?, ?> cache) {
+        Gauge.builder("xslt_embedded_xslt_cache_hit_ratio", cache, c -> c.stats().hitRate())
+                .description("Gömülü XSLT derleme cache isabet oranı (0-1)")
+                .register(registry);
+    }
 }
@@ -94,6 +94,21 @@ class AssetRegistryTest {
         assertThat(results).isEmpty();
     }
 
+    @Test
+    @DisplayName("reload_nesli_ilerletir — generation advances after each reload, even on failure")
+    void reload_nesli_ilerletir() {
+        var failingReloadable = mock(Reloadable.class);
+        when(failingReloadable.getName()).thenReturn("Failing");
+        when(failingReloadable.reload()).thenThrow(new RuntimeException("Test error"));
+
+        var registry = new AssetRegistry(List.of(failingReloadable), xsltMetrics);
+        long before = registry.generation();
+        registry.reload();
+        registry.reload();
+
+        assertThat(registry.generation()).isEqualTo(before + 2);
+    }
+
     @Test
     @DisplayName("concurrent_reload_atlanir — only one reload runs at a time")
     void concurrent_reload_atlanir() throws Exception {
@@ -0,0 +1,195 @@
+package io.mersel.services.xslt.infrastructure;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.mersel.services.xslt.application.enums.TransformType;
+import io.mersel.services.xslt.application.interfaces.IBatchTransformer;
+import io.mersel.services.xslt.application.interfaces.IBatchTransformer.DocumentSource;
+import io.mersel.services.xslt.application.interfaces.IXsltTransformer;
+import io.mersel.services.xslt.application.interfaces.IXsltTransformer.TransformException;
+import io.mersel.services.xslt.application.models.BatchDocument;
+import io.mersel.services.xslt.application.models.BatchEntryResult;
+import io.mersel.services.xslt.application.models.TransformRequest;
+import io.mersel.services.xslt.application.models.TransformResult;
+import io.mersel.services.xslt.infrastructure.diagnostics.XsltMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * BatchTransformService birim testleri.
+ */
+@DisplayName("BatchTransformService")
+class BatchTransformServiceTest {
+
+    private IXsltTransformer xsltTransformer;
+    private SimpleMeterRegistry registry;
+    private BatchTransformService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        xsltTransformer = mock(IXsltTransformer.class);
+        registry = new SimpleMeterRegistry();
+        service = new BatchTransformService(xsltTransformer, new XsltMetrics(registry));
+        setField("parallelism", 2);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Her belge için HTML ve girdi sırasıyla manifest yazılmalı, başarısız belge toplu işlemi durdurmamalı")
+    void shouldWriteHtmlEntriesAndManifestInInputOrder() throws Exception {
+        when(xsltTransformer.transform(any())).thenAnswer(invocation -> {
+            TransformRequest request = invocation.getArgument(0);
+            String xml = new String(request.getDocument(), StandardCharsets.UTF_8);
+            if (xml.contains("bozuk")) {
+                throw new TransformException("XML belgesi dönüştürülemedi");
+            }
+            return TransformResult.builder()
+                    .htmlContent(("<html>" + xml + "</html>").getBytes(StandardCharsets.UTF_8))
+                    .defaultXslUsed(true)
+                    .build();
+        });
+
+        var output = new ByteArrayOutputStream();
+        var summary = service.transform(template(), source(
+                BatchDocument.of("faturalar/a.xml", "<a/>".getBytes(StandardCharsets.UTF_8)),
+                BatchDocument.of("b.xml", "<bozuk/>".getBytes(StandardCharsets.UTF_8)),
+                BatchDocument.rejected("c.xml", "Belge boyutu çok büyük"),
+                BatchDocument.of("diger/a.xml", "<d/>".getBytes(StandardCharsets.UTF_8))
+        ), output);
+
+        assertThat(summary.total()).isEqualTo(4);
+        assertThat(summary.succeeded()).isEqualTo(2);
+        assertThat(summary.failed()).isEqualTo(2);
+        assertThat(summary.truncated()).isFalse();
+        assertThat(summary.entries()).extracting(BatchEntryResult::name)
+                .containsExactly("faturalar/a.xml", "b.xml", "c.xml", "diger/a.xml");
+        assertThat(summary.entries().get(2).error()).isEqualTo("Belge boyutu çok büyük");
+
+        Map<String, String> zipEntries = readZip(output.toByteArray());
+        assertThat(zipEntries.keySet())
+                .containsExactly("a.html", "a-2.html", IBatchTransformer.MANIFEST_NAME);
+        assertThat(zipEntries.get("a-2.html")).isEqualTo("<html><d/></html>");
+
+        JsonNode manifest = new ObjectMapper().readTree(zipEntries.get(IBatchTransformer.MANIFEST_NAME));
+        assertThat(manifest.get("failed").asInt()).isEqualTo(2);
+        assertThat(manifest.get("entries").get(1).get("status").asText()).isEqualTo("FAILED");
+        assertThat(manifest.get("entries").get(0).get("output").asText()).isEqualTo("a.html");
+
+        assertThat(registry.get("xslt_batch_documents_total").tag("status", "success").counter().count())
+                .isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("max-entries aşıldığında girdi kesilmeli ve manifest'te bildirilmeli")
+    void shouldTruncateAtMaxEntries() throws Exception {
+        setField("maxEntries", 2);
+        when(xsltTransformer.transform(any())).thenReturn(TransformResult.builder()
+                .htmlContent("<html/>".getBytes(StandardCharsets.UTF_8))
+                .build());
+
+        var summary = service.transform(template(), source(
+                BatchDocument.of("1.xml", "<x/>".getBytes(StandardCharsets.UTF_8)),
+                BatchDocument.of("2.xml", "<x/>".getBytes(StandardCharsets.UTF_8)),
+                BatchDocument.of("3.xml", "<x/>".getBytes(StandardCharsets.UTF_8))
+        ), new ByteArrayOutputStream());
+
+        assertThat(summary.total()).isEqualTo(2);
+        assertThat(summary.truncated()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Bellek bütçesi dolduğunda yeni belge okunmadan önce bekleyen sonuçlar yazılmalı")
+    void shouldBoundInFlightBytes() throws Exception {
+        var rendered = new AtomicInteger();
+        when(xsltTransformer.transform(any())).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            rendered.incrementAndGet();
+            return TransformResult.builder()
+                    .htmlContent("<html/>".getBytes(StandardCharsets.UTF_8))
+                    .build();
+        });
+        var field = BatchTransformService.class.getDeclaredField("maxInFlightBytes");
+        field.setAccessible(true);
+        field.setLong(service, 10);
+
+        var queue = new ArrayDeque<BatchDocument>();
+        for (int i = 0; i < 8; i++) {
+            queue.add(BatchDocument.of(i + ".xml", "<x>12</x>".getBytes(StandardCharsets.UTF_8)));
+        }
+        var read = new AtomicInteger();
+        var maxUnrendered = new AtomicInteger();
+        DocumentSource source = () -> {
+            maxUnrendered.accumulateAndGet(read.get() - rendered.get(), Math::max);
+            read.incrementAndGet();
+            return queue.poll();
+        };
+
+        var summary = service.transform(template(), source, new ByteArrayOutputStream());
+
+        // Pencere 4 belgedir; 9 byte'lık belgeler 10 byte bütçede en fazla bir okunmuş belge bekletir
+        assertThat(summary.succeeded()).isEqualTo(8);
+        assertThat(maxUnrendered.get()).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Çıktı adları dizin bileşenlerinden arındırılmalı ve tekil olmalı")
+    void shouldProduceSafeUniqueOutputNames() {
+        var used = new HashSet<String>();
+
+        assertThat(BatchTransformService.uniqueOutputName("../../etc/fatura.xml", used)).isEqualTo("fatura.html");
+        assertThat(BatchTransformService.uniqueOutputName("x\\fatura.xml", used)).isEqualTo("fatura-2.html");
+        assertThat(BatchTransformService.uniqueOutputName("", used)).isEqualTo("document.html");
+    }
+
+    private static TransformRequest template() {
+        var template = new TransformRequest();
+        template.setTransformType(TransformType.INVOICE);
+        return template;
+    }
+
+    private static DocumentSource source(BatchDocument... documents) {
+        var queue = new ArrayDeque<>(List.of(documents));
+        return queue::poll;
+    }
+
+    private static Map<String, String> readZip(byte[] zip) throws IOException {
+        var entries = new LinkedHashMap<String, String>();
+        try (var in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            for (var entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                entries.put(entry.getName(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+
+    private void setField(String name, int value) throws Exception {
+        var field = BatchTransformService.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.setInt(service, value);
+    }
+}
@@ -2,14 +2,21 @@ package io.mersel.services.xslt.infrastructure;
 
 import io.mersel.services.xslt.application.enums.DocumentType;
 import io.mersel.services.xslt.application.interfaces.DocumentTypeDetectionException;
+import io.mersel.services.xslt.infrastructure.diagnostics.XsltMetrics;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
 
 /**
  * DocumentTypeDetector birim testleri.
@@ -309,6 +316,94 @@ class DocumentTypeDetectorTest {
         }
     }
 
+    // ── Akıştan Tespit ───────────────────────────────────────────────
+
+    @Nested
+    @DisplayName("Akıştan Tespit")
+    class StreamDetection {
+
+        @Test
+        @DisplayName("UBL-TR root okunduktan sonra akışın geri kalanı okunmamalı")
+        void detect_stream_stopsAfterRoot() throws Exception {
+            byte[] head = xml("""
+                    <Invoice xmlns="urn:oasis:names:specification:ubl:schema:xsd:Invoice-2">
+                        <ID>INV-001</ID>
+                    """);
+            // Geri kalanı okunursa hata veren akış — tespit root'ta durmalı
+            InputStream failing = new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    throw new IOException("akışın geri kalanı okunmamalı");
+                }
+            };
+
+            try (var in = new SequenceInputStream(new ByteArrayInputStream(head), failing)) {
+                assertThat(detector.detect(in)).isEqualTo(DocumentType.INVOICE);
+            }
+        }
+    }
+
+    // ── Ağaç Tabanlı Tespit ──────────────────────────────────────────
+
+    @Nested
+    @DisplayName("Parse Edilmiş Belge")
+    class ParsedDocuments {
+
+        private final SaxonDocumentParser parser = new SaxonDocumentParser(new SchematronRuntimeCompiler(mock(XsltMetrics.class)));
+
+        @Test
+        @DisplayName("Ağaçtan tespit ham içerikle aynı sonucu vermeli")
+        void detect_parsedDocument_matchesByteDetection() throws Exception {
+            Map<String, DocumentType> cases = Map.of(
+                    """
+                    <Invoice xmlns="urn:oasis:names:specification:ubl:schema:xsd:Invoice-2"/>
+                    """, DocumentType.INVOICE,
+                    """
+                    <edefter:defter xmlns:edefter="http://www.edefter.gov.tr"
+                                    xmlns:xbrli="http://www.xbrl.org/2003/instance">
+                        <xbrli:xbrl><xbrli:context id="other"/><xbrli:context id="ledger_context"/></xbrli:xbrl>
+                    </edefter:defter>
+                    """, DocumentType.EDEFTER_KEBIR,
+                    """
+                    <edefter:berat xmlns:edefter="http://www.edefter.gov.tr"
+                                   xmlns:xbrli="http://www.xbrl.org/2003/instance">
+                        <xbrli:context id="assets_context"/>
+                    </edefter:berat>
+                    """, DocumentType.ENVANTER_BERAT,
+                    """
+                    <envanter:defter xmlns:envanter="http://www.edefter.gov.tr"/>
+                    """, DocumentType.ENVANTER_DEFTER
+            );
+
+            for (var entry : cases.entrySet()) {
+                byte[] content = xml(entry.getKey());
+                var document = parser.parse(content, "belge.xml").orElseThrow();
+
+                assertThat(detector.detect(document)).as(entry.getKey()).isEqualTo(entry.getValue());
+                assertThat(detector.detect(content)).as(entry.getKey()).isEqualTo(entry.getValue());
+            }
+        }
+
+        @Test
+        @DisplayName("Tanınmayan root → aynı DocumentTypeDetectionException mesajı")
+        void detect_parsedDocument_unknownRoot_throwsException() {
+            var document = parser.parse(xml("<foo:bar xmlns:foo=\"http://example.com/unknown\"/>"), null)
+                    .orElseThrow();
+
+            assertThatThrownBy(() -> detector.detect(document))
+                    .isInstanceOf(DocumentTypeDetectionException.class)
+                    .hasMessageContaining("namespace=http://example.com/unknown, prefix=foo, localName=bar");
+        }
+
+        @Test
+        @DisplayName("İyi biçimli olmayan veya DOCTYPE içeren belge ağaca alınmamalı")
+        void parse_malformedOrDoctype_returnsEmpty() {
+            assertThat(parser.parse(xml("<Invoice><ID></Invoice>"), null)).isEmpty();
+            assertThat(parser.parse(xml("<!DOCTYPE Invoice [<!ENTITY x \"y\">]><Invoice>&x;</Invoice>"), null))
+                    .isEmpty();
+        }
+    }
+
     // ── Helper ──────────────────────────────────────────────────────
 
     private static byte[] xml(String content) {
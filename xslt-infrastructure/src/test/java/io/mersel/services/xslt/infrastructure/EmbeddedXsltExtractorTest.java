@@ -1,9 +1,13 @@
 package io.mersel.services.xslt.infrastructure;
 
+import net.sf.saxon.s9api.Processor;
+import net.sf.saxon.s9api.SaxonApiException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
@@ -124,4 +128,107 @@ class EmbeddedXsltExtractorTest {
         byte[] result = extractor.extract("this is not xml".getBytes());
         assertThat(result).isNull();
     }
+
+    @Test
+    @DisplayName("Büyük, satırlara bölünmüş Base64 XSLT eksiksiz decode edilmeli ve ilk XSLT ekinde okuma durmalı")
+    void shouldDecodeLargeMimeEncodedXsltAndStopAtFirstMatch() {
+        var xslt = new StringBuilder("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">""");
+        for (int i = 0; i < 2_000; i++) {
+            xslt.append("<!-- şablon satırı ").append(i).append(" — ğüşıöç -->\n");
+        }
+        xslt.append("<xsl:template match=\"/\"><html/></xsl:template></xsl:stylesheet>");
+        byte[] xsltBytes = xslt.toString().getBytes(StandardCharsets.UTF_8);
+
+        String base64Pdf = Base64.getEncoder().encodeToString(new byte[64 * 1024]);
+        String base64Xslt = Base64.getMimeEncoder().encodeToString(xsltBytes);
+
+        // XSLT ekinden sonraki içerik bozuk — akış XSLT bulunduğunda durduğu için okunmamalı
+        String ublXml = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <Invoice xmlns="urn:oasis:names:specification:ubl:schema:xsd:Invoice-2"
+                         xmlns:cac="urn:oasis:names:specification:ubl:schema:xsd:CommonAggregateComponents-2"
+                         xmlns:cbc="urn:oasis:names:specification:ubl:schema:xsd:CommonBasicComponents-2">
+                    <cac:AdditionalDocumentReference>
+                        <cac:Attachment>
+                            <cbc:EmbeddedDocumentBinaryObject filename="document.pdf">%s</cbc:EmbeddedDocumentBinaryObject>
+                        </cac:Attachment>
+                    </cac:AdditionalDocumentReference>
+                    <cac:AdditionalDocumentReference>
+                        <cac:Attachment>
+                            <cbc:EmbeddedDocumentBinaryObject filename="general.xslt">
+                %s
+                            </cbc:EmbeddedDocumentBinaryObject>
+                        </cac:Attachment>
+                    </cac:AdditionalDocumentReference>
+                    <cac:InvoiceLine><broken""".formatted(base64Pdf, base64Xslt);
+
+        byte[] result = extractor.extract(ublXml.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(result).isEqualTo(xsltBytes);
+    }
+
+    @Test
+    @DisplayName("DOCTYPE içeren belgede null dönmeli (XXE koruması)")
+    void shouldRejectDoctypeDeclarations() {
+        // Gömülü XSLT'nin tüm içeriği DTD'de tanımlı bir entity'den gelir — DTD işlenip entity
+        // genişletilirse geçerli bir .xsl eki çıkarılır ve test başarısız olur
+        String xsltContent = "<xsl:stylesheet version=\"2.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\"/>";
+        String base64Xslt = Base64.getEncoder().encodeToString(xsltContent.getBytes(StandardCharsets.UTF_8));
+
+        String ublXml = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <!DOCTYPE Invoice [<!ENTITY xslt "%s">]>
+                <Invoice xmlns="urn:oasis:names:specification:ubl:schema:xsd:Invoice-2"
+                         xmlns:cac="urn:oasis:names:specification:ubl:schema:xsd:CommonAggregateComponents-2"
+                         xmlns:cbc="urn:oasis:names:specification:ubl:schema:xsd:CommonBasicComponents-2">
+                    <cac:AdditionalDocumentReference>
+                        <cac:Attachment>
+                            <cbc:EmbeddedDocumentBinaryObject filename="a.xsl"
+                                encodingCode="Base64">&xslt;</cbc:EmbeddedDocumentBinaryObject>
+                        </cac:Attachment>
+                    </cac:AdditionalDocumentReference>
+                </Invoice>""".formatted(base64Xslt);
+
+        byte[] result = extractor.extract(ublXml.getBytes(StandardCharsets.UTF_8));
+        assertThat(result).isNull();
+    }
+
+    @Test
+    @DisplayName("Saxon ağacı üzerinden derlenmiş XPath ile gömülü XSLT çıkarmalı")
+    void shouldExtractEmbeddedXsltFromSaxonTree() throws SaxonApiException {
+        String xsltContent = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:template match="/"><html><body>Test</body></html></xsl:template>
+                </xsl:stylesheet>""";
+        String base64Xslt = Base64.getEncoder().encodeToString(xsltContent.getBytes(StandardCharsets.UTF_8));
+
+        String ublXml = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <Invoice xmlns="urn:oasis:names:specification:ubl:schema:xsd:Invoice-2"
+                         xmlns:cac="urn:oasis:names:specification:ubl:schema:xsd:CommonAggregateComponents-2"
+                         xmlns:cbc="urn:oasis:names:specification:ubl:schema:xsd:CommonBasicComponents-2">
+                    <cac:AdditionalDocumentReference>
+                        <cac:Attachment>
+                            <cbc:EmbeddedDocumentBinaryObject filename="document.pdf">ZmFrZQ==</cbc:EmbeddedDocumentBinaryObject>
+                        </cac:Attachment>
+                    </cac:AdditionalDocumentReference>
+                    <cac:AdditionalDocumentReference>
+                        <cac:Attachment>
+                            <cbc:EmbeddedDocumentBinaryObject filename="general.XSL">%s</cbc:EmbeddedDocumentBinaryObject>
+                        </cac:Attachment>
+                    </cac:AdditionalDocumentReference>
+                </Invoice>""".formatted(base64Xslt);
+
+        var processor = new Processor(false);
+        var locator = extractor.compileLocator(processor);
+        var document = processor.newDocumentBuilder()
+                .build(new StreamSource(new ByteArrayInputStream(ublXml.getBytes(StandardCharsets.UTF_8))));
+
+        byte[] result = extractor.extract(document, locator);
+
+        assertThat(result).isEqualTo(xsltContent.getBytes(StandardCharsets.UTF_8));
+    }
 }
@@ -0,0 +1,74 @@
+package io.mersel.services.xslt.infrastructure;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * HtmlOutputOptimizer birim testleri.
+ */
+@DisplayName("HtmlOutputOptimizer")
+class HtmlOutputOptimizerTest {
+
+    private final HtmlOutputOptimizer optimizer = new HtmlOutputOptimizer(16);
+
+    @Test
+    @DisplayName("Metin boşlukları sıkıştırılmalı; pre, script, tag ve çok byte'lı karakterler korunmalı")
+    void shouldCollapseInsignificantWhitespace() {
+        String html = """
+                <html>
+                    <head>
+                        <script>var  a  =  1;</script>
+                    </head>
+                    <body>
+                        <p   title="a   b">Şirket    Adı</p>
+                        <pre>  satır 1
+                  satır 2</pre>
+                    </body>
+                </html>""";
+
+        String optimized = new String(optimizer.optimize(html.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+
+        assertThat(optimized).isEqualTo("""
+                <html>
+                <head>
+                <script>var  a  =  1;</script>
+                </head>
+                <body>
+                <p   title="a   b">Şirket Adı</p>
+                <pre>  satır 1
+                  satır 2</pre>
+                </body>
+                </html>""");
+    }
+
+    @Test
+    @DisplayName("Tekrarlanan data: görselleri tek CSS kuralına taşınmalı, tekil olanlar dokunulmadan kalmalı")
+    void shouldDeduplicateRepeatedDataUris() {
+        String logo = "data:image/png;base64,iVBORw0KGgoAAAANSUhEUgAAAAEAAAAB" + "A".repeat(256);
+        String single = "data:image/gif;base64,R0lGODlhAQABAIAAAP///wAAACw=";
+        String html = "<html><head><title>F</title></head><body>"
+                + "<img class=\"logo\" src=\"" + logo + "\" alt=\"Logo\">"
+                + "<img src=\"" + single + "\">"
+                + "<img src=\"" + logo + "\"></body></html>";
+
+        String optimized = new String(optimizer.optimize(html.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+
+        assertThat(optimized).isEqualTo("<html><head><title>F</title>"
+                + "<style>img[data-xslt-img=\"0\"]{content:url(\"" + logo + "\")}</style></head><body>"
+                + "<img class=\"logo\" data-xslt-img=\"0\" alt=\"Logo\">"
+                + "<img src=\"" + single + "\">"
+                + "<img data-xslt-img=\"0\"></body></html>");
+    }
+
+    @Test
+    @DisplayName("head yoksa veya görsel tekrar etmiyorsa içerik aynı kalmalı")
+    void shouldKeepContentWithoutGain() {
+        byte[] html = "<div><img src=\"data:image/png;base64,AAAAAAAAAAAAAAAAAAAA\"></div>".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(optimizer.optimize(html)).isSameAs(html);
+    }
+}
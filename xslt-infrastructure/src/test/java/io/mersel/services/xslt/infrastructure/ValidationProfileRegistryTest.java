@@ -1,5 +1,6 @@
 package io.mersel.services.xslt.infrastructure;
 
+import io.mersel.services.xslt.application.enums.ValidationMode;
 import io.mersel.services.xslt.application.interfaces.ISchemaValidator;
 import io.mersel.services.xslt.application.interfaces.ISchematronValidator;
 import io.mersel.services.xslt.application.interfaces.ReloadResult;
@@ -960,4 +961,60 @@ class ValidationProfileRegistryTest {
         assertThat(profileRules).hasSize(1);
         assertThat(profileRules.get(0).id()).isEqualTo("PROFILE-001");
     }
+
+    // ── max-errors ──────────────────────────────────────────────────────
+
+    @Test
+    @DisplayName("33. max-errors miras alinir, gecersiz deger yok sayilir")
+    void max_errors_miras_ve_gecersiz_deger() throws IOException {
+        writeProfiles("""
+            profiles:
+              parent:
+                max-errors: 200
+              child:
+                extends: parent
+              override:
+                extends: parent
+                max-errors: 50
+              invalid:
+                max-errors: -1
+            """);
+
+        ValidationProfileRegistry registry = createAndReload();
+
+        assertThat(registry.getProfile("parent")).map(ValidationProfile::maxErrors).contains(200);
+        assertThat(registry.getProfile("child")).map(ValidationProfile::maxErrors).contains(200);
+        assertThat(registry.getProfile("override")).map(ValidationProfile::maxErrors).contains(50);
+        assertThat(registry.getProfile("invalid")).isPresent();
+        assertThat(registry.getProfile("invalid").get().maxErrors()).isNull();
+    }
+
+    // ── mode ────────────────────────────────────────────────────────────
+
+    @Test
+    @DisplayName("34. mode kebab-case okunur, miras alinir, gecersiz deger yok sayilir")
+    void mode_miras_ve_gecersiz_deger() throws IOException {
+        writeProfiles("""
+            profiles:
+              parent:
+                mode: skip-schematron-on-fatal
+              child:
+                extends: parent
+              override:
+                extends: parent
+                mode: XSD_ONLY
+              invalid:
+                mode: hizli
+            """);
+
+        ValidationProfileRegistry registry = createAndReload();
+
+        assertThat(registry.getProfile("parent")).map(ValidationProfile::mode)
+                .contains(ValidationMode.SKIP_SCHEMATRON_ON_FATAL);
+        assertThat(registry.getProfile("child")).map(ValidationProfile::mode)
+                .contains(ValidationMode.SKIP_SCHEMATRON_ON_FATAL);
+        assertThat(registry.getProfile("override")).map(ValidationProfile::mode).contains(ValidationMode.XSD_ONLY);
+        assertThat(registry.getProfile("invalid")).isPresent();
+        assertThat(registry.getProfile("invalid").get().mode()).isNull();
+    }
 }
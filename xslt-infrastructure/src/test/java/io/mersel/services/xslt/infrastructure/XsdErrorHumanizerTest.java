@@ -233,4 +233,31 @@ class XsdErrorHumanizerTest {
             assertThat(XsdErrorHumanizer.stripNamespaces(null)).isNull();
         }
     }
+
+    @Nested
+    @DisplayName("errorCode / elementName — Gruplama anahtarı")
+    class GroupingKeyTests {
+
+        @Test
+        @DisplayName("cvc kodu ve namespace'siz element adı çıkarılır")
+        void code_and_element_extracted() {
+            String raw = "cvc-complex-type.2.4.a: Invalid content was found starting with element "
+                    + "'{\"urn:oasis:names:specification:ubl:schema:xsd:CommonBasicComponents-2\":Note}'. "
+                    + "One of '{\"urn:oasis:names:specification:ubl:schema:xsd:CommonBasicComponents-2\":ID}' is expected.";
+
+            assertThat(XsdErrorHumanizer.errorCode(raw)).isEqualTo("cvc-complex-type.2.4.a");
+            assertThat(XsdErrorHumanizer.elementName(raw)).isEqualTo("Note");
+        }
+
+        @Test
+        @DisplayName("Element içermeyen ve cvc olmayan mesajlar null döner")
+        void missing_parts_return_null() {
+            String datatype = "cvc-datatype-valid.1.2.1: 'abc' is not a valid value for 'decimal'.";
+            String fatal = "Content is not allowed in prolog.";
+
+            assertThat(XsdErrorHumanizer.errorCode(datatype)).isEqualTo("cvc-datatype-valid.1.2.1");
+            assertThat(XsdErrorHumanizer.elementName(datatype)).isNull();
+            assertThat(XsdErrorHumanizer.errorCode(fatal)).isNull();
+        }
+    }
 }
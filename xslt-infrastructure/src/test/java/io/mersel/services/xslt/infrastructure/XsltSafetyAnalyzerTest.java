@@ -0,0 +1,121 @@
+package io.mersel.services.xslt.infrastructure;
+
+import io.mersel.services.xslt.infrastructure.diagnostics.XsltMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * XsltSafetyAnalyzer birim testleri.
+ */
+@DisplayName("XsltSafetyAnalyzer")
+class XsltSafetyAnalyzerTest {
+
+    private XsltSafetyAnalyzer analyzer;
+
+    @BeforeEach
+    void setUp() {
+        var sanitizer = new HtmlSanitizer(new XsltMetrics(new SimpleMeterRegistry()));
+        sanitizer.init();
+        analyzer = new XsltSafetyAnalyzer(sanitizer);
+    }
+
+    @Test
+    @DisplayName("Yalnızca literal çıktı üreten şablon güvenli sayılmalı, script hash'leri önceden hesaplanmalı")
+    void shouldProveLiteralStylesheetSafe() {
+        var result = analyzer.analyze(stylesheet("""
+                <xsl:function name="f:upper" as="xs:string">
+                    <xsl:param name="value"/>
+                    <xsl:sequence select="upper-case($value)"/>
+                </xsl:function>
+                <xsl:template match="/">
+                    <html>
+                        <head><script>var qr = new QRCode('x');</script><style>body { margin: 0 }</style></head>
+                        <body>
+                            <a href="https://gib.gov.tr/{/root/id}">Link</a>
+                            <img src="data:image/png;base64,{/root/logo}"/>
+                            <p class="{/root/type}"><xsl:value-of select="f:upper(/root/name)"/></p>
+                        </body>
+                    </html>
+                </xsl:template>"""));
+
+        assertThat(result.proven()).as(result.reason()).isTrue();
+        assertThat(result.scriptHashes())
+                .containsExactly(HtmlSanitizer.computeSha256Base64("var qr = new QRCode('x');"));
+    }
+
+    @Test
+    @DisplayName("Tehlikeli çıktı üretebilecek şablon güvenli sayılmamalı")
+    void shouldNotProveUnsafeStylesheets() {
+        var bodies = List.of(
+                "<xsl:template match='/'><xsl:copy-of select='.'/></xsl:template>",
+                "<xsl:template match='/'><xsl:element name='{/root/tag}'/></xsl:template>",
+                "<xsl:template match='/'><p><xsl:attribute name='{/root/attr}'>x</xsl:attribute></p></xsl:template>",
+                "<xsl:template match='/'><a><xsl:attribute name='href' select='/root/url'/></a></xsl:template>",
+                "<xsl:template match='/'><xsl:value-of select='/root' disable-output-escaping='yes'/></xsl:template>",
+                "<xsl:template match='/'><a href='{/root/url}'>x</a></xsl:template>",
+                "<xsl:template match='/'><div onclick='x()'/></xsl:template>",
+                "<xsl:template match='/'><iframe src='https://example.com'/></xsl:template>",
+                "<xsl:template match='/'><script><xsl:value-of select='/root'/></script></xsl:template>",
+                "<xsl:template match='/'><script>fetch('https://evil.example');</script></xsl:template>",
+                "<xsl:template match='/'><script src='https://cdn.example/x.js'/></xsl:template>",
+                "<xsl:template match='/'><style>&lt;/style&gt;&lt;img src=x onerror=steal()&gt;</style></xsl:template>",
+                "<xsl:template match='/'><script>var x = 1;&lt;/SCRIPT&gt;&lt;img src=x onerror=steal()&gt;</script></xsl:template>",
+                "<xsl:template match='/'><xsl:sequence select='/root/*'/></xsl:template>",
+                "<xsl:import href='base.xslt'/>"
+        );
+
+        for (String body : bodies) {
+            var result = analyzer.analyze(stylesheet(body));
+
+            assertThat(result.proven()).as(body).isFalse();
+            assertThat(result.reason()).as(body).isNotBlank();
+            assertThat(result.scriptHashes()).as(body).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("Çıktı yöntemi html/xhtml olarak belirtilmeyen şablon güvenli sayılmamalı")
+    void shouldProveOnlyHtmlOutputMethods() {
+        String body = "<xsl:template match='/'><html><body><p>Fatura</p></body></html></xsl:template>";
+
+        assertThat(analyzer.analyze(stylesheet("<xsl:output method='html'/>", body)).proven()).isTrue();
+        assertThat(analyzer.analyze(stylesheet("<xsl:output method='xhtml'/>", body)).proven()).isTrue();
+        assertThat(analyzer.analyze(stylesheet("<xsl:output method='xml'/>", body)).proven()).isFalse();
+        assertThat(analyzer.analyze(stylesheet("<xsl:output method='text'/>", body)).proven()).isFalse();
+        assertThat(analyzer.analyze(stylesheet("", body)).proven()).isFalse();
+    }
+
+    @Test
+    @DisplayName("xhtml çıktısında escape edilecek karakter içeren script güvenli sayılmamalı")
+    void shouldNotProveXhtmlScriptRequiringEscaping() {
+        String escaped = "<xsl:template match='/'><html><head><script>var ok = 1 &lt; 2;</script></head></html></xsl:template>";
+
+        assertThat(analyzer.analyze(stylesheet("<xsl:output method='xhtml'/>", escaped)).proven()).isFalse();
+        assertThat(analyzer.analyze(stylesheet("<xsl:output method='html'/>", escaped)).proven()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Okunamayan içerik güvenli sayılmamalı")
+    void shouldNotProveMalformedContent() {
+        assertThat(analyzer.analyze("THIS IS NOT VALID XSLT".getBytes(StandardCharsets.UTF_8)).proven()).isFalse();
+    }
+
+    private static byte[] stylesheet(String body) {
+        return stylesheet("<xsl:output method=\"html\"/>", body);
+    }
+
+    private static byte[] stylesheet(String output, String body) {
+        return ("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
+                        xmlns:xs="http://www.w3.org/2001/XMLSchema" xmlns:f="urn:local">
+                """ + output + "\n" + body + "\n</xsl:stylesheet>").getBytes(StandardCharsets.UTF_8);
+    }
+}
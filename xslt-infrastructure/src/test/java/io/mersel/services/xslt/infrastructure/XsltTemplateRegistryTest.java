@@ -0,0 +1,113 @@
+package io.mersel.services.xslt.infrastructure;
+
+import io.mersel.services.xslt.application.interfaces.ReloadResult;
+import io.mersel.services.xslt.infrastructure.diagnostics.XsltMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * XsltTemplateRegistry birim testleri.
+ */
+@DisplayName("XsltTemplateRegistry")
+class XsltTemplateRegistryTest {
+
+    private static final String XSLT = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                <xsl:template match="/"><html><body><xsl:value-of select="/root/name"/></body></html></xsl:template>
+            </xsl:stylesheet>""";
+
+    @TempDir
+    Path assetDir;
+
+    private AssetManager assetManager;
+    private XsltTemplateRegistry templateRegistry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        assetManager = new AssetManager();
+        var pathField = AssetManager.class.getDeclaredField("externalPath");
+        pathField.setAccessible(true);
+        pathField.set(assetManager, assetDir.toString());
+        assetManager.init();
+        templateRegistry = newRegistry();
+    }
+
+    @Test
+    @DisplayName("Kaydedilen şablon asset dizinine yazılmalı ve içerikten türetilen versiyonla listelenmeli")
+    void shouldSaveTemplateWithContentVersion() throws Exception {
+        var saved = templateRegistry.saveTemplate("acme-fatura", XSLT.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(saved.id()).isEqualTo("acme-fatura");
+        assertThat(saved.version()).hasSize(16);
+        assertThat(saved.sizeBytes()).isEqualTo(XSLT.getBytes(StandardCharsets.UTF_8).length);
+        assertThat(Files.exists(assetDir.resolve("custom_transformers/acme-fatura.xslt"))).isTrue();
+        assertThat(templateRegistry.getTemplates()).containsExactly(saved);
+
+        // Aynı içerik aynı versiyonu, farklı içerik yeni versiyonu üretir
+        var same = templateRegistry.saveTemplate("acme-fatura", XSLT.getBytes(StandardCharsets.UTF_8));
+        var changed = templateRegistry.saveTemplate("acme-fatura",
+                XSLT.replace("body", "div").getBytes(StandardCharsets.UTF_8));
+        assertThat(same.version()).isEqualTo(saved.version());
+        assertThat(changed.version()).isNotEqualTo(saved.version());
+    }
+
+    @Test
+    @DisplayName("Derlenemeyen şablon veya geçersiz kimlik reddedilmeli, diske yazılmamalı")
+    void shouldRejectInvalidTemplate() {
+        assertThatThrownBy(() -> templateRegistry.saveTemplate("bozuk", "<not-xslt/>".getBytes(StandardCharsets.UTF_8)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("derlenemedi");
+        assertThatThrownBy(() -> templateRegistry.saveTemplate("../etc", XSLT.getBytes(StandardCharsets.UTF_8)))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(Files.exists(assetDir.resolve("custom_transformers/bozuk.xslt"))).isFalse();
+        assertThat(templateRegistry.getTemplates()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Reload diskteki şablonları önceden derlemeli, içeriği değişmeyeni yeniden derlememeli")
+    void shouldCompileEagerlyOnReloadAndKeepUnchanged() throws Exception {
+        var saved = templateRegistry.saveTemplate("acme-fatura", XSLT.getBytes(StandardCharsets.UTF_8));
+        var executable = templateRegistry.getExecutable(saved);
+
+        ReloadResult result = templateRegistry.reload();
+
+        assertThat(result.status()).isEqualTo(ReloadResult.Status.OK);
+        assertThat(result.loadedCount()).isEqualTo(1);
+        assertThat(templateRegistry.getExecutable(saved)).isSameAs(executable);
+
+        // Yeni örnek (yeniden başlatma) diskteki şablonu bulmalı
+        var restarted = newRegistry();
+        restarted.reload();
+        assertThat(restarted.getTemplate("acme-fatura")).hasValueSatisfying(t ->
+                assertThat(t.version()).isEqualTo(saved.version()));
+    }
+
+    @Test
+    @DisplayName("Silinen şablon listeden ve diskten kalkmalı")
+    void shouldDeleteTemplate() throws Exception {
+        templateRegistry.saveTemplate("acme-fatura", XSLT.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(templateRegistry.deleteTemplate("acme-fatura")).isTrue();
+        assertThat(templateRegistry.deleteTemplate("acme-fatura")).isFalse();
+        assertThat(templateRegistry.getTemplate("acme-fatura")).isEmpty();
+        assertThat(Files.exists(assetDir.resolve("custom_transformers/acme-fatura.xslt"))).isFalse();
+    }
+
+    private XsltTemplateRegistry newRegistry() {
+        var registry = new XsltTemplateRegistry(assetManager, new XsltMetrics(new SimpleMeterRegistry()));
+        registry.init();
+        return registry;
+    }
+}
@@ -0,0 +1,60 @@
+package io.mersel.services.xslt.infrastructure;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * XsltVersionDetector birim testleri.
+ */
+@DisplayName("XsltVersionDetector")
+class XsltVersionDetectorTest {
+
+    @Test
+    @DisplayName("Yalnızca XPath 1.0 ve EXSLT node-set kullanan XSLT 1.0 şablon tarayıcıya uygun sayılmalı")
+    void shouldDetectBrowserCompatibleStylesheet() {
+        assertThat(XsltVersionDetector.isBrowserCompatible(stylesheet("1.0", """
+                <xsl:template match="/">
+                    <html>
+                        <p class="{concat(/root/type, 'x(')}">
+                            <xsl:value-of select="format-number(sum(//amount), '#.##0,00', 'tr')"/>
+                        </p>
+                        <xsl:if test="count(//line) > 0 and (/root/a or /root/b)">
+                            <xsl:for-each select="exsl:node-set($lines)/child::node()"><xsl:copy-of select="."/></xsl:for-each>
+                        </xsl:if>
+                    </html>
+                </xsl:template>"""))).isTrue();
+    }
+
+    @Test
+    @DisplayName("XSLT 2.0/3.0 özellikleri veya dış kaynak kullanan şablon tarayıcıya uygun sayılmamalı")
+    void shouldRejectNonBrowserStylesheets() {
+        var cases = List.of(
+                stylesheet("2.0", "<xsl:template match='/'/>"),
+                stylesheet("1.0", "<xsl:template match='/'><xsl:value-of select='upper-case(/root)'/></xsl:template>"),
+                stylesheet("1.0", "<xsl:function name='f:x'/>"),
+                stylesheet("1.0", "<xsl:variable name='x' as='xs:string' select='1'/>"),
+                stylesheet("1.0", "<xsl:import href='base.xsl'/>"),
+                stylesheet("1.0", "<xsl:template match='/'><a href='{document(\"x.xml\")}'/></xsl:template>"),
+                stylesheet("1.0", "<xsl:template match='/'><xsl:value-of select='ms:node-set(/root)'/></xsl:template>"),
+                "THIS IS NOT VALID XSLT".getBytes(StandardCharsets.UTF_8)
+        );
+
+        for (byte[] content : cases) {
+            assertThat(XsltVersionDetector.isBrowserCompatible(content))
+                    .as(new String(content, StandardCharsets.UTF_8)).isFalse();
+        }
+    }
+
+    private static byte[] stylesheet(String version, String body) {
+        return ("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <xsl:stylesheet version="%s" xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
+                        xmlns:exsl="http://exslt.org/common" xmlns:ms="urn:schemas-microsoft-com:xslt">
+                """.formatted(version) + body + "\n</xsl:stylesheet>").getBytes(StandardCharsets.UTF_8);
+    }
+}
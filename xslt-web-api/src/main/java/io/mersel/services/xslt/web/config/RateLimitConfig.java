@@ -46,7 +46,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  * <ul>
  *   <li>{@code XSLT_RATE_LIMIT_ENABLED} — rate limiting açık/kapalı (varsayılan: true)</li>
  *   <li>{@code XSLT_RATE_LIMIT_VALIDATE} — /v1/validate için dakikada max istek (varsayılan: 30)</li>
- *   <li>{@code XSLT_RATE_LIMIT_TRANSFORM} — /v1/transform için dakikada max istek (varsayılan: 20)</li>
+ *   <li>{@code XSLT_RATE_LIMIT_TRANSFORM} — /v1/transform, /v1/transform/stream ve /v1/transform/batch için dakikada max istek (varsayılan: 20)</li>
  *   <li>{@code XSLT_RATE_LIMIT_BEHIND_PROXY} — reverse proxy arkasında mı? (varsayılan: false)</li>
  * </ul>
  */
@@ -71,7 +71,7 @@ public class RateLimitConfig {
     FilterRegistrationBean<RateLimitFilter> rateLimitFilter(XsltMetrics xsltMetrics) {
         var filter = new RateLimitFilter(enabled, validateLimit, transformLimit, behindProxy, xsltMetrics);
         var bean = new FilterRegistrationBean<>(filter);
-        bean.addUrlPatterns("/v1/validate", "/v1/transform");
+        bean.addUrlPatterns("/v1/validate", "/v1/transform", "/v1/transform/stream", "/v1/transform/batch");
         bean.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
 
         if (enabled) {
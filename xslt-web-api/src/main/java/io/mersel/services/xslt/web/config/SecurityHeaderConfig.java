@@ -63,8 +63,8 @@ public class SecurityHeaderConfig {
      *   <li>X-Content-Type-Options: nosniff</li>
      * </ul>
      * <p>
-     * Transform endpoint ({@code POST /v1/transform}) kendi dinamik CSP'sini
-     * {@code TransformController} içinde oluşturur — bu filter CSP'yi atlar.
+     * Transform endpoint'leri ({@code POST /v1/transform}, {@code POST /v1/transform/stream})
+     * kendi dinamik CSP'sini {@code TransformController} içinde oluşturur — bu filter CSP'yi atlar.
      */
     static class SecurityHeaderFilter extends OncePerRequestFilter {
 
@@ -95,7 +95,8 @@ public class SecurityHeaderConfig {
 
         private boolean isTransformEndpoint(HttpServletRequest request) {
             String uri = request.getRequestURI();
-            return uri != null && uri.equals("/v1/transform") && "POST".equalsIgnoreCase(request.getMethod());
+            return uri != null && (uri.equals("/v1/transform") || uri.equals("/v1/transform/stream"))
+                    && "POST".equalsIgnoreCase(request.getMethod());
         }
     }
 }
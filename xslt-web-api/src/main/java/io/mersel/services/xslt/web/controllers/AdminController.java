@@ -3,9 +3,11 @@ package io.mersel.services.xslt.web.controllers;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.mersel.services.xslt.application.enums.TransformType;
+import io.mersel.services.xslt.application.enums.ValidationMode;
 import io.mersel.services.xslt.application.interfaces.IAssetVersioningService;
 import io.mersel.services.xslt.application.interfaces.IGibPackageSyncService;
 import io.mersel.services.xslt.application.interfaces.IValidationProfileService;
+import io.mersel.services.xslt.application.interfaces.IXsltTemplateRegistry;
 import io.mersel.services.xslt.application.interfaces.ReloadResult;
 import io.mersel.services.xslt.application.models.*;
 import io.mersel.services.xslt.application.models.ValidationProfile.SuppressionRule;
@@ -46,6 +48,9 @@ public class AdminController {
     /** Suppression pattern için maksimum uzunluk (ReDoS koruması) */
     private static final int MAX_SUPPRESSION_PATTERN_LENGTH = 500;
 
+    /** Kayıtlı XSLT şablonu için maksimum boyut — dönüşüm isteğindeki transformer limitiyle aynı */
+    private static final long MAX_TEMPLATE_SIZE_BYTES = 10L * 1024 * 1024;
+
     /** TransformType → default_transformers dizinindeki dosya adı eşlemesi */
     private static final Map<TransformType, String> TRANSFORM_XSL_MAP = Map.of(
             TransformType.INVOICE, "default_transformers/eInvoice_Base.xslt",
@@ -71,6 +76,7 @@ public class AdminController {
     private final IValidationProfileService profileService;
     private final IGibPackageSyncService gibSyncService;
     private final IAssetVersioningService versioningService;
+    private final IXsltTemplateRegistry templateRegistry;
     private final io.mersel.services.xslt.infrastructure.GibAutoSyncStartupListener autoSyncListener;
 
     public AdminController(AssetRegistry assetRegistry,
@@ -78,12 +84,14 @@ public class AdminController {
                            IValidationProfileService profileService,
                            IGibPackageSyncService gibSyncService,
                            IAssetVersioningService versioningService,
+                           IXsltTemplateRegistry templateRegistry,
                            io.mersel.services.xslt.infrastructure.GibAutoSyncStartupListener autoSyncListener) {
         this.assetRegistry = assetRegistry;
         this.assetManager = assetManager;
         this.profileService = profileService;
         this.gibSyncService = gibSyncService;
         this.versioningService = versioningService;
+        this.templateRegistry = templateRegistry;
         this.autoSyncListener = autoSyncListener;
     }
 
@@ -159,7 +167,8 @@ public class AdminController {
 
             profileList.put(entry.getKey(), new ProfileDetailDto(
                     profile.description(), profile.extendsProfile(),
-                    profile.suppressions().size(), suppressions, xsdOverrides, schematronRules));
+                    profile.suppressions().size(), suppressions, xsdOverrides, schematronRules, profile.maxErrors(),
+                    profile.mode() != null ? profile.mode().value() : null));
         }
 
         return ResponseEntity.ok(new ProfileListResponse(profiles.size(), profileList));
@@ -197,6 +206,20 @@ public class AdminController {
                 }
             }
 
+            if (request.maxErrors() != null && request.maxErrors() <= 0) {
+                return ResponseEntity.badRequest().body(new ErrorResponse(
+                        "Geçersiz hata bütçesi",
+                        "maxErrors pozitif bir sayı olmalıdır."));
+            }
+
+            ValidationMode mode;
+            try {
+                mode = ValidationMode.parse(request.mode());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(new ErrorResponse(
+                        "Geçersiz doğrulama modu", e.getMessage()));
+            }
+
             List<SuppressionRule> suppressions = List.of();
             if (request.suppressions() != null) {
                 suppressions = request.suppressions().stream()
@@ -239,7 +262,9 @@ public class AdminController {
                     request.extendsProfile(),
                     suppressions,
                     xsdOverrides,
-                    schematronRules
+                    schematronRules,
+                    request.maxErrors(),
+                    mode
             );
 
             profileService.saveProfile(profile);
@@ -297,7 +322,9 @@ public class AdminController {
             String extendsProfile,
             List<SuppressionRuleRequest> suppressions,
             Map<String, List<XsdOverrideRequest>> xsdOverrides,
-            Map<String, List<SchematronRuleRequest>> schematronRules
+            Map<String, List<SchematronRuleRequest>> schematronRules,
+            Integer maxErrors,
+            String mode
     ) {
     }
 
@@ -671,6 +698,110 @@ public class AdminController {
         }
     }
 
+    // ── Kayıtlı XSLT Şablonları ────────────────────────────────────
+
+    /**
+     * Sunucuda kayıtlı özel XSLT şablonlarını listeler.
+     */
+    @GetMapping("/templates")
+    @Operation(
+            summary = "Kayıtlı XSLT şablonlarını listele",
+            description = "Dönüşüm isteklerinde 'templateId' ile kullanılabilen kayıtlı şablonları, "
+                    + "versiyonlarını ve boyutlarını döndürür."
+    )
+    public ResponseEntity<TemplateListResponse> listTemplates() {
+        var templates = templateRegistry.getTemplates().stream()
+                .map(AdminController::toTemplateDto)
+                .toList();
+        return ResponseEntity.ok(new TemplateListResponse(templates.size(), templates));
+    }
+
+    /**
+     * Yeni XSLT şablonu kaydeder. Kimlik verilmezse sunucu üretir.
+     */
+    @PostMapping(value = "/templates", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(
+            summary = "XSLT şablonu kaydet",
+            description = "XSLT şablonunu bir kez yükler ve kimlik + versiyon döndürür. "
+                    + "Şablon kaydedilmeden önce derlenir; dönüşüm istekleri 'templateId' ile referans verir. "
+                    + "'id' verilmezse sunucu tarafından üretilir."
+    )
+    public ResponseEntity<?> createTemplate(
+            @RequestParam(value = "id", required = false) String id,
+            @RequestParam("file") MultipartFile file) {
+        String templateId = id == null || id.isBlank() ? UUID.randomUUID().toString() : id;
+        if (templateRegistry.getTemplate(templateId).isPresent()) {
+            return ResponseEntity.status(409).body(
+                    new ErrorResponse("Şablon zaten mevcut", "Güncellemek için PUT /v1/admin/templates/" + templateId));
+        }
+        return saveTemplate(templateId, file, true);
+    }
+
+    /**
+     * XSLT şablonunu oluşturur veya yeni versiyonla günceller.
+     */
+    @PutMapping(value = "/templates/{id}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(
+            summary = "XSLT şablonunu güncelle",
+            description = "Belirtilen kimlikteki şablonu oluşturur veya günceller. İçerik değiştiyse yeni "
+                    + "versiyon döner; derlenmiş hali hemen aktif olur."
+    )
+    public ResponseEntity<?> updateTemplate(
+            @PathVariable String id,
+            @RequestParam("file") MultipartFile file) {
+        return saveTemplate(id, file, false);
+    }
+
+    /**
+     * Kayıtlı XSLT şablonunu siler.
+     */
+    @DeleteMapping("/templates/{id}")
+    @Operation(
+            summary = "XSLT şablonunu sil",
+            description = "Kayıtlı şablonu siler. Bu şablona referans veren dönüşüm istekleri 400 döner."
+    )
+    public ResponseEntity<?> deleteTemplate(@PathVariable String id) {
+        try {
+            if (!templateRegistry.deleteTemplate(id)) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(new TemplateDeleteResponse("XSLT şablonu silindi", id));
+        } catch (IOException e) {
+            log.error("XSLT şablonu silme hatası: {} — {}", id, e.getMessage());
+            return ResponseEntity.internalServerError().body(
+                    new ErrorResponse("XSLT şablonu silinemedi", e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> saveTemplate(String id, MultipartFile file, boolean created) {
+        try {
+            if (file.isEmpty()) {
+                return ResponseEntity.badRequest().body(
+                        new ErrorResponse("Boş dosya", "XSLT dosyası boş olamaz"));
+            }
+            if (file.getSize() > MAX_TEMPLATE_SIZE_BYTES) {
+                return ResponseEntity.badRequest().body(
+                        new ErrorResponse("XSLT şablonu çok büyük", "Maksimum izin verilen: 10 MB"));
+            }
+
+            var template = templateRegistry.saveTemplate(id, file.getBytes());
+            var body = new TemplateSaveResponse("XSLT şablonu kaydedildi", toTemplateDto(template));
+            return created ? ResponseEntity.status(201).body(body) : ResponseEntity.ok(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(
+                    new ErrorResponse("Geçersiz XSLT şablonu", e.getMessage()));
+        } catch (IOException e) {
+            log.error("XSLT şablonu kaydetme hatası: {} — {}", id, e.getMessage());
+            return ResponseEntity.internalServerError().body(
+                    new ErrorResponse("XSLT şablonu kaydedilemedi", e.getMessage()));
+        }
+    }
+
+    private static TemplateDto toTemplateDto(XsltTemplate template) {
+        return new TemplateDto(template.id(), template.version(), template.sizeBytes(),
+                template.updatedAt() != null ? template.updatedAt().toString() : null);
+    }
+
     // ── GİB Paket Sync ─────────────────────────────────────────────
 
     /**
@@ -1027,7 +1158,9 @@ public class AdminController {
     record ProfileDetailDto(String description, String extendsProfile, int suppressionCount,
                             List<SuppressionRuleDto> suppressions,
                             Map<String, List<XsdOverrideDto>> xsdOverrides,
-                            Map<String, List<SchematronRuleDto>> schematronRules) {}
+                            Map<String, List<SchematronRuleDto>> schematronRules,
+                            Integer maxErrors,
+                            String mode) {}
 
     record ProfileListResponse(int profileCount, Map<String, ProfileDetailDto> profiles) {}
 
@@ -1110,4 +1243,13 @@ public class AdminController {
 
     record DefaultXsltSaveResponse(String message, String transformType, String label, long size) {}
     record DefaultXsltDeleteResponse(String message, String transformType, String label) {}
+
+    // ── Kayıtlı XSLT Şablon DTO'ları ────────────────────────────────
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record TemplateDto(String id, String version, long size, String updatedAt) {}
+
+    record TemplateListResponse(int count, List<TemplateDto> templates) {}
+    record TemplateSaveResponse(String message, TemplateDto template) {}
+    record TemplateDeleteResponse(String message, String id) {}
 }
@@ -1,12 +1,17 @@
 package io.mersel.services.xslt.web.controllers;
 
 import io.mersel.services.xslt.application.enums.TransformType;
+import io.mersel.services.xslt.application.interfaces.IBatchTransformer;
 import io.mersel.services.xslt.application.interfaces.IXsltTransformer;
+import io.mersel.services.xslt.application.interfaces.IXsltTemplateRegistry;
 import io.mersel.services.xslt.application.interfaces.IXsltTransformer.TransformException;
+import io.mersel.services.xslt.application.models.ClientTemplate;
 import io.mersel.services.xslt.application.models.TransformRequest;
 import io.mersel.services.xslt.application.models.TransformResult;
 import io.mersel.services.xslt.infrastructure.diagnostics.XsltMetrics;
+import io.mersel.services.xslt.web.dto.BatchTransformRequestDto;
 import io.mersel.services.xslt.web.dto.TransformRequestDto;
+import io.mersel.services.xslt.web.infrastructure.BatchDocumentSources;
 import io.mersel.services.xslt.web.infrastructure.XsltHeaders;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.headers.Header;
@@ -17,14 +22,23 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * XSLT dönüşüm endpoint'i.
@@ -54,6 +68,48 @@ import java.util.stream.Collectors;
  * X-Xslt-Custom-Error: XSLT compilation failed at line 42
  * X-Xslt-Duration-Ms: 230
  * </pre>
+ *
+ * <h3>Sonuç Cache'i ve ETag</h3>
+ * Sonuç cache'i açıkken yanıt, dönüşüm girdilerinden türetilen güçlü bir {@code ETag} taşır.
+ * İstemci aynı isteği {@code If-None-Match} ile tekrarladığında dönüşüm çalıştırılmadan
+ * {@code 304 Not Modified} döner:
+ * <pre>
+ * HTTP/1.1 304 Not Modified
+ * ETag: "3f5a...c9"
+ * </pre>
+ *
+ * <h3>Önceden Sıkıştırılmış Gövde</h3>
+ * {@code xslt.transform.precompress-output=true} iken ve istemci {@code Accept-Encoding: gzip}
+ * gönderdiyse HTML, dönüşümde bir kez üretilen (ve cache hit'lerinde aynı kalan) GZIP gövdesiyle
+ * {@code Content-Encoding: gzip} olarak döner; ETag {@code -gzip} sonekini taşır.
+ *
+ * <h3>Akış Modu ({@code POST /v1/transform/stream})</h3>
+ * HTML bellekte toplanmadan yanıt gövdesine yazılır; dönüşüm sonunda bilinen metadata
+ * HTTP trailer olarak gönderilir:
+ * <pre>
+ * HTTP/1.1 200 OK
+ * Content-Type: text/html; charset=utf-8
+ * Transfer-Encoding: chunked
+ * Trailer: X-Xslt-Default-Used, ..., X-Xslt-Output-Size, X-Xslt-Script-Hashes
+ *
+ * &lt;html&gt;...&lt;/html&gt;
+ * X-Xslt-Output-Size: 45678
+ * X-Xslt-Script-Hashes: abc123...
+ * </pre>
+ *
+ * <h3>İstemci Tarafı Render ({@code renderMode=client})</h3>
+ * Şablon XSLT 1.0 ise HTML üretilmez; orijinal XML, şablonun içerik hash'li ve değişmez
+ * URL'ine işaret eden bir işlem talimatı ile döner ve dönüşümü tarayıcı yapar:
+ * <pre>
+ * HTTP/1.1 200 OK
+ * Content-Type: application/xml
+ * X-Xslt-Render-Mode: client
+ * Content-Security-Policy: default-src 'none'; script-src https://host/v1/transform/templates/; ...; sandbox allow-same-origin
+ *
+ * &lt;?xml version="1.0" encoding="UTF-8"?&gt;
+ * &lt;?xml-stylesheet type="text/xsl" href="https://host/v1/transform/templates/3f5a0c9e1b2d4f68.xsl"?&gt;
+ * &lt;Invoice&gt;...&lt;/Invoice&gt;
+ * </pre>
  */
 @RestController
 @RequestMapping("/v1")
@@ -63,14 +119,37 @@ public class TransformController {
     private static final Logger log = LoggerFactory.getLogger(TransformController.class);
     private static final MediaType TEXT_HTML_UTF8 = new MediaType("text", "html", StandardCharsets.UTF_8);
 
+    /** İstemci tarafı render şablonlarının yolu — içerik hash'li, değişmez URL'ler. */
+    private static final String CLIENT_TEMPLATE_PATH = "/v1/transform/templates/";
+
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    /** GZIP'li gövdenin ETag soneki — farklı içerik kodlamaları aynı güçlü etiketi paylaşamaz. */
+    private static final String GZIP_ETAG_SUFFIX = "-gzip";
+
+    /** Akış modunda {@code Trailer} header'ı ile önceden bildirilen alanlar. */
+    private static final List<String> STREAM_TRAILERS = List.of(
+            XsltHeaders.DEFAULT_USED, XsltHeaders.EMBEDDED_USED, XsltHeaders.DURATION_MS,
+            XsltHeaders.OUTPUT_SIZE, XsltHeaders.SCRIPTS_REMOVED, XsltHeaders.SCRIPT_HASHES,
+            XsltHeaders.SECURITY_VIOLATIONS, XsltHeaders.CUSTOM_ERROR, XsltHeaders.CACHE_STATUS);
+
     @Value("${xslt.limits.max-document-size-mb:${XSLT_MAX_DOCUMENT_SIZE_MB:100}}")
     private int maxDocumentSizeMb;
 
+    /** Toplu dönüşümde belge başına boyut limiti (MB) — işçi sayısı kadar belge aynı anda bellekte tutulur. */
+    @Value("${xslt.batch.max-document-size-mb:10}")
+    private int batchMaxDocumentSizeMb = 10;
+
     private final IXsltTransformer xsltTransformer;
+    private final IBatchTransformer batchTransformer;
+    private final IXsltTemplateRegistry templateRegistry;
     private final XsltMetrics xsltMetrics;
 
-    public TransformController(IXsltTransformer xsltTransformer, XsltMetrics xsltMetrics) {
+    public TransformController(IXsltTransformer xsltTransformer, IBatchTransformer batchTransformer,
+                               IXsltTemplateRegistry templateRegistry, XsltMetrics xsltMetrics) {
         this.xsltTransformer = xsltTransformer;
+        this.batchTransformer = batchTransformer;
+        this.templateRegistry = templateRegistry;
         this.xsltMetrics = xsltMetrics;
     }
 
@@ -84,12 +163,25 @@ public class TransformController {
                     **Dönüşüm Tipleri:** INVOICE, ARCHIVE_INVOICE, DESPATCH_ADVICE, RECEIPT_ADVICE, EMM, ECHECK
                     
                     **XSLT Seçim Önceliği:**
-                    1. `transformer` dosyası yüklendiyse → onu kullan
-                    2. `useEmbeddedXslt=true` ve belgede gömülü XSLT varsa → belgeden çıkar ve kullan
-                    3. Hiçbiri yoksa → varsayılan XSLT şablonu
+                    1. `templateId` verildiyse → sunucuda kayıtlı, önceden derlenmiş şablonu kullan
+                    2. `transformer` dosyası yüklendiyse → onu kullan
+                    3. `useEmbeddedXslt=true` ve belgede gömülü XSLT varsa → belgeden çıkar ve kullan
+                    4. Hiçbiri yoksa → varsayılan XSLT şablonu
                     
                     Gömülü XSLT, UBL-TR belgelerindeki `AdditionalDocumentReference/EmbeddedDocumentBinaryObject`
                     içinden `.xslt` uzantılı dosya olarak çıkarılır. Başarısız olursa varsayılana geri dönülür.
+                    
+                    **Sonuç cache'i:** `xslt.cache.transform-result-enabled=true` iken yanıt güçlü bir `ETag`
+                    taşır. Aynı istek `If-None-Match` ile tekrarlanırsa dönüşüm çalıştırılmadan `304` döner.
+                    
+                    **Sıkıştırma:** `xslt.transform.precompress-output=true` iken `Accept-Encoding: gzip`
+                    gönderen istemciye önceden sıkıştırılmış gövde `Content-Encoding: gzip` ile döner.
+                    
+                    **İstemci tarafı render:** `renderMode=client` ve kullanılacak varsayılan veya kayıtlı şablon
+                    XSLT 1.0 ise sunucuda HTML üretilmez; orijinal XML, `GET /v1/transform/templates/{hash}.xsl`
+                    adresine işaret eden `xml-stylesheet` işlem talimatı ile `application/xml` olarak döner.
+                    Yanıt sunucu tarafı render ile eşdeğer CSP ve `sandbox` taşır. XSLT 2.0/3.0 şablonlar,
+                    özel/gömülü XSLT ve filigran sunucu tarafında render edilir (`X-Xslt-Render-Mode: server`).
                     """,
             responses = {
                     @ApiResponse(
@@ -104,17 +196,281 @@ public class TransformController {
                                     @Header(name = "X-Xslt-Watermark-Applied", description = "Filigran uygulandı mı", schema = @Schema(type = "boolean")),
                                     @Header(name = "X-Xslt-Output-Size", description = "Çıktı boyutu (byte)", schema = @Schema(type = "integer")),
                                     @Header(name = "X-Xslt-Scripts-Removed", description = "Güvenlik nedeniyle kaldırılan script sayısı", schema = @Schema(type = "integer")),
-                                    @Header(name = "X-Xslt-Security-Violations", description = "Tespit edilen güvenlik ihlalleri (virgülle ayrılmış). Yoksa ihlal tespit edilmemiş demektir.", schema = @Schema(type = "string"))
+                                    @Header(name = "X-Xslt-Security-Violations", description = "Tespit edilen güvenlik ihlalleri (virgülle ayrılmış). Yoksa ihlal tespit edilmemiş demektir.", schema = @Schema(type = "string")),
+                                    @Header(name = "X-Xslt-Cache", description = "Sonuç cache durumu (HIT / MISS) — yalnızca cache açıkken", schema = @Schema(type = "string")),
+                                    @Header(name = "X-Xslt-Render-Mode", description = "Render yeri (server / client)", schema = @Schema(type = "string")),
+                                    @Header(name = "ETag", description = "Sonucun güçlü etiketi — yalnızca cache açıkken", schema = @Schema(type = "string"))
                             }
                     ),
+                    @ApiResponse(responseCode = "304", description = "If-None-Match eşleşti — sonuç değişmedi"),
                     @ApiResponse(responseCode = "400", description = "Geçersiz istek (eksik dosya, geçersiz tip)", content = @Content(mediaType = "application/problem+json")),
                     @ApiResponse(responseCode = "422", description = "Dönüşüm başarısız (XML dönüştürülemedi)", content = @Content(mediaType = "application/problem+json"))
             }
     )
     @PostMapping(value = "/transform", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<byte[]> transform(
-            @ModelAttribute @Valid TransformRequestDto requestDto) throws IOException, TransformException {
+            @ModelAttribute @Valid TransformRequestDto requestDto,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
+            throws IOException, TransformException {
+
+        boolean clientRender = parseClientRender(requestDto.getRenderMode());
+        var request = toTransformRequest(requestDto);
+
+        // ── İstemci tarafı render — XSLT 1.0 şablonlarda dönüşümü tarayıcı yapar ──
+        if (clientRender) {
+            ResponseEntity<byte[]> clientResponse = clientRender(request);
+            if (clientResponse != null) {
+                return clientResponse;
+            }
+        }
+
+        // ── Koşullu istek — sonuç değişmediyse dönüşüm çalıştırılmaz ──
+        String resultTag = xsltTransformer.resultTag(request);
+        if (resultTag != null) {
+            // İstemcinin elindeki gövde düz veya GZIP'li olabilir — iki etiket de aynı sonucu gösterir
+            for (String etag : List.of(toETag(resultTag), toETag(resultTag + GZIP_ETAG_SUFFIX))) {
+                if (matchesETag(ifNoneMatch, etag)) {
+                    // Etiket yalnızca cache'teki (varsayılana dönülmemiş) sonuç için güvenilir
+                    if (xsltTransformer.hasCachedResult(resultTag)) {
+                        log.info("Dönüşüm sonucu değişmedi (If-None-Match) — 304");
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                    }
+                    break;
+                }
+            }
+        }
+
+        // ── Dönüşüm (TransformException fırlarsa GlobalExceptionHandler yakalar) ──
+        TransformResult result = xsltTransformer.transform(request);
+        recordTransform(request, result);
+
+        // ── HTTP yanıtı oluştur ────────────────────────────────────────
+        var headers = new HttpHeaders();
+        headers.setContentType(TEXT_HTML_UTF8);
+        metadataHeaders(result).forEach(headers::set);
+        headers.set(XsltHeaders.RENDER_MODE, "server");
+
+        // Önceden sıkıştırılmış gövde — yeniden sıkıştırma yapılmaz
+        byte[] body = result.getHtmlContent();
+        boolean gzip = result.getGzipContent() != null && acceptsGzip(acceptEncoding);
+        if (result.getGzipContent() != null) {
+            headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        }
+        if (gzip) {
+            body = result.getGzipContent();
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        if (result.getResultTag() != null) {
+            headers.setETag(toETag(result.getResultTag() + (gzip ? GZIP_ETAG_SUFFIX : "")));
+        }
+
+        // Dinamik CSP — izin verilen scriptlerin hash'leri ile
+        headers.set("Content-Security-Policy", buildTransformCsp(result.getAllowedScriptHashes()));
+
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "XSLT Dönüşüm (Akış)",
+            description = """
+                    `/v1/transform` ile aynı dönüşümü yapar, ancak HTML sunucuda bellekte toplanmadan
+                    doğrudan yanıt gövdesine yazılır (chunked). Büyük belgelerde bellek kullanımını ve
+                    ilk byte süresini düşürür.
+                    
+                    Yalnızca dönüşüm sonunda bilinen metadata (`X-Xslt-Output-Size`, `X-Xslt-Scripts-Removed`,
+                    `X-Xslt-Script-Hashes`, `X-Xslt-Security-Violations`, `X-Xslt-Default-Used` vb.)
+                    **HTTP trailer** olarak gönderilir; istemci `TE: trailers` göndermelidir.
+                    
+                    **Güvenlik:** Script hash'leri header yazılırken bilinmediğinden yanıt
+                    `script-src 'none'` içeren katı CSP ile döner. HTML'i tarayıcıya sunan tüketici,
+                    script'lere izin vermek istiyorsa `X-Xslt-Script-Hashes` trailer'ı ile kendi CSP'sini
+                    oluşturmalıdır. `disable-output-escaping` ile üretilen ham metin bu modda escape edilir.
+                    
+                    Özel/gömülü XSLT, çıktının ilk `xslt.transform.stream-commit-threshold-kb` kadarı
+                    yazılmadan başarısız olursa varsayılana dönülür; sonrasındaki hatalarda bağlantı kesilir.
+                    
+                    Varsayılana dönüş header'lar yazıldıktan sonra bilindiği için bu modda `ETag` gönderilmez.
+                    `If-None-Match` yalnızca etiketin sonucu cache'te ise `304` ile karşılanır.
+                    """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Dönüşüm başarılı — ham HTML içerik, metadata trailer'larda",
+                            content = @Content(mediaType = "text/html"),
+                            headers = {
+                                    @Header(name = "X-Xslt-Watermark-Applied", description = "Filigran uygulanacak mı", schema = @Schema(type = "boolean")),
+                                    @Header(name = "Trailer", description = "Gövdeden sonra gönderilecek metadata alanları", schema = @Schema(type = "string"))
+                            }
+                    ),
+                    @ApiResponse(responseCode = "400", description = "Geçersiz istek (eksik dosya, geçersiz tip)", content = @Content(mediaType = "application/problem+json")),
+                    @ApiResponse(responseCode = "422", description = "Dönüşüm başarısız (çıktı yazılmaya başlamadan)", content = @Content(mediaType = "application/problem+json"))
+            }
+    )
+    @PostMapping(value = "/transform/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public void transformStream(
+            @ModelAttribute @Valid TransformRequestDto requestDto,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletResponse response) throws IOException, TransformException {
+
+        var request = toTransformRequest(requestDto);
+
+        // Etiket yalnızca cache'teki (varsayılana dönülmemiş) sonuç için güvenilir
+        String resultTag = xsltTransformer.resultTag(request);
+        String etag = toETag(resultTag);
+        if (etag != null && matchesETag(ifNoneMatch, etag) && xsltTransformer.hasCachedResult(resultTag)) {
+            log.info("Dönüşüm sonucu değişmedi (If-None-Match) — 304");
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            response.setHeader(HttpHeaders.ETAG, etag);
+            return;
+        }
+
+        boolean watermarkApplied = request.getWatermarkText() != null && !request.getWatermarkText().isBlank();
+
+        // ── Header'lar gövdeden önce — geç bilinen metadata trailer olarak gider ──
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(TEXT_HTML_UTF8.toString());
+        response.setHeader(XsltHeaders.WATERMARK_APPLIED, String.valueOf(watermarkApplied));
+        response.setHeader("Content-Security-Policy", buildTransformCsp(List.of()));
+        response.setHeader(HttpHeaders.TRAILER, String.join(", ", STREAM_TRAILERS));
+        // ETag yok — özel/gömülü XSLT'nin varsayılana dönüşü header'lar yazıldıktan sonra bilinir
+
+        var resultHolder = new AtomicReference<TransformResult>();
+        response.setTrailerFields(() -> {
+            TransformResult result = resultHolder.get();
+            return result != null ? streamTrailers(result) : Map.of();
+        });
+
+        // Çıktı eşik aşılana kadar tamponlanır; öncesindeki TransformException normal 422 yanıtına dönüşür
+        TransformResult result;
+        try {
+            result = xsltTransformer.transform(request, response.getOutputStream());
+        } catch (TransformException e) {
+            if (!response.isCommitted()) {
+                // Akış header'ları hata yanıtına taşınmasın
+                response.reset();
+            }
+            throw e;
+        }
+        resultHolder.set(result);
+        recordTransform(request, result);
+    }
+
+    @Operation(
+            summary = "İstemci Tarafı Render Şablonu",
+            description = """
+                    `renderMode=client` yanıtlarındaki `xml-stylesheet` işlem talimatının işaret ettiği
+                    XSLT 1.0 şablonunu döner. URL şablon içeriğinin hash'ini taşıdığı için yanıt
+                    değişmezdir ve uzun süre cache'lenebilir (`Cache-Control: immutable`).
+                    """,
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "XSLT şablonu",
+                            content = @Content(mediaType = "application/xml")),
+                    @ApiResponse(responseCode = "404", description = "Hash'e ait tarayıcıda çalıştırılabilir şablon yok")
+            }
+    )
+    @GetMapping(value = "/transform/templates/{hash:[0-9a-f]+}.xsl")
+    public ResponseEntity<byte[]> clientTemplate(@PathVariable String hash) {
+        return xsltTransformer.getClientTemplate(hash)
+                .map(template -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_XML)
+                        .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                        .eTag(toETag(template.hash()))
+                        .body(template.content()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @Operation(
+            summary = "Toplu XSLT Dönüşüm",
+            description = """
+                    Çok sayıda XML belgesini tek istekte, ortak dönüşüm tipi, filigran ve özel XSLT ile
+                    HTML'e dönüştürür. Belgeler `archive` (ZIP) veya çoklu `documents` parçası olarak gönderilir.
+                    
+                    Özel XSLT bir kez derlenir; belgeler sınırlı bir işçi havuzunda paralel dönüştürülür.
+                    Yanıt `application/zip` olarak akar: her başarılı belge için `<ad>.html` ve en sonda
+                    belge bazlı durum ile dönüşüm metadata'sını içeren `manifest.json`.
+                    
+                    Tek belgenin başarısızlığı toplu işlemi durdurmaz — manifest'te `FAILED` olarak raporlanır.
+                    Toplu istek rate limit'te tek istek sayılır.
+                    
+                    Belge başına boyut limiti `xslt.batch.max-document-size-mb` ile tekil dönüşümden daha
+                    düşüktür. Limiti aşan `documents` parçası yanıt başlamadan 400 ile reddedilir; ZIP içindeki
+                    girdilerin açılmış boyutu ancak okunurken bilindiğinden bunlar manifest'te `FAILED` olur.
+                    """,
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "ZIP — HTML dosyaları + manifest.json",
+                            content = @Content(mediaType = "application/zip")),
+                    @ApiResponse(responseCode = "400", description = "Geçersiz istek (girdi yok, geçersiz tip, belge limiti aşıldı)",
+                            content = @Content(mediaType = "application/problem+json"))
+            }
+    )
+    @PostMapping(value = "/transform/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = "application/zip")
+    public void transformBatch(
+            @ModelAttribute @Valid BatchTransformRequestDto requestDto,
+            HttpServletResponse response) throws IOException {
 
+        // ── Girdi doğrulama ────────────────────────────────────────────
+        boolean hasArchive = requestDto.getArchive() != null && !requestDto.getArchive().isEmpty();
+        boolean hasDocuments = requestDto.getDocuments() != null
+                && requestDto.getDocuments().stream().anyMatch(d -> d != null && !d.isEmpty());
+        if (hasArchive == hasDocuments) {
+            throw new IllegalArgumentException("Belgeler ya 'archive' (ZIP) ya da 'documents' parçaları olarak gönderilmelidir");
+        }
+
+        TransformType transformType = parseTransformType(requestDto.getTransformType());
+        boolean hasCustomXslt = hasCustomXslt(requestDto.getTransformer());
+        String templateId = resolveTemplateId(requestDto.getTemplateId(), hasCustomXslt);
+        long maxDocumentBytes = Math.min(maxDocumentSizeMb, batchMaxDocumentSizeMb) * 1024L * 1024L;
+
+        // Boyutu önceden bilinen parçalar 200 ve ZIP akışı başlamadan denetlenir
+        if (hasDocuments) {
+            for (MultipartFile part : requestDto.getDocuments()) {
+                if (part != null && part.getSize() > maxDocumentBytes) {
+                    throw new IllegalArgumentException(
+                            "Toplu dönüşümde belge boyutu çok büyük: " + part.getOriginalFilename()
+                                    + ". Maksimum izin verilen: " + (maxDocumentBytes / (1024 * 1024)) + " MB");
+                }
+            }
+        }
+
+        var template = new TransformRequest();
+        template.setTransformType(transformType);
+        template.setTemplateId(templateId);
+        template.setWatermarkText(requestDto.getWatermarkText());
+        template.setUseEmbeddedXslt(Boolean.TRUE.equals(requestDto.getUseEmbeddedXslt()));
+        if (hasCustomXslt) {
+            template.setTransformer(requestDto.getTransformer().getBytes());
+        }
+
+        log.info("Toplu dönüşüm isteği — Tip: {}, Girdi: {}, Özel XSLT: {}, Filigran: {}",
+                transformType, hasArchive ? "ZIP" : "multipart", hasCustomXslt, requestDto.getWatermarkText() != null);
+
+        // ── ZIP yanıtı — sonuçlar hazır oldukça yazılır ─────────────────
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename("transform-" + transformType.name().toLowerCase(Locale.ROOT) + ".zip")
+                        .build().toString());
+
+        if (hasArchive) {
+            try (var archive = requestDto.getArchive().getInputStream()) {
+                batchTransformer.transform(template, BatchDocumentSources.fromZip(archive, maxDocumentBytes),
+                        response.getOutputStream());
+            }
+        } else {
+            batchTransformer.transform(template,
+                    BatchDocumentSources.fromParts(requestDto.getDocuments(), maxDocumentBytes),
+                    response.getOutputStream());
+        }
+    }
+
+    // ── Yardımcılar ─────────────────────────────────────────────────
+
+    /**
+     * Girdiyi doğrular ve dahili istek modelini oluşturur.
+     */
+    private TransformRequest toTransformRequest(TransformRequestDto requestDto) throws IOException {
         // ── Girdi doğrulama ────────────────────────────────────────────
         if (requestDto.getDocument() == null || requestDto.getDocument().isEmpty()) {
             throw new IllegalArgumentException("XML belgesi boş olamaz");
@@ -125,29 +481,18 @@ public class TransformController {
                             + " MB. Maksimum izin verilen: " + maxDocumentSizeMb + " MB");
         }
 
-        TransformType transformType;
-        try {
-            transformType = TransformType.valueOf(requestDto.getTransformType());
-        } catch (IllegalArgumentException | NullPointerException e) {
-            throw new IllegalArgumentException(
-                    "Geçersiz dönüşüm tipi: " + requestDto.getTransformType()
-                            + ". Geçerli değerler: INVOICE, ARCHIVE_INVOICE, DESPATCH_ADVICE, RECEIPT_ADVICE, EMM, ECHECK");
-        }
-
-        boolean hasCustomXslt = requestDto.getTransformer() != null && !requestDto.getTransformer().isEmpty();
-        if (hasCustomXslt && requestDto.getTransformer().getSize() > 10L * 1024 * 1024) {
-            throw new IllegalArgumentException(
-                    "XSLT şablonu çok büyük: " + (requestDto.getTransformer().getSize() / (1024 * 1024))
-                            + " MB. Maksimum izin verilen: 10 MB");
-        }
+        TransformType transformType = parseTransformType(requestDto.getTransformType());
+        boolean hasCustomXslt = hasCustomXslt(requestDto.getTransformer());
+        String templateId = resolveTemplateId(requestDto.getTemplateId(), hasCustomXslt);
         boolean useEmbedded = Boolean.TRUE.equals(requestDto.getUseEmbeddedXslt());
 
-        log.info("Dönüşüm isteği — Tip: {}, Özel XSLT: {}, Gömülü XSLT: {}, Filigran: {}",
-                transformType, hasCustomXslt, useEmbedded, requestDto.getWatermarkText() != null);
+        log.info("Dönüşüm isteği — Tip: {}, Şablon: {}, Özel XSLT: {}, Gömülü XSLT: {}, Filigran: {}",
+                transformType, templateId, hasCustomXslt, useEmbedded, requestDto.getWatermarkText() != null);
 
         // ── İstek modeli oluştur ───────────────────────────────────────
         var request = new TransformRequest();
         request.setTransformType(transformType);
+        request.setTemplateId(templateId);
         request.setDocument(requestDto.getDocument().getBytes());
         request.setWatermarkText(requestDto.getWatermarkText());
         request.setUseEmbeddedXslt(useEmbedded);
@@ -155,36 +500,183 @@ public class TransformController {
         if (hasCustomXslt) {
             request.setTransformer(requestDto.getTransformer().getBytes());
         }
+        return request;
+    }
 
-        // ── Dönüşüm (TransformException fırlarsa GlobalExceptionHandler yakalar) ──
-        TransformResult result = xsltTransformer.transform(request);
+    /**
+     * {@code renderMode} değerini doğrular.
+     *
+     * @return istemci tarafı render istendiyse {@code true}
+     */
+    private static boolean parseClientRender(String renderMode) {
+        if (renderMode == null || renderMode.isBlank() || renderMode.equalsIgnoreCase("server")) {
+            return false;
+        }
+        if (renderMode.equalsIgnoreCase("client")) {
+            return true;
+        }
+        throw new IllegalArgumentException("Geçersiz render modu: " + renderMode + ". Geçerli değerler: server, client");
+    }
+
+    /**
+     * İstemci tarafı render yanıtını oluşturur.
+     *
+     * @return yanıt; şablon tarayıcıya uygun değilse veya belge işlem talimatı eklenemeyen bir
+     *         kodlamadaysa {@code null} — çağıran sunucu tarafı render'a döner
+     */
+    private ResponseEntity<byte[]> clientRender(TransformRequest request) {
+        ClientTemplate template = xsltTransformer.resolveClientTemplate(request).orElse(null);
+        String templateBaseUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path(CLIENT_TEMPLATE_PATH).toUriString();
+        byte[] document = template != null
+                ? withStylesheetInstruction(request.getDocument(), templateBaseUrl + template.hash() + ".xsl")
+                : null;
+        if (document == null) {
+            xsltMetrics.recordTransformRenderMode("server");
+            log.info("İstemci tarafı render uygulanamadı (XSLT 2.0/3.0, özel/gömülü XSLT, filigran veya kodlama) — sunucuda render ediliyor");
+            return null;
+        }
+
+        xsltMetrics.recordTransformRenderMode("client");
+        log.info("İstemci tarafı render — şablon {}, {} byte", template.hash(), document.length);
+
+        var headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_XML);
+        headers.set(XsltHeaders.RENDER_MODE, "client");
+        headers.set("Content-Security-Policy", buildClientRenderCsp(template.scriptHashes(), templateBaseUrl));
+        return new ResponseEntity<>(document, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Belgenin prolog'una şablona işaret eden {@code xml-stylesheet} işlem talimatını ekler.
+     * Talimat XML bildiriminden (varsa) hemen sonra, mevcut talimatlardan önce yer alır.
+     *
+     * @return yeni belge; belge ASCII uyumlu olmayan bir kodlamadaysa (UTF-16/32) {@code null}
+     */
+    static byte[] withStylesheetInstruction(byte[] document, String href) {
+        int offset = startsWith(document, UTF8_BOM, 0) ? UTF8_BOM.length : 0;
+        if (document.length < offset + 2 || document[offset] == 0 || document[offset + 1] == 0
+                || (document[offset] & 0xFF) >= 0xFE) {
+            return null;
+        }
+
+        int insertAt = offset;
+        String instruction = "<?xml-stylesheet type=\"text/xsl\" href=\"" + href + "\"?>";
+        if (startsWith(document, "<?xml".getBytes(StandardCharsets.US_ASCII), offset)
+                && document.length > offset + 5 && Character.isWhitespace(document[offset + 5])) {
+            int end = indexOf(document, "?>".getBytes(StandardCharsets.US_ASCII), offset);
+            if (end < 0) {
+                return null;
+            }
+            insertAt = end + 2;
+            instruction = "\n" + instruction;
+        } else {
+            instruction = instruction + "\n";
+        }
+
+        byte[] instructionBytes = instruction.getBytes(StandardCharsets.US_ASCII);
+        byte[] result = new byte[document.length + instructionBytes.length];
+        System.arraycopy(document, 0, result, 0, insertAt);
+        System.arraycopy(instructionBytes, 0, result, insertAt, instructionBytes.length);
+        System.arraycopy(document, insertAt, result, insertAt + instructionBytes.length, document.length - insertAt);
+        return result;
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix, int offset) {
+        if (data.length < offset + prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] data, byte[] target, int from) {
+        for (int i = from; i <= data.length - target.length; i++) {
+            if (startsWith(data, target, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static TransformType parseTransformType(String value) {
+        try {
+            return TransformType.valueOf(value);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException(
+                    "Geçersiz dönüşüm tipi: " + value
+                            + ". Geçerli değerler: INVOICE, ARCHIVE_INVOICE, DESPATCH_ADVICE, RECEIPT_ADVICE, EMM, ECHECK");
+        }
+    }
+
+    /**
+     * Özel XSLT yüklendi mi — yüklendiyse 10 MB limitini doğrular.
+     */
+    private static boolean hasCustomXslt(MultipartFile transformer) {
+        boolean hasCustomXslt = transformer != null && !transformer.isEmpty();
+        if (hasCustomXslt && transformer.getSize() > 10L * 1024 * 1024) {
+            throw new IllegalArgumentException(
+                    "XSLT şablonu çok büyük: " + (transformer.getSize() / (1024 * 1024))
+                            + " MB. Maksimum izin verilen: 10 MB");
+        }
+        return hasCustomXslt;
+    }
 
-        int outputSize = result.getHtmlContent() != null ? result.getHtmlContent().length : 0;
+    /**
+     * Kayıtlı şablon kimliğini doğrular.
+     *
+     * @return şablon kimliği; verilmediyse {@code null}
+     */
+    private String resolveTemplateId(String templateId, boolean hasCustomXslt) {
+        if (templateId == null || templateId.isBlank()) {
+            return null;
+        }
+        if (hasCustomXslt) {
+            throw new IllegalArgumentException("'templateId' ve 'transformer' birlikte gönderilemez");
+        }
+        if (templateRegistry.getTemplate(templateId).isEmpty()) {
+            throw new IllegalArgumentException("XSLT şablonu bulunamadı: " + templateId);
+        }
+        return templateId;
+    }
+
+    private void recordTransform(TransformRequest request, TransformResult result) {
+        boolean hasCustomXslt = request.getTemplateId() != null
+                || (request.getTransformer() != null && request.getTransformer().length > 0);
+        long outputSize = result.getOutputSize();
         xsltMetrics.recordTransform(
-                transformType.name(),
+                request.getTransformType().name(),
                 hasCustomXslt,
                 result.isDefaultXslUsed(),
                 result.getDurationMs(),
-                outputSize);
+                (int) Math.min(outputSize, Integer.MAX_VALUE));
 
         // Gömülü XSLT kullanım metrikleri
-        if (useEmbedded) {
+        if (request.isUseEmbeddedXslt()) {
             xsltMetrics.recordEmbeddedXslt(result.isEmbeddedXsltUsed() ? "success" : "not_found");
         }
 
         log.info("Dönüşüm tamamlandı — Varsayılan: {}, Gömülü: {}, Süre: {} ms, Boyut: {} byte",
                 result.isDefaultXslUsed(), result.isEmbeddedXsltUsed(), result.getDurationMs(),
                 outputSize);
+    }
 
-        // ── HTTP yanıtı oluştur ────────────────────────────────────────
-        var headers = new HttpHeaders();
-        headers.setContentType(TEXT_HTML_UTF8);
-        headers.set(XsltHeaders.DEFAULT_USED, String.valueOf(result.isDefaultXslUsed()));
-        headers.set(XsltHeaders.EMBEDDED_USED, String.valueOf(result.isEmbeddedXsltUsed()));
-        headers.set(XsltHeaders.DURATION_MS, String.valueOf(result.getDurationMs()));
-        headers.set(XsltHeaders.WATERMARK_APPLIED, String.valueOf(result.isWatermarkApplied()));
-        headers.set(XsltHeaders.OUTPUT_SIZE, String.valueOf(result.getHtmlContent().length));
-        headers.set(XsltHeaders.SCRIPTS_REMOVED, String.valueOf(result.getRemovedScriptCount()));
+    /**
+     * Dönüşüm sonucundan {@code X-Xslt-*} metadata alanlarını oluşturur.
+     * Değerler CRLF'ten arındırılır (HTTP Response Splitting koruması).
+     */
+    private static Map<String, String> metadataHeaders(TransformResult result) {
+        var headers = new LinkedHashMap<String, String>();
+        headers.put(XsltHeaders.DEFAULT_USED, String.valueOf(result.isDefaultXslUsed()));
+        headers.put(XsltHeaders.EMBEDDED_USED, String.valueOf(result.isEmbeddedXsltUsed()));
+        headers.put(XsltHeaders.DURATION_MS, String.valueOf(result.getDurationMs()));
+        headers.put(XsltHeaders.WATERMARK_APPLIED, String.valueOf(result.isWatermarkApplied()));
+        headers.put(XsltHeaders.OUTPUT_SIZE, String.valueOf(result.getOutputSize()));
+        headers.put(XsltHeaders.SCRIPTS_REMOVED, String.valueOf(result.getRemovedScriptCount()));
 
         // Güvenlik ihlalleri — tüketici incelesin diye
         if (!result.getSecurityViolations().isEmpty()) {
@@ -194,12 +686,9 @@ public class TransformController {
             if (violations.length() > 1000) {
                 violations = violations.substring(0, 1000);
             }
-            headers.set(XsltHeaders.SECURITY_VIOLATIONS, violations);
+            headers.put(XsltHeaders.SECURITY_VIOLATIONS, violations);
         }
 
-        // Dinamik CSP — izin verilen scriptlerin hash'leri ile
-        headers.set("Content-Security-Policy", buildTransformCsp(result.getAllowedScriptHashes()));
-
         if (result.getCustomXsltError() != null) {
             // CRLF sanitize — HTTP Response Splitting koruması
             String sanitized = result.getCustomXsltError()
@@ -207,10 +696,90 @@ public class TransformController {
             if (sanitized.length() > 500) {
                 sanitized = sanitized.substring(0, 500);
             }
-            headers.set(XsltHeaders.CUSTOM_ERROR, sanitized);
+            headers.put(XsltHeaders.CUSTOM_ERROR, sanitized);
+        }
+
+        if (result.getResultTag() != null) {
+            headers.put(XsltHeaders.CACHE_STATUS, result.isCacheHit() ? "HIT" : "MISS");
+        }
+        return headers;
+    }
+
+    /**
+     * Sonuç etiketini güçlü ETag biçimine çevirir.
+     *
+     * @return tırnaklı ETag; etiket yoksa {@code null}
+     */
+    private static String toETag(String resultTag) {
+        return resultTag != null ? "\"" + resultTag + "\"" : null;
+    }
+
+    /**
+     * {@code If-None-Match} değeri verilen ETag ile eşleşiyor mu?
+     * <p>
+     * Spring'in {@code checkNotModified} yardımcısı POST isteklerinde {@code 412} döndüğü için
+     * karşılaştırma burada yapılır. Virgülle ayrılmış liste, {@code *} ve zayıf ({@code W/})
+     * karşılaştırma desteklenir (RFC 9110 §13.1.2).
+     */
+    static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*")) {
+                return true;
+            }
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag)) {
+                return true;
+            }
         }
+        return false;
+    }
 
-        return new ResponseEntity<>(result.getHtmlContent(), headers, HttpStatus.OK);
+    /**
+     * {@code Accept-Encoding} değeri GZIP'i kabul ediyor mu? {@code q=0} ile reddedilen kodlama kabul edilmez.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return false;
+        }
+        for (String candidate : acceptEncoding.split(",")) {
+            String[] parts = candidate.trim().split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!coding.equals("gzip") && !coding.equals("x-gzip") && !coding.equals("*")) {
+                continue;
+            }
+            boolean rejected = false;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim().toLowerCase(Locale.ROOT);
+                if (param.startsWith("q=")) {
+                    try {
+                        rejected = Double.parseDouble(param.substring(2)) <= 0;
+                    } catch (NumberFormatException e) {
+                        rejected = true;
+                    }
+                }
+            }
+            if (!rejected) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Akış modunda gövdeden sonra gönderilen trailer alanları.
+     * Filigran bilgisi zaten header'da gittiği için tekrarlanmaz.
+     */
+    static Map<String, String> streamTrailers(TransformResult result) {
+        var trailers = metadataHeaders(result);
+        trailers.remove(XsltHeaders.WATERMARK_APPLIED);
+        trailers.put(XsltHeaders.SCRIPT_HASHES, String.join(",", result.getAllowedScriptHashes()));
+        return trailers;
     }
 
     /**
@@ -231,7 +800,30 @@ public class TransformController {
                     .map(h -> "'sha256-" + h + "'")
                     .collect(Collectors.joining(" ", "script-src ", ""));
         }
+        return transformCsp(scriptSrc);
+    }
+
+    /**
+     * İstemci tarafı render yanıtları için {@link #buildTransformCsp(List)} ile eşdeğer CSP.
+     * <p>
+     * Tarayıcı XSLT şablonunu script benzeri bir kaynak olarak yüklediği için {@code script-src}
+     * yalnızca şablon yoluna izin verir; satır içi script'ler yine hash ile sınırlıdır. {@code sandbox}
+     * form, popup ve üst pencere gezinmesini engeller. Şablon aynı origin'den yüklenebilsin diye
+     * {@code allow-same-origin} verilir; {@code allow-scripts} yalnızca izinli script varsa eklenir.
+     *
+     * @param scriptHashes    şablonun derleme anında doğrulanmış script hash'leri
+     * @param templateBaseUrl şablonların mutlak URL öneki ({@code /} ile biter)
+     * @return CSP header değeri
+     */
+    static String buildClientRenderCsp(List<String> scriptHashes, String templateBaseUrl) {
+        List<String> hashes = scriptHashes != null ? scriptHashes : List.of();
+        String scriptSrc = Stream.concat(Stream.of(templateBaseUrl), hashes.stream().map(h -> "'sha256-" + h + "'"))
+                .collect(Collectors.joining(" ", "script-src ", ""));
+        String sandbox = hashes.isEmpty() ? "sandbox allow-same-origin" : "sandbox allow-scripts allow-same-origin";
+        return transformCsp(scriptSrc) + "; " + sandbox;
+    }
 
+    private static String transformCsp(String scriptSrc) {
         return String.join("; ",
                 "default-src 'none'",
                 scriptSrc,
@@ -3,22 +3,32 @@ package io.mersel.services.xslt.web.controllers;
 import io.mersel.services.xslt.application.enums.DocumentType;
 import io.mersel.services.xslt.application.enums.SchemaValidationType;
 import io.mersel.services.xslt.application.enums.SchematronValidationType;
+import io.mersel.services.xslt.application.enums.ValidationMode;
 import io.mersel.services.xslt.application.interfaces.DocumentTypeDetectionException;
 import io.mersel.services.xslt.application.interfaces.IDocumentTypeDetector;
 import io.mersel.services.xslt.application.interfaces.ISchemaValidator;
 import io.mersel.services.xslt.application.interfaces.ISchematronValidator;
+import io.mersel.services.xslt.application.interfaces.IValidationDocumentParser;
 import io.mersel.services.xslt.application.interfaces.IValidationProfileService;
 import io.mersel.services.xslt.application.models.DocumentTypeMapping;
+import io.mersel.services.xslt.application.models.ErrorBudget;
+import io.mersel.services.xslt.application.models.ErrorGroup;
+import io.mersel.services.xslt.application.models.ParsedDocument;
 import io.mersel.services.xslt.application.models.SchematronCustomAssertion;
 import io.mersel.services.xslt.application.models.SchematronError;
 import io.mersel.services.xslt.application.models.SuppressionResult;
+import io.mersel.services.xslt.application.models.ValidationProfile;
 import io.mersel.services.xslt.application.models.ValidationResponse;
 import io.mersel.services.xslt.application.models.XsdOverride;
 import io.mersel.services.xslt.application.models.XsltServiceResponse;
+import io.mersel.services.xslt.infrastructure.AssetRegistry;
+import io.mersel.services.xslt.infrastructure.ValidationResultCache;
 import io.mersel.services.xslt.infrastructure.diagnostics.XsltMetrics;
 import io.mersel.services.xslt.web.dto.ValidationRequestDto;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -26,12 +36,23 @@ import jakarta.validation.Valid;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * XML doğrulama endpoint'i.
@@ -41,6 +62,28 @@ import java.util.*;
  * <p>
  * Profil tabanlı bastırma (suppression) desteği ile belirli doğrulama hatalarının
  * filtrelenmesini sağlar.
+ * <p>
+ * XSD ve Schematron aşamaları birbirinden bağımsızdır. {@code xslt.validation.parallel-stages}
+ * açıkken Schematron sınırlı bir işçi havuzunda, XSD istek thread'inde eşzamanlı çalışır; havuz
+ * doluysa aşamalar sırayla çalıştırılır. Aşama süreleri yanıtta {@code stageTimingsMs} ile döner.
+ * <p>
+ * Belge istek başına bir kez parse edilir; tespit ve iki doğrulama aşaması aynı değişmez ağacı paylaşır.
+ * {@code xslt.validation.streaming-threshold-mb} üzerindeki belgeler belleğe alınmaz, yükleme akışından doğrulanır.
+ * <p>
+ * Hata bütçesi ({@code maxErrors}) istekten, profilden veya {@code xslt.validation.max-errors} ayarından
+ * çözülür; her aşama kendi bütçesiyle çalışır ve bütçe aşıldığında erken sonlanır.
+ * <p>
+ * {@code aggregateErrors} istendiğinde tekrarlı hatalar toplanırken kurala göre gruplanır; yanıt grup
+ * başına sayaç ve {@code xslt.validation.aggregate-samples} kadar örnek taşır.
+ * <p>
+ * Doğrulama modu ({@code mode}) istekten, profilden veya {@code xslt.validation.mode} ayarından çözülür.
+ * Tek aşamalı modlarda diğer aşama hiç çalışmaz; {@code skip-schematron-on-fatal} modunda aşamalar
+ * sırayla çalışır ve XSD aşamasında ölümcül hata görülürse Schematron atlanır. Atlanan aşamalar
+ * yanıtta {@code skippedStages} ile raporlanır.
+ * <p>
+ * {@code xslt.cache.validation-result-enabled} açıkken sonuçlar belge içeriği, asset nesli, profil ve
+ * istek parametrelerinin hash'iyle cache'lenir; tekrar gönderilen belge yalnızca hash hesabına mal olur
+ * ({@link ValidationResultCache}).
  */
 @RestController
 @RequestMapping("/v1")
@@ -49,30 +92,128 @@ public class ValidationController {
 
     private static final Logger log = LoggerFactory.getLogger(ValidationController.class);
 
+    /** Aşama, doğrulama modunda yer almıyor. */
+    private static final String SKIP_REASON_MODE = "MODE";
+    /** XSD aşamasında ölümcül hata görüldü; Schematron çalıştırılmadı. */
+    private static final String SKIP_REASON_FATAL_SCHEMA_ERROR = "FATAL_SCHEMA_ERROR";
+
     @Value("${xslt.limits.max-validation-size-mb:${XSLT_MAX_VALIDATION_SIZE_MB:100}}")
     private int maxValidationSizeMb;
 
+    /** XSD ve Schematron aşamalarını eşzamanlı çalıştır. */
+    @Value("${xslt.validation.parallel-stages:true}")
+    private boolean parallelStages = true;
+
+    /** Schematron işçi sayısı. 0 veya negatif ise işlemci sayısı kullanılır. */
+    @Value("${xslt.validation.stage-parallelism:0}")
+    private int stageParallelism = 0;
+
+    /**
+     * Bu boyutun (MB) üzerindeki belgeler belleğe alınmadan, yükleme akışından doğrulanır.
+     * 0 ise tüm belgeler akış halinde, negatif ise tümü bellekte doğrulanır.
+     */
+    @Value("${xslt.validation.streaming-threshold-mb:10}")
+    private int streamingThresholdMb = 10;
+
+    /**
+     * İstek veya profil belirtmediğinde aşama başına hata bütçesi. 0 veya negatif ise sınırsız.
+     */
+    @Value("${xslt.validation.max-errors:0}")
+    private int defaultMaxErrors = 0;
+
+    /** Gruplanmış yanıtta grup başına tutulan örnek hata sayısı. */
+    @Value("${xslt.validation.aggregate-samples:3}")
+    private int aggregateSamples = 3;
+
+    /** İstek veya profil belirtmediğinde doğrulama modu. */
+    @Value("${xslt.validation.mode:full}")
+    private String defaultMode = "full";
+
+    private ValidationMode defaultValidationMode = ValidationMode.FULL;
+
+    /**
+     * Doğrulama sonucu cache — kapalıyken {@code null}.
+     * Key: {@link #resultCacheKey}; tahliye yanıttaki hata metinlerinin toplam boyutuna göre yapılır.
+     */
+    private ValidationResultCache resultCache;
+
+    @Value("${xslt.cache.validation-result-enabled:false}")
+    private boolean resultCacheEnabled = false;
+
+    @Value("${xslt.cache.validation-result-max-size-mb:64}")
+    private int resultCacheMaxSizeMb = 64;
+
+    @Value("${xslt.cache.validation-result-ttl-hours:1}")
+    private int resultCacheTtlHours = 1;
+
+    /** Schematron aşaması için sınırlı havuz; paralel mod kapalıyken {@code null}. */
+    private ExecutorService stageExecutor;
+
+    private final IValidationDocumentParser documentParser;
     private final IDocumentTypeDetector documentTypeDetector;
     private final ISchemaValidator schemaValidator;
     private final ISchematronValidator schematronValidator;
     private final IValidationProfileService profileService;
+    private final AssetRegistry assetRegistry;
     private final XsltMetrics xsltMetrics;
     private final ObjectMapper objectMapper;
 
-    public ValidationController(IDocumentTypeDetector documentTypeDetector,
+    public ValidationController(IValidationDocumentParser documentParser,
+                                IDocumentTypeDetector documentTypeDetector,
                                 ISchemaValidator schemaValidator,
                                 ISchematronValidator schematronValidator,
                                 IValidationProfileService profileService,
+                                AssetRegistry assetRegistry,
                                 XsltMetrics xsltMetrics,
                                 ObjectMapper objectMapper) {
+        this.documentParser = documentParser;
         this.documentTypeDetector = documentTypeDetector;
         this.schemaValidator = schemaValidator;
         this.schematronValidator = schematronValidator;
         this.profileService = profileService;
+        this.assetRegistry = assetRegistry;
         this.xsltMetrics = xsltMetrics;
         this.objectMapper = objectMapper;
     }
 
+    @PostConstruct
+    void init() {
+        try {
+            ValidationMode configured = ValidationMode.parse(defaultMode);
+            defaultValidationMode = configured != null ? configured : ValidationMode.FULL;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("xslt.validation.mode ayarı geçersiz: " + e.getMessage(), e);
+        }
+        if (resultCacheEnabled) {
+            resultCache = new ValidationResultCache(
+                    resultCacheMaxSizeMb * 1024L * 1024L,
+                    Duration.ofHours(resultCacheTtlHours));
+            xsltMetrics.registerValidationResultCacheMetrics(resultCache.nativeCache());
+            log.info("Doğrulama sonucu cache'i açık — maks {} MB, TTL {} saat",
+                    resultCacheMaxSizeMb, resultCacheTtlHours);
+        }
+        if (!parallelStages) {
+            return;
+        }
+        int workers = stageParallelism > 0 ? stageParallelism : Runtime.getRuntime().availableProcessors();
+        var threadCounter = new AtomicInteger();
+        // Kuyruk da işçi sayısıyla sınırlı — taşan istek Schematron'u kendi thread'inde sırayla çalıştırır
+        stageExecutor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers), r -> {
+                    Thread t = new Thread(r, "xslt-validation-" + threadCounter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        log.info("Doğrulama aşamaları eşzamanlı çalışacak — Schematron havuzu: {} işçi", workers);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (stageExecutor != null) {
+            stageExecutor.shutdownNow();
+        }
+    }
+
     @Operation(
             summary = "XML Doğrulama (Otomatik Tespit)",
             description = """
@@ -87,11 +228,19 @@ public class ValidationController {
                     **Otomatik Tespit:** Belge türü XML namespace, root element ve e-Defter belgelerinde xbrli:context id bilgisinden tespit edilir.
                     
                     **Profil Desteği:** `profile` parametresi ile önceden tanımlı bastırma profili uygulanabilir.
+                    
+                    **Süreler:** XSD ve Schematron aşamaları eşzamanlı çalışabilir; `executionMode` ve
+                    `stageTimingsMs` (schema, schematron, total) alanları aşama sürelerini gösterir.
+                    
+                    **Mod:** `mode` ile yalnızca XSD (`xsd-only`), yalnızca Schematron (`schematron-only`) veya
+                    ölümcül XSD hatasında Schematron'u atlayan (`skip-schematron-on-fatal`) doğrulama seçilebilir;
+                    atlanan aşamalar `skippedStages` alanında nedeniyle döner.
                     """
     )
     @PostMapping(value = "/validate", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<XsltServiceResponse<ValidationResponse>> validate(
             @ModelAttribute @Valid ValidationRequestDto requestDto) throws IOException {
+        long startTime = System.nanoTime();
 
         // ── Input doğrulama ──
         if (requestDto.getSource() == null || requestDto.getSource().isEmpty()) {
@@ -103,13 +252,93 @@ public class ValidationController {
                             + " MB. Maksimum izin verilen: " + maxValidationSizeMb + " MB"));
         }
 
-        byte[] source = requestDto.getSource().getBytes();
+        // ── Doğrulama modu — istek, profil, sunucu varsayılanı; geçersiz mod belge okunmadan reddedilir ──
+        ValidationMode mode;
+        try {
+            mode = resolveMode(requestDto.getMode(), requestDto.getProfile());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(XsltServiceResponse.error(e.getMessage()));
+        }
+
+        // Orijinal dosya adı — e-Defter Schematron base-uri() kontrolü için gerekli
+        String sourceFileName = requestDto.getSource().getOriginalFilename();
+
+        // ── Sonuç cache — anahtar doğrulamadan önce, o anki nesille hesaplanır ──
+        String cacheKey = null;
+        if (resultCache != null) {
+            cacheKey = resultCacheKey(requestDto, sourceFileName);
+            ValidationResponse cached = resultCache.get(cacheKey);
+            if (cached != null) {
+                return fromCache(cached, startTime);
+            }
+        }
+
+        ResponseEntity<XsltServiceResponse<ValidationResponse>> result;
+        // Schematron çalışmayacaksa ağaç kurulmaz — XSD ham içerikten veya akıştan doğrulanır
+        boolean buildTree = mode != ValidationMode.XSD_ONLY;
+        try (ValidationInput input = openInput(requestDto.getSource(), sourceFileName, buildTree)) {
+            result = runValidation(requestDto, mode, input, startTime);
+        }
+        if (cacheKey != null && result.getStatusCode().is2xxSuccessful() && result.getBody() != null) {
+            ValidationResponse response = result.getBody().getResult();
+            response.setCacheHit(false);
+            resultCache.put(cacheKey, response);
+        }
+        return result;
+    }
+
+    // ── Sonuç Cache ────────────────────────────────────────────────
+
+    /**
+     * Sonuç cache anahtarı — asset nesli, profil revizyonu, dosya adı (e-Defter Schematron'u
+     * {@code base-uri()} okur), istek parametreleri ve akıştan okunan belge içeriği.
+     */
+    private String resultCacheKey(ValidationRequestDto requestDto, String sourceFileName) throws IOException {
+        var key = resultCache.newKey(assetRegistry.generation() + ":" + profileService.revision())
+                .add(sourceFileName)
+                .add(requestDto.getProfile())
+                .add(requestDto.getSuppressions())
+                .add(requestDto.getParameters())
+                .add(requestDto.getMode())
+                .add(requestDto.getMaxErrors() != null ? requestDto.getMaxErrors().toString() : null)
+                .add(Boolean.toString(Boolean.TRUE.equals(requestDto.getAggregateErrors())));
+        try (InputStream in = requestDto.getSource().getInputStream()) {
+            key.addDocument(in);
+        }
+        return key.build();
+    }
+
+    /**
+     * Cache'teki sonucun kopyasını bu isteğin süre bilgileriyle döndürür.
+     */
+    private ResponseEntity<XsltServiceResponse<ValidationResponse>> fromCache(ValidationResponse cached,
+                                                                               long startTime) {
+        var response = new ValidationResponse(cached);
+        long totalMs = (System.nanoTime() - startTime) / 1_000_000;
+        var stageTimings = new LinkedHashMap<String, Long>();
+        stageTimings.put("total", totalMs);
+        response.setCacheHit(true);
+        response.setExecutionMode("cached");
+        response.setStageTimingsMs(stageTimings);
+        xsltMetrics.recordValidationRequest("cached", totalMs);
+
+        log.debug("Doğrulama sonucu cache'ten döndü — Tür: {} ({} ms)", response.getDetectedDocumentType(), totalMs);
+        return ResponseEntity.ok(XsltServiceResponse.success(response));
+    }
+
+    private ResponseEntity<XsltServiceResponse<ValidationResponse>> runValidation(
+            ValidationRequestDto requestDto, ValidationMode mode, ValidationInput input, long startTime) {
         var response = new ValidationResponse();
 
+        boolean runSchema = mode != ValidationMode.SCHEMATRON_ONLY;
+        boolean runSchematron = mode != ValidationMode.XSD_ONLY;
+        // Schematron kararı XSD sonucuna bağlı — aşamalar sırayla çalışır
+        boolean gated = mode == ValidationMode.SKIP_SCHEMATRON_ON_FATAL;
+
         // ── Belge türü tespiti ──
         DocumentType documentType;
         try {
-            documentType = documentTypeDetector.detect(source);
+            documentType = input.detect(documentTypeDetector);
         } catch (DocumentTypeDetectionException e) {
             log.warn("Belge türü tespit edilemedi: {}", e.getMessage());
             return ResponseEntity.badRequest().body(XsltServiceResponse.error(
@@ -132,8 +361,10 @@ public class ValidationController {
         response.setAppliedSchematron(schematronType.name());
         response.setAppliedSchematronPath(DocumentTypeMapping.SCHEMATRON_PATH_MAP.get(schematronType));
 
-        log.info("Doğrulama isteği — Tespit: {}, XSD: {}, SCH: {}, Profil: {}, Parametre: {}",
-                documentType, schemaType, schematronType, requestDto.getProfile(),
+        response.setValidationMode(mode.value());
+
+        log.info("Doğrulama isteği — Tespit: {}, XSD: {}, SCH: {}, Mod: {}, Profil: {}, Parametre: {}",
+                documentType, schemaType, schematronType, mode.value(), requestDto.getProfile(),
                 requestDto.getParameters() != null ? requestDto.getParameters() : "yok");
 
         // Metrics
@@ -148,46 +379,284 @@ public class ValidationController {
         activeTypes.add(schemaType.name());
         activeTypes.add(schematronType.name());
 
-        // ── Schema (XSD) doğrulama ──
+        // ── Schematron parametreleri ──
+        Map<String, String> schematronParameters = parseParameters(requestDto.getParameters());
+
+        // ── Hata bütçesi ve gruplama — aşama başına ayrı sayılır ──
+        int maxErrors = resolveMaxErrors(requestDto.getMaxErrors(), profileName);
+        boolean aggregate = Boolean.TRUE.equals(requestDto.getAggregateErrors());
+        ErrorBudget schemaBudget = newBudget(maxErrors, aggregate);
+        ErrorBudget schematronBudget = newBudget(maxErrors, aggregate);
+        if (gated && schemaBudget == null) {
+            // Ölümcül hata bilgisi bütçe üzerinden taşınır
+            schemaBudget = ErrorBudget.unlimited();
+        }
+
+        // ── XSD + Schematron — paralel modda Schematron havuzda, XSD bu thread'de ──
+        Future<Long> schematronStage = null;
+        if (runSchema && runSchematron && !gated && stageExecutor != null) {
+            try {
+                schematronStage = stageExecutor.submit(() -> validateSchematron(input, schematronType,
+                        profileName, schematronParameters, additionalSuppressions, activeTypes,
+                        schematronBudget, response));
+            } catch (RejectedExecutionException e) {
+                log.debug("Doğrulama havuzu dolu, aşamalar sırayla çalışacak");
+            }
+        }
+
+        var skippedStages = new LinkedHashMap<String, String>();
+        var stageTimings = new LinkedHashMap<String, Long>();
+        if (runSchema) {
+            stageTimings.put("schema", validateSchema(input, schemaType, profileName, additionalSuppressions,
+                    activeTypes, schemaBudget, response));
+        } else {
+            skippedStages.put("schema", SKIP_REASON_MODE);
+        }
+        if (gated && schemaBudget.hasFatal()) {
+            skippedStages.put("schematron", SKIP_REASON_FATAL_SCHEMA_ERROR);
+        } else if (!runSchematron) {
+            skippedStages.put("schematron", SKIP_REASON_MODE);
+        } else {
+            stageTimings.put("schematron", schematronStage != null
+                    ? awaitSchematron(schematronStage, response)
+                    : validateSchematron(input, schematronType, profileName,
+                            schematronParameters, additionalSuppressions, activeTypes, schematronBudget, response));
+        }
+        if (!skippedStages.isEmpty()) {
+            response.setSkippedStages(skippedStages);
+            skippedStages.forEach(xsltMetrics::recordValidationStageSkipped);
+        }
+
+        if (maxErrors > 0) {
+            response.setErrorBudget(buildErrorBudgetInfo(maxErrors,
+                    skippedStages.containsKey("schema") ? null : schemaBudget,
+                    skippedStages.containsKey("schematron") ? null : schematronBudget));
+        }
+
+        String executionMode = schematronStage != null ? "parallel" : "sequential";
+        long totalMs = (System.nanoTime() - startTime) / 1_000_000;
+        stageTimings.put("total", totalMs);
+        response.setExecutionMode(executionMode);
+        response.setStageTimingsMs(stageTimings);
+        xsltMetrics.recordValidationRequest(executionMode, totalMs);
+
+        log.info("Doğrulama tamamlandı — Tür: {}, Schema: {}, Schematron: {}{}",
+                documentType,
+                stageOutcome(skippedStages.containsKey("schema"), response.isValidSchema()),
+                stageOutcome(skippedStages.containsKey("schematron"), response.isValidSchematron()),
+                profileName != null ? " (profil: " + profileName + ")" : "");
+
+        int schemaErrors = response.getSchemaValidationErrors() != null ? response.getSchemaValidationErrors().size() : 0;
+        int schematronErrors = response.getSchematronValidationErrors() != null ? response.getSchematronValidationErrors().size() : 0;
+        xsltMetrics.recordValidationErrors(schemaErrors, schematronErrors);
+
+        // Belge tipi bazlı doğrulama dağılımı — atlanan aşama sonucu etkilemez
+        boolean overallValid = (skippedStages.containsKey("schema") || response.isValidSchema())
+                && (skippedStages.containsKey("schematron") || response.isValidSchematron());
+        xsltMetrics.recordDocumentTypeValidation(documentType.name(), overallValid);
+
+        // Profil kullanım metrikleri
+        if (profileName != null && !profileName.isBlank()) {
+            int suppressedCount = response.getSuppressionInfo() != null
+                    ? ((Number) response.getSuppressionInfo().getOrDefault("suppressedCount", 0)).intValue()
+                    : 0;
+            xsltMetrics.recordProfileUsage(profileName, suppressedCount);
+        }
+
+        return ResponseEntity.ok(XsltServiceResponse.success(response));
+    }
+
+    // ── Doğrulama Girdisi ──────────────────────────────────────────
+
+    /**
+     * Yüklenen belgeyi doğrulama girdisine dönüştürür.
+     * <p>
+     * Eşik altındaki belgeler belleğe alınıp bir kez ağaca parse edilir. Eşik üstündeki belgeler
+     * belleğe alınmaz: her aşama multipart geçici dosyasından ({@code spring.servlet.multipart.file-size-threshold}
+     * üzerindeki yüklemeler diske yazılır) kendi akışını açar — XSD sabit bellekte doğrulanır,
+     * Schematron ağacını doğrudan akıştan kurar. Doğrulayıcı destekliyorsa tür tespiti ve XSD
+     * aynı akışı tek geçişte okur ({@link ISchemaValidator#openStream}).
+     * <p>
+     * Ağaç yalnızca Schematron'a kazanç sağlar; Schematron çalışmayacaksa ({@code buildTree=false})
+     * belge ağaca parse edilmez, tespit ve XSD ham içerikten akışla yapılır.
+     */
+    private ValidationInput openInput(MultipartFile file, String sourceFileName, boolean buildTree)
+            throws IOException {
+        if (streamingThresholdMb >= 0 && file.getSize() > streamingThresholdMb * 1024L * 1024L) {
+            log.debug("Belge akış halinde doğrulanacak: {} bayt", file.getSize());
+            ISchemaValidator.StreamSession session = schemaValidator.openStream(file::getInputStream);
+            return new ValidationInput(null, null, file, session, sourceFileName);
+        }
+        byte[] source = file.getBytes();
+        if (!buildTree) {
+            return new ValidationInput(source, null, null, null, sourceFileName);
+        }
+        // ── Tek parse — tespit, XSD ve Schematron aynı ağacı okur ──
+        // Ağaca alınamayan belge (iyi biçimli değil, DOCTYPE vb.) ham içerikle önceki akıştan doğrulanır
+        ParsedDocument parsed = documentParser.parse(source, sourceFileName).orElse(null);
+        return new ValidationInput(source, parsed, null, null, sourceFileName);
+    }
+
+    /**
+     * Tek isteğin doğrulama girdisi: parse edilmiş ağaç, ham içerik veya akış kaynağı.
+     * Aşamalar girdiyi yalnızca okur; paralel modda iki thread tarafından paylaşılır. Tek geçiş
+     * oturumu yalnızca istek thread'inde (tespit ve XSD) kullanılır.
+     *
+     * @param source   Bellekteki ham içerik; akış modunda {@code null}
+     * @param parsed   Tek parse edilen ağaç; akış modunda veya parse edilemediyse {@code null}
+     * @param file     Akış modunda her aşamanın yeniden açtığı yükleme; aksi halde {@code null}
+     * @param session  Akış modunda tespit + XSD tek geçiş oturumu; desteklenmiyorsa {@code null}
+     * @param fileName Orijinal dosya adı
+     */
+    private record ValidationInput(byte[] source, ParsedDocument parsed, MultipartFile file,
+                                   ISchemaValidator.StreamSession session, String fileName) implements AutoCloseable {
+
+        DocumentType detect(IDocumentTypeDetector detector) throws DocumentTypeDetectionException, IOException {
+            if (parsed != null) {
+                return detector.detect(parsed);
+            }
+            if (source != null) {
+                return detector.detect(source);
+            }
+            if (session != null) {
+                return session.detectDocumentType();
+            }
+            try (InputStream in = file.getInputStream()) {
+                return detector.detect(in);
+            }
+        }
+
+        /**
+         * Bütçe yoksa bütçesiz arayüz metotları çağrılır.
+         */
+        List<String> validateSchema(ISchemaValidator validator, SchemaValidationType schemaType,
+                                    List<XsdOverride> overrides, String profileName,
+                                    ErrorBudget budget) throws IOException {
+            if (parsed != null) {
+                return budget != null
+                        ? validator.validateDocument(parsed, schemaType, overrides, profileName, budget)
+                        : validator.validateDocument(parsed, schemaType, overrides, profileName);
+            }
+            if (source != null) {
+                return budget != null
+                        ? validator.validate(source, schemaType, overrides, profileName, budget)
+                        : validator.validate(source, schemaType, overrides, profileName);
+            }
+            if (session != null) {
+                return budget != null
+                        ? session.validate(schemaType, overrides, profileName, budget)
+                        : session.validate(schemaType, overrides, profileName);
+            }
+            try (InputStream in = file.getInputStream()) {
+                return budget != null
+                        ? validator.validateStream(in, schemaType, overrides, profileName, budget)
+                        : validator.validateStream(in, schemaType, overrides, profileName);
+            }
+        }
+
+        List<SchematronError> validateSchematron(ISchematronValidator validator, SchematronValidationType schematronType,
+                                                 List<SchematronCustomAssertion> customRules, String profileName,
+                                                 Map<String, String> parameters, ErrorBudget budget) throws IOException {
+            if (parsed != null) {
+                return budget != null
+                        ? validator.validateDocument(parsed, schematronType, customRules, profileName, parameters, budget)
+                        : validator.validateDocument(parsed, schematronType, customRules, profileName, parameters);
+            }
+            if (source != null) {
+                return budget != null
+                        ? validator.validate(source, schematronType, fileName, customRules, profileName, parameters, budget)
+                        : validator.validate(source, schematronType, fileName, customRules, profileName, parameters);
+            }
+            try (InputStream in = file.getInputStream()) {
+                return budget != null
+                        ? validator.validateStream(in, schematronType, fileName, customRules, profileName, parameters, budget)
+                        : validator.validateStream(in, schematronType, fileName, customRules, profileName, parameters);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (session != null) {
+                session.close();
+            }
+        }
+    }
+
+    // ── Doğrulama Aşamaları ────────────────────────────────────────
+
+    /**
+     * XSD doğrulaması ve bastırma; sonucu yanıtın schema alanlarına yazar.
+     *
+     * @return aşama süresi (ms)
+     */
+    private long validateSchema(ValidationInput input, SchemaValidationType schemaType, String profileName,
+                                List<String> additionalSuppressions, Set<String> activeTypes,
+                                ErrorBudget budget, ValidationResponse response) {
+        long stageStart = System.nanoTime();
         try {
             // Profil bazlı XSD override'larını çözümle
             List<XsdOverride> xsdOverrides = profileService.resolveXsdOverrides(
                     profileName, schemaType.name());
 
-            List<String> schemaErrors = schemaValidator.validate(source, schemaType, xsdOverrides, profileName);
+            List<String> schemaErrors = input.validateSchema(schemaValidator, schemaType, xsdOverrides, profileName, budget);
+            if (budget != null && budget.isTruncated()) {
+                xsltMetrics.recordValidationTruncated("schema");
+            }
 
             // XSD bastırma uygula (scope-aware)
             List<String> activeSchemaErrors = profileService.applyXsdSuppressions(
                     schemaErrors, profileName, additionalSuppressions, activeTypes);
             response.setSchemaValidationErrors(activeSchemaErrors);
-            response.setValidSchema(activeSchemaErrors.isEmpty());
+            // Kesilen aşamada belgenin geri kalanı doğrulanmadı — hatalar bastırılsa da geçerli sayılmaz
+            response.setValidSchema(activeSchemaErrors.isEmpty() && (budget == null || !budget.isTruncated()));
+            if (budget != null && budget.isAggregating()) {
+                response.setSchemaErrorGroups(activeGroups(budget.groups(), new HashSet<>(activeSchemaErrors)));
+            }
         } catch (Exception e) {
+            if (budget != null) {
+                budget.recordFatal();
+            }
+            response.markStageFailed();
             response.setValidSchema(false);
             response.setSchemaValidationErrors(List.of("XSD doğrulama hatası: " + e.getMessage()));
         }
+        return (System.nanoTime() - stageStart) / 1_000_000;
+    }
 
-        // ── Schematron parametreleri ──
-        Map<String, String> schematronParameters = parseParameters(requestDto.getParameters());
-
-        // ── Schematron doğrulama ──
+    /**
+     * Schematron doğrulaması ve bastırma; sonucu yanıtın Schematron ve bastırma alanlarına yazar.
+     * Paralel modda havuz thread'inde çalışır — yalnızca kendi alanlarına yazar.
+     *
+     * @return aşama süresi (ms)
+     */
+    private long validateSchematron(ValidationInput input, SchematronValidationType schematronType,
+                                    String profileName, Map<String, String> schematronParameters,
+                                    List<String> additionalSuppressions, Set<String> activeTypes,
+                                    ErrorBudget budget, ValidationResponse response) {
+        long stageStart = System.nanoTime();
         try {
-            // Orijinal dosya adı — e-Defter Schematron base-uri() kontrolü için gerekli
-            String sourceFileName = requestDto.getSource().getOriginalFilename();
-
             // Profil bazlı özel Schematron kurallarını çözümle
             List<SchematronCustomAssertion> customSchematronRules = profileService.resolveSchematronRules(
                     profileName, schematronType.name());
 
-            List<SchematronError> rawSchematronErrors = schematronValidator.validate(
-                    source, schematronType, sourceFileName,
-                    customSchematronRules, profileName, schematronParameters);
+            List<SchematronError> rawSchematronErrors = input.validateSchematron(
+                    schematronValidator, schematronType, customSchematronRules, profileName, schematronParameters, budget);
+            if (budget != null && budget.isTruncated()) {
+                xsltMetrics.recordValidationTruncated("schematron");
+            }
 
             // Schematron bastırma uygula (scope-aware)
             SuppressionResult suppressionResult = profileService.applySchematronSuppressions(
                     rawSchematronErrors, profileName, additionalSuppressions, activeTypes);
 
             response.setSchematronValidationErrors(suppressionResult.activeErrors());
-            response.setValidSchematron(suppressionResult.activeErrors().isEmpty());
+            response.setValidSchematron(suppressionResult.activeErrors().isEmpty()
+                    && (budget == null || !budget.isTruncated()));
+            if (budget != null && budget.isAggregating()) {
+                Set<String> activeMessages = new HashSet<>();
+                suppressionResult.activeErrors().forEach(error -> activeMessages.add(error.message()));
+                response.setSchematronErrorGroups(activeGroups(budget.groups(), activeMessages));
+            }
 
             // Bastırma bilgisi — profil veya ek kurallar uygulandıysa ekle
             if ((profileName != null && !profileName.isBlank()) || !additionalSuppressions.isEmpty()) {
@@ -195,34 +664,127 @@ public class ValidationController {
             }
 
         } catch (Exception e) {
-            response.setValidSchematron(false);
-            response.setSchematronValidationErrors(List.of(
-                    new SchematronError(null, null, "Schematron doğrulama hatası: " + e.getMessage())));
+            schematronFailed(response, e.getMessage());
         }
+        return (System.nanoTime() - stageStart) / 1_000_000;
+    }
 
-        log.info("Doğrulama tamamlandı — Tür: {}, Schema: {}, Schematron: {}{}",
-                documentType,
-                response.isValidSchema() ? "Geçerli" : "Geçersiz",
-                response.isValidSchematron() ? "Geçerli" : "Geçersiz",
-                profileName != null ? " (profil: " + profileName + ")" : "");
+    /**
+     * Havuzdaki Schematron aşamasını bekler. {@link Future#get()} aşamanın yanıta yazdıklarını
+     * bu thread'e görünür kılar.
+     *
+     * @return aşama süresi (ms); aşama tamamlanamadıysa 0
+     */
+    private long awaitSchematron(Future<Long> stage, ValidationResponse response) {
+        try {
+            return stage.get();
+        } catch (InterruptedException e) {
+            stage.cancel(true);
+            Thread.currentThread().interrupt();
+            schematronFailed(response, "doğrulama kesildi");
+        } catch (ExecutionException e) {
+            schematronFailed(response, e.getCause().getMessage());
+        }
+        return 0;
+    }
 
-        int schemaErrors = response.getSchemaValidationErrors() != null ? response.getSchemaValidationErrors().size() : 0;
-        int schematronErrors = response.getSchematronValidationErrors() != null ? response.getSchematronValidationErrors().size() : 0;
-        xsltMetrics.recordValidationErrors(schemaErrors, schematronErrors);
+    private static void schematronFailed(ValidationResponse response, String message) {
+        response.markStageFailed();
+        response.setValidSchematron(false);
+        response.setSchematronValidationErrors(List.of(
+                new SchematronError(null, null, "Schematron doğrulama hatası: " + message)));
+    }
 
-        // Belge tipi bazlı doğrulama dağılımı
-        boolean overallValid = response.isValidSchema() && response.isValidSchematron();
-        xsltMetrics.recordDocumentTypeValidation(documentType.name(), overallValid);
+    /**
+     * Doğrulama modunu çözer: istek, profil, sunucu varsayılanı sırasıyla.
+     *
+     * @throws IllegalArgumentException İstekteki mod geçersiz
+     */
+    private ValidationMode resolveMode(String requested, String profileName) {
+        ValidationMode mode = ValidationMode.parse(requested);
+        if (mode != null) {
+            return mode;
+        }
+        if (profileName != null && !profileName.isBlank()) {
+            ValidationMode profileMode = profileService.getProfile(profileName)
+                    .map(ValidationProfile::mode)
+                    .orElse(null);
+            if (profileMode != null) {
+                return profileMode;
+            }
+        }
+        return defaultValidationMode;
+    }
 
-        // Profil kullanım metrikleri
+    private static String stageOutcome(boolean skipped, boolean valid) {
+        if (skipped) {
+            return "Atlandı";
+        }
+        return valid ? "Geçerli" : "Geçersiz";
+    }
+
+    /**
+     * Hata bütçesini çözer: istek, profil, sunucu varsayılanı sırasıyla.
+     *
+     * @return aşama başına hata bütçesi; 0 ise sınırsız
+     */
+    private int resolveMaxErrors(Integer requested, String profileName) {
+        if (requested != null) {
+            return requested;
+        }
         if (profileName != null && !profileName.isBlank()) {
-            int suppressedCount = response.getSuppressionInfo() != null
-                    ? ((Number) response.getSuppressionInfo().getOrDefault("suppressedCount", 0)).intValue()
-                    : 0;
-            xsltMetrics.recordProfileUsage(profileName, suppressedCount);
+            Integer profileMaxErrors = profileService.getProfile(profileName)
+                    .map(ValidationProfile::maxErrors)
+                    .orElse(null);
+            if (profileMaxErrors != null) {
+                return profileMaxErrors;
+            }
         }
+        return Math.max(defaultMaxErrors, 0);
+    }
 
-        return ResponseEntity.ok(XsltServiceResponse.success(response));
+    /**
+     * Aşama bütçesini oluşturur; sınır ve gruplama yoksa {@code null}.
+     */
+    private ErrorBudget newBudget(int maxErrors, boolean aggregate) {
+        if (aggregate) {
+            return ErrorBudget.aggregating(maxErrors, Math.max(aggregateSamples, 1));
+        }
+        return maxErrors > 0 ? new ErrorBudget(maxErrors) : null;
+    }
+
+    /**
+     * Bastırma sonrası aktif kalan grupları döndürür. Bastırma örnekler üzerinden uygulanır: tüm
+     * örnekleri bastırılan grup çıkarılır, en az bir örneği aktif kalan grup toplam sayısıyla raporlanır.
+     */
+    private static List<ErrorGroup> activeGroups(List<ErrorGroup> groups, Set<String> activeMessages) {
+        var active = new ArrayList<ErrorGroup>(groups.size());
+        for (ErrorGroup group : groups) {
+            if (group.samples().isEmpty()
+                    || group.samples().stream().anyMatch(sample -> activeMessages.contains(sample.message()))) {
+                active.add(group);
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Hata bütçesi bilgisi haritasını oluşturur. Atlanan aşamanın bütçesi {@code null} verilir ve
+     * haritada yer almaz.
+     */
+    private Map<String, Object> buildErrorBudgetInfo(int maxErrors, ErrorBudget schemaBudget,
+                                                     ErrorBudget schematronBudget) {
+        var info = new LinkedHashMap<String, Object>();
+        info.put("maxErrors", maxErrors);
+        if (schemaBudget != null) {
+            info.put("schemaTruncated", schemaBudget.isTruncated());
+            info.put("schemaErrorsSeen", schemaBudget.seen());
+        }
+        if (schematronBudget != null) {
+            info.put("schematronTruncated", schematronBudget.isTruncated());
+            info.put("schematronErrorsSeen", schematronBudget.seen());
+        }
+        return info;
     }
 
     /**
@@ -0,0 +1,108 @@
+package io.mersel.services.xslt.web.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+/**
+ * Toplu XSLT dönüşüm isteği DTO'su.
+ * <p>
+ * multipart/form-data olarak alınır. Belgeler tek bir ZIP arşivi ({@code archive})
+ * veya çok sayıda {@code documents} parçası olarak gönderilir; ikisinden biri zorunludur.
+ */
+public class BatchTransformRequestDto {
+
+    @NotBlank(message = "Dönüşüm tipi boş olamaz")
+    @Schema(description = "Tüm belgeler için ortak dönüşüm tipi",
+            example = "INVOICE",
+            allowableValues = {"INVOICE", "ARCHIVE_INVOICE", "DESPATCH_ADVICE", "RECEIPT_ADVICE", "EMM", "ECHECK"})
+    private String transformType;
+
+    @Size(max = 200)
+    @Schema(description = "Tüm belgelere uygulanacak filigran metni (opsiyonel)",
+            example = "TASLAK",
+            nullable = true)
+    private String watermarkText;
+
+    @Schema(description = "XML belgelerini içeren ZIP arşivi. Dizin ve gizli (__MACOSX) girdileri atlanır.",
+            nullable = true)
+    private MultipartFile archive;
+
+    @Schema(description = "XML belgeleri (archive yerine çok parçalı gönderim)",
+            nullable = true)
+    private List<MultipartFile> documents;
+
+    @Schema(description = "Tüm belgeler için ortak özel XSLT şablonu (opsiyonel). Bir kez derlenir.",
+            nullable = true)
+    private MultipartFile transformer;
+
+    @Size(max = 64)
+    @Schema(description = "Tüm belgeler için sunucuda kayıtlı XSLT şablonunun kimliği (opsiyonel). transformer ile birlikte gönderilemez.",
+            example = "acme-fatura",
+            nullable = true)
+    private String templateId;
+
+    @Schema(description = "Belgede gömülü XSLT şablonunu kullan (transformer sağlanmadıysa).",
+            nullable = true,
+            defaultValue = "true")
+    private Boolean useEmbeddedXslt = true;
+
+    public String getTransformType() {
+        return transformType;
+    }
+
+    public void setTransformType(String transformType) {
+        this.transformType = transformType;
+    }
+
+    public String getWatermarkText() {
+        return watermarkText;
+    }
+
+    public void setWatermarkText(String watermarkText) {
+        this.watermarkText = watermarkText;
+    }
+
+    public MultipartFile getArchive() {
+        return archive;
+    }
+
+    public void setArchive(MultipartFile archive) {
+        this.archive = archive;
+    }
+
+    public List<MultipartFile> getDocuments() {
+        return documents;
+    }
+
+    public void setDocuments(List<MultipartFile> documents) {
+        this.documents = documents;
+    }
+
+    public MultipartFile getTransformer() {
+        return transformer;
+    }
+
+    public void setTransformer(MultipartFile transformer) {
+        this.transformer = transformer;
+    }
+
+    public String getTemplateId() {
+        return templateId;
+    }
+
+    public void setTemplateId(String templateId) {
+        this.templateId = templateId;
+    }
+
+    public Boolean getUseEmbeddedXslt() {
+        return useEmbeddedXslt;
+    }
+
+    public void setUseEmbeddedXslt(Boolean useEmbeddedXslt) {
+        this.useEmbeddedXslt = useEmbeddedXslt;
+    }
+}
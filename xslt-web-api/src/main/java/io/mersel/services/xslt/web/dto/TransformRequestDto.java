@@ -33,6 +33,12 @@ public class TransformRequestDto {
             nullable = true)
     private MultipartFile transformer;
 
+    @Size(max = 64)
+    @Schema(description = "Sunucuda kayıtlı XSLT şablonunun kimliği (opsiyonel). Şablon bir kez /v1/admin/templates ile yüklenir; transformer ile birlikte gönderilemez.",
+            example = "acme-fatura",
+            nullable = true)
+    private String templateId;
+
     @Schema(description = """
             Belgede gömülü XSLT şablonunu kullan.
             true ise ve transformer sağlanmadıysa, XML belgesindeki
@@ -43,6 +49,18 @@ public class TransformRequestDto {
             defaultValue = "true")
     private Boolean useEmbeddedXslt = true;
 
+    @Schema(description = """
+            Render yeri. `server` (varsayılan) HTML'i sunucuda üretir.
+            `client` ise XSLT 1.0 şablonlar için orijinal XML'i, şablona işaret eden
+            `xml-stylesheet` işlem talimatı ile döner; dönüşümü tarayıcı yapar.
+            Şablon XSLT 2.0/3.0 ise veya özel/gömülü XSLT ya da filigran kullanılıyorsa
+            sunucu tarafı render'a geri dönülür. Yalnızca `/v1/transform` için geçerlidir.""",
+            example = "client",
+            allowableValues = {"server", "client"},
+            nullable = true,
+            defaultValue = "server")
+    private String renderMode;
+
     public String getTransformType() {
         return transformType;
     }
@@ -75,6 +93,14 @@ public class TransformRequestDto {
         this.transformer = transformer;
     }
 
+    public String getTemplateId() {
+        return templateId;
+    }
+
+    public void setTemplateId(String templateId) {
+        this.templateId = templateId;
+    }
+
     public Boolean getUseEmbeddedXslt() {
         return useEmbeddedXslt;
     }
@@ -82,4 +108,12 @@ public class TransformRequestDto {
     public void setUseEmbeddedXslt(Boolean useEmbeddedXslt) {
         this.useEmbeddedXslt = useEmbeddedXslt;
     }
+
+    public String getRenderMode() {
+        return renderMode;
+    }
+
+    public void setRenderMode(String renderMode) {
+        this.renderMode = renderMode;
+    }
 }
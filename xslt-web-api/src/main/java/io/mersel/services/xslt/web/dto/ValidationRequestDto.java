@@ -1,6 +1,8 @@
 package io.mersel.services.xslt.web.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import org.springframework.web.multipart.MultipartFile;
@@ -50,6 +52,35 @@ public class ValidationRequestDto {
             nullable = true)
     private String parameters;
 
+    @Min(1)
+    @Max(1_000_000)
+    @Schema(description = """
+            Aşama başına hata bütçesi. XSD ve Schematron aşamalarının her biri bu sayıdan fazla hata \
+            bulduğunda erken sonlandırılır; yanıttaki 'errorBudget' alanı aşamanın kesildiğini ve \
+            görülen hata sayısını bildirir. Belirtilmezse profildeki veya sunucudaki varsayılan kullanılır.""",
+            example = "100",
+            nullable = true)
+    private Integer maxErrors;
+
+    @Schema(description = """
+            Tekrarlı hataları kurala göre grupla. Schematron hataları ruleId + test, XSD hataları cvc kodu + element \
+            ile gruplanır; yanıttaki 'schemaErrorGroups' ve 'schematronErrorGroups' alanları her grup için toplam \
+            sayıyı ve ilk birkaç örneği taşır, düz hata listeleri yalnızca örnekleri içerir.""",
+            example = "true",
+            nullable = true)
+    private Boolean aggregateErrors;
+
+    @Schema(description = """
+            Çalışacak doğrulama aşamaları. 'full' XSD ve Schematron'u birlikte, 'xsd-only' yalnızca XSD'yi, \
+            'schematron-only' yalnızca Schematron'u çalıştırır. 'skip-schematron-on-fatal' önce XSD'yi çalıştırır; \
+            belge iyi biçimli değilse veya XSD aşaması tamamlanamadıysa Schematron atlanır. Atlanan aşamalar \
+            yanıttaki 'skippedStages' alanında nedeniyle raporlanır. Verilmezse profildeki mod, o da yoksa \
+            sunucu varsayılanı (xslt.validation.mode) kullanılır.""",
+            example = "xsd-only",
+            allowableValues = {"full", "xsd-only", "schematron-only", "skip-schematron-on-fatal"},
+            nullable = true)
+    private String mode;
+
     public MultipartFile getSource() {
         return source;
     }
@@ -81,4 +112,28 @@ public class ValidationRequestDto {
     public void setParameters(String parameters) {
         this.parameters = parameters;
     }
+
+    public Integer getMaxErrors() {
+        return maxErrors;
+    }
+
+    public void setMaxErrors(Integer maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    public Boolean getAggregateErrors() {
+        return aggregateErrors;
+    }
+
+    public void setAggregateErrors(Boolean aggregateErrors) {
+        this.aggregateErrors = aggregateErrors;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
 }
@@ -0,0 +1,104 @@
+package io.mersel.services.xslt.web.infrastructure;
+
+import io.mersel.services.xslt.application.interfaces.IBatchTransformer.DocumentSource;
+import io.mersel.services.xslt.application.models.BatchDocument;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Toplu dönüşüm girdilerini {@link DocumentSource} olarak sunan yardımcı sınıf.
+ * <p>
+ * Belgeler tembel okunur — ZIP arşivi baştan sona tek geçişte açılır, tamamı belleğe alınmaz.
+ * Boyut limitini aşan belgeler okunmadan {@link BatchDocument#rejected} olarak iletilir
+ * (zip bomb koruması: açılan byte sayısı belge başına sınırlıdır).
+ */
+public final class BatchDocumentSources {
+
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private BatchDocumentSources() {
+    }
+
+    /**
+     * ZIP arşivindeki dosyaları sırayla okur. Dizinler ve {@code __MACOSX/} / nokta ile
+     * başlayan gizli dosyalar atlanır.
+     *
+     * @param archive          ZIP içeriği (çağıran kapatır)
+     * @param maxDocumentBytes Belge başına maksimum açılmış boyut
+     */
+    public static DocumentSource fromZip(InputStream archive, long maxDocumentBytes) {
+        var zip = new ZipInputStream(archive);
+        return () -> {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory() || isHidden(entry.getName())) {
+                    continue;
+                }
+                byte[] content = readLimited(zip, maxDocumentBytes);
+                if (content == null) {
+                    return BatchDocument.rejected(entry.getName(), tooLarge(maxDocumentBytes));
+                }
+                return BatchDocument.of(entry.getName(), content);
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Multipart dosya parçalarını sırayla okur.
+     *
+     * @param parts            Yüklenen belgeler
+     * @param maxDocumentBytes Belge başına maksimum boyut
+     */
+    public static DocumentSource fromParts(List<MultipartFile> parts, long maxDocumentBytes) {
+        Iterator<MultipartFile> iterator = parts.iterator();
+        return () -> {
+            while (iterator.hasNext()) {
+                MultipartFile part = iterator.next();
+                if (part == null || part.isEmpty()) {
+                    continue;
+                }
+                String name = part.getOriginalFilename() != null ? part.getOriginalFilename() : part.getName();
+                if (part.getSize() > maxDocumentBytes) {
+                    return BatchDocument.rejected(name, tooLarge(maxDocumentBytes));
+                }
+                return BatchDocument.of(name, part.getBytes());
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Mevcut ZIP girdisini en fazla {@code limit} byte okur.
+     *
+     * @return içerik; limit aşıldıysa {@code null} (girdinin kalanı atlanır)
+     */
+    private static byte[] readLimited(InputStream in, long limit) throws IOException {
+        var out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (out.size() + (long) read > limit) {
+                return null;
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean isHidden(String name) {
+        String fileName = name.substring(name.lastIndexOf('/') + 1);
+        return name.startsWith("__MACOSX/") || fileName.startsWith(".");
+    }
+
+    private static String tooLarge(long maxDocumentBytes) {
+        return "Belge boyutu çok büyük. Maksimum izin verilen: " + (maxDocumentBytes / (1024 * 1024)) + " MB";
+    }
+}
@@ -61,4 +61,29 @@ public final class XsltHeaders {
      * Örnek: {@code cookie access, fetch API network call, redirect/exfiltration via location}
      */
     public static final String SECURITY_VIOLATIONS = "X-Xslt-Security-Violations";
+
+    /**
+     * Sanitization sonrası izin verilen script'lerin Base64-encoded SHA-256 hash'leri (virgülle ayrılmış).
+     * <p>
+     * Yalnızca akış modunda ({@code /v1/transform/stream}) trailer olarak gönderilir. Yanıt katı
+     * {@code script-src 'none'} CSP ile döndüğü için HTML'i tarayıcıya sunan tüketici bu hash'lerle
+     * kendi CSP'sini oluşturabilir.
+     */
+    public static final String SCRIPT_HASHES = "X-Xslt-Script-Hashes";
+
+    /**
+     * Sonuç cache durumu ({@code HIT} / {@code MISS}).
+     * <p>
+     * Yalnızca {@code xslt.cache.transform-result-enabled=true} iken gönderilir; bu durumda yanıt
+     * güçlü bir {@code ETag} de taşır.
+     */
+    public static final String CACHE_STATUS = "X-Xslt-Cache";
+
+    /**
+     * Yanıtın render yeri ({@code server} / {@code client}).
+     * <p>
+     * {@code client} ise gövde HTML değil, {@code xml-stylesheet} işlem talimatı eklenmiş orijinal
+     * XML belgesidir; dönüşümü tarayıcı yapar.
+     */
+    public static final String RENDER_MODE = "X-Xslt-Render-Mode";
 }
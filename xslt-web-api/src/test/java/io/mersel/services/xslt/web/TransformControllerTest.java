@@ -1,7 +1,10 @@
 package io.mersel.services.xslt.web;
 
+import io.mersel.services.xslt.application.interfaces.IBatchTransformer;
+import io.mersel.services.xslt.application.interfaces.IXsltTemplateRegistry;
 import io.mersel.services.xslt.application.interfaces.IXsltTransformer;
 import io.mersel.services.xslt.application.interfaces.IXsltTransformer.TransformException;
+import io.mersel.services.xslt.application.models.ClientTemplate;
 import io.mersel.services.xslt.application.models.TransformResult;
 import io.mersel.services.xslt.infrastructure.diagnostics.XsltMetrics;
 import io.mersel.services.xslt.web.controllers.TransformController;
@@ -19,8 +22,15 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -36,6 +46,12 @@ class TransformControllerTest {
     @Mock
     private IXsltTransformer xsltTransformer;
 
+    @Mock
+    private IBatchTransformer batchTransformer;
+
+    @Mock
+    private IXsltTemplateRegistry templateRegistry;
+
     @Mock
     private XsltMetrics xsltMetrics;
 
@@ -258,4 +274,309 @@ class TransformControllerTest {
                 .andExpect(header().string(XsltHeaders.SCRIPTS_REMOVED, "3"))
                 .andExpect(header().exists("Content-Security-Policy"));
     }
+
+    // ── Akış Modu Testleri ───────────────────────────────────────────
+
+    @Test
+    @DisplayName("POST /v1/transform/stream — HTML akışa yazılmalı, katı CSP ve Trailer header'ı dönmeli")
+    void shouldStreamHtmlWithStrictCspAndTrailerDeclaration() throws Exception {
+        byte[] html = "<html><body>Akış</body></html>".getBytes();
+        var result = TransformResult.builder()
+                .outputSize(html.length)
+                .defaultXslUsed(true)
+                .allowedScriptHashes(List.of("abc123"))
+                .durationMs(90)
+                .build();
+
+        when(xsltTransformer.transform(any(), any())).thenAnswer(invocation -> {
+            OutputStream output = invocation.getArgument(1);
+            output.write(html);
+            return result;
+        });
+
+        var xmlFile = new MockMultipartFile("document", "test.xml", "text/xml",
+                "<Invoice/>".getBytes());
+
+        mockMvc.perform(multipart("/v1/transform/stream")
+                        .file(xmlFile)
+                        .param("transformType", "INVOICE")
+                        .param("watermarkText", "TASLAK"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_HTML))
+                .andExpect(content().string("<html><body>Akış</body></html>"))
+                .andExpect(header().string(XsltHeaders.WATERMARK_APPLIED, "true"))
+                .andExpect(header().string("Content-Security-Policy",
+                        org.hamcrest.Matchers.containsString("script-src 'none'")))
+                .andExpect(header().string("Trailer",
+                        org.hamcrest.Matchers.containsString(XsltHeaders.SCRIPT_HASHES)));
+    }
+
+    @Test
+    @DisplayName("POST /v1/transform/stream — çıktı yazılmadan başarısız dönüşüm 422 ProblemDetail dönmeli")
+    void shouldReturn422WhenStreamingTransformFailsBeforeOutput() throws Exception {
+        when(xsltTransformer.transform(any(), any()))
+                .thenThrow(new TransformException("XML belgesi dönüştürülemedi: malformed content"));
+
+        var xmlFile = new MockMultipartFile("document", "test.xml", "text/xml",
+                "<Invoice/>".getBytes());
+
+        mockMvc.perform(multipart("/v1/transform/stream")
+                        .file(xmlFile)
+                        .param("transformType", "INVOICE"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(header().doesNotExist("Trailer"));
+    }
+
+    @Test
+    @DisplayName("Bilinmeyen templateId 400 dönmeli, dönüşüm çalıştırılmamalı")
+    void shouldReturn400ForUnknownTemplateId() throws Exception {
+        when(templateRegistry.getTemplate("olmayan")).thenReturn(Optional.empty());
+
+        var xmlFile = new MockMultipartFile("document", "test.xml", "text/xml",
+                "<Invoice/>".getBytes());
+
+        mockMvc.perform(multipart("/v1/transform")
+                        .file(xmlFile)
+                        .param("transformType", "INVOICE")
+                        .param("templateId", "olmayan"))
+                .andExpect(status().isBadRequest());
+
+        verify(xsltTransformer, never()).transform(any());
+    }
+
+    // ── Sonuç Cache / ETag Testleri ──────────────────────────────────
+
+    @Test
+    @DisplayName("Sonuç cache'i açıkken ETag ve X-Xslt-Cache header'ları dönmeli")
+    void shouldReturnETagAndCacheStatusWhenResultCacheEnabled() throws Exception {
+        when(xsltTransformer.resultTag(any())).thenReturn("abc123");
+        when(xsltTransformer.transform(any())).thenReturn(TransformResult.builder()
+                .htmlContent("<html/>".getBytes())
+                .defaultXslUsed(true)
+                .resultTag("abc123")
+                .cacheHit(true)
+                .build());
+
+        var xmlFile = new MockMultipartFile("document", "test.xml", "text/xml",
+                "<Invoice/>".getBytes());
+
+        mockMvc.perform(multipart("/v1/transform")
+                        .file(xmlFile)
+                        .param("transformType", "INVOICE")
+                        .header("If-None-Match", "\"eskietiket\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc123\""))
+                .andExpect(header().string(XsltHeaders.CACHE_STATUS, "HIT"));
+    }
+
+    @Test
+    @DisplayName("If-None-Match eşleşirse dönüşüm çalıştırılmadan 304 dönmeli")
+    void shouldReturn304WhenIfNoneMatchMatches() throws Exception {
+        when(xsltTransformer.resultTag(any())).thenReturn("abc123");
+        when(xsltTransformer.hasCachedResult("abc123")).thenReturn(true);
+
+        var xmlFile = new MockMultipartFile("document", "test.xml", "text/xml",
+                "<Invoice/>".getBytes());
+
+        mockMvc.perform(multipart("/v1/transform")
+                        .file(xmlFile)
+                        .param("transformType", "INVOICE")
+                        .header("If-None-Match", "\"diger\", W/\"abc123\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"abc123\""))
+                .andExpect(content().string(""));
+
+        verify(xsltTransformer, never()).transform(any());
+    }
+
+    @Test
+    @DisplayName("POST /v1/transform/stream — özel XSLT varsayılana dönerse ETag gönderilmemeli, 304 dönmemeli")
+    void shouldNotSendETagOrNotModifiedWhenStreamedCustomXsltFallsBack() throws Exception {
+        byte[] html = "<html><body>Default</body></html>".getBytes();
+        when(xsltTransformer.resultTag(any())).thenReturn("abc123");
+        // Varsayılana dönülen sonuç cache'e yazılmaz
+        when(xsltTransformer.hasCachedResult("abc123")).thenReturn(false);
+        when(xsltTransformer.transform(any(), any())).thenAnswer(invocation -> {
+            OutputStream output = invocation.getArgument(1);
+            output.write(html);
+            return TransformResult.builder()
+                    .outputSize(html.length)
+                    .defaultXslUsed(true)
+                    .customXsltError("XSLT süre bütçesi aşıldı")
+                    .build();
+        });
+
+        var xmlFile = new MockMultipartFile("document", "test.xml", "text/xml",
+                "<Invoice/>".getBytes());
+        var xsltFile = new MockMultipartFile("transformer", "custom.xslt", "text/xml",
+                "<xsl:stylesheet/>".getBytes());
+
+        mockMvc.perform(multipart("/v1/transform/stream")
+                        .file(xmlFile)
+                        .file(xsltFile)
+                        .param("transformType", "INVOICE")
+                        .header("If-None-Match", "\"abc123\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(content().string("<html><body>Default</body></html>"));
+
+        verify(xsltTransformer).transform(any(), any());
+    }
+
+    @Test
+    @DisplayName("Önceden sıkıştırılmış çıktı yalnızca gzip kabul eden istemciye Content-Encoding ile dönmeli")
+    void shouldReturnPrecompressedBodyWhenGzipAccepted() throws Exception {
+        byte[] gzipBody = {0x1f, (byte) 0x8b, 0x08, 0x00};
+        when(xsltTransformer.resultTag(any())).thenReturn("abc123");
+        when(xsltTransformer.transform(any())).thenReturn(TransformResult.builder()
+                .htmlContent("<html/>".getBytes())
+                .gzipContent(gzipBody)
+                .defaultXslUsed(true)
+                .resultTag("abc123")
+                .build());
+
+        var xmlFile = new MockMultipartFile("document", "test.xml", "text/xml",
+                "<Invoice/>".getBytes());
+
+        mockMvc.perform(multipart("/v1/transform")
+                        .file(xmlFile)
+                        .param("transformType", "INVOICE")
+                        .header("Accept-Encoding", "br, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andExpect(header().string("ETag", "\"abc123-gzip\""))
+                .andExpect(content().bytes(gzipBody));
+
+        mockMvc.perform(multipart("/v1/transform")
+                        .file(xmlFile)
+                        .param("transformType", "INVOICE")
+                        .header("Accept-Encoding", "gzip;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(header().string("ETag", "\"abc123\""))
+                .andExpect(content().string("<html/>"));
+    }
+
+    // ── İstemci Tarafı Render Testleri ───────────────────────────────
+
+    @Test
+    @DisplayName("renderMode=client — XSLT 1.0 şablonda XML, xml-stylesheet talimatı ve sandbox CSP ile dönmeli")
+    void shouldReturnXmlWithStylesheetInstructionForClientRender() throws Exception {
+        var template = new ClientTemplate("3f5a0c9e1b2d4f68", "<xsl:stylesheet/>".getBytes(), List.of("abc123="));
+        when(xsltTransformer.resolveClientTemplate(any())).thenReturn(Optional.of(template));
+
+        var xmlFile = new MockMultipartFile("document", "test.xml", "text/xml",
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?><Invoice/>".getBytes());
+
+        mockMvc.perform(multipart("/v1/transform")
+                        .file(xmlFile)
+                        .param("transformType", "INVOICE")
+                        .param("renderMode", "client"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_XML))
+                .andExpect(header().string(XsltHeaders.RENDER_MODE, "client"))
+                .andExpect(content().string("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                        + "<?xml-stylesheet type=\"text/xsl\" href=\"http://localhost/v1/transform/templates/3f5a0c9e1b2d4f68.xsl\"?>"
+                        + "<Invoice/>"))
+                .andExpect(header().string("Content-Security-Policy",
+                        org.hamcrest.Matchers.containsString("script-src http://localhost/v1/transform/templates/ 'sha256-abc123='")))
+                .andExpect(header().string("Content-Security-Policy",
+                        org.hamcrest.Matchers.containsString("sandbox allow-scripts allow-same-origin")));
+
+        verify(xsltTransformer, never()).transform(any());
+    }
+
+    @Test
+    @DisplayName("renderMode=client — şablon tarayıcıya uygun değilse sunucu tarafı render'a dönmeli")
+    void shouldFallbackToServerRenderWhenTemplateNotBrowserCompatible() throws Exception {
+        when(xsltTransformer.transform(any())).thenReturn(TransformResult.builder()
+                .htmlContent("<html/>".getBytes())
+                .defaultXslUsed(true)
+                .build());
+
+        var xmlFile = new MockMultipartFile("document", "test.xml", "text/xml",
+                "<Invoice/>".getBytes());
+
+        mockMvc.perform(multipart("/v1/transform")
+                        .file(xmlFile)
+                        .param("transformType", "INVOICE")
+                        .param("renderMode", "client"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_HTML))
+                .andExpect(header().string(XsltHeaders.RENDER_MODE, "server"));
+
+        verify(xsltMetrics).recordTransformRenderMode("server");
+    }
+
+    @Test
+    @DisplayName("GET /v1/transform/templates/{hash}.xsl — şablon değişmez cache header'ları ile dönmeli")
+    void shouldServeClientTemplateWithImmutableCaching() throws Exception {
+        var template = new ClientTemplate("3f5a0c9e1b2d4f68", "<xsl:stylesheet/>".getBytes(), List.of());
+        when(xsltTransformer.getClientTemplate("3f5a0c9e1b2d4f68")).thenReturn(Optional.of(template));
+
+        mockMvc.perform(get("/v1/transform/templates/3f5a0c9e1b2d4f68.xsl"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_XML))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+                .andExpect(header().string("ETag", "\"3f5a0c9e1b2d4f68\""))
+                .andExpect(content().string("<xsl:stylesheet/>"));
+
+        mockMvc.perform(get("/v1/transform/templates/0000000000000000.xsl"))
+                .andExpect(status().isNotFound());
+    }
+
+    // ── Toplu Dönüşüm Testleri ───────────────────────────────────────
+
+    @Test
+    @DisplayName("POST /v1/transform/batch — çoklu parça ile ZIP yanıtı dönmeli")
+    void shouldReturnZipForBatchTransform() throws Exception {
+        when(batchTransformer.transform(any(), any(), any())).thenAnswer(invocation -> {
+            IBatchTransformer.DocumentSource source = invocation.getArgument(1);
+            OutputStream output = invocation.getArgument(2);
+            int count = 0;
+            while (source.next() != null) {
+                count++;
+            }
+            output.write(("PK" + count).getBytes());
+            return null;
+        });
+
+        mockMvc.perform(multipart("/v1/transform/batch")
+                        .file(new MockMultipartFile("documents", "a.xml", "text/xml", "<Invoice/>".getBytes()))
+                        .file(new MockMultipartFile("documents", "b.xml", "text/xml", "<Invoice/>".getBytes()))
+                        .param("transformType", "INVOICE"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/zip"))
+                .andExpect(header().string("Content-Disposition",
+                        org.hamcrest.Matchers.containsString("transform-invoice.zip")))
+                .andExpect(content().string("PK2"));
+    }
+
+    @Test
+    @DisplayName("POST /v1/transform/batch — toplu belge limitini aşan parça yanıt başlamadan 400 dönmeli")
+    void shouldReturn400ForOversizedBatchPartBeforeStreaming() throws Exception {
+        var field = TransformController.class.getDeclaredField("batchMaxDocumentSizeMb");
+        field.setAccessible(true);
+        field.setInt(transformController, 1);
+
+        mockMvc.perform(multipart("/v1/transform/batch")
+                        .file(new MockMultipartFile("documents", "a.xml", "text/xml", "<Invoice/>".getBytes()))
+                        .file(new MockMultipartFile("documents", "buyuk.xml", "text/xml", new byte[1024 * 1024 + 1]))
+                        .param("transformType", "INVOICE"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_PROBLEM_JSON));
+
+        verify(batchTransformer, never()).transform(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("POST /v1/transform/batch — girdi yoksa 400 ProblemDetail dönmeli")
+    void shouldReturn400ForBatchWithoutDocuments() throws Exception {
+        mockMvc.perform(multipart("/v1/transform/batch")
+                        .param("transformType", "INVOICE"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_PROBLEM_JSON));
+    }
 }
@@ -7,9 +7,13 @@ import io.mersel.services.xslt.application.interfaces.DocumentTypeDetectionExcep
 import io.mersel.services.xslt.application.interfaces.IDocumentTypeDetector;
 import io.mersel.services.xslt.application.interfaces.ISchemaValidator;
 import io.mersel.services.xslt.application.interfaces.ISchematronValidator;
+import io.mersel.services.xslt.application.interfaces.IValidationDocumentParser;
 import io.mersel.services.xslt.application.interfaces.IValidationProfileService;
+import io.mersel.services.xslt.application.models.ErrorBudget;
+import io.mersel.services.xslt.application.models.ParsedDocument;
 import io.mersel.services.xslt.application.models.SchematronError;
 import io.mersel.services.xslt.application.models.SuppressionResult;
+import io.mersel.services.xslt.infrastructure.AssetRegistry;
 import io.mersel.services.xslt.infrastructure.diagnostics.XsltMetrics;
 import io.mersel.services.xslt.web.controllers.ValidationController;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -24,10 +28,16 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
@@ -45,6 +55,9 @@ class ValidationControllerTest {
 
     private MockMvc mockMvc;
 
+    @Mock
+    private IValidationDocumentParser documentParser;
+
     @Mock
     private IDocumentTypeDetector documentTypeDetector;
 
@@ -57,6 +70,9 @@ class ValidationControllerTest {
     @Mock
     private IValidationProfileService profileService;
 
+    @Mock
+    private AssetRegistry assetRegistry;
+
     @Mock
     private XsltMetrics xsltMetrics;
 
@@ -65,8 +81,8 @@ class ValidationControllerTest {
     @BeforeEach
     void setUp() throws Exception {
         validationController = new ValidationController(
-                documentTypeDetector, schemaValidator, schematronValidator,
-                profileService, xsltMetrics, new ObjectMapper());
+                documentParser, documentTypeDetector, schemaValidator, schematronValidator,
+                profileService, assetRegistry, xsltMetrics, new ObjectMapper());
 
         var sizeField = ValidationController.class.getDeclaredField("maxValidationSizeMb");
         sizeField.setAccessible(true);
@@ -210,6 +226,184 @@ class ValidationControllerTest {
                 .andExpect(jsonPath("$.result.suppressionInfo.suppressedErrors.length()").value(1));
     }
 
+    @Test
+    @DisplayName("Paralel modda XSD ve Schematron eşzamanlı çalışmalı, aşama süreleri dönmeli")
+    void shouldRunSchemaAndSchematronConcurrently() throws Exception {
+        var stageField = ValidationController.class.getDeclaredField("stageParallelism");
+        stageField.setAccessible(true);
+        stageField.setInt(validationController, 2);
+        var init = ValidationController.class.getDeclaredMethod("init");
+        init.setAccessible(true);
+        init.invoke(validationController);
+
+        // XSD aşaması, Schematron aşaması başlamadan bitemez — sıralı çalışsaydı zaman aşımına düşerdi
+        var schematronStarted = new CountDownLatch(1);
+        var schemaThread = new AtomicReference<Thread>();
+        var schematronThread = new AtomicReference<Thread>();
+
+        when(documentTypeDetector.detect(any(byte[].class)))
+                .thenReturn(DocumentType.INVOICE);
+        when(profileService.resolveXsdOverrides(isNull(), eq("INVOICE")))
+                .thenReturn(Collections.emptyList());
+        when(profileService.resolveSchematronRules(isNull(), anyString()))
+                .thenReturn(Collections.emptyList());
+        when(schemaValidator.validate(any(), eq(SchemaValidationType.INVOICE), anyList(), any()))
+                .thenAnswer(invocation -> {
+                    schemaThread.set(Thread.currentThread());
+                    if (!schematronStarted.await(5, TimeUnit.SECONDS)) {
+                        return List.of("Schematron başlamadı");
+                    }
+                    return List.of("Şema hatası");
+                });
+        when(schematronValidator.validate(any(), eq(SchematronValidationType.UBLTR_MAIN), any(), anyList(), isNull(), anyMap()))
+                .thenAnswer(invocation -> {
+                    schematronThread.set(Thread.currentThread());
+                    schematronStarted.countDown();
+                    return Collections.emptyList();
+                });
+        when(profileService.applyXsdSuppressions(anyList(), isNull(), anyList(), anySet()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(profileService.applySchematronSuppressions(anyList(), isNull(), anyList(), anySet()))
+                .thenReturn(new SuppressionResult(List.of(), List.of(), null, 0));
+
+        var xmlFile = new MockMultipartFile("source", "test.xml", "text/xml",
+                "<Invoice xmlns=\"urn:oasis:names:specification:ubl:schema:xsd:Invoice-2\"/>".getBytes());
+
+        try {
+            mockMvc.perform(multipart("/v1/validate")
+                            .file(xmlFile))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.result.validSchema").value(false))
+                    .andExpect(jsonPath("$.result.schemaValidationErrors[0]").value("Şema hatası"))
+                    .andExpect(jsonPath("$.result.validSchematron").value(true))
+                    .andExpect(jsonPath("$.result.executionMode").value("parallel"))
+                    .andExpect(jsonPath("$.result.stageTimingsMs.schema").exists())
+                    .andExpect(jsonPath("$.result.stageTimingsMs.schematron").exists())
+                    .andExpect(jsonPath("$.result.stageTimingsMs.total").exists());
+        } finally {
+            var shutdown = ValidationController.class.getDeclaredMethod("shutdown");
+            shutdown.setAccessible(true);
+            shutdown.invoke(validationController);
+        }
+
+        assertThat(schematronThread.get()).isNotSameAs(schemaThread.get());
+        verify(xsltMetrics).recordValidationRequest(eq("parallel"), anyLong());
+    }
+
+    @Test
+    @DisplayName("Belge bir kez parse edilmeli, tespit ve iki aşama aynı ağacı kullanmalı")
+    void shouldShareParsedDocumentAcrossStages() throws Exception {
+        ParsedDocument parsed = mock(ParsedDocument.class);
+        when(documentParser.parse(any(byte[].class), eq("test.xml")))
+                .thenReturn(Optional.of(parsed));
+        when(documentTypeDetector.detect(parsed))
+                .thenReturn(DocumentType.INVOICE);
+        when(profileService.resolveXsdOverrides(isNull(), eq("INVOICE")))
+                .thenReturn(Collections.emptyList());
+        when(profileService.resolveSchematronRules(isNull(), anyString()))
+                .thenReturn(Collections.emptyList());
+        when(schemaValidator.validateDocument(same(parsed), eq(SchemaValidationType.INVOICE), anyList(), any()))
+                .thenReturn(Collections.emptyList());
+        when(schematronValidator.validateDocument(same(parsed), eq(SchematronValidationType.UBLTR_MAIN), anyList(), isNull(), anyMap()))
+                .thenReturn(Collections.emptyList());
+        when(profileService.applyXsdSuppressions(anyList(), isNull(), anyList(), anySet()))
+                .thenReturn(Collections.emptyList());
+        when(profileService.applySchematronSuppressions(anyList(), isNull(), anyList(), anySet()))
+                .thenReturn(new SuppressionResult(List.of(), List.of(), null, 0));
+
+        var xmlFile = new MockMultipartFile("source", "test.xml", "text/xml",
+                "<Invoice xmlns=\"urn:oasis:names:specification:ubl:schema:xsd:Invoice-2\"/>".getBytes());
+
+        mockMvc.perform(multipart("/v1/validate")
+                        .file(xmlFile))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.detectedDocumentType").value("INVOICE"))
+                .andExpect(jsonPath("$.result.validSchema").value(true))
+                .andExpect(jsonPath("$.result.validSchematron").value(true));
+
+        verify(documentParser, times(1)).parse(any(byte[].class), any());
+        verify(documentTypeDetector, never()).detect(any(byte[].class));
+        verify(schemaValidator, never()).validate(any(), any(SchemaValidationType.class), anyList(), any());
+        verify(schematronValidator, never()).validate(any(), any(SchematronValidationType.class), any(), anyList(), any(), anyMap());
+    }
+
+    @Test
+    @DisplayName("Eşik üstündeki belge belleğe alınmadan akıştan doğrulanmalı")
+    void shouldValidateLargeDocumentFromStream() throws Exception {
+        var thresholdField = ValidationController.class.getDeclaredField("streamingThresholdMb");
+        thresholdField.setAccessible(true);
+        thresholdField.setInt(validationController, 0);
+
+        when(documentTypeDetector.detect(any(InputStream.class)))
+                .thenReturn(DocumentType.EDEFTER_KEBIR);
+        when(profileService.resolveXsdOverrides(isNull(), eq("EDEFTER")))
+                .thenReturn(Collections.emptyList());
+        when(profileService.resolveSchematronRules(isNull(), anyString()))
+                .thenReturn(Collections.emptyList());
+        when(schemaValidator.validateStream(any(InputStream.class), eq(SchemaValidationType.EDEFTER), anyList(), any()))
+                .thenReturn(Collections.emptyList());
+        when(schematronValidator.validateStream(any(InputStream.class), eq(SchematronValidationType.EDEFTER_KEBIR),
+                eq("kebir.xml"), anyList(), isNull(), anyMap()))
+                .thenReturn(Collections.emptyList());
+        when(profileService.applyXsdSuppressions(anyList(), isNull(), anyList(), anySet()))
+                .thenReturn(Collections.emptyList());
+        when(profileService.applySchematronSuppressions(anyList(), isNull(), anyList(), anySet()))
+                .thenReturn(new SuppressionResult(List.of(), List.of(), null, 0));
+
+        var xmlFile = new MockMultipartFile("source", "kebir.xml", "text/xml",
+                "<edefter:defter xmlns:edefter=\"http://www.edefter.gov.tr\"/>".getBytes());
+
+        mockMvc.perform(multipart("/v1/validate")
+                        .file(xmlFile))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.detectedDocumentType").value("EDEFTER_KEBIR"))
+                .andExpect(jsonPath("$.result.validSchema").value(true))
+                .andExpect(jsonPath("$.result.validSchematron").value(true));
+
+        verifyNoInteractions(documentParser);
+        verify(documentTypeDetector, never()).detect(any(byte[].class));
+        verify(schemaValidator, never()).validate(any(), any(SchemaValidationType.class), anyList(), any());
+    }
+
+    @Test
+    @DisplayName("Akış modunda tür tespiti ve XSD tek geçiş oturumuyla yapılmalı")
+    void shouldDetectAndValidateSchemaInSinglePass() throws Exception {
+        var thresholdField = ValidationController.class.getDeclaredField("streamingThresholdMb");
+        thresholdField.setAccessible(true);
+        thresholdField.setInt(validationController, 0);
+
+        var session = mock(ISchemaValidator.StreamSession.class);
+        when(schemaValidator.openStream(any())).thenReturn(session);
+        when(session.detectDocumentType()).thenReturn(DocumentType.INVOICE);
+        when(session.validate(eq(SchemaValidationType.INVOICE), anyList(), any()))
+                .thenReturn(List.of("cvc-complex-type.2.4.a: Invalid content"));
+        when(profileService.resolveXsdOverrides(isNull(), eq("INVOICE")))
+                .thenReturn(Collections.emptyList());
+        when(profileService.resolveSchematronRules(isNull(), anyString()))
+                .thenReturn(Collections.emptyList());
+        when(schematronValidator.validateStream(any(InputStream.class), eq(SchematronValidationType.UBLTR_MAIN),
+                eq("invoice.xml"), anyList(), isNull(), anyMap()))
+                .thenReturn(Collections.emptyList());
+        when(profileService.applyXsdSuppressions(anyList(), isNull(), anyList(), anySet()))
+                .thenReturn(List.of("cvc-complex-type.2.4.a: Invalid content"));
+        when(profileService.applySchematronSuppressions(anyList(), isNull(), anyList(), anySet()))
+                .thenReturn(new SuppressionResult(List.of(), List.of(), null, 0));
+
+        var xmlFile = new MockMultipartFile("source", "invoice.xml", "text/xml",
+                "<Invoice xmlns=\"urn:oasis:names:specification:ubl:schema:xsd:Invoice-2\"/>".getBytes());
+
+        mockMvc.perform(multipart("/v1/validate")
+                        .file(xmlFile))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.detectedDocumentType").value("INVOICE"))
+                .andExpect(jsonPath("$.result.validSchema").value(false))
+                .andExpect(jsonPath("$.result.validSchematron").value(true));
+
+        verify(session).close();
+        verifyNoInteractions(documentTypeDetector);
+        verify(schemaValidator, never()).validateStream(any(), any(), anyList(), any());
+    }
+
     @Test
     @DisplayName("e-Defter belgesi için doğru tespit bilgisi dönmeli")
     void shouldDetectEDefterDocument() throws Exception {
@@ -241,6 +435,200 @@ class ValidationControllerTest {
                 .andExpect(jsonPath("$.result.appliedSchematronPath").value("validator/eledger/schematron/edefter_yevmiye.sch"));
     }
 
+    @Test
+    @DisplayName("aggregateErrors ile hatalar kurala göre gruplanmalı, tamamen bastırılan grup düşmeli")
+    void shouldReturnAggregatedErrorGroups() throws Exception {
+        var lineError = new SchematronError("LineCheck", "cbc:ID", "Satır hatalı");
+        var signatureError = new SchematronError("XadesSignatureCheck", "ds:Signature", "İmza yok");
+
+        when(documentTypeDetector.detect(any(byte[].class)))
+                .thenReturn(DocumentType.INVOICE);
+        when(profileService.resolveXsdOverrides(isNull(), eq("INVOICE")))
+                .thenReturn(Collections.emptyList());
+        when(profileService.resolveSchematronRules(isNull(), anyString()))
+                .thenReturn(Collections.emptyList());
+        when(schemaValidator.validate(any(), eq(SchemaValidationType.INVOICE), anyList(), any(), any(ErrorBudget.class)))
+                .thenReturn(Collections.emptyList());
+        when(schematronValidator.validate(any(), eq(SchematronValidationType.UBLTR_MAIN), any(), anyList(), isNull(),
+                anyMap(), any(ErrorBudget.class)))
+                .thenAnswer(invocation -> {
+                    ErrorBudget budget = invocation.getArgument(6);
+                    for (int i = 0; i < 1000; i++) {
+                        budget.tryRecord();
+                        if (budget.tryGroup(lineError.ruleId(), lineError.test(), null)) {
+                            budget.addSample(lineError.ruleId(), lineError.test(), lineError.message(), null);
+                        }
+                    }
+                    budget.tryRecord();
+                    budget.tryGroup(signatureError.ruleId(), signatureError.test(), null);
+                    budget.addSample(signatureError.ruleId(), signatureError.test(), signatureError.message(), null);
+                    return List.of(lineError, lineError, lineError, signatureError);
+                });
+        when(profileService.applyXsdSuppressions(anyList(), isNull(), anyList(), anySet()))
+                .thenReturn(Collections.emptyList());
+        when(profileService.applySchematronSuppressions(anyList(), isNull(), anyList(), anySet()))
+                .thenReturn(new SuppressionResult(List.of(lineError, lineError, lineError), List.of(signatureError), null, 1));
+
+        var xmlFile = new MockMultipartFile("source", "test.xml", "text/xml",
+                "<Invoice xmlns=\"urn:oasis:names:specification:ubl:schema:xsd:Invoice-2\"/>".getBytes());
+
+        mockMvc.perform(multipart("/v1/validate")
+                        .file(xmlFile)
+                        .param("aggregateErrors", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.validSchematron").value(false))
+                .andExpect(jsonPath("$.result.schemaErrorGroups.length()").value(0))
+                .andExpect(jsonPath("$.result.schematronErrorGroups.length()").value(1))
+                .andExpect(jsonPath("$.result.schematronErrorGroups[0].ruleId").value("LineCheck"))
+                .andExpect(jsonPath("$.result.schematronErrorGroups[0].count").value(1000))
+                .andExpect(jsonPath("$.result.schematronErrorGroups[0].samples.length()").value(3))
+                .andExpect(jsonPath("$.result.errorBudget").doesNotExist());
+    }
+
+    // ── Doğrulama Modu Testleri ────────────────────────────────────────
+
+    @Test
+    @DisplayName("xsd-only modunda Schematron çalışmamalı ve atlandığı raporlanmalı")
+    void shouldSkipSchematronInXsdOnlyMode() throws Exception {
+        when(documentTypeDetector.detect(any(byte[].class)))
+                .thenReturn(DocumentType.INVOICE);
+        when(profileService.resolveXsdOverrides(isNull(), eq("INVOICE")))
+                .thenReturn(Collections.emptyList());
+        when(schemaValidator.validate(any(), eq(SchemaValidationType.INVOICE), anyList(), any()))
+                .thenReturn(Collections.emptyList());
+        when(profileService.applyXsdSuppressions(anyList(), isNull(), anyList(), anySet()))
+                .thenReturn(Collections.emptyList());
+
+        var xmlFile = new MockMultipartFile("source", "test.xml", "text/xml",
+                "<Invoice xmlns=\"urn:oasis:names:specification:ubl:schema:xsd:Invoice-2\"/>".getBytes());
+
+        mockMvc.perform(multipart("/v1/validate")
+                        .file(xmlFile)
+                        .param("mode", "xsd-only"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.validationMode").value("xsd-only"))
+                .andExpect(jsonPath("$.result.validSchema").value(true))
+                .andExpect(jsonPath("$.result.validSchematron").value(false))
+                .andExpect(jsonPath("$.result.skippedStages.schematron").value("MODE"))
+                .andExpect(jsonPath("$.result.skippedStages.schema").doesNotExist())
+                .andExpect(jsonPath("$.result.stageTimingsMs.schema").exists())
+                .andExpect(jsonPath("$.result.stageTimingsMs.schematron").doesNotExist());
+
+        // Schematron çalışmayacağı için belge ağaca parse edilmemeli
+        verifyNoInteractions(schematronValidator, documentParser);
+        verify(xsltMetrics).recordValidationStageSkipped("schematron", "MODE");
+        verify(xsltMetrics).recordDocumentTypeValidation("INVOICE", true);
+    }
+
+    @Test
+    @DisplayName("skip-schematron-on-fatal modunda ölümcül XSD hatasında Schematron atlanmalı")
+    void shouldSkipSchematronOnFatalSchemaError() throws Exception {
+        when(documentTypeDetector.detect(any(byte[].class)))
+                .thenReturn(DocumentType.INVOICE);
+        when(profileService.resolveXsdOverrides(isNull(), eq("INVOICE")))
+                .thenReturn(Collections.emptyList());
+        when(schemaValidator.validate(any(), eq(SchemaValidationType.INVOICE), anyList(), any(), any(ErrorBudget.class)))
+                .thenAnswer(invocation -> {
+                    ErrorBudget budget = invocation.getArgument(4);
+                    budget.recordFatal();
+                    return List.of("XML syntax error");
+                });
+        when(profileService.applyXsdSuppressions(anyList(), isNull(), anyList(), anySet()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        var xmlFile = new MockMultipartFile("source", "test.xml", "text/xml",
+                "<Invoice xmlns=\"urn:oasis:names:specification:ubl:schema:xsd:Invoice-2\">".getBytes());
+
+        mockMvc.perform(multipart("/v1/validate")
+                        .file(xmlFile)
+                        .param("mode", "skip-schematron-on-fatal"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.validationMode").value("skip-schematron-on-fatal"))
+                .andExpect(jsonPath("$.result.validSchema").value(false))
+                .andExpect(jsonPath("$.result.skippedStages.schematron").value("FATAL_SCHEMA_ERROR"))
+                .andExpect(jsonPath("$.result.executionMode").value("sequential"));
+
+        verifyNoInteractions(schematronValidator);
+        verify(xsltMetrics).recordValidationStageSkipped("schematron", "FATAL_SCHEMA_ERROR");
+    }
+
+    @Test
+    @DisplayName("Sonuç cache'i açıkken aynı istek doğrulanmadan dönmeli, asset nesli değişince yeniden doğrulanmalı")
+    void shouldServeRepeatedValidationFromResultCache() throws Exception {
+        setField("parallelStages", false);
+        setField("resultCacheEnabled", true);
+        var init = ValidationController.class.getDeclaredMethod("init");
+        init.setAccessible(true);
+        init.invoke(validationController);
+
+        when(assetRegistry.generation()).thenReturn(1L, 1L, 1L, 2L);
+        when(documentTypeDetector.detect(any(byte[].class)))
+                .thenReturn(DocumentType.INVOICE);
+        when(profileService.resolveXsdOverrides(isNull(), eq("INVOICE")))
+                .thenReturn(Collections.emptyList());
+        when(profileService.resolveSchematronRules(isNull(), anyString()))
+                .thenReturn(Collections.emptyList());
+        when(schemaValidator.validate(any(), eq(SchemaValidationType.INVOICE), anyList(), any()))
+                .thenReturn(List.of("Şema hatası"));
+        when(schematronValidator.validate(any(), eq(SchematronValidationType.UBLTR_MAIN), any(), anyList(), isNull(), anyMap()))
+                .thenReturn(Collections.emptyList());
+        when(profileService.applyXsdSuppressions(anyList(), isNull(), anyList(), anySet()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(profileService.applySchematronSuppressions(anyList(), isNull(), anyList(), anySet()))
+                .thenReturn(new SuppressionResult(List.of(), List.of(), null, 0));
+
+        byte[] invoice = "<Invoice xmlns=\"urn:oasis:names:specification:ubl:schema:xsd:Invoice-2\"/>".getBytes();
+        var xmlFile = new MockMultipartFile("source", "test.xml", "text/xml", invoice);
+
+        mockMvc.perform(multipart("/v1/validate").file(xmlFile))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.cacheHit").value(false))
+                .andExpect(jsonPath("$.result.executionMode").value("sequential"));
+
+        mockMvc.perform(multipart("/v1/validate").file(xmlFile))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.cacheHit").value(true))
+                .andExpect(jsonPath("$.result.validSchema").value(false))
+                .andExpect(jsonPath("$.result.schemaValidationErrors[0]").value("Şema hatası"))
+                .andExpect(jsonPath("$.result.executionMode").value("cached"))
+                .andExpect(jsonPath("$.result.stageTimingsMs.schema").doesNotExist());
+
+        // Farklı parametre farklı anahtar üretir
+        mockMvc.perform(multipart("/v1/validate").file(xmlFile).param("suppressions", "ruleId:X"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.cacheHit").value(false));
+
+        // Reload sonrası yeni nesil — eski sonuç kullanılmaz
+        mockMvc.perform(multipart("/v1/validate").file(xmlFile))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.cacheHit").value(false));
+
+        verify(schemaValidator, times(3)).validate(any(), eq(SchemaValidationType.INVOICE), anyList(), any());
+        verify(xsltMetrics).recordValidationRequest(eq("cached"), anyLong());
+        verify(xsltMetrics).registerValidationResultCacheMetrics(any());
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        var field = ValidationController.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(validationController, value);
+    }
+
+    @Test
+    @DisplayName("Geçersiz mod için BadRequest dönmeli")
+    void shouldReturnBadRequestForInvalidMode() throws Exception {
+        var xmlFile = new MockMultipartFile("source", "test.xml", "text/xml",
+                "<Invoice xmlns=\"urn:oasis:names:specification:ubl:schema:xsd:Invoice-2\"/>".getBytes());
+
+        mockMvc.perform(multipart("/v1/validate")
+                        .file(xmlFile)
+                        .param("mode", "hizli"))
+                .andExpect(status().isBadRequest());
+
+        // Mod belge okunmadan çözülür — geçersiz modda parse ve tespit yapılmamalı
+        verifyNoInteractions(schemaValidator, schematronValidator, documentParser, documentTypeDetector);
+    }
+
     // ── Schematron Parametre Testleri ──────────────────────────────────
 
     @Nested
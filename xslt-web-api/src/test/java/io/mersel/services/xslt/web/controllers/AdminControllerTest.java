@@ -2,9 +2,11 @@ package io.mersel.services.xslt.web.controllers;
 
 import io.mersel.services.xslt.application.interfaces.IGibPackageSyncService;
 import io.mersel.services.xslt.application.interfaces.IValidationProfileService;
+import io.mersel.services.xslt.application.interfaces.IXsltTemplateRegistry;
 import io.mersel.services.xslt.application.interfaces.ReloadResult;
 import io.mersel.services.xslt.application.models.PackageSyncResult;
 import io.mersel.services.xslt.application.models.ValidationProfile;
+import io.mersel.services.xslt.application.models.XsltTemplate;
 import io.mersel.services.xslt.infrastructure.AssetManager;
 import io.mersel.services.xslt.infrastructure.AssetRegistry;
 import io.mersel.services.xslt.web.config.AdminAuthInterceptor;
@@ -17,12 +19,15 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -56,6 +61,9 @@ class AdminControllerTest {
     @Mock
     private IGibPackageSyncService gibSyncService;
 
+    @Mock
+    private IXsltTemplateRegistry templateRegistry;
+
     @Mock
     private AuthService authService;
 
@@ -198,4 +206,21 @@ class AdminControllerTest {
                 .andExpect(jsonPath("$.packages[0].filesExtracted").value(15))
                 .andExpect(jsonPath("$.syncedAt").exists());
     }
+
+    // ── Test 7 ──────────────────────────────────────────────────────────
+
+    @Test
+    @DisplayName("template_kaydet — POST /v1/admin/templates kimlik ve versiyonla 201 dönmeli")
+    void template_kaydet() throws Exception {
+        when(templateRegistry.saveTemplate(eq("acme-fatura"), any()))
+                .thenReturn(new XsltTemplate("acme-fatura", "0123456789abcdef", 42, Instant.parse("2025-01-01T00:00:00Z")));
+
+        var file = new MockMultipartFile("file", "acme.xslt", "application/xml", "<xsl:stylesheet/>".getBytes());
+
+        mockMvc.perform(multipart("/v1/admin/templates").file(file).param("id", "acme-fatura"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.template.id").value("acme-fatura"))
+                .andExpect(jsonPath("$.template.version").value("0123456789abcdef"))
+                .andExpect(jsonPath("$.template.size").value(42));
+    }
 }
@@ -2,9 +2,11 @@ package io.mersel.services.xslt.web.integration;
 
 import io.mersel.services.xslt.application.interfaces.ISchemaValidator;
 import io.mersel.services.xslt.application.interfaces.ISchematronValidator;
+import io.mersel.services.xslt.application.interfaces.IValidationDocumentParser;
 import io.mersel.services.xslt.application.interfaces.IValidationProfileService;
 import io.mersel.services.xslt.application.models.SchematronError;
 import io.mersel.services.xslt.application.models.SuppressionResult;
+import io.mersel.services.xslt.infrastructure.AssetRegistry;
 import io.mersel.services.xslt.infrastructure.DocumentTypeDetector;
 import io.mersel.services.xslt.infrastructure.diagnostics.XsltMetrics;
 import io.mersel.services.xslt.web.controllers.ValidationController;
@@ -50,6 +52,9 @@ class ValidationIntegrationTest {
 
     private MockMvc mockMvc;
 
+    @Mock
+    private IValidationDocumentParser documentParser;
+
     @Mock
     private ISchemaValidator schemaValidator;
 
@@ -59,16 +64,21 @@ class ValidationIntegrationTest {
     @Mock
     private IValidationProfileService profileService;
 
+    @Mock
+    private AssetRegistry assetRegistry;
+
     @Mock
     private XsltMetrics xsltMetrics;
 
     @BeforeEach
     void setUp() throws Exception {
         var controller = new ValidationController(
+                documentParser,
                 new DocumentTypeDetector(),
                 schemaValidator,
                 schematronValidator,
                 profileService,
+                assetRegistry,
                 xsltMetrics,
                 new ObjectMapper()
         );